@@ -1,12 +1,16 @@
 package com.taskpilot.aspect;
 
 import com.taskpilot.model.User;
+import com.taskpilot.service.IdempotencyStore;
 import com.taskpilot.service.RateLimitingService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.server.ResponseStatusException;
 
 @Aspect
@@ -14,9 +18,11 @@ import org.springframework.web.server.ResponseStatusException;
 public class RateLimitingAspect {
 
     private final RateLimitingService rateLimitingService;
+    private final IdempotencyStore idempotencyStore;
 
-    public RateLimitingAspect(RateLimitingService rateLimitingService) {
+    public RateLimitingAspect(RateLimitingService rateLimitingService, IdempotencyStore idempotencyStore) {
         this.rateLimitingService = rateLimitingService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     // This pointcut now targets any method annotated with @CheckRateLimit
@@ -24,8 +30,19 @@ public class RateLimitingAspect {
     public void checkRateLimit() {
         User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 
+        // A retry of a request the user has already been charged for, and that succeeded, replays the stored result,
+        // so it is free. A retry of one still running is charged, since the original may yet fail and be forgotten.
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletRequest request = attributes.getRequest();
+            String idempotencyKey = request.getHeader(IdempotencyStore.HEADER);
+            if (idempotencyKey != null
+                    && idempotencyStore.hasCompleted(IdempotencyStore.scope(currentUser.getId(), request.getRequestURI()), idempotencyKey)) {
+                return;
+            }
+        }
+
         if (!rateLimitingService.isRequestAllowed(currentUser)) {
             throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "You have exceeded either your daily or monthly request limit.");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.taskpilot.chunking;
+
+import java.util.List;
+
+public interface ChunkSplitter {
+    /**
+     * Splits text into chunks that each fit in the given budget.
+     * Concatenating the chunks in order gives back the original text.
+     * @param text The text to split.
+     * @param maxTokens The largest size a chunk may have, in approximate model tokens.
+     * @return The chunks in document order, or an empty list if the text is empty.
+     */
+    List<String> split(String text, int maxTokens);
+
+    /**
+     * @return the approximate number of model tokens in the text.
+     */
+    int estimateTokens(CharSequence text);
+
+    /**
+     * @return true if every cut except the last depends only on the text around it, so that splitting a prefix of a
+     * document gives the same chunks as splitting the whole document, apart from the last chunk of the prefix.
+     */
+    default boolean isContentDefined() {
+        return false;
+    }
+}
@@ -0,0 +1,107 @@
+package com.taskpilot.chunking;
+
+import com.taskpilot.config.ChunkingConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Cuts text where its content says to rather than where a size limit falls, so an edit only changes the chunks
+ * around it: the chunks before and after an edited section come out exactly as they did before the edit.
+ * A Gear rolling hash is kept over the last 64 characters, and a chunk ends at the first word start after a
+ * position where the top bits of the hash are all zero. Chunks are at least half the budget; one that reaches the
+ * full budget without a hash boundary is cut at its last word start instead, or mid-word if it has none.
+ * With the default settings a chunk averages about three quarters of the budget.
+ */
+@Component
+@ConditionalOnProperty(name = "app.chunking.strategy", havingValue = "content-defined")
+public class ContentDefinedChunkSplitter implements ChunkSplitter {
+
+    // The hash is shifted one bit per character, so its top bits depend only on the last 64 characters
+    private static final int WINDOW = 64;
+    // Fixed so that the same text is cut in the same places on every instance and after every restart
+    private static final long[] GEAR = new SplittableRandom(0x7A5C_D1F3_0B2E_4968L).longs(256).toArray();
+
+    private final int charsPerToken;
+
+    public ContentDefinedChunkSplitter(ChunkingConfig chunkingConfig) {
+        this.charsPerToken = chunkingConfig.charsPerToken();
+    }
+
+    @Override
+    public int estimateTokens(CharSequence text) {
+        return Math.ceilDiv(text.length(), charsPerToken);
+    }
+
+    @Override
+    public boolean isContentDefined() {
+        return true;
+    }
+
+    @Override
+    public List<String> split(String text, int maxTokens) {
+        List<String> chunks = new ArrayList<>();
+        int maxChars = Math.max(2, maxTokens * charsPerToken);
+        int minChars = maxChars / 2;
+        // One position in 2^bits is a boundary, leaving on average a quarter of the budget between the minimum and the cut
+        int bits = Math.max(1, 31 - Integer.numberOfLeadingZeros(Math.max(1, (maxChars - minChars) / 2)));
+        long mask = -1L << (Long.SIZE - bits);
+
+        int start = 0;
+        while (start < text.length()) {
+            int end = findCut(text, start, minChars, maxChars, mask);
+            chunks.add(text.substring(start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static int findCut(String text, int start, int minChars, int maxChars, long mask) {
+        int limit = (int) Math.min(text.length(), (long) start + maxChars);
+        int firstCandidate = start + minChars;
+        long hash = 0;
+        for (int i = Math.max(start, firstCandidate - WINDOW); i < limit; i++) {
+            char c = text.charAt(i);
+            hash = (hash << 1) + GEAR[(c ^ (c >>> 8)) & 0xFF];
+            if (i + 1 >= firstCandidate && (hash & mask) == 0) {
+                int cut = nextWordStart(text, i + 1, limit);
+                if (cut >= 0) {
+                    return cut;
+                }
+            }
+        }
+        if (limit == text.length()) {
+            return limit;
+        }
+        return forcedCut(text, start + Math.max(1, minChars), limit);
+    }
+
+    /**
+     * @return the first position from {@code from} up to {@code limit} where a word starts or the text ends,
+     * or -1 if there is none.
+     */
+    private static int nextWordStart(String text, int from, int limit) {
+        for (int j = Math.max(from, 1); j <= limit; j++) {
+            if (j == text.length() || (Character.isWhitespace(text.charAt(j - 1)) && !Character.isWhitespace(text.charAt(j)))) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Cuts a chunk that reached the budget without a hash boundary at its last word start, or failing that at
+     * the limit itself, without separating a surrogate pair.
+     */
+    private static int forcedCut(String text, int earliest, int limit) {
+        for (int j = limit; j > earliest; j--) {
+            if (Character.isWhitespace(text.charAt(j - 1)) && !Character.isWhitespace(text.charAt(j))) {
+                return j;
+            }
+        }
+        return Character.isHighSurrogate(text.charAt(limit - 1)) && Character.isLowSurrogate(text.charAt(limit)) ? limit - 1 : limit;
+    }
+}
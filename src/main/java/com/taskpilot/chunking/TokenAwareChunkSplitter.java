@@ -0,0 +1,91 @@
+package com.taskpilot.chunking;
+
+import com.taskpilot.config.ChunkingConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packs text greedily into chunks of at most a given number of approximate tokens, counting a token as a fixed
+ * number of characters. Each chunk is cut at the latest paragraph break that fits; failing that at the latest sentence
+ * end, line break or whitespace, and only as a last resort in the middle of a word. The text is scanned once, with no
+ * intermediate arrays of paragraphs.
+ */
+@Component
+@ConditionalOnProperty(name = "app.chunking.strategy", havingValue = "token", matchIfMissing = true)
+public class TokenAwareChunkSplitter implements ChunkSplitter {
+
+    private static final int PARAGRAPH = 4;
+    private static final int SENTENCE = 3;
+    private static final int LINE = 2;
+    private static final int WHITESPACE = 1;
+
+    private final int charsPerToken;
+
+    public TokenAwareChunkSplitter(ChunkingConfig chunkingConfig) {
+        this.charsPerToken = chunkingConfig.charsPerToken();
+    }
+
+    @Override
+    public int estimateTokens(CharSequence text) {
+        return Math.ceilDiv(text.length(), charsPerToken);
+    }
+
+    @Override
+    public List<String> split(String text, int maxTokens) {
+        List<String> chunks = new ArrayList<>();
+        int maxChars = Math.max(2, maxTokens * charsPerToken);
+        int start = 0;
+        while (text.length() - start > maxChars) {
+            int end = findCut(text, start, start + maxChars);
+            chunks.add(text.substring(start, end));
+            start = end;
+        }
+        if (start < text.length()) {
+            chunks.add(text.substring(start));
+        }
+        return chunks;
+    }
+
+    /**
+     * Walks back from the limit and returns the end of the chunk that starts at {@code start}. The first boundary
+     * of each kind met on the way back is the latest one, so the walk stops as soon as it finds a paragraph break.
+     */
+    private static int findCut(String text, int start, int limit) {
+        int bestCut = 0;
+        int bestRank = 0;
+        for (int i = limit - 1; i >= start && bestRank < PARAGRAPH; i--) {
+            int rank = boundaryRank(text, start, i);
+            if (rank > bestRank) {
+                bestRank = rank;
+                bestCut = i + 1;
+            }
+        }
+        if (bestCut > start) {
+            return bestCut;
+        }
+        // No boundary at all, so cut mid-word but never between the two halves of a surrogate pair
+        return Character.isHighSurrogate(text.charAt(limit - 1)) ? limit - 1 : limit;
+    }
+
+    /**
+     * Ranks the position just after {@code text.charAt(i)} as a place to end a chunk, or 0 if it isn't one.
+     * Only characters from {@code start} on are looked at, so the previous chunk can't turn a boundary into a stronger one.
+     */
+    private static int boundaryRank(String text, int start, int i) {
+        char c = text.charAt(i);
+        if (!Character.isWhitespace(c)) {
+            return 0;
+        }
+        char previous = i > start ? text.charAt(i - 1) : 0;
+        if (c == '\n' && previous == '\n') {
+            return PARAGRAPH;
+        }
+        if (previous == '.' || previous == '!' || previous == '?') {
+            return SENTENCE;
+        }
+        return c == '\n' ? LINE : WHITESPACE;
+    }
+}
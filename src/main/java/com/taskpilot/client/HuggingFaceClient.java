@@ -4,19 +4,27 @@ import com.taskpilot.config.HuggingFaceApiConfig;
 import com.taskpilot.dto.task.HuggingFaceApiV1;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
 
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 @Component
 public class HuggingFaceClient {
+    public static final String MODEL_NAME = "moonshotai/Kimi-K2-Instruct";
+    // The chat completions stream ends with this in place of a JSON chunk
+    private static final String STREAM_DONE = "[DONE]";
     private final Logger logger = LoggerFactory.getLogger(HuggingFaceClient.class);
     private final WebClient webClient;
 
@@ -31,26 +39,61 @@ public class HuggingFaceClient {
     }
 
     public HuggingFaceApiV1.ChatCompletion chatCompletion(String prompt) {
-        String MODEL_NAME = "moonshotai/Kimi-K2-Instruct";
-        Map<String, Object> requestBody = Map.of(
-                "messages", List.of(
-                        Map.of(
-                                "role", "user",
-                                "content", prompt
-                        )
-                ),
-                "model", MODEL_NAME,
-                "stream", false
-        );
+        return chatCompletion(prompt, null);
+    }
+
+    public HuggingFaceApiV1.ChatCompletion chatCompletion(String prompt, Map<String, Object> responseFormat) {
+        return chatCompletionReactive(prompt, responseFormat).block();
+    }
 
+    /**
+     * Sends the prompt without blocking, asking for a response in the given format.
+     * The response is read on a Netty event loop thread.
+     * @param responseFormat An OpenAI-style response_format, e.g. a JSON schema, or null for free text.
+     */
+    public Mono<HuggingFaceApiV1.ChatCompletion> chatCompletionReactive(String prompt, Map<String, Object> responseFormat) {
         return webClient
                 .post()
                 .uri("/v1/chat/completions")
-                .bodyValue(requestBody)
+                .bodyValue(requestBody(prompt, false, responseFormat))
                 .retrieve()
                 .bodyToMono(HuggingFaceApiV1.ChatCompletion.class)
                 .doOnNext(response -> logger.debug("Received response: {}", response))
-                .doOnError(error -> logger.error("Error calling HuggingFace API: ", error))
-                .block();
+                .doOnError(error -> logger.error("Error calling HuggingFace API: ", error));
+    }
+
+    /**
+     * Requests a streamed completion and returns the data of each server-sent event as it arrives,
+     * up to the end-of-stream marker. Each item is one JSON chat completion chunk.
+     * @param responseFormat An OpenAI-style response_format, or null for free text.
+     */
+    public Flux<String> streamChatCompletion(String prompt, Map<String, Object> responseFormat) {
+        return webClient
+                .post()
+                .uri("/v1/chat/completions")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(requestBody(prompt, true, responseFormat))
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !STREAM_DONE.equals(data.trim()))
+                .doOnError(error -> logger.error("Error streaming from HuggingFace API: ", error));
+    }
+
+    private static Map<String, Object> requestBody(String prompt, boolean stream, Map<String, Object> responseFormat) {
+        Map<String, Object> body = new LinkedHashMap<>(Map.of(
+                "messages", List.of(
+                        Map.of(
+                                "role", "user",
+                                "content", prompt
+                        )
+                ),
+                "model", MODEL_NAME,
+                "stream", stream
+        ));
+        if (responseFormat != null) {
+            body.put("response_format", responseFormat);
+        }
+        return body;
     }
 }
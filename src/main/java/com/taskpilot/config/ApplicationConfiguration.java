@@ -13,6 +13,9 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Configuration
 public class ApplicationConfiguration {
     private final UserRepository userRepository;
@@ -54,4 +57,13 @@ public class ApplicationConfiguration {
     public RestTemplate restTemplate() {
         return new RestTemplate();
     }
+
+    /**
+     * Runs LLM calls, which spend nearly all their time blocked on HTTP, on virtual threads.
+     * How many run at once is limited by the bulkheads in LLMCallExecutor rather than by a pool size.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService llmExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("llm-", 0).factory());
+    }
 }
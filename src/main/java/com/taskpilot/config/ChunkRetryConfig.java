@@ -0,0 +1,47 @@
+package com.taskpilot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * How a chunk whose LLM call fails is retried, and what becomes of a document when a chunk fails for good.
+ * @param maxAttempts How many times a chunk is sent before it counts as failed, including the first time.
+ * @param initialBackoffMs How long to wait before the first retry. Each later retry waits twice as long, give or
+ *                         take half, so chunks that failed together don't all retry together.
+ * @param maxBackoffMs The longest wait between two attempts.
+ * @param onFailure FAIL to fail the whole document, or PARTIAL to return what the other chunks produced, marked as partial.
+ * @param minSuccessRatio The fraction (0-1) of a document's chunks that must succeed for a partial result.
+ */
+@ConfigurationProperties(prefix = "app.llm.chunk-retry")
+public record ChunkRetryConfig(@DefaultValue("3") int maxAttempts,
+                               @DefaultValue("500") long initialBackoffMs,
+                               @DefaultValue("8000") long maxBackoffMs,
+                               @DefaultValue("partial") FailurePolicy onFailure,
+                               @DefaultValue("0.5") double minSuccessRatio) {
+
+    public enum FailurePolicy { FAIL, PARTIAL }
+
+    public ChunkRetryConfig {
+        maxAttempts = Math.max(1, maxAttempts);
+        initialBackoffMs = Math.max(0, initialBackoffMs);
+        maxBackoffMs = Math.max(initialBackoffMs, maxBackoffMs);
+        onFailure = onFailure == null ? FailurePolicy.PARTIAL : onFailure;
+        minSuccessRatio = Math.clamp(minSuccessRatio, 0.0, 1.0);
+    }
+
+    /**
+     * @return how long to wait before the given retry (1 for the first), without jitter.
+     */
+    public long backoffMs(int retry) {
+        long backoff = initialBackoffMs << Math.min(retry - 1, 30);
+        return backoff < 0 ? maxBackoffMs : Math.min(backoff, maxBackoffMs);
+    }
+
+    /**
+     * @return true if a document whose chunks failed in these numbers still gets a result from the others.
+     */
+    public boolean acceptsPartial(int chunks, int failed) {
+        int succeeded = chunks - failed;
+        return onFailure == FailurePolicy.PARTIAL && succeeded > 0 && succeeded >= minSuccessRatio * chunks;
+    }
+}
@@ -0,0 +1,35 @@
+package com.taskpilot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Chunk budgets for the text sent to each LLM provider, in approximate model tokens.
+ * @param charsPerToken How many characters are counted as one token.
+ * @param defaultMaxTokens The budget for a provider that has no entry of its own.
+ * @param maxTokens Budgets keyed by provider name, e.g. "gemini".
+ */
+@ConfigurationProperties(prefix = "app.chunking")
+public record ChunkingConfig(@DefaultValue("4") int charsPerToken,
+                             @DefaultValue("12500") int defaultMaxTokens,
+                             Map<String, Integer> maxTokens) {
+
+    public ChunkingConfig {
+        charsPerToken = Math.max(1, charsPerToken);
+        maxTokens = maxTokens == null ? Map.of() : Map.copyOf(maxTokens);
+    }
+
+    public int maxTokensFor(String provider) {
+        return Math.max(1, maxTokens.getOrDefault(provider, defaultMaxTokens));
+    }
+
+    /**
+     * @return the smallest budget of the given providers, so that a chunk fits whichever of them it is sent to.
+     */
+    public int maxTokensFor(Collection<String> providers) {
+        return providers.stream().mapToInt(this::maxTokensFor).min().orElse(Math.max(1, defaultMaxTokens));
+    }
+}
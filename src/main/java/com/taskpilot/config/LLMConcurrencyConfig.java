@@ -0,0 +1,27 @@
+package com.taskpilot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/**
+ * Limits on how many LLM calls may be in flight at once.
+ * @param defaultMaxPerProvider The limit for a provider that has no entry of its own.
+ * @param maxPerProvider Limits across all requests, keyed by provider name, e.g. "gemini".
+ * @param maxPerRequest The limit for the chunks of any one document.
+ */
+@ConfigurationProperties(prefix = "app.llm.concurrency")
+public record LLMConcurrencyConfig(@DefaultValue("16") int defaultMaxPerProvider,
+                                   Map<String, Integer> maxPerProvider,
+                                   @DefaultValue("4") int maxPerRequest) {
+
+    public LLMConcurrencyConfig {
+        maxPerProvider = maxPerProvider == null ? Map.of() : Map.copyOf(maxPerProvider);
+        maxPerRequest = Math.max(1, maxPerRequest);
+    }
+
+    public int maxFor(String provider) {
+        return Math.max(1, maxPerProvider.getOrDefault(provider, defaultMaxPerProvider));
+    }
+}
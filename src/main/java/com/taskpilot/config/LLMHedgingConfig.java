@@ -0,0 +1,36 @@
+package com.taskpilot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * When an LLM call is hedged by sending the same call to a second provider.
+ * @param enabled Whether slow calls are hedged. Failed calls are failed over to a second provider either way.
+ * @param percentile The percentile (0-1) of recent primary latencies to wait before hedging.
+ * @param minDelayMs The shortest time to wait before hedging, however fast recent calls were.
+ * @param maxDelayMs The longest time to wait before hedging; also used until enough latencies have been seen.
+ * @param window How many recent primary latencies the percentile is taken over.
+ * @param minSamples How many latencies must have been seen before the percentile is used.
+ * @param budgetRatio The most hedges to send per primary call, e.g. 0.05 for one hedge per twenty calls.
+ * @param budgetBurst The most unspent hedges that can build up while calls are fast.
+ */
+@ConfigurationProperties(prefix = "app.llm.hedging")
+public record LLMHedgingConfig(@DefaultValue("true") boolean enabled,
+                               @DefaultValue("0.95") double percentile,
+                               @DefaultValue("2000") long minDelayMs,
+                               @DefaultValue("30000") long maxDelayMs,
+                               @DefaultValue("200") int window,
+                               @DefaultValue("20") int minSamples,
+                               @DefaultValue("0.05") double budgetRatio,
+                               @DefaultValue("10") int budgetBurst) {
+
+    public LLMHedgingConfig {
+        percentile = Math.clamp(percentile, 0.0, 1.0);
+        minDelayMs = Math.max(0, minDelayMs);
+        maxDelayMs = Math.max(minDelayMs, maxDelayMs);
+        window = Math.max(1, window);
+        minSamples = Math.clamp(minSamples, 1, window);
+        budgetRatio = Math.max(0.0, budgetRatio);
+        budgetBurst = Math.max(0, budgetBurst);
+    }
+}
@@ -0,0 +1,48 @@
+package com.taskpilot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How LLM calls are spread across providers, and when a provider is taken out of rotation.
+ * @param weights Relative share of calls, keyed by provider name, e.g. "gemini". Providers without a positive weight get no calls.
+ * @param ewmaAlpha How much each call moves a provider's rolling error rate and latency (0-1).
+ * @param failureRateThreshold The rolling error rate (0-1) at which a provider's circuit opens.
+ * @param minCalls How many calls a provider must have had before its error rate can open its circuit.
+ * @param consecutiveFailures How many failures in a row open a provider's circuit, whatever its error rate.
+ * @param openMs How long an open circuit stays open before the provider is tried again.
+ * @param rampUpMs How long a provider takes to win back its full share of calls once its circuit closes.
+ */
+@ConfigurationProperties(prefix = "app.llm.routing")
+public record LLMRoutingConfig(Map<String, Integer> weights,
+                               @DefaultValue("0.2") double ewmaAlpha,
+                               @DefaultValue("0.5") double failureRateThreshold,
+                               @DefaultValue("10") int minCalls,
+                               @DefaultValue("5") int consecutiveFailures,
+                               @DefaultValue("30000") long openMs,
+                               @DefaultValue("60000") long rampUpMs) {
+
+    public LLMRoutingConfig {
+        weights = weights == null ? Map.of("gemini", 1) : Map.copyOf(weights);
+        ewmaAlpha = Math.clamp(ewmaAlpha, 0.01, 1.0);
+        failureRateThreshold = Math.clamp(failureRateThreshold, 0.0, 1.0);
+        minCalls = Math.max(1, minCalls);
+        consecutiveFailures = Math.max(1, consecutiveFailures);
+        openMs = Math.max(0, openMs);
+        rampUpMs = Math.max(0, rampUpMs);
+    }
+
+    public int weightOf(String provider) {
+        return Math.max(0, weights.getOrDefault(provider, 0));
+    }
+
+    /**
+     * @return the providers that get a share of calls.
+     */
+    public List<String> routedProviders() {
+        return weights.keySet().stream().filter(provider -> weightOf(provider) > 0).sorted().toList();
+    }
+}
@@ -0,0 +1,26 @@
+package com.taskpilot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Budgets for the prompts that summarise chunk descriptions into one for the whole document, in approximate model tokens.
+ * @param maxInputTokens The most description text one summary prompt may carry.
+ * @param maxDescriptionTokens The most any one description, or summary of descriptions, may take up in a prompt.
+ */
+@ConfigurationProperties(prefix = "app.llm.summary")
+public record LLMSummaryConfig(@DefaultValue("4000") int maxInputTokens,
+                               @DefaultValue("150") int maxDescriptionTokens) {
+
+    public LLMSummaryConfig {
+        maxDescriptionTokens = Math.max(1, maxDescriptionTokens);
+        maxInputTokens = Math.max(2 * maxDescriptionTokens, maxInputTokens);
+    }
+
+    /**
+     * @return how many descriptions are summarised together, so that a full group still fits the input budget.
+     */
+    public int fanIn() {
+        return maxInputTokens / maxDescriptionTokens;
+    }
+}
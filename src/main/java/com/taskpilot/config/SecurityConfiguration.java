@@ -25,13 +25,16 @@ public class SecurityConfiguration {
 
     private final AuthenticationProvider authenticationProvider;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final UploadSizeLimitFilter uploadSizeLimitFilter;
 
     public SecurityConfiguration(
             AuthenticationProvider authenticationProvider,
-            JwtAuthenticationFilter jwtAuthenticationFilter
+            JwtAuthenticationFilter jwtAuthenticationFilter,
+            UploadSizeLimitFilter uploadSizeLimitFilter
     ) {
         this.authenticationProvider = authenticationProvider;
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.uploadSizeLimitFilter = uploadSizeLimitFilter;
     }
 
     @Bean
@@ -47,12 +50,16 @@ public class SecurityConfiguration {
                         .requestMatchers("/api/v1/auth/**").permitAll()
                         .requestMatchers("/api/v1/users/enabled/**").permitAll()
                         .requestMatchers("/api/v1/webhook/**").permitAll()
+                        // Provider routing state is operational detail, not something users should see
+                        .requestMatchers("/actuator/llmproviders/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider)
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                // Needs the user set by the JWT filter to know which plan limit applies
+                .addFilterAfter(uploadSizeLimitFilter, JwtAuthenticationFilter.class)
                 .build();
     }
 
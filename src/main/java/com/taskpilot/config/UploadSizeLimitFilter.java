@@ -0,0 +1,191 @@
+package com.taskpilot.config;
+
+import com.taskpilot.exception.FileTooLargeException;
+import com.taskpilot.model.User;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Enforces the authenticated user's plan file size limit before the multipart body is read.
+ * Runs after JwtAuthenticationFilter so the user's Plan is known. The container only ever reads as many
+ * body bytes as the request declares, so a request whose Content-Length is over the limit is rejected
+ * without reading the body at all, and the connection is closed instead of draining the rest of the upload.
+ * Chunked and HTTP/2 uploads don't have to declare a length, so those are let through with their body counted
+ * as it is read instead, and fail with FileTooLargeException as soon as they pass the limit.
+ */
+@Component
+public class UploadSizeLimitFilter extends OncePerRequestFilter {
+    private final Logger logger = LoggerFactory.getLogger(UploadSizeLimitFilter.class);
+    private final HandlerExceptionResolver handlerExceptionResolver;
+    private final long multipartOverheadBytes;
+
+    public UploadSizeLimitFilter(HandlerExceptionResolver handlerExceptionResolver,
+                                 @Value("${app.upload.multipart-overhead-bytes:65536}") long multipartOverheadBytes) {
+        this.handlerExceptionResolver = handlerExceptionResolver;
+        this.multipartOverheadBytes = multipartOverheadBytes;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof User user) || user.getPlan() == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long maxFileSize = user.getPlan().getMaxFileSize();
+        // The body also carries the multipart boundaries and part headers, so allow a little over the file limit
+        long maxBodySize = maxFileSize + multipartOverheadBytes;
+        long contentLength = request.getContentLengthLong();
+
+        if (contentLength < 0) {
+            SizeLimitedRequest limitedRequest = new SizeLimitedRequest(request, maxFileSize, maxBodySize);
+            try {
+                // Tomcat parses the parts from its own stream rather than the wrapper's, so check them here while the
+                // response can still be rejected the same way as a declared length would be
+                limitedRequest.getParts();
+            } catch (FileTooLargeException e) {
+                logger.warn("Rejected upload of {} bytes without a declared length from '{}'; plan limit is {} bytes.", e.getFileSize(), user.getEmail(), maxFileSize);
+                reject(request, response, e);
+                return;
+            } catch (IllegalStateException | ServletException e) {
+                // Left for the multipart resolver, which reports parse failures as it would for any other upload
+            }
+            filterChain.doFilter(limitedRequest, response);
+            return;
+        }
+        if (contentLength > maxBodySize) {
+            logger.warn("Rejected upload of {} bytes from '{}' before reading it; plan limit is {} bytes.", contentLength, user.getEmail(), maxFileSize);
+            reject(request, response, new FileTooLargeException(contentLength, maxFileSize, "File size exceeds the allowed limit."));
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, RuntimeException e) {
+        // Without this the container would try to read and discard the rest of the body before reusing the connection
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        handlerExceptionResolver.resolveException(request, response, null, e);
+    }
+
+    /**
+     * Holds an upload that didn't declare its length to the body size limit, counting the bytes read from its
+     * input stream and checking the parts the container parsed from it.
+     */
+    static final class SizeLimitedRequest extends HttpServletRequestWrapper {
+        private final long maxFileSize;
+        private final long maxBodySize;
+        private ServletInputStream inputStream;
+
+        SizeLimitedRequest(HttpServletRequest request, long maxFileSize, long maxBodySize) {
+            super(request);
+            this.maxFileSize = maxFileSize;
+            this.maxBodySize = maxBodySize;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = new CountingInputStream(super.getInputStream());
+            }
+            return inputStream;
+        }
+
+        @Override
+        public Collection<Part> getParts() throws IOException, ServletException {
+            Collection<Part> parts = super.getParts();
+            long size = 0;
+            for (Part part : parts) {
+                size += part.getSize();
+            }
+            checkSize(size);
+            return parts;
+        }
+
+        @Override
+        public Part getPart(String name) throws IOException, ServletException {
+            getParts();
+            return super.getPart(name);
+        }
+
+        private void checkSize(long size) {
+            if (size > maxBodySize) {
+                throw new FileTooLargeException(size, maxFileSize, "File size exceeds the allowed limit.");
+            }
+        }
+
+        private final class CountingInputStream extends ServletInputStream {
+            private final ServletInputStream delegate;
+            private long count;
+
+            CountingInputStream(ServletInputStream delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public int read() throws IOException {
+                int b = delegate.read();
+                if (b >= 0) {
+                    count(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = delegate.read(buffer, offset, length);
+                if (read > 0) {
+                    count(read);
+                }
+                return read;
+            }
+
+            private void count(int read) {
+                count += read;
+                checkSize(count);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return delegate.isFinished();
+            }
+
+            @Override
+            public boolean isReady() {
+                return delegate.isReady();
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                delegate.setReadListener(readListener);
+            }
+        }
+    }
+}
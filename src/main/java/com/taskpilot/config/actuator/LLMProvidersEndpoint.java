@@ -0,0 +1,27 @@
+package com.taskpilot.config.actuator;
+
+import com.taskpilot.service.RoutingLLMService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Shows how LLM calls are currently being routed, at /actuator/llmproviders. Only admins may read it.
+ */
+@Component
+@Endpoint(id = "llmproviders")
+public class LLMProvidersEndpoint {
+
+    private final RoutingLLMService routingLLMService;
+
+    public LLMProvidersEndpoint(RoutingLLMService routingLLMService) {
+        this.routingLLMService = routingLLMService;
+    }
+
+    @ReadOperation
+    public List<RoutingLLMService.ProviderStatus> providers() {
+        return routingLLMService.providerStatuses();
+    }
+}
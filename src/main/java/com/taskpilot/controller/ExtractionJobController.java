@@ -0,0 +1,119 @@
+package com.taskpilot.controller;
+
+import com.taskpilot.aspect.CheckRateLimit;
+import com.taskpilot.dto.task.ExtractionJobDTO;
+import com.taskpilot.exception.FileTooLargeException;
+import com.taskpilot.exception.InvalidLLMResponseException;
+import com.taskpilot.model.User;
+import com.taskpilot.repository.UserRepository;
+import com.taskpilot.service.DocumentParsingService;
+import com.taskpilot.service.ExtractionJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Map;
+
+/**
+ * Accepts documents for extraction in the background. The upload is parsed straight away, then the text is
+ * queued and the client is answered with 202 and the job's location. The client polls the job, or passes a
+ * callback URL that the finished job is POSTed to.
+ */
+@RestController
+@RequestMapping("/api/v1/tasks/jobs")
+public class ExtractionJobController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionJobController.class);
+    private final DocumentParsingService parsingService;
+    private final ExtractionJobService extractionJobService;
+    private final UserRepository userRepository;
+
+    public ExtractionJobController(
+            DocumentParsingService parsingService,
+            ExtractionJobService extractionJobService,
+            UserRepository userRepository
+    ) {
+        this.parsingService = parsingService;
+        this.extractionJobService = extractionJobService;
+        this.userRepository = userRepository;
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @CheckRateLimit
+    public ResponseEntity<?> submitJob(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "equations", defaultValue = "false") boolean hasEquations,
+            @RequestParam(value = "callbackUrl", required = false) String callbackUrl,
+            Authentication authentication
+    ) throws IOException, InvalidLLMResponseException {
+
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "File cannot be empty."));
+        }
+        if (callbackUrl != null && !isHttpUrl(callbackUrl)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Callback URL must be an absolute http or https URL."));
+        }
+
+        User currentUser = findUserByAuthentication(authentication);
+
+        if (file.getSize() > currentUser.getPlan().getMaxFileSize()) {
+            throw new FileTooLargeException(file.getSize(), currentUser.getPlan().getMaxFileSize(), "File size exceeds the allowed limit.");
+        }
+
+        // The upload only lives as long as the request, so it is parsed before the job is queued
+        logger.info("Parsing document '{}' for queued extraction for user '{}'", file.getOriginalFilename(), currentUser.getEmail());
+        String documentText = parsingService.parseDocument(file, hasEquations);
+
+        if (documentText == null || documentText.isBlank()) {
+            logger.warn("Parsed document text is empty for user '{}'.", currentUser.getEmail());
+            return ResponseEntity.badRequest().body(Map.of("error", "Parsed document text is empty."));
+        }
+
+        ExtractionJobDTO job = extractionJobService.enqueue(currentUser, documentText, callbackUrl);
+
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(job.id())
+                .toUri();
+
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ExtractionJobDTO> getJob(@PathVariable Long jobId, Authentication authentication) {
+        User currentUser = findUserByAuthentication(authentication);
+
+        return extractionJobService.getJobForUser(jobId, currentUser)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> {
+                    logger.warn("Failed to retrieve extraction job {}. Job not found or user '{}' is not the owner.", jobId, currentUser.getEmail());
+                    return ResponseEntity.notFound().build();
+                });
+    }
+
+    private static boolean isHttpUrl(String url) {
+        try {
+            URI uri = new URI(url);
+            return ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()))
+                    && uri.getHost() != null;
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    private User findUserByAuthentication(Authentication authentication) {
+        String userEmail = authentication.getName();
+        return userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new UsernameNotFoundException("Authenticated user '" + userEmail + "' not found in the database."));
+    }
+}
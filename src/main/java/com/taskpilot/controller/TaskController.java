@@ -7,11 +7,17 @@ import com.taskpilot.exception.InvalidLLMResponseException;
 import com.taskpilot.model.User;
 import com.taskpilot.repository.UserRepository;
 import com.taskpilot.service.DocumentParsingService;
+import com.taskpilot.service.ExtractionCoalescer;
+import com.taskpilot.service.ExtractionEvent;
+import com.taskpilot.service.ExtractionPipeline;
+import com.taskpilot.service.IdempotencyStore;
 import com.taskpilot.service.TaskRouterService;
 import com.taskpilot.service.TaskService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -22,7 +28,11 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
 import java.net.URI;
@@ -39,17 +49,26 @@ public class TaskController {
     private final TaskRouterService taskRouterService;
     private final TaskService taskService;
     private final UserRepository userRepository;
+    private final ExtractionCoalescer extractionCoalescer;
+    private final IdempotencyStore idempotencyStore;
+    private final long streamTimeoutMillis;
 
     public TaskController(
             DocumentParsingService parsingService,
             TaskRouterService taskRouterService,
             TaskService taskService,
-            UserRepository userRepository
+            UserRepository userRepository,
+            ExtractionCoalescer extractionCoalescer,
+            IdempotencyStore idempotencyStore,
+            @Value("${app.tasks.stream-timeout-ms:300000}") long streamTimeoutMillis
     ) {
         this.parsingService = parsingService;
         this.taskRouterService = taskRouterService;
         this.taskService = taskService;
         this.userRepository = userRepository;
+        this.extractionCoalescer = extractionCoalescer;
+        this.idempotencyStore = idempotencyStore;
+        this.streamTimeoutMillis = streamTimeoutMillis;
     }
 
     @GetMapping
@@ -96,17 +115,27 @@ public class TaskController {
         return ResponseEntity.created(location).body(createdTask);
     }
 
+    /**
+     * Extracts tasks from a document and saves them. Identical documents being processed at the same time, by any
+     * user, share one extraction. A request with an Idempotency-Key header that repeats an earlier request from the
+     * same user gets the earlier response back, marked with an Idempotent-Replayed header, instead of a new task list.
+     */
     @PostMapping(value = "/process", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @CheckRateLimit
     public ResponseEntity<?> processDocument(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "equations", defaultValue = "false") boolean hasEquations,
-            Authentication authentication
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            Authentication authentication,
+            HttpServletRequest request
     ) throws IOException, InvalidLLMResponseException {
 
         if (file.isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "File cannot be empty."));
         }
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > IdempotencyStore.MAX_KEY_LENGTH)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Idempotency-Key must be between 1 and " + IdempotencyStore.MAX_KEY_LENGTH + " characters."));
+        }
 
         User currentUser = findUserByAuthentication(authentication);
 
@@ -114,16 +143,34 @@ public class TaskController {
             throw new FileTooLargeException(file.getSize(), currentUser.getPlan().getMaxFileSize(), "File size exceeds the allowed limit.");
         }
 
-        logger.info("Parsing document '{}' for user '{}'", file.getOriginalFilename(), currentUser.getEmail());
-        String documentText = parsingService.parseDocument(file, hasEquations);
+        String documentKey = parsingService.documentKey(file, hasEquations);
+        if (idempotencyKey == null) {
+            return extractAndSave(file, hasEquations, documentKey, currentUser);
+        }
 
-        if (documentText.isEmpty()) {
+        IdempotencyStore.Outcome<ResponseEntity<?>> outcome = idempotencyStore.execute(
+                IdempotencyStore.scope(currentUser.getId(), request.getRequestURI()), idempotencyKey, documentKey,
+                () -> extractAndSave(file, hasEquations, documentKey, currentUser));
+        if (!outcome.replayed()) {
+            return outcome.value();
+        }
+        logger.info("Replaying the response to an earlier request with the same Idempotency-Key for user '{}'", currentUser.getEmail());
+        return ResponseEntity.status(outcome.value().getStatusCode())
+                .headers(outcome.value().getHeaders())
+                .header(IdempotencyStore.REPLAYED_HEADER, "true")
+                .body(outcome.value().getBody());
+    }
+
+    private ResponseEntity<?> extractAndSave(MultipartFile file, boolean hasEquations, String documentKey, User currentUser)
+            throws IOException, InvalidLLMResponseException {
+        Extraction extraction = extractionCoalescer.coalesce(documentKey, () -> extract(file, hasEquations, documentKey, currentUser));
+
+        if (!extraction.hasText()) {
             logger.warn("Parsed document text is empty for user '{}'.", currentUser.getEmail());
             return ResponseEntity.badRequest().body(Map.of("error", "Parsed document text is empty."));
         }
 
-        logger.info("Starting task extraction from document text for user '{}'.", currentUser.getEmail());
-        ExtractedTaskListDTO docData = taskRouterService.processDocument(documentText);
+        ExtractedTaskListDTO docData = extraction.result();
 
         if (docData == null || docData.todos() == null || docData.todos().isEmpty()) {
             logger.info("Extraction complete. No tasks found for user '{}'.", currentUser.getEmail());
@@ -138,6 +185,103 @@ public class TaskController {
         return ResponseEntity.ok(res);
     }
 
+    private Extraction extract(MultipartFile file, boolean hasEquations, String documentKey, User currentUser) throws IOException, InvalidLLMResponseException {
+        // Chunks are sent to the LLM as soon as the parser has produced enough text to fill them
+        logger.info("Parsing document '{}' and extracting tasks for user '{}'", file.getOriginalFilename(), currentUser.getEmail());
+        ExtractionPipeline pipeline = taskRouterService.openPipeline();
+        try {
+            parsingService.parseDocument(file, hasEquations, documentKey, pipeline::accept);
+        } catch (IOException | InvalidLLMResponseException | RuntimeException e) {
+            // Chunks sent before parsing failed would otherwise keep calling the LLM for a document nobody will get
+            pipeline.cancel();
+            throw e;
+        }
+
+        if (!pipeline.hasText()) {
+            return new Extraction(false, null);
+        }
+        return new Extraction(true, pipeline.complete());
+    }
+
+    /**
+     * What extracting a document produced, shared by every request coalesced onto it.
+     */
+    private record Extraction(boolean hasText, ExtractedTaskListDTO result) {}
+
+    /**
+     * A server-sent event of a streamed extraction, ready to send.
+     */
+    private record StreamEvent(String name, Object data) {}
+
+    /**
+     * Processes a document like {@link #processDocument}, but streams progress as server-sent events instead of
+     * answering once everything is done. Events, in order:
+     * "parsed" once the text has been extracted, "todo" for each todo as the LLM writes it, "chunk" with the
+     * index and todos of each chunk as it finishes (chunks may finish out of order), "chunk-failed" with the index of
+     * each chunk that failed after its retries, and finally "complete" with the saved task list (marked partial if a
+     * chunk failed), or "error" if extraction failed.
+     */
+    @PostMapping(value = "/process/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @CheckRateLimit
+    public ResponseEntity<?> processDocumentStream(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "equations", defaultValue = "false") boolean hasEquations,
+            Authentication authentication
+    ) throws IOException, InvalidLLMResponseException {
+
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "File cannot be empty."));
+        }
+
+        User currentUser = findUserByAuthentication(authentication);
+
+        if (file.getSize() > currentUser.getPlan().getMaxFileSize()) {
+            throw new FileTooLargeException(file.getSize(), currentUser.getPlan().getMaxFileSize(), "File size exceeds the allowed limit.");
+        }
+
+        // The upload only lives as long as the request thread, so it is parsed before the response goes async
+        logger.info("Parsing document '{}' for streamed extraction for user '{}'", file.getOriginalFilename(), currentUser.getEmail());
+        String documentText = parsingService.parseDocument(file, hasEquations);
+
+        if (documentText == null || documentText.isBlank()) {
+            logger.warn("Parsed document text is empty for user '{}'.", currentUser.getEmail());
+            return ResponseEntity.badRequest().body(Map.of("error", "Parsed document text is empty."));
+        }
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        sendEvent(emitter, "parsed", Map.of("characters", documentText.length()));
+
+        // Saving the result is blocking JPA work, so it runs on a thread meant for blocking rather than the one
+        // the LLM's response arrived on; concatMap keeps "complete" after every other event all the same
+        Disposable extraction = taskRouterService.streamDocument(documentText)
+                .concatMap(event -> switch (event) {
+                    case ExtractionEvent.TodoExtracted todo ->
+                            Mono.just(new StreamEvent("todo", Map.of("chunk", todo.chunk(), "todo", todo.todo())));
+                    case ExtractionEvent.ChunkCompleted chunk ->
+                            Mono.just(new StreamEvent("chunk", new ExtractedChunkDTO(chunk.chunk(), chunk.result().todos())));
+                    case ExtractionEvent.ChunkFailed failed ->
+                            Mono.just(new StreamEvent("chunk-failed", Map.of("chunk", failed.chunk())));
+                    case ExtractionEvent.DocumentCompleted completed ->
+                            Mono.fromCallable(() -> new StreamEvent("complete", saveExtractedTasks(completed.result(), currentUser)))
+                                    .subscribeOn(Schedulers.boundedElastic());
+                })
+                .subscribe(
+                        event -> sendEvent(emitter, event.name(), event.data()),
+                        error -> {
+                            logger.error("Streamed extraction failed for user '{}'", currentUser.getEmail(), error);
+                            String message = error instanceof InvalidLLMResponseException ? error.getMessage() : "Task extraction failed.";
+                            sendEvent(emitter, "error", Map.of("error", message));
+                            emitter.complete();
+                        },
+                        emitter::complete);
+
+        // Stop calling the LLM if the client goes away or the stream times out
+        emitter.onTimeout(extraction::dispose);
+        emitter.onError(error -> extraction.dispose());
+
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+    }
+
     @PutMapping("/{taskId}")
     public ResponseEntity<TaskListDTO> updateTask(
             @PathVariable Long taskId,
@@ -236,6 +380,27 @@ public class TaskController {
         }
     }
 
+    private Object saveExtractedTasks(ExtractedTaskListDTO docData, User currentUser) {
+        if (docData == null || docData.todos() == null || docData.todos().isEmpty()) {
+            logger.info("Streamed extraction complete. No tasks found for user '{}'.", currentUser.getEmail());
+            return new ExtractedTaskListDTO("No Title Found", "No tasks were found in the document.", List.of());
+        }
+
+        logger.info("Saving {} streamed tasks for user '{}'", docData.todos().size(), currentUser.getEmail());
+        TaskListDTO res = taskService.createTaskList(docData, currentUser);
+        logger.info("Successfully saved new task list with id {} for user '{}'", res.id(), currentUser.getEmail());
+        return res;
+    }
+
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // The client has disconnected or the emitter has already finished; nothing more can be sent
+            logger.debug("Could not send '{}' event: {}", name, e.getMessage());
+        }
+    }
+
     private User findUserByAuthentication(Authentication authentication) {
         String userEmail = authentication.getName();
         return userRepository.findByEmail(userEmail)
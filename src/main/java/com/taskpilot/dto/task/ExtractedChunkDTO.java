@@ -0,0 +1,9 @@
+package com.taskpilot.dto.task;
+
+import java.util.List;
+
+// The todos extracted from one chunk of a document, sent while the rest of the document is still being processed.
+public record ExtractedChunkDTO(
+        int index,
+        List<String> todos) {
+}
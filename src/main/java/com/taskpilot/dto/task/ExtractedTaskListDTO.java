@@ -1,10 +1,23 @@
 package com.taskpilot.dto.task;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.util.List;
 
 // This record represents the top-level JSON object returned by the LLM.
+// Partial is never read from the LLM: it is set when some of the document's chunks failed and only the others' todos are here,
+// or when the response was cut off and repaired, so todos after the cut are missing.
 public record ExtractedTaskListDTO(
          String title,
          String description,
-         List<String> todos){
+         List<String> todos,
+         @JsonProperty(access = JsonProperty.Access.READ_ONLY) boolean partial){
+
+    public ExtractedTaskListDTO(String title, String description, List<String> todos) {
+        this(title, description, todos, false);
+    }
+
+    public ExtractedTaskListDTO asPartial() {
+        return new ExtractedTaskListDTO(title, description, todos, true);
+    }
 }
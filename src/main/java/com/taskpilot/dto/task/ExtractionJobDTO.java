@@ -0,0 +1,12 @@
+package com.taskpilot.dto.task;
+
+import java.time.LocalDateTime;
+
+public record ExtractionJobDTO(
+        Long id,
+        String status,
+        Long taskListId,
+        String error,
+        LocalDateTime createdAt,
+        LocalDateTime completedAt
+) {}
@@ -1,5 +1,6 @@
 package com.taskpilot.dto.task;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.List;
@@ -31,4 +32,23 @@ public class HuggingFaceApiV1 {
             @JsonProperty("completion_tokens") int completionTokens,
             @JsonProperty("total_tokens") int totalTokens
     ) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record ChatCompletionChunk(
+            String id,
+            List<ChunkChoice> choices
+    ) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record ChunkChoice(
+            int index,
+            Delta delta,
+            @JsonProperty("finish_reason") String finishReason
+    ) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Delta(
+            String role,
+            String content
+    ) {}
 }
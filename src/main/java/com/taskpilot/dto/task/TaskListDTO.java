@@ -3,11 +3,19 @@ package com.taskpilot.dto.task;
 import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * @param partial True if the list was extracted from a document some of whose chunks failed, so todos may be missing.
+ */
 public record TaskListDTO(
         Long id,
         String title,
         String description,
         List<TodoDTO> todos,
         LocalDateTime createdAt,
-        LocalDateTime updatedAt
-) {}
\ No newline at end of file
+        LocalDateTime updatedAt,
+        boolean partial
+) {
+    public TaskListDTO(Long id, String title, String description, List<TodoDTO> todos, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, title, description, todos, createdAt, updatedAt, false);
+    }
+}
@@ -93,6 +93,14 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                 .body(ErrorResponse.create(ex, HttpStatus.BAD_REQUEST, String.format("File with size %dMB exceeds limit of %dMB.", ex.getFileSize() / 1000000, ex.getMaxFileSize() / 1000000)));
     }
 
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    @ExceptionHandler(IdempotencyKeyReuseException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyReuseException(Exception ex) {
+        logger.warn("Rejected reuse of an idempotency key. Message: {}", ex.getMessage());
+        return ResponseEntity.unprocessableEntity()
+                .body(ErrorResponse.create(ex, HttpStatus.UNPROCESSABLE_ENTITY, "This Idempotency-Key was already used for a different document."));
+    }
+
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(TokenRefreshException.class)
     public ResponseEntity<ErrorResponse> handleTokenRefreshException(Exception ex) {
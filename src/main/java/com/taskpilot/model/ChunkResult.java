@@ -0,0 +1,41 @@
+package com.taskpilot.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * The tasks extracted from one chunk of document text, stored as JSON so that an unchanged chunk of a re-uploaded
+ * document doesn't have to be sent to the LLM again.
+ */
+@Entity
+@Table(name = "chunk_result_cache")
+public class ChunkResult {
+    @Id
+    @Column(name = "cache_key")
+    private String cacheKey;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String result;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public ChunkResult() {}
+
+    public ChunkResult(String cacheKey, String result) {
+        this.cacheKey = cacheKey;
+        this.result = result;
+    }
+
+    public String getCacheKey() { return cacheKey; }
+    public void setCacheKey(String cacheKey) { this.cacheKey = cacheKey; }
+
+    public String getResult() { return result; }
+    public void setResult(String result) { this.result = result; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,40 @@
+package com.taskpilot.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Text extracted from an uploaded document, stored so that a re-upload of the same bytes doesn't have to be parsed again.
+ */
+@Entity
+@Table(name = "parsed_text_cache")
+public class ParsedText {
+    @Id
+    @Column(name = "cache_key")
+    private String cacheKey;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String text;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public ParsedText() {}
+
+    public ParsedText(String cacheKey, String text) {
+        this.cacheKey = cacheKey;
+        this.text = text;
+    }
+
+    public String getCacheKey() { return cacheKey; }
+    public void setCacheKey(String cacheKey) { this.cacheKey = cacheKey; }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -18,6 +18,10 @@ public class TaskList {
     private String title;
     private String description;
 
+    // Set when the list was extracted from only some of a document's chunks because the others failed
+    @Column(nullable = false)
+    private boolean partial;
+
     @OneToMany(mappedBy = "taskList", cascade = CascadeType.ALL, orphanRemoval = true)
     @OrderBy("id ASC")
     private List<Todo> todos = new ArrayList<>();
@@ -52,6 +56,9 @@ public class TaskList {
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
 
+    public boolean isPartial() { return partial; }
+    public void setPartial(boolean partial) { this.partial = partial; }
+
     public List<Todo> getTodos() { return todos; }
     public void setTodos(List<Todo> todos) { this.todos = todos != null ? todos : new ArrayList<>(); }
 
@@ -29,6 +29,9 @@ public class User implements UserDetails {
 
     private boolean enabled;
 
+    // Admins may also read the operational actuator endpoints
+    private boolean admin;
+
     // --- Email Verification Properties ---
 
     @Column(name = "verification_code")
@@ -253,6 +256,14 @@ public class User implements UserDetails {
         this.enabled = enabled;
     }
 
+    public boolean isAdmin() {
+        return admin;
+    }
+
+    public void setAdmin(boolean admin) {
+        this.admin = admin;
+    }
+
     public Plan getPlan() {
         return plan;
     }
@@ -289,8 +300,10 @@ public class User implements UserDetails {
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        // You can expand this to support roles (e.g., ROLE_USER, ROLE_ADMIN)
-        // Give every user the default role of "ROLE_USER".
+        // Give every user the default role of "ROLE_USER", and admins "ROLE_ADMIN" as well.
+        if (admin) {
+            return List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"));
+        }
         return List.of(new SimpleGrantedAuthority("ROLE_USER"));
     }
 
@@ -4,6 +4,7 @@ import com.taskpilot.exception.InvalidLLMResponseException;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.function.Consumer;
 
 public interface DocumentParser {
     /**
@@ -20,4 +21,16 @@ public interface DocumentParser {
      * @throws IOException if an error occurs during reading.
      */
     String parse(MultipartFile file) throws IOException, InvalidLLMResponseException;
+
+    /**
+     * Parses the given file and pushes its text to the consumer as ordered segments.
+     * Parsers that can read a document incrementally override this so that no caller has to hold the
+     * whole text at once. By default the whole text is delivered as a single segment.
+     * @param file The file to parse.
+     * @param segmentConsumer Receives each segment, in document order.
+     * @throws IOException if an error occurs during reading.
+     */
+    default void parse(MultipartFile file, Consumer<TextSegment> segmentConsumer) throws IOException, InvalidLLMResponseException {
+        segmentConsumer.accept(TextSegment.ofSection(0, parse(file)));
+    }
 }
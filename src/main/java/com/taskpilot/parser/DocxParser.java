@@ -1,14 +1,34 @@
 package com.taskpilot.parser;
 
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
 
 @Component
 public class DocxParser implements DocumentParser {
+
+    private final UploadSpooler uploadSpooler;
+    private final boolean streaming;
+
+    public DocxParser(UploadSpooler uploadSpooler,
+                      @Value("${app.parser.docx.streaming:true}") boolean streaming) {
+        this.uploadSpooler = uploadSpooler;
+        this.streaming = streaming;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
     @Override
     public boolean supports(String mimeType) {
         return "application/vnd.openxmlformats-officedocument.wordprocessingml.document".equals(mimeType);
@@ -16,9 +36,55 @@ public class DocxParser implements DocumentParser {
 
     @Override
     public String parse(MultipartFile file) throws IOException {
-        try (XWPFDocument document = new XWPFDocument(file.getInputStream())) {
-            XWPFWordExtractor extractor = new XWPFWordExtractor(document);
-            return extractor.getText();
+        if (streaming) {
+            StringBuilder text = new StringBuilder();
+            parse(file, segment -> text.append(segment.text()));
+            return text.toString();
+        }
+        try (SpooledUpload upload = uploadSpooler.spool(file)) {
+            return parseDom(upload);
+        }
+    }
+
+    /**
+     * Emits one segment per top-level paragraph or table when streaming is enabled, reading the
+     * document part with StAX so the POI object model is never built. Otherwise the whole text
+     * is extracted through XWPFWordExtractor and emitted as a single segment.
+     */
+    @Override
+    public void parse(MultipartFile file, Consumer<TextSegment> segmentConsumer) throws IOException {
+        try (SpooledUpload upload = uploadSpooler.spool(file)) {
+            if (!streaming) {
+                segmentConsumer.accept(TextSegment.ofSection(0, parseDom(upload)));
+                return;
+            }
+            int[] index = {0};
+            DocxTextExtractor.extract(upload, block -> segmentConsumer.accept(TextSegment.ofSection(index[0]++, block)));
+        }
+    }
+
+    private String parseDom(SpooledUpload upload) throws IOException {
+        if (upload.isOnDisk()) {
+            return parseFromDisk(upload);
+        }
+        try (InputStream in = upload.openStream(); XWPFDocument document = new XWPFDocument(in)) {
+            return new XWPFWordExtractor(document).getText();
+        }
+    }
+
+    // Opening the package from a file reads zip entries on demand instead of inflating them all up front
+    private String parseFromDisk(SpooledUpload upload) throws IOException {
+        OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(upload.getFile().toFile(), PackageAccess.READ);
+        } catch (InvalidFormatException e) {
+            throw new IOException("Could not open DOCX package", e);
+        }
+        try {
+            return new XWPFWordExtractor(new XWPFDocument(pkg)).getText();
+        } finally {
+            // A read-only package is released with revert(); close() would try to save it
+            pkg.revert();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,376 @@
+package com.taskpilot.parser;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.poi.openxml4j.exceptions.NotOfficeXmlFileException;
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.ZipException;
+
+/**
+ * Pulls the body text out of a .docx by reading the main document part straight from the zip with StAX,
+ * without building the POI object model. Paragraphs and tables are laid out the way XWPFWordExtractor
+ * lays them out: one line per paragraph, table cells separated by tabs and one line per table row.
+ * Headers, footers, footnotes and comments are not included.
+ * Entries are inflated under the same zip bomb limits as POI's ZipSecureFile.
+ */
+final class DocxTextExtractor {
+
+    private static final String WORD_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final String MARKUP_COMPATIBILITY_NS = "http://schemas.openxmlformats.org/markup-compatibility/2006";
+    private static final String PACKAGE_RELS = "_rels/.rels";
+    private static final String DEFAULT_MAIN_PART = "word/document.xml";
+    private static final String OFFICE_DOCUMENT_REL = "/officeDocument";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private DocxTextExtractor() {
+    }
+
+    /**
+     * Extracts the text of the document, handing each top-level paragraph or table to the consumer in document order.
+     */
+    static void extract(SpooledUpload upload, Consumer<String> blockConsumer) throws IOException {
+        if (upload.isOnDisk()) {
+            try (ZipSecureFile zip = openZip(upload)) {
+                String mainPart = findMainPart(zip);
+                ZipArchiveEntry entry = zip.getEntry(mainPart);
+                if (entry == null) {
+                    throw notOfficeXml();
+                }
+                try (InputStream in = zip.getInputStream(entry)) {
+                    extractBody(in, blockConsumer);
+                }
+            }
+            return;
+        }
+
+        // In-memory uploads are small, so reading the zip twice is cheaper than buffering entries.
+        // ZipSecureFile only opens files, so the stream is held to the same limits by InflationGuard.
+        String mainPart = DEFAULT_MAIN_PART;
+        try (ZipArchiveInputStream zip = openZipStream(upload)) {
+            if (seekTo(zip, PACKAGE_RELS)) {
+                mainPart = readMainPartName(new InflationGuard(zip));
+            }
+        }
+        try (ZipArchiveInputStream zip = openZipStream(upload)) {
+            if (!seekTo(zip, mainPart)) {
+                throw notOfficeXml();
+            }
+            extractBody(new InflationGuard(zip), blockConsumer);
+        }
+    }
+
+    private static ZipSecureFile openZip(SpooledUpload upload) throws IOException {
+        try {
+            return new ZipSecureFile(upload.getFile().toFile());
+        } catch (ZipException e) {
+            throw notOfficeXml();
+        }
+    }
+
+    private static ZipArchiveInputStream openZipStream(SpooledUpload upload) throws IOException {
+        return new ZipArchiveInputStream(upload.openStream(), StandardCharsets.UTF_8.name(), true, true);
+    }
+
+    private static String findMainPart(ZipSecureFile zip) throws IOException {
+        ZipArchiveEntry rels = zip.getEntry(PACKAGE_RELS);
+        if (rels == null) {
+            return DEFAULT_MAIN_PART;
+        }
+        try (InputStream in = zip.getInputStream(rels)) {
+            return readMainPartName(in);
+        }
+    }
+
+    private static boolean seekTo(ZipArchiveInputStream zip, String name) throws IOException {
+        try {
+            ZipArchiveEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.getName().equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (ZipException e) {
+            throw notOfficeXml();
+        }
+    }
+
+    private static String readMainPartName(InputStream relsXml) throws IOException {
+        try {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(relsXml);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(reader.getLocalName())) {
+                        String type = reader.getAttributeValue(null, "Type");
+                        String target = reader.getAttributeValue(null, "Target");
+                        if (type != null && type.endsWith(OFFICE_DOCUMENT_REL) && target != null) {
+                            return target.startsWith("/") ? target.substring(1) : target;
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not read DOCX package relationships", e);
+        }
+        return DEFAULT_MAIN_PART;
+    }
+
+    private static void extractBody(InputStream documentXml, Consumer<String> blockConsumer) throws IOException {
+        try {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(documentXml);
+            try {
+                new BodyWalker(reader, blockConsumer).walk();
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not read DOCX document body", e);
+        }
+    }
+
+    private static NotOfficeXmlFileException notOfficeXml() {
+        return new NotOfficeXmlFileException("No valid entries or contents found, this is not a valid OOXML (Office Open XML) file");
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Fails the read of the current entry once it inflates past ZipSecureFile's maximum entry size, or past its
+     * grace size at a compression ratio below the minimum inflate ratio, the same checks ZipSecureFile makes.
+     */
+    private static final class InflationGuard extends FilterInputStream {
+        private final ZipArchiveInputStream zip;
+
+        InflationGuard(ZipArchiveInputStream zip) {
+            super(zip);
+            this.zip = zip;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            check();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            check();
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            check();
+            return skipped;
+        }
+
+        // The entry belongs to the zip stream, which the caller closes
+        @Override
+        public void close() {
+        }
+
+        private void check() throws IOException {
+            long inflated = zip.getUncompressedCount();
+            if (inflated > ZipSecureFile.getMaxEntrySize()) {
+                throw new IOException("Zip bomb detected! The DOCX entry exceeds the max. entry size of "
+                        + ZipSecureFile.getMaxEntrySize() + " bytes.");
+            }
+            if (inflated <= ZipSecureFile.getGraceEntrySize()) {
+                return;
+            }
+            double ratio = (double) zip.getCompressedCount() / inflated;
+            if (ratio < ZipSecureFile.getMinInflateRatio()) {
+                throw new IOException("Zip bomb detected! The DOCX entry inflates with a ratio of " + ratio
+                        + ", below the min. inflate ratio of " + ZipSecureFile.getMinInflateRatio() + ".");
+            }
+        }
+    }
+
+    /**
+     * Walks the main document part. Tables are tracked on a stack so that nested tables and the
+     * paragraphs inside cells are joined the same way XWPFWordExtractor joins them.
+     */
+    private static final class BodyWalker {
+        private final XMLStreamReader reader;
+        private final Consumer<String> blockConsumer;
+        private final Deque<TableState> tables = new ArrayDeque<>();
+        private StringBuilder paragraph;
+        private boolean inText;
+
+        BodyWalker(XMLStreamReader reader, Consumer<String> blockConsumer) {
+            this.reader = reader;
+            this.blockConsumer = blockConsumer;
+        }
+
+        void walk() throws XMLStreamException {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    startElement();
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    endElement();
+                } else if (inText && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                        || event == XMLStreamConstants.SPACE)) {
+                    paragraph.append(reader.getText());
+                }
+            }
+        }
+
+        private void startElement() throws XMLStreamException {
+            String namespace = reader.getNamespaceURI();
+            String name = reader.getLocalName();
+
+            // Alternate content repeats its Choice in the Fallback, and text boxes aren't part of the body flow
+            if ((MARKUP_COMPATIBILITY_NS.equals(namespace) && "Fallback".equals(name))
+                    || (WORD_NS.equals(namespace) && "txbxContent".equals(name))) {
+                skipElement();
+                return;
+            }
+            if (!WORD_NS.equals(namespace)) {
+                return;
+            }
+
+            switch (name) {
+                case "p" -> paragraph = new StringBuilder();
+                case "t" -> inText = paragraph != null;
+                case "tab", "ptab" -> appendToParagraph('\t');
+                case "br", "cr" -> appendToParagraph('\n');
+                case "noBreakHyphen" -> appendToParagraph('-');
+                case "tbl" -> tables.push(new TableState());
+                case "tr" -> currentTable().startRow();
+                case "tc" -> currentTable().startCell();
+                default -> {
+                }
+            }
+        }
+
+        private void endElement() {
+            if (!WORD_NS.equals(reader.getNamespaceURI())) {
+                return;
+            }
+
+            switch (reader.getLocalName()) {
+                case "t" -> inText = false;
+                case "p" -> endParagraph();
+                case "tc" -> currentTable().endCell();
+                case "tr" -> currentTable().endRow();
+                case "tbl" -> endTable();
+                default -> {
+                }
+            }
+        }
+
+        private void endParagraph() {
+            if (paragraph == null) {
+                return;
+            }
+            String text = paragraph.toString();
+            paragraph = null;
+
+            if (tables.isEmpty()) {
+                blockConsumer.accept(text + "\n");
+            } else {
+                currentTable().addCellElement(text);
+            }
+        }
+
+        private void endTable() {
+            TableState table = tables.pop();
+            if (tables.isEmpty()) {
+                blockConsumer.accept(table.text() + "\n");
+            } else {
+                // A nested table is flattened into the cell that contains it
+                currentTable().addCellElement(table.flattened());
+            }
+        }
+
+        private void appendToParagraph(char c) {
+            if (paragraph != null) {
+                paragraph.append(c);
+            }
+        }
+
+        private TableState currentTable() {
+            if (tables.isEmpty()) {
+                // Row or cell markup outside a table; give it a throwaway table so the walk can continue
+                tables.push(new TableState());
+            }
+            return tables.peek();
+        }
+
+        private void skipElement() throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0 && reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+    }
+
+    private static final class TableState {
+        private final StringBuilder text = new StringBuilder();
+        private final StringBuilder flattened = new StringBuilder();
+        private final List<String> rowCells = new ArrayList<>();
+        private List<String> cellElements = new ArrayList<>();
+
+        void startRow() {
+            rowCells.clear();
+        }
+
+        void startCell() {
+            cellElements = new ArrayList<>();
+        }
+
+        void addCellElement(String elementText) {
+            cellElements.add(elementText);
+        }
+
+        void endCell() {
+            String cellText = String.join("\t", cellElements);
+            rowCells.add(cellText);
+            flattened.append(cellText);
+            cellElements = new ArrayList<>();
+        }
+
+        void endRow() {
+            text.append(String.join("\t", rowCells)).append('\n');
+        }
+
+        String text() {
+            return text.toString();
+        }
+
+        String flattened() {
+            return flattened.toString();
+        }
+    }
+}
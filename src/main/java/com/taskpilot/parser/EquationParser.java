@@ -2,24 +2,67 @@ package com.taskpilot.parser;
 
 import com.taskpilot.exception.InvalidLLMResponseException;
 import com.taskpilot.prompt.PromptFactory;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.multipdf.Splitter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.MimeType;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 @Component
 public class EquationParser implements DocumentParser{
 
+    private static final Logger logger = LoggerFactory.getLogger(EquationParser.class);
+    private static final String PDF_MIME_TYPE = "application/pdf";
+    private static final String GROUP_SEPARATOR = "\n\n";
+
     private final ChatClient chatClient;
     private final PromptFactory promptFactory;
+    private final UploadSpooler uploadSpooler;
+    private final int pagesPerGroup;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final ExecutorService executor;
 
-    public EquationParser(ChatClient.Builder builder, PromptFactory promptFactory) {
+    public EquationParser(ChatClient.Builder builder,
+                          PromptFactory promptFactory,
+                          UploadSpooler uploadSpooler,
+                          @Value("${app.parser.equations.pages-per-group:5}") int pagesPerGroup,
+                          @Value("${app.parser.equations.max-concurrency:4}") int maxConcurrency,
+                          @Value("${app.parser.equations.max-attempts:3}") int maxAttempts,
+                          @Value("${app.parser.equations.retry-backoff-ms:500}") long retryBackoffMillis) {
         this.chatClient = builder.build();
         this.promptFactory = promptFactory;
+        this.uploadSpooler = uploadSpooler;
+        this.pagesPerGroup = pagesPerGroup;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = retryBackoffMillis;
+        // The pool size is the limit on how many page groups are with Gemini at once
+        this.executor = Executors.newFixedThreadPool(Math.max(1, maxConcurrency), Thread.ofPlatform().name("equation-parser-", 0).daemon(true).factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
     }
 
     // Only want this to be used when specified, not based on supported mime type
@@ -30,11 +73,133 @@ public class EquationParser implements DocumentParser{
 
     @Override
     public String parse(MultipartFile file) throws IOException, InvalidLLMResponseException {
-        ByteArrayResource fileResource = new ByteArrayResource(file.getBytes());
+        StringBuilder text = new StringBuilder();
+        parse(file, segment -> text.append(segment.text()));
+        return text.toString();
+    }
+
+    /**
+     * PDFs longer than one page group are split with PDFBox and the groups are sent to Gemini concurrently.
+     * Each group is emitted as a segment, in page order, once it and every group before it has come back.
+     * Anything else, including a PDF that PDFBox can't read, is sent as a single attachment.
+     */
+    @Override
+    public void parse(MultipartFile file, Consumer<TextSegment> segmentConsumer) throws IOException, InvalidLLMResponseException {
+        String contentType = Objects.requireNonNull(file.getContentType());
+        try (SpooledUpload upload = uploadSpooler.spool(file)) {
+            if (pagesPerGroup > 0 && PDF_MIME_TYPE.equals(contentType)) {
+                List<PageGroup> groups = splitIntoPageGroups(upload);
+                if (groups.size() > 1) {
+                    parseGroups(groups, segmentConsumer);
+                    return;
+                }
+            }
+            segmentConsumer.accept(TextSegment.ofSection(0, extract(MimeType.valueOf(contentType), upload.asResource())));
+        }
+    }
+
+    private List<PageGroup> splitIntoPageGroups(SpooledUpload upload) throws IOException {
+        RandomAccessRead source = upload.openRandomAccess();
+        PDDocument document;
+        try {
+            document = Loader.loadPDF(source);
+        } catch (IOException e) {
+            source.close();
+            logger.warn("Could not split PDF into page groups, sending it whole: {}", e.getMessage());
+            return List.of();
+        }
+
+        try (document) {
+            if (document.getNumberOfPages() <= pagesPerGroup) {
+                return List.of();
+            }
+            return splitPages(document, 1, document.getNumberOfPages());
+        }
+    }
+
+    /**
+     * Copies a range of pages out of an open document, one small PDF per page group.
+     */
+    List<PageGroup> splitPages(PDDocument document, int firstPage, int lastPage) throws IOException {
+        Splitter splitter = new Splitter();
+        splitter.setStartPage(firstPage);
+        splitter.setEndPage(lastPage);
+        splitter.setSplitAtPage(pagesPerGroup > 0 ? pagesPerGroup : lastPage - firstPage + 1);
+        List<PageGroup> groups = new ArrayList<>();
+        int groupStart = firstPage;
+        for (PDDocument group : splitter.split(document)) {
+            try (group; ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+                group.save(out);
+                int groupEnd = groupStart + group.getNumberOfPages() - 1;
+                groups.add(new PageGroup(out.toByteArray(), groupStart, groupEnd));
+                groupStart = groupEnd + 1;
+            }
+        }
+        return groups;
+    }
+
+    private void parseGroups(List<PageGroup> groups, Consumer<TextSegment> segmentConsumer) throws IOException, InvalidLLMResponseException {
+        List<Future<String>> results = submit(groups);
+        try {
+            for (int i = 0; i < results.size(); i++) {
+                String text = await(results.get(i));
+                String separator = i < results.size() - 1 ? GROUP_SEPARATOR : "";
+                PageGroup group = groups.get(i);
+                segmentConsumer.accept(TextSegment.ofPages(i, text + separator, group.firstPage(), group.lastPage()));
+            }
+        } finally {
+            results.forEach(result -> result.cancel(true));
+        }
+    }
 
+    /**
+     * Starts sending the page groups to Gemini, no more than the concurrency limit at a time.
+     * Callers should cancel the futures they no longer need.
+     */
+    List<Future<String>> submit(List<PageGroup> groups) {
+        List<Future<String>> results = new ArrayList<>();
+        for (PageGroup group : groups) {
+            results.add(executor.submit(() -> extractWithRetry(group)));
+        }
+        return results;
+    }
+
+    /**
+     * Waits for the text of a page group submitted with {@link #submit(List)}.
+     */
+    static String await(Future<String> result) throws IOException, InvalidLLMResponseException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof InvalidLLMResponseException invalidResponse) {
+                throw invalidResponse;
+            }
+            throw new IOException("Failed to extract text from PDF page group", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting text from PDF page groups", e);
+        }
+    }
+
+    // Only this group is retried, the groups that already came back are kept
+    private String extractWithRetry(PageGroup group) throws InvalidLLMResponseException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return extract(MimeType.valueOf(PDF_MIME_TYPE), new ByteArrayResource(group.pdf()));
+            } catch (InvalidLLMResponseException | RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                logger.warn("Pages {}-{} failed on attempt {}, retrying: {}", group.firstPage(), group.lastPage(), attempt, e.getMessage());
+                Thread.sleep(retryBackoffMillis * attempt);
+            }
+        }
+    }
+
+    private String extract(MimeType mimeType, Resource fileResource) throws InvalidLLMResponseException {
         String response = chatClient.prompt()
                 .user(u -> u.text(promptFactory.pdfTextAndMathExtractor)
-                        .media(MimeType.valueOf(Objects.requireNonNull(file.getContentType())), fileResource)).call().content();
+                        .media(mimeType, fileResource)).call().content();
 
         if (response == null || response.trim().isEmpty()) {
             throw new InvalidLLMResponseException("Received empty response from the LLM.");
@@ -42,4 +207,7 @@ public class EquationParser implements DocumentParser{
 
         return response;
     }
+
+    record PageGroup(byte[] pdf, int firstPage, int lastPage) {
+    }
 }
@@ -0,0 +1,176 @@
+package com.taskpilot.parser;
+
+import com.taskpilot.exception.InvalidLLMResponseException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Handles PDFs uploaded with equations. Each page is scored locally by {@link MathPageScorer}; pages scoring at or
+ * above the threshold are sent through the multimodal {@link EquationParser} path, and everything else is read with
+ * PDFTextStripper, so a mostly-prose document only pays for the LLM on the pages that need it.
+ */
+@Component
+public class HybridMathParser implements DocumentParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(HybridMathParser.class);
+    private static final String LLM_SEPARATOR = "\n\n";
+
+    private final UploadSpooler uploadSpooler;
+    private final EquationParser equationParser;
+    private final boolean enabled;
+    private final double threshold;
+    private final Counter localPages;
+    private final Counter llmPages;
+    private final DistributionSummary pageScores;
+
+    public HybridMathParser(UploadSpooler uploadSpooler,
+                            EquationParser equationParser,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.parser.equations.hybrid.enabled:true}") boolean enabled,
+                            @Value("${app.parser.equations.hybrid.threshold:0.3}") double threshold) {
+        this.uploadSpooler = uploadSpooler;
+        this.equationParser = equationParser;
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.localPages = Counter.builder("taskpilot.parser.math.pages")
+                .description("PDF pages routed by the hybrid maths parser")
+                .tag("route", "local")
+                .register(meterRegistry);
+        this.llmPages = Counter.builder("taskpilot.parser.math.pages")
+                .description("PDF pages routed by the hybrid maths parser")
+                .tag("route", "llm")
+                .register(meterRegistry);
+        this.pageScores = DistributionSummary.builder("taskpilot.parser.math.page.score")
+                .description("Maths score of each PDF page, from 0 to 1")
+                .register(meterRegistry);
+    }
+
+    // Only want this to be used when specified, not based on supported mime type
+    @Override
+    public boolean supports(String mimeType) {
+        return false;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public String parse(MultipartFile file) throws IOException, InvalidLLMResponseException {
+        StringBuilder text = new StringBuilder();
+        parse(file, segment -> text.append(segment.text()));
+        return text.toString();
+    }
+
+    /**
+     * Emits one segment per run of consecutive pages that took the same route, or per LLM page group within a run,
+     * in page order. All LLM page groups are sent as soon as the pages have been scored, so they are in flight
+     * while the local pages are being stripped. A PDF that PDFBox can't read is handed to the EquationParser whole.
+     */
+    @Override
+    public void parse(MultipartFile file, Consumer<TextSegment> segmentConsumer) throws IOException, InvalidLLMResponseException {
+        try (SpooledUpload upload = uploadSpooler.spool(file)) {
+            PDDocument document = load(upload);
+            if (document == null) {
+                equationParser.parse(file, segmentConsumer);
+                return;
+            }
+
+            try (document) {
+                List<PageRun> runs = route(document);
+                List<Future<String>> pending = new ArrayList<>();
+                try {
+                    for (PageRun run : runs) {
+                        if (run.viaLlm()) {
+                            run.groups().addAll(equationParser.splitPages(document, run.firstPage(), run.lastPage()));
+                            run.results().addAll(equationParser.submit(run.groups()));
+                            pending.addAll(run.results());
+                        }
+                    }
+                    emit(document, runs, segmentConsumer);
+                } finally {
+                    pending.forEach(result -> result.cancel(true));
+                }
+            }
+        }
+    }
+
+    private List<PageRun> route(PDDocument document) throws IOException {
+        List<Double> scores = new MathPageScorer().score(document);
+        List<PageRun> runs = new ArrayList<>();
+        int llmCount = 0;
+        for (int i = 0; i < scores.size(); i++) {
+            int page = i + 1;
+            double score = scores.get(i);
+            boolean viaLlm = score >= threshold;
+            pageScores.record(score);
+            if (viaLlm) {
+                llmPages.increment();
+                llmCount++;
+            } else {
+                localPages.increment();
+            }
+
+            PageRun last = runs.isEmpty() ? null : runs.getLast();
+            if (last != null && last.viaLlm() == viaLlm) {
+                runs.set(runs.size() - 1, last.extendTo(page));
+            } else {
+                runs.add(new PageRun(viaLlm, page, page, new ArrayList<>(), new ArrayList<>()));
+            }
+        }
+        logger.info("Routed {} of {} PDF pages to the LLM for equation extraction.", llmCount, scores.size());
+        return runs;
+    }
+
+    private void emit(PDDocument document, List<PageRun> runs, Consumer<TextSegment> segmentConsumer) throws IOException, InvalidLLMResponseException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        int index = 0;
+        for (PageRun run : runs) {
+            if (!run.viaLlm()) {
+                stripper.setStartPage(run.firstPage());
+                stripper.setEndPage(run.lastPage());
+                segmentConsumer.accept(TextSegment.ofPages(index++, stripper.getText(document), run.firstPage(), run.lastPage()));
+                continue;
+            }
+            for (int i = 0; i < run.groups().size(); i++) {
+                EquationParser.PageGroup group = run.groups().get(i);
+                String text = EquationParser.await(run.results().get(i));
+                segmentConsumer.accept(TextSegment.ofPages(index++, text + LLM_SEPARATOR, group.firstPage(), group.lastPage()));
+            }
+        }
+    }
+
+    private static PDDocument load(SpooledUpload upload) throws IOException {
+        RandomAccessRead source = upload.openRandomAccess();
+        try {
+            return Loader.loadPDF(source);
+        } catch (IOException e) {
+            source.close();
+            logger.warn("Could not score PDF pages, sending the whole file to the LLM: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private record PageRun(boolean viaLlm, int firstPage, int lastPage,
+                           List<EquationParser.PageGroup> groups, List<Future<String>> results) {
+        PageRun extendTo(int page) {
+            return new PageRun(viaLlm, firstPage, page, groups, results);
+        }
+    }
+}
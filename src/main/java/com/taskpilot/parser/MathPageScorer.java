@@ -0,0 +1,143 @@
+package com.taskpilot.parser;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Scores each page of a PDF from 0 to 1 for how much maths it appears to contain, using only the text positions
+ * PDFBox already produces. Three signals are combined: the share of glyphs drawn in a maths font (TeX's CMMI/CMSY/CMEX,
+ * Symbol, Cambria Math, STIX and so on), the density of maths symbols, Greek letters and sub/superscripts, and the share
+ * of very short lines, which is what displayed equations look like once stripped. A page with no text at all is scored 1,
+ * since it is most likely a scan that only the multimodal model can read.
+ */
+class MathPageScorer extends PDFTextStripper {
+
+    private static final String[] MATH_FONT_MARKERS = {
+            "cmmi", "cmsy", "cmex", "msbm", "msam", "rsfs", "esint", "wasy", "eufm",
+            "symbol", "math", "stix", "xits", "euclid", "mtextra", "mt extra"
+    };
+    private static final int SHORT_LINE_CHARS = 25;
+    // A page where this share of the glyphs are maths symbols already gets the full symbol score
+    private static final double SATURATING_SYMBOL_RATIO = 0.15;
+
+    private double[] scores = new double[0];
+    private int glyphs;
+    private int mathFontGlyphs;
+    private int symbolGlyphs;
+    private int lines;
+    private int shortLines;
+    private int currentLineChars;
+
+    MathPageScorer() throws IOException {
+        super();
+    }
+
+    /**
+     * @return the score of every page in the document, in page order.
+     */
+    List<Double> score(PDDocument document) throws IOException {
+        // Pages without a content stream are skipped by the stripper, so they keep the no-text score
+        scores = new double[document.getNumberOfPages()];
+        Arrays.fill(scores, 1.0);
+        setStartPage(1);
+        setEndPage(document.getNumberOfPages());
+        writeText(document, Writer.nullWriter());
+        return Arrays.stream(scores).boxed().toList();
+    }
+
+    @Override
+    protected void startPage(PDPage page) throws IOException {
+        glyphs = 0;
+        mathFontGlyphs = 0;
+        symbolGlyphs = 0;
+        lines = 0;
+        shortLines = 0;
+        currentLineChars = 0;
+        super.startPage(page);
+    }
+
+    // Called once per word, so line lengths are added up until the line separator arrives
+    @Override
+    protected void writeString(String text, List<TextPosition> textPositions) throws IOException {
+        for (TextPosition position : textPositions) {
+            String unicode = position.getUnicode();
+            if (unicode == null || unicode.isBlank()) {
+                continue;
+            }
+            glyphs++;
+            currentLineChars++;
+            if (isMathFont(position.getFont())) {
+                mathFontGlyphs++;
+            }
+            if (unicode.codePoints().anyMatch(MathPageScorer::isMathSymbol)) {
+                symbolGlyphs++;
+            }
+        }
+        super.writeString(text, textPositions);
+    }
+
+    @Override
+    protected void writeLineSeparator() throws IOException {
+        endLine();
+        super.writeLineSeparator();
+    }
+
+    @Override
+    protected void endPage(PDPage page) throws IOException {
+        endLine();
+        scores[getCurrentPageNo() - 1] = pageScore();
+        super.endPage(page);
+    }
+
+    private void endLine() {
+        if (currentLineChars > 0) {
+            lines++;
+            if (currentLineChars < SHORT_LINE_CHARS) {
+                shortLines++;
+            }
+        }
+        currentLineChars = 0;
+    }
+
+    private double pageScore() {
+        if (glyphs == 0) {
+            return 1.0;
+        }
+        double fontScore = (double) mathFontGlyphs / glyphs;
+        double symbolScore = Math.min(1.0, ((double) symbolGlyphs / glyphs) / SATURATING_SYMBOL_RATIO);
+        // Headings and list items are short too, so this signal only tips the balance
+        double shortLineScore = lines == 0 ? 0 : (double) shortLines / lines;
+        return 0.5 * fontScore + 0.35 * symbolScore + 0.15 * shortLineScore;
+    }
+
+    private static boolean isMathFont(PDFont font) {
+        if (font == null || font.getName() == null) {
+            return false;
+        }
+        String name = font.getName().toLowerCase(Locale.ROOT);
+        for (String marker : MATH_FONT_MARKERS) {
+            if (name.contains(marker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isMathSymbol(int codePoint) {
+        return Character.getType(codePoint) == Character.MATH_SYMBOL
+                || (codePoint >= 0x0391 && codePoint <= 0x03C9)     // Greek letters
+                || (codePoint >= 0x2070 && codePoint <= 0x209F)     // superscripts and subscripts
+                || (codePoint >= 0x2100 && codePoint <= 0x214F)     // letterlike symbols such as ℝ and ℕ
+                || (codePoint >= 0x2190 && codePoint <= 0x22FF)     // arrows and mathematical operators
+                || (codePoint >= 0x1D400 && codePoint <= 0x1D7FF);  // mathematical alphanumerics
+    }
+}
@@ -1,15 +1,49 @@
 package com.taskpilot.parser;
 
+import jakarta.annotation.PreDestroy;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessRead;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 @Component
 public class PdfParser implements DocumentParser {
+
+    private final UploadSpooler uploadSpooler;
+    private final int pagesPerWindow;
+    private final int parallelThresholdPages;
+    private final int parallelism;
+    private final ExecutorService executor;
+
+    public PdfParser(UploadSpooler uploadSpooler,
+                     @Value("${app.parser.pdf.pages-per-window:5}") int pagesPerWindow,
+                     @Value("${app.parser.pdf.parallel-threshold-pages:50}") int parallelThresholdPages,
+                     @Value("${app.parser.pdf.parallel-threads:0}") int parallelThreads) {
+        this.uploadSpooler = uploadSpooler;
+        this.pagesPerWindow = Math.max(1, pagesPerWindow);
+        this.parallelThresholdPages = parallelThresholdPages;
+        // 0 means one thread per core
+        this.parallelism = parallelThreads > 0 ? parallelThreads : Runtime.getRuntime().availableProcessors();
+        this.executor = Executors.newFixedThreadPool(parallelism, Thread.ofPlatform().name("pdf-parser-", 0).daemon(true).factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
     @Override
     public boolean supports(String mimeType) {
         return "application/pdf".equals(mimeType);
@@ -17,10 +51,108 @@ public class PdfParser implements DocumentParser {
 
     @Override
     public String parse(MultipartFile file) throws IOException {
-        // We use a try-with-resources block to ensure the document is always closed.
-        try (PDDocument document = Loader.loadPDF(file.getBytes())) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            return stripper.getText(document);
+        // We use a try-with-resources block to ensure the document and any spooled copy are always cleaned up.
+        try (SpooledUpload upload = uploadSpooler.spool(file);
+             PDDocument document = load(upload)) {
+            if (!isParallel(document)) {
+                PDFTextStripper stripper = new PDFTextStripper();
+                return stripper.getText(document);
+            }
+            StringBuilder text = new StringBuilder();
+            extractInParallel(upload, document, window -> text.append(window.text()));
+            return text.toString();
+        }
+    }
+
+    /**
+     * Extracts the text of the file a window of pages at a time.
+     * Each window is handed to the consumer as soon as it has been stripped, so the caller
+     * can start working on the first pages while the rest of the document is still being read.
+     * @param file The file to parse.
+     * @param segmentConsumer Receives one segment per page window, in page order.
+     * @throws IOException if an error occurs during reading.
+     */
+    @Override
+    public void parse(MultipartFile file, Consumer<TextSegment> segmentConsumer) throws IOException {
+        try (SpooledUpload upload = uploadSpooler.spool(file);
+             PDDocument document = load(upload)) {
+            int[] index = {0};
+            Consumer<PageWindow> windowConsumer = window ->
+                    segmentConsumer.accept(TextSegment.ofPages(index[0]++, window.text(), window.firstPage(), window.lastPage()));
+            if (isParallel(document)) {
+                extractInParallel(upload, document, windowConsumer);
+            } else {
+                stripWindows(document, 1, document.getNumberOfPages(), windowConsumer);
+            }
+        }
+    }
+
+    private boolean isParallel(PDDocument document) {
+        return parallelism > 1 && document.getNumberOfPages() >= parallelThresholdPages;
+    }
+
+    /**
+     * Splits the pages into one contiguous slice per worker. The first slice is stripped on the calling
+     * thread from the document that is already open, so its windows reach the consumer straight away. Every
+     * other slice is stripped by a worker from its own read-only copy of the document, because a PDDocument
+     * can't be shared between threads. Slices are handed on in page order.
+     */
+    private void extractInParallel(SpooledUpload upload, PDDocument document, Consumer<PageWindow> windowConsumer) throws IOException {
+        int pageCount = document.getNumberOfPages();
+        int sliceSize = Math.ceilDiv(pageCount, parallelism);
+
+        List<Future<List<PageWindow>>> slices = new ArrayList<>();
+        for (int startPage = 1 + sliceSize; startPage <= pageCount; startPage += sliceSize) {
+            int firstPage = startPage;
+            int lastPage = Math.min(startPage + sliceSize - 1, pageCount);
+            slices.add(executor.submit(() -> {
+                List<PageWindow> windows = new ArrayList<>();
+                try (PDDocument copy = load(upload)) {
+                    stripWindows(copy, firstPage, lastPage, windows::add);
+                }
+                return windows;
+            }));
         }
+
+        try {
+            stripWindows(document, 1, Math.min(sliceSize, pageCount), windowConsumer);
+            for (Future<List<PageWindow>> slice : slices) {
+                slice.get().forEach(windowConsumer);
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to extract text from PDF", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting text from PDF", e);
+        } finally {
+            slices.forEach(slice -> slice.cancel(true));
+        }
+    }
+
+    private void stripWindows(PDDocument document, int firstPage, int lastPage, Consumer<PageWindow> windowConsumer) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        for (int startPage = firstPage; startPage <= lastPage; startPage += pagesPerWindow) {
+            int endPage = Math.min(startPage + pagesPerWindow - 1, lastPage);
+            stripper.setStartPage(startPage);
+            stripper.setEndPage(endPage);
+            windowConsumer.accept(new PageWindow(stripper.getText(document), startPage, endPage));
+        }
+    }
+
+    private static PDDocument load(SpooledUpload upload) throws IOException {
+        RandomAccessRead source = upload.openRandomAccess();
+        try {
+            return Loader.loadPDF(source);
+        } catch (IOException e) {
+            // The document takes ownership of the reader only once it has loaded successfully
+            source.close();
+            throw e;
+        }
+    }
+
+    private record PageWindow(String text, int firstPage, int lastPage) {
     }
-}
\ No newline at end of file
+}
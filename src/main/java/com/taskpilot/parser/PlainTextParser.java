@@ -4,10 +4,22 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
 
 @Component
 public class PlainTextParser implements DocumentParser {
+
+    private static final int SEGMENT_CHARS = 64 * 1024;
+
+    private final UploadSpooler uploadSpooler;
+
+    public PlainTextParser(UploadSpooler uploadSpooler) {
+        this.uploadSpooler = uploadSpooler;
+    }
+
     @Override
     public boolean supports(String mimeType) {
         return mimeType != null && mimeType.startsWith("text/");
@@ -15,6 +27,70 @@ public class PlainTextParser implements DocumentParser {
 
     @Override
     public String parse(MultipartFile file) throws IOException {
-        return new String(file.getBytes(), StandardCharsets.UTF_8);
+        try (SpooledUpload upload = uploadSpooler.spool(file)) {
+            return upload.readText(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Decodes the file a block of characters at a time, so a large spooled upload is never held as one string.
+     * Each block is cut at its last line break, sentence end or whitespace, and the rest is carried over to the
+     * next one, so no segment ends mid-word.
+     */
+    @Override
+    public void parse(MultipartFile file, Consumer<TextSegment> segmentConsumer) throws IOException {
+        try (SpooledUpload upload = uploadSpooler.spool(file);
+             Reader reader = new InputStreamReader(upload.openStream(), StandardCharsets.UTF_8)) {
+            char[] buffer = new char[SEGMENT_CHARS];
+            int index = 0;
+            int carried = 0;
+            while (true) {
+                int filled = fill(reader, buffer, carried);
+                boolean last = filled < buffer.length;
+                int end = last ? filled : cutPoint(buffer, filled);
+                if (end > 0) {
+                    segmentConsumer.accept(TextSegment.ofSection(index++, new String(buffer, 0, end)));
+                }
+                if (last) {
+                    return;
+                }
+                carried = filled - end;
+                System.arraycopy(buffer, end, buffer, 0, carried);
+            }
+        }
+    }
+
+    private static int fill(Reader reader, char[] buffer, int filled) throws IOException {
+        int read;
+        while (filled < buffer.length && (read = reader.read(buffer, filled, buffer.length - filled)) != -1) {
+            filled += read;
+        }
+        return filled;
+    }
+
+    /**
+     * @return where to end a segment taken from a full buffer: after its last line break or sentence end, else after
+     * its last whitespace, else at the end but never between the halves of a surrogate pair.
+     */
+    private static int cutPoint(char[] buffer, int length) {
+        int whitespace = -1;
+        for (int i = length - 1; i >= 0; i--) {
+            char c = buffer[i];
+            if (c == '\n') {
+                return i + 1;
+            }
+            if (Character.isWhitespace(c)) {
+                if (i > 0 && (buffer[i - 1] == '.' || buffer[i - 1] == '!' || buffer[i - 1] == '?')) {
+                    return i + 1;
+                }
+                if (whitespace < 0) {
+                    whitespace = i + 1;
+                }
+            }
+        }
+        if (whitespace > 0) {
+            return whitespace;
+        }
+        return Character.isHighSurrogate(buffer[length - 1]) ? length - 1 : length;
     }
-}
\ No newline at end of file
+}
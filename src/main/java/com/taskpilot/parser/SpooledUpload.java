@@ -0,0 +1,97 @@
+package com.taskpilot.parser;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only copy of an uploaded file, created by {@link UploadSpooler}.
+ * Small uploads are held in memory; larger ones live in a temporary file that is deleted on close.
+ * Parsers should read through the accessors here rather than calling MultipartFile.getBytes().
+ */
+public final class SpooledUpload implements AutoCloseable {
+
+    private final byte[] content;
+    private final Path file;
+
+    private SpooledUpload(byte[] content, Path file) {
+        this.content = content;
+        this.file = file;
+    }
+
+    static SpooledUpload inMemory(byte[] content) {
+        return new SpooledUpload(content, null);
+    }
+
+    static SpooledUpload onDisk(Path file) {
+        return new SpooledUpload(null, file);
+    }
+
+    /**
+     * @return true if the upload was written to a temporary file instead of being held on the heap.
+     */
+    public boolean isOnDisk() {
+        return file != null;
+    }
+
+    /**
+     * @return the temporary file holding the upload, or null if it is held in memory.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    public long size() throws IOException {
+        return isOnDisk() ? Files.size(file) : content.length;
+    }
+
+    /**
+     * Opens a random-access reader for PDFBox. Spooled uploads are read through a small page cache
+     * instead of being loaded into memory.
+     */
+    public RandomAccessRead openRandomAccess() throws IOException {
+        return isOnDisk() ? new RandomAccessReadBufferedFile(file) : new RandomAccessReadBuffer(content);
+    }
+
+    public InputStream openStream() throws IOException {
+        return isOnDisk() ? Files.newInputStream(file) : new ByteArrayInputStream(content);
+    }
+
+    /**
+     * Decodes the whole upload as text. Spooled uploads are decoded straight from a memory-mapped
+     * view of the file, so no heap copy of the raw bytes is made.
+     */
+    public String readText(Charset charset) throws IOException {
+        if (!isOnDisk()) {
+            return new String(content, charset);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return charset.decode(mapped).toString();
+        }
+    }
+
+    public Resource asResource() {
+        return isOnDisk() ? new FileSystemResource(file) : new ByteArrayResource(content);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (isOnDisk()) {
+            Files.deleteIfExists(file);
+        }
+    }
+}
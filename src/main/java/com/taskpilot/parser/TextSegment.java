@@ -0,0 +1,31 @@
+package com.taskpilot.parser;
+
+/**
+ * An ordered piece of a document's text, as emitted by {@link DocumentParser#parse(org.springframework.web.multipart.MultipartFile, java.util.function.Consumer)}.
+ * Concatenating the text of every segment in index order gives the text of the whole document.
+ * @param index The position of this segment in the document, starting at 0.
+ * @param text The text of the segment.
+ * @param firstPage The first page the segment covers, or 0 if the format has no pages.
+ * @param lastPage The last page the segment covers, or 0 if the format has no pages.
+ */
+public record TextSegment(int index, String text, int firstPage, int lastPage) {
+
+    public static TextSegment ofPages(int index, String text, int firstPage, int lastPage) {
+        return new TextSegment(index, text, firstPage, lastPage);
+    }
+
+    public static TextSegment ofSection(int index, String text) {
+        return new TextSegment(index, text, 0, 0);
+    }
+
+    public boolean hasPages() {
+        return firstPage > 0;
+    }
+
+    /**
+     * @return true if the segment ends a page, paragraph or line, so a chunk may be cut after it.
+     */
+    public boolean endsAtBoundary() {
+        return hasPages() || text.endsWith("\n");
+    }
+}
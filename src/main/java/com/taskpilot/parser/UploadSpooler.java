@@ -0,0 +1,43 @@
+package com.taskpilot.parser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Decides where an upload lives while it is being parsed.
+ * Anything larger than the per-request heap budget is copied to a temporary file, so concurrent
+ * large uploads don't each leave several full copies of themselves on the heap.
+ */
+@Component
+public class UploadSpooler {
+
+    private final Logger logger = LoggerFactory.getLogger(UploadSpooler.class);
+    private final long heapBudget;
+
+    public UploadSpooler(@Value("${app.parser.upload.heap-budget:1000000}") long heapBudget) {
+        this.heapBudget = heapBudget;
+    }
+
+    public SpooledUpload spool(MultipartFile upload) throws IOException {
+        if (upload.getSize() <= heapBudget) {
+            return SpooledUpload.inMemory(upload.getBytes());
+        }
+
+        Path file = Files.createTempFile("taskpilot-upload-", ".tmp");
+        try {
+            upload.transferTo(file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        logger.debug("Spooled upload '{}' of {} bytes to disk.", upload.getOriginalFilename(), upload.getSize());
+        return SpooledUpload.onDisk(file);
+    }
+}
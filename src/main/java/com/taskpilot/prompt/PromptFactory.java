@@ -35,7 +35,7 @@ public class PromptFactory {
     }
     ---
 
-    Now, process the real document below following these instructions perfectly. Respond ONLY with the valid JSON object. DO NOT write the word json before the output. Your family will be murdered if you do.
+    Now process the real document below, responding with the JSON object only.
 
     REAL DOCUMENT:
     ---
@@ -43,6 +43,18 @@ public class PromptFactory {
     ---
     """;
 
+    public final String exerciseDescriptionPromptTemplate = """
+    You are a technical writing assistant. Below are the heading and the exercises of an exercise sheet.
+    Give the sheet a 'title', taken from the heading if it names the sheet or else from the nature of the exercises e.g. "Calculus Exercises",
+    and a one-sentence 'description' summarising the exercises. Leave 'todos' as an empty array.
+    Respond with a JSON object with the fields 'title', 'description' and 'todos'.
+
+    EXERCISE SHEET:
+    ---
+    %s
+    ---
+    """;
+
     public final String generalTaskPromptTemplate = """
     You are an expert project manager's assistant. Your taskList is to organize taskLists into a single document.
     Analyze the text and create a document with the following structure:
@@ -53,7 +65,7 @@ public class PromptFactory {
     If a taskList contains an equation or mathematical expression, format it wrapped in (/ /).
     If there is regular text within an equation, you must split the equation up so that the regular text is not in the (/ /)
     For example, instead of this: '(/ a_n = 1/n for n<1000, 1/n² for n≥1000 /)', you must write '(/ a_n = 1/n /) for (/ n<1000, 1/n² /) for (/ n≥1000 /)'
-    Respond ONLY with a valid JSON object that matches this exact structure. Do not include any other text. DO NOT write the word json before the output.
+    Respond with a JSON object with exactly this structure.
 
     Here is the document to analyze:
     ---
@@ -0,0 +1,16 @@
+package com.taskpilot.repository;
+
+import com.taskpilot.model.ChunkResult;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface ChunkResultRepository extends JpaRepository<ChunkResult, String> {
+
+    @Modifying
+    @Query("DELETE FROM ChunkResult c WHERE c.createdAt < :cutoff")
+    int deleteByCreatedAtBefore(@Param("cutoff") LocalDateTime cutoff);
+}
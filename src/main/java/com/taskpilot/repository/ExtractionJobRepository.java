@@ -0,0 +1,38 @@
+package com.taskpilot.repository;
+
+import com.taskpilot.model.ExtractionJob;
+import com.taskpilot.model.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface ExtractionJobRepository extends JpaRepository<ExtractionJob, Long> {
+
+    Optional<ExtractionJob> findByIdAndUser(Long jobId, User user);
+
+    /**
+     * Locks the oldest jobs that are waiting, or whose worker's lease has run out, skipping any rows another
+     * worker has already locked. Must be called inside a transaction, which holds the row locks until it ends.
+     */
+    @Query(value = """
+            SELECT * FROM extraction_jobs
+            WHERE status = 'QUEUED' OR (status = 'RUNNING' AND lease_expires_at < :now)
+            ORDER BY created_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<ExtractionJob> lockClaimableJobs(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE ExtractionJob j SET j.leaseExpiresAt = :leaseExpiresAt WHERE j.lockedBy = :workerId AND j.status = com.taskpilot.model.ExtractionJob.Status.RUNNING")
+    int renewLeases(@Param("workerId") String workerId, @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    @Modifying
+    @Query("UPDATE ExtractionJob j SET j.status = com.taskpilot.model.ExtractionJob.Status.QUEUED, j.lockedBy = NULL, j.leaseExpiresAt = NULL WHERE j.lockedBy = :workerId AND j.status = com.taskpilot.model.ExtractionJob.Status.RUNNING")
+    int releaseJobs(@Param("workerId") String workerId);
+}
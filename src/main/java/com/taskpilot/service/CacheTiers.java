@@ -0,0 +1,56 @@
+package com.taskpilot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * What {@link ParsedTextCache} and {@link ChunkResultCache} share: a memory tier bounded by the approximate size of
+ * its entries in bytes, and lookup counters for it and the database tier behind it.
+ */
+final class CacheTiers {
+
+    private CacheTiers() {
+    }
+
+    /**
+     * @param chars Counts the characters held by a value, which are taken to make up its size.
+     */
+    static <V> Cache<String, V> memoryTier(long maxWeightBytes, ToIntFunction<V> chars) {
+        // Java strings take roughly two bytes per character. Eviction runs on the calling thread so the
+        // bound holds as soon as put() returns.
+        return Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String key, V value) -> 2 * (key.length() + chars.applyAsInt(value)))
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * Counts lookups under one meter name, tagged by result and by the tier that answered them.
+     */
+    record Lookups(Counter memoryHits, Counter databaseHits, Counter misses) {
+
+        static Lookups register(MeterRegistry meterRegistry, String name, String description) {
+            return new Lookups(counter(meterRegistry, name, description, "hit", "memory"),
+                    counter(meterRegistry, name, description, "hit", "database"),
+                    counter(meterRegistry, name, description, "miss", "none"));
+        }
+
+        double hitRatio() {
+            double hits = memoryHits.count() + databaseHits.count();
+            double lookups = hits + misses.count();
+            return lookups == 0 ? 0 : hits / lookups;
+        }
+
+        private static Counter counter(MeterRegistry meterRegistry, String name, String description, String result, String tier) {
+            return Counter.builder(name)
+                    .description(description)
+                    .tag("result", result).tag("tier", tier)
+                    .register(meterRegistry);
+        }
+    }
+}
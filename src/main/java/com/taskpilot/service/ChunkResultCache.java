@@ -0,0 +1,162 @@
+package com.taskpilot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+import com.taskpilot.model.ChunkResult;
+import com.taskpilot.repository.ChunkResultRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Remembers what the LLM extracted from each chunk of document text, keyed by a SHA-256 digest of the chunk,
+ * a digest of the prompt template it was sent with and the model that answered. When an edited document is
+ * processed again, only the chunks that changed go to the LLM. Entries live in a memory tier bounded by their
+ * approximate size in bytes and, when enabled, in a Postgres table that survives restarts and is shared between
+ * instances. Failures of the persistent tier are logged and treated as misses, so they never fail an extraction.
+ */
+@Component
+public class ChunkResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkResultCache.class);
+    private static final int TEMPLATE_VERSION_LENGTH = 12;
+    // Keeps the whole key within the 255 characters of the cache_key column
+    private static final int MAX_MODEL_LENGTH = 160;
+
+    private final ChunkResultRepository chunkResultRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final boolean persistent;
+    private final int persistentTtlDays;
+    private final Cache<String, ExtractedTaskListDTO> memory;
+    private final CacheTiers.Lookups lookups;
+
+    public ChunkResultCache(ChunkResultRepository chunkResultRepository,
+                            ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.llm.chunk-cache.enabled:true}") boolean enabled,
+                            @Value("${app.llm.chunk-cache.max-weight-bytes:20000000}") long maxWeightBytes,
+                            @Value("${app.llm.chunk-cache.persistent:false}") boolean persistent,
+                            @Value("${app.llm.chunk-cache.persistent-ttl-days:30}") int persistentTtlDays) {
+        this.chunkResultRepository = chunkResultRepository;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.persistent = persistent;
+        this.persistentTtlDays = persistentTtlDays;
+        this.memory = CacheTiers.memoryTier(maxWeightBytes, ChunkResultCache::length);
+        this.lookups = CacheTiers.Lookups.register(meterRegistry, "taskpilot.llm.chunk.cache", "Lookups of LLM results for document chunks");
+        Gauge.builder("taskpilot.llm.chunk.cache.hit.ratio", lookups, CacheTiers.Lookups::hitRatio)
+                .description("Share of chunk lookups answered without calling the LLM")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Builds the cache key for a chunk. The template is digested rather than versioned by hand, so editing a
+     * prompt starts a new set of entries on its own.
+     * @param chunk The chunk of document text.
+     * @param promptTemplate The template the chunk is formatted into.
+     * @param model Identifies the providers and models that may answer the prompt.
+     */
+    public String keyFor(String chunk, String promptTemplate, String model) {
+        String templateVersion = sha256(promptTemplate).substring(0, TEMPLATE_VERSION_LENGTH);
+        return sha256(chunk) + ":" + templateVersion + ":" + (model.length() > MAX_MODEL_LENGTH ? sha256(model) : model);
+    }
+
+    public Optional<ExtractedTaskListDTO> get(String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        ExtractedTaskListDTO result = memory.getIfPresent(key);
+        if (result != null) {
+            lookups.memoryHits().increment();
+            return Optional.of(result);
+        }
+
+        if (persistent) {
+            try {
+                Optional<ChunkResult> stored = chunkResultRepository.findById(key);
+                if (stored.isPresent()) {
+                    ExtractedTaskListDTO restored = objectMapper.readValue(stored.get().getResult(), ExtractedTaskListDTO.class);
+                    lookups.databaseHits().increment();
+                    memory.put(key, restored);
+                    return Optional.of(restored);
+                }
+            } catch (DataAccessException | JsonProcessingException e) {
+                logger.warn("Could not read chunk result cache entry {}: {}", key, e.getMessage());
+            }
+        }
+
+        lookups.misses().increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Caches a chunk's result, unless it is partial: it was repaired from a truncated response, and a retry of
+     * the chunk should get the chance to return it whole.
+     */
+    public void put(String key, ExtractedTaskListDTO result) {
+        if (!enabled || result == null || result.partial()) {
+            return;
+        }
+        memory.put(key, result);
+
+        if (persistent) {
+            try {
+                chunkResultRepository.save(new ChunkResult(key, objectMapper.writeValueAsString(result)));
+            } catch (DataAccessException | JsonProcessingException e) {
+                logger.warn("Could not store chunk result cache entry {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * This method runs every day at 2:30 AM server time and removes persisted entries older than the configured TTL.
+     */
+    @Scheduled(cron = "0 30 2 * * ?")
+    @Transactional
+    public void purgeExpiredEntries() {
+        if (!persistent) {
+            return;
+        }
+        int deleted = chunkResultRepository.deleteByCreatedAtBefore(LocalDateTime.now().minusDays(persistentTtlDays));
+        logger.info("Removed {} expired chunk result cache entries.", deleted);
+    }
+
+    private static int length(ExtractedTaskListDTO result) {
+        int length = (result.title() == null ? 0 : result.title().length())
+                + (result.description() == null ? 0 : result.description().length());
+        if (result.todos() != null) {
+            for (String todo : result.todos()) {
+                length += todo == null ? 0 : todo.length();
+            }
+        }
+        return length;
+    }
+
+    private static String sha256(String text) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.taskpilot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Combines the descriptions of a document's chunks into one by summarising them in a tree. Descriptions are taken
+ * in document order and grouped up to the fan-in; each group is summarised as soon as all of its members are done,
+ * without waiting for the rest of the document. Group summaries are grouped and summarised the same way, until one
+ * description is left. Every description is capped in length and summaries are asked to stay under the same cap,
+ * so no summary prompt grows with the document; the depth of the tree is the log of the chunk count to the fan-in.
+ * Obtain one per document from {@link TaskRouterService}.
+ */
+final class DescriptionReducer {
+
+    private final Logger logger = LoggerFactory.getLogger(DescriptionReducer.class);
+
+    private final int fanIn;
+    private final int maxDescriptionChars;
+    private final int maxSummaryWords;
+    private final Function<String, CompletableFuture<String>> summarise;
+    // Descriptions waiting for their group to fill up, by level; level 0 holds the chunks' own descriptions
+    private final List<List<CompletableFuture<String>>> levels = new ArrayList<>();
+
+    /**
+     * @param summarise Sends a summary prompt to the LLM.
+     */
+    DescriptionReducer(int fanIn, int maxDescriptionChars, int maxSummaryWords, Function<String, CompletableFuture<String>> summarise) {
+        this.fanIn = Math.max(2, fanIn);
+        this.maxDescriptionChars = maxDescriptionChars;
+        this.maxSummaryWords = maxSummaryWords;
+        this.summarise = summarise;
+    }
+
+    /**
+     * Adds the description of the next chunk of the document. Chunks must be added in document order.
+     */
+    synchronized void add(CompletableFuture<String> description) {
+        addAt(0, description);
+    }
+
+    /**
+     * Summarises whatever is left once every chunk has been added.
+     * @return the description of the whole document.
+     */
+    synchronized CompletableFuture<String> finish() {
+        // Higher levels hold earlier parts of the document
+        List<CompletableFuture<String>> remaining = new ArrayList<>();
+        for (int level = levels.size() - 1; level >= 0; level--) {
+            remaining.addAll(levels.get(level));
+        }
+        levels.clear();
+
+        if (remaining.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (remaining.size() == 1) {
+            return remaining.getFirst();
+        }
+        if (remaining.size() <= fanIn) {
+            return summariseGroup(remaining);
+        }
+        remaining.forEach(this::add);
+        return finish();
+    }
+
+    private void addAt(int level, CompletableFuture<String> description) {
+        while (levels.size() <= level) {
+            levels.add(new ArrayList<>());
+        }
+        List<CompletableFuture<String>> siblings = levels.get(level);
+        siblings.add(description);
+        if (siblings.size() == fanIn) {
+            List<CompletableFuture<String>> group = List.copyOf(siblings);
+            siblings.clear();
+            addAt(level + 1, summariseGroup(group));
+        }
+    }
+
+    private CompletableFuture<String> summariseGroup(List<CompletableFuture<String>> group) {
+        return CompletableFuture.allOf(group.toArray(new CompletableFuture[0])).thenCompose(done -> {
+            List<String> descriptions = group.stream().map(CompletableFuture::join).toList();
+            String fallback = descriptions.stream().filter(d -> d != null && !d.isBlank()).findFirst().orElse(descriptions.getFirst());
+            List<String> present = descriptions.stream().filter(d -> d != null && !d.isBlank()).toList();
+            // Nothing to summarise if every chunk but one failed or had no description
+            if (present.size() <= 1) {
+                return CompletableFuture.completedFuture(fallback);
+            }
+            String text = present.stream().map(this::truncate).collect(Collectors.joining("\n"));
+            CompletableFuture<String> summary;
+            try {
+                summary = summarise.apply(summaryPrompt(text));
+            } catch (RuntimeException e) {
+                summary = CompletableFuture.failedFuture(e);
+            }
+            return summary
+                    .thenApply(result -> result == null || result.isBlank() ? fallback : result.trim())
+                    // The summary only shortens the description, so if it fails for any reason the group's first
+                    // description is good enough, and the document's todos are not lost over it
+                    .exceptionally(e -> {
+                        logger.warn("Could not summarise {} chunk descriptions; keeping the first one.", present.size(), e);
+                        return fallback;
+                    });
+        });
+    }
+
+    private String summaryPrompt(String descriptions) {
+        return "Summarise the following text in at most " + maxSummaryWords + " words:\n" + descriptions;
+    }
+
+    private String truncate(String description) {
+        String trimmed = description.trim();
+        if (trimmed.length() <= maxDescriptionChars) {
+            return trimmed;
+        }
+        int end = Character.isHighSurrogate(trimmed.charAt(maxDescriptionChars - 1)) ? maxDescriptionChars - 1 : maxDescriptionChars;
+        return trimmed.substring(0, end);
+    }
+}
@@ -3,37 +3,140 @@ package com.taskpilot.service;
 import com.taskpilot.exception.InvalidLLMResponseException;
 import com.taskpilot.exception.UnsupportedFileTypeException;
 import com.taskpilot.parser.DocumentParser;
+import com.taskpilot.parser.DocxParser;
 import com.taskpilot.parser.EquationParser;
+import com.taskpilot.parser.HybridMathParser;
+import com.taskpilot.parser.TextSegment;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 public class DocumentParsingService {
+    private static final String PDF_MIME_TYPE = "application/pdf";
+
     private final List<DocumentParser> parsers;
+    private final ParsedTextCache parsedTextCache;
+    private final boolean streamingEnabled;
 
     // Spring automatically injects all beans that implement the DocumentParser interface.
-    public DocumentParsingService(List<DocumentParser> parsers) {
+    public DocumentParsingService(List<DocumentParser> parsers,
+                                  ParsedTextCache parsedTextCache,
+                                  @Value("${app.parser.streaming.enabled:true}") boolean streamingEnabled) {
         this.parsers = parsers;
-
+        this.parsedTextCache = parsedTextCache;
+        this.streamingEnabled = streamingEnabled;
     }
 
     public String parseDocument(MultipartFile file, boolean hasEquations) throws IOException, InvalidLLMResponseException {
-        if (hasEquations) {
-            DocumentParser parser = parsers.stream().filter(p -> p.getClass().equals(EquationParser.class)).findFirst().orElseThrow(() -> new RuntimeException("EquationParser component was not found"));
+        DocumentParser parser = findParser(file, hasEquations);
+        if (!parsedTextCache.isEnabled()) {
             return parser.parse(file);
+        }
+
+        // A re-upload of the same file in the same mode skips parsing, including the EquationParser LLM call
+        String cacheKey = parsedTextCache.keyFor(file, cacheMode(file, parser, hasEquations));
+        Optional<String> cached = parsedTextCache.get(cacheKey);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        String text = parser.parse(file);
+        parsedTextCache.put(cacheKey, text);
+        return text;
+    }
+
+    /**
+     * Parses the given file and hands its text to the consumer as ordered segments.
+     * When streaming is enabled each parser emits segments as it reads them (page windows for PDFs,
+     * paragraphs and tables for DOCX); otherwise the whole text is delivered as a single segment.
+     * Text found in the parsed text cache is always delivered as a single segment.
+     * The caller passes the upload's {@link #documentKey}, which it needs anyway, so the file isn't read through
+     * a second time to hash it.
+     */
+    public void parseDocument(MultipartFile file, boolean hasEquations, String documentKey, Consumer<TextSegment> segmentConsumer)
+            throws IOException, InvalidLLMResponseException {
+        DocumentParser parser = findParser(file, hasEquations);
+        if (!parsedTextCache.isEnabled()) {
+            parse(parser, file, segmentConsumer);
+            return;
+        }
+
+        Optional<String> cached = parsedTextCache.get(documentKey);
+        if (cached.isPresent()) {
+            segmentConsumer.accept(TextSegment.ofSection(0, cached.get()));
+            return;
+        }
+
+        // Keep a copy of the text for the cache unless the document turns out to be too large to cache
+        StringBuilder[] collected = {new StringBuilder()};
+        parse(parser, file, segment -> {
+            if (collected[0] != null) {
+                collected[0].append(segment.text());
+                if (!parsedTextCache.isCacheable(collected[0].length())) {
+                    collected[0] = null;
+                }
+            }
+            segmentConsumer.accept(segment);
+        });
+        if (collected[0] != null) {
+            parsedTextCache.put(documentKey, collected[0].toString());
+        }
+    }
+
+    /**
+     * Identifies an upload and the way it will be parsed: the same bytes parsed in the same mode get the same key,
+     * whatever the file is called. This is also the key its text is cached under.
+     */
+    public String documentKey(MultipartFile file, boolean hasEquations) throws IOException {
+        DocumentParser parser = findParser(file, hasEquations);
+        return parsedTextCache.keyFor(file, cacheMode(file, parser, hasEquations));
+    }
+
+    private void parse(DocumentParser parser, MultipartFile file, Consumer<TextSegment> segmentConsumer) throws IOException, InvalidLLMResponseException {
+        if (streamingEnabled) {
+            parser.parse(file, segmentConsumer);
+            return;
+        }
+
+        segmentConsumer.accept(TextSegment.ofSection(0, parser.parse(file)));
+    }
 
+    private static String cacheMode(MultipartFile file, DocumentParser parser, boolean hasEquations) {
+        if (hasEquations) {
+            return parser instanceof HybridMathParser ? "equations:hybrid" : "equations";
+        }
+        // The streaming reader and XWPFWordExtractor don't lay out the same document's text the same way
+        if (parser instanceof DocxParser docxParser) {
+            return "text:" + file.getContentType() + (docxParser.isStreaming() ? ":stream" : ":dom");
+        }
+        return "text:" + file.getContentType();
+    }
+
+    private DocumentParser findParser(MultipartFile file, boolean hasEquations) {
+        if (hasEquations) {
+            // PDFs only send their maths-heavy pages to the LLM when the hybrid parser is available
+            if (PDF_MIME_TYPE.equals(file.getContentType())) {
+                Optional<DocumentParser> hybridParser = parsers.stream()
+                        .filter(p -> p instanceof HybridMathParser hybrid && hybrid.isEnabled())
+                        .findFirst();
+                if (hybridParser.isPresent()) {
+                    return hybridParser.get();
+                }
+            }
+            return parsers.stream().filter(p -> p.getClass().equals(EquationParser.class)).findFirst().orElseThrow(() -> new RuntimeException("EquationParser component was not found"));
         }
 
         String mimeType = file.getContentType();
-        DocumentParser appropriateParser = parsers.stream()
+        return parsers.stream()
                 .filter(p -> p.supports(mimeType))
                 .findFirst()
                 .orElseThrow(() -> new UnsupportedFileTypeException("File type not supported: " + mimeType));
-
-        return appropriateParser.parse(file);
     }
 
 }
@@ -0,0 +1,204 @@
+package com.taskpilot.service;
+
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Turns an exercise sheet into todos without calling the LLM. The text is cut at every line that starts with an
+ * "Exercise N" marker, and each exercise becomes a todo such as "Exercise 3.1: Find the derivative of x^2".
+ * The last exercise ends at the first blank line or heading after it, and instructions above the first exercise or
+ * notes after the last one go into the description.
+ * The result is only returned if it looks like a clean exercise sheet; a document with too few exercises, an empty
+ * or overly long exercise or instructions (which usually means notes or theory ran into them) or a repeated number
+ * is left to the LLM.
+ */
+@Component
+public class ExerciseExtractor {
+
+    // A marker must start a line; "see Exercise 2" in the middle of a sentence is a reference, not a new exercise
+    private static final Pattern MARKER = Pattern.compile("(?im)^[ \\t]*exercise[ \\t]+(\\d+(?:\\.\\d+)*)[ \\t]*[.:)\\-–]?[ \\t]*");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // A blank line, or a line starting a markdown heading
+    private static final Pattern SECTION_BREAK = Pattern.compile("\\n[ \\t]*(?:\\r?\\n|#)");
+    private static final int MAX_TITLE_CHARS = 100;
+    private static final String DEFAULT_TITLE = "Exercises";
+
+    private final Logger logger = LoggerFactory.getLogger(ExerciseExtractor.class);
+
+    private final boolean enabled;
+    private final int minExercises;
+    private final int maxExerciseChars;
+    private final boolean describeWithLlm;
+    private final Counter extracted;
+    private final Counter fellBack;
+
+    public ExerciseExtractor(MeterRegistry meterRegistry,
+                             @Value("${app.tasks.exercises.local.enabled:true}") boolean enabled,
+                             @Value("${app.tasks.exercises.local.min-exercises:2}") int minExercises,
+                             @Value("${app.tasks.exercises.local.max-exercise-chars:1500}") int maxExerciseChars,
+                             @Value("${app.tasks.exercises.local.describe-with-llm:false}") boolean describeWithLlm) {
+        this.enabled = enabled;
+        this.minExercises = Math.max(1, minExercises);
+        this.maxExerciseChars = maxExerciseChars;
+        this.describeWithLlm = describeWithLlm;
+        this.extracted = localExtractionCounter(meterRegistry, "extracted", "Exercise sheets turned into todos without calling the LLM");
+        this.fellBack = localExtractionCounter(meterRegistry, "fallback", "Exercise sheets left to the LLM because the local result looked malformed");
+    }
+
+    /**
+     * @return true if the text received so far could be the start of a clean exercise sheet: it has exercise
+     * markers, and every exercise so far passes the checks {@link #extract(String)} makes, allowing for the last
+     * one to still be growing. Lets a document that is still arriving be ruled out early.
+     */
+    public boolean mayBeExerciseSheet(CharSequence text) {
+        if (!enabled || text == null) {
+            return false;
+        }
+        Reading reading = read(text.toString(), false);
+        return !reading.labels().isEmpty() && reading.problem() == null;
+    }
+
+    /**
+     * @return the exercises as todos, with a title taken from the heading above the first exercise, or an empty
+     * Optional if the document should go to the LLM instead.
+     */
+    public Optional<ExtractedTaskListDTO> extract(String documentText) {
+        if (!enabled || documentText == null) {
+            return Optional.empty();
+        }
+
+        Reading reading = read(documentText, true);
+        if (reading.labels().isEmpty()) {
+            return Optional.empty();
+        }
+        if (reading.problem() != null) {
+            return fallBack(reading.problem());
+        }
+
+        extracted.increment();
+        List<String> labels = reading.labels();
+        String summary = labels.size() + " exercises, from Exercise " + labels.getFirst() + " to Exercise " + labels.getLast() + ".";
+        String description = Stream.of(reading.instructions(), summary, reading.notes())
+                .filter(part -> !part.isEmpty())
+                .collect(Collectors.joining(" "));
+        return Optional.of(new ExtractedTaskListDTO(reading.title(), description, reading.todos()));
+    }
+
+    /**
+     * @return true if the LLM should be asked for a better title and description than the ones made locally.
+     */
+    public boolean describeWithLlm() {
+        return describeWithLlm;
+    }
+
+    /**
+     * The exercises cut from a text, and what makes it no clean exercise sheet, if anything.
+     * @param instructions The text above the first exercise other than the title, on one line.
+     * @param notes The text after the last exercise, on one line.
+     * @param problem Why the text should go to the LLM instead, or null if it is a clean sheet.
+     */
+    private record Reading(List<String> labels, List<String> todos, String title, String instructions, String notes,
+                           String problem) {}
+
+    /**
+     * @param complete False if more text may follow, so the last exercise may be cut short and more may come.
+     */
+    private Reading read(String text, boolean complete) {
+        Matcher matcher = MARKER.matcher(text);
+        List<String> labels = new ArrayList<>();
+        List<Integer> bodyStarts = new ArrayList<>();
+        List<Integer> markerStarts = new ArrayList<>();
+        while (matcher.find()) {
+            labels.add(matcher.group(1));
+            markerStarts.add(matcher.start());
+            bodyStarts.add(matcher.end());
+        }
+        if (labels.isEmpty()) {
+            return new Reading(labels, List.of(), DEFAULT_TITLE, "", "", null);
+        }
+
+        List<String> preamble = text.substring(0, markerStarts.getFirst()).lines()
+                .map(String::strip)
+                .filter(line -> !line.isEmpty())
+                .toList();
+        boolean hasHeading = !preamble.isEmpty() && preamble.getFirst().length() <= MAX_TITLE_CHARS;
+        String title = hasHeading ? preamble.getFirst() : DEFAULT_TITLE;
+        String instructions = collapse(String.join(" ", hasHeading ? preamble.subList(1, preamble.size()) : preamble));
+        int lastEnd = lastExerciseEnd(text, bodyStarts.getLast());
+        String notes = collapse(text.substring(lastEnd));
+
+        List<String> todos = new ArrayList<>(labels.size());
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < labels.size(); i++) {
+            boolean last = i + 1 == labels.size();
+            int end = last ? lastEnd : markerStarts.get(i + 1);
+            String body = tidy(text.substring(bodyStarts.get(i), end));
+            String problem = body.isEmpty() && (complete || !last) ? "an empty exercise"
+                    : body.length() > maxExerciseChars ? "an exercise longer than " + maxExerciseChars + " characters"
+                    : !seen.add(labels.get(i)) ? "a repeated exercise number"
+                    : null;
+            if (problem != null) {
+                return new Reading(labels, todos, title, instructions, notes, "Exercise " + labels.get(i) + " is " + problem);
+            }
+            todos.add("Exercise " + labels.get(i) + ": " + body);
+        }
+        String problem = instructions.length() > maxExerciseChars ? "the text above the first exercise is longer than " + maxExerciseChars + " characters"
+                : notes.length() > maxExerciseChars ? "the text after the last exercise is longer than " + maxExerciseChars + " characters"
+                : complete && todos.size() < minExercises ? "only " + todos.size() + " exercise(s) were found"
+                : null;
+        return new Reading(labels, todos, title, instructions, notes, problem);
+    }
+
+    /**
+     * @return where the last exercise ends: at the first blank line or heading after its first line of text, or at
+     * the end of the text.
+     */
+    private static int lastExerciseEnd(String text, int bodyStart) {
+        int from = bodyStart;
+        while (from < text.length() && Character.isWhitespace(text.charAt(from))) {
+            from++;
+        }
+        Matcher sectionBreak = SECTION_BREAK.matcher(text);
+        return sectionBreak.find(from) ? sectionBreak.start() : text.length();
+    }
+
+    private Optional<ExtractedTaskListDTO> fallBack(String reason) {
+        fellBack.increment();
+        logger.info("Exercise markers found but {}; using the LLM instead.", reason);
+        return Optional.empty();
+    }
+
+    /**
+     * Joins the lines of an exercise into one and drops a single trailing full stop, as the LLM does.
+     */
+    private static String tidy(String body) {
+        String tidied = collapse(body);
+        return tidied.endsWith(".") && !tidied.endsWith("..") ? tidied.substring(0, tidied.length() - 1) : tidied;
+    }
+
+    private static String collapse(String text) {
+        return WHITESPACE.matcher(text).replaceAll(" ").trim();
+    }
+
+    private static Counter localExtractionCounter(MeterRegistry meterRegistry, String outcome, String description) {
+        return Counter.builder("taskpilot.extraction.exercises.local")
+                .description(description)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,82 @@
+package com.taskpilot.service;
+
+import com.taskpilot.exception.InvalidLLMResponseException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Lets concurrent requests for the same extraction share one run of it. The first request for a key does the work;
+ * any request for the same key that arrives while it is running waits for it and gets the same result, or the same
+ * exception. Nothing is kept once the run finishes, so a later request starts a fresh one.
+ */
+@Component
+public class ExtractionCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionCoalescer.class);
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public ExtractionCoalescer(MeterRegistry meterRegistry) {
+        this.coalesced = Counter.builder("taskpilot.extraction.coalesced")
+                .description("Extraction requests that joined an identical extraction already in flight")
+                .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    public interface Extraction<T> {
+        T run() throws IOException, InvalidLLMResponseException;
+    }
+
+    /**
+     * Runs the extraction, or joins the run already in flight for the same key.
+     * @param key Identifies the document and the options it is extracted with. Callers sharing a key must expect the same result type.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T coalesce(String key, Extraction<T> extraction) throws IOException, InvalidLLMResponseException {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            logger.info("Joining extraction already in flight for document {}", key);
+            return (T) await(running);
+        }
+
+        try {
+            T result = extraction.run();
+            mine.complete(result);
+            return result;
+        } catch (IOException | InvalidLLMResponseException | RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Waits for a run started by another request and rethrows whatever it failed with.
+     */
+    static <T> T await(CompletableFuture<T> future) throws IOException, InvalidLLMResponseException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            switch (e.getCause()) {
+                case IOException io -> throw io;
+                case InvalidLLMResponseException invalid -> throw invalid;
+                case RuntimeException runtime -> throw runtime;
+                case Error error -> throw error;
+                default -> throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.taskpilot.service;
+
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+
+/**
+ * Progress of a streamed extraction, as emitted by {@link TaskRouterService#streamDocument(String)}.
+ */
+public sealed interface ExtractionEvent {
+
+    /**
+     * A todo whose JSON array element has just closed in the LLM's response for a chunk.
+     */
+    record TodoExtracted(int chunk, String todo) implements ExtractionEvent {
+    }
+
+    /**
+     * The full result for one chunk, once its response has finished streaming.
+     */
+    record ChunkCompleted(int chunk, ExtractedTaskListDTO result) implements ExtractionEvent {
+    }
+
+    /**
+     * A chunk that still failed after its retries. Its todos are left out of the combined result, which is marked
+     * as partial; todos it had already streamed were sent as {@link TodoExtracted} events all the same.
+     */
+    record ChunkFailed(int chunk, Throwable error) implements ExtractionEvent {
+    }
+
+    /**
+     * The combined result for the whole document. Always the last event.
+     */
+    record DocumentCompleted(ExtractedTaskListDTO result) implements ExtractionEvent {
+    }
+}
@@ -0,0 +1,173 @@
+package com.taskpilot.service;
+
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+import com.taskpilot.dto.task.ExtractionJobDTO;
+import com.taskpilot.dto.task.TaskListDTO;
+import com.taskpilot.model.ExtractionJob;
+import com.taskpilot.model.User;
+import com.taskpilot.repository.ExtractionJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the state of queued extraction jobs in Postgres, so a job survives a restart and is picked up by
+ * exactly one worker at a time. A worker holds a job through a lease; if the worker dies the lease runs out
+ * and another worker claims the job again.
+ */
+@Service
+public class ExtractionJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionJobService.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ExtractionJobRepository extractionJobRepository;
+    private final TaskService taskService;
+    private final int maxAttempts;
+    private final Duration lease;
+
+    public ExtractionJobService(ExtractionJobRepository extractionJobRepository,
+                                TaskService taskService,
+                                @Value("${app.jobs.max-attempts:3}") int maxAttempts,
+                                @Value("${app.jobs.lease-ms:60000}") long leaseMillis) {
+        this.extractionJobRepository = extractionJobRepository;
+        this.taskService = taskService;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.lease = Duration.ofMillis(leaseMillis);
+    }
+
+    @Transactional
+    public ExtractionJobDTO enqueue(User user, String documentText, String callbackUrl) {
+        ExtractionJob saved = extractionJobRepository.save(new ExtractionJob(user, documentText, callbackUrl));
+        logger.info("Queued extraction job {} for user '{}'", saved.getId(), user.getEmail());
+        return convertToDto(saved);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ExtractionJobDTO> getJobForUser(Long jobId, User user) {
+        return extractionJobRepository.findByIdAndUser(jobId, user).map(this::convertToDto);
+    }
+
+    /**
+     * Claims up to {@code limit} jobs for the worker. Jobs that have already used up their attempts
+     * (their worker kept dying part way through) are failed instead of being handed out again.
+     * @return the claimed jobs, each now RUNNING under a fresh lease held by the worker.
+     */
+    @Transactional
+    public List<ExtractionJob> claim(String workerId, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ExtractionJob> claimed = new ArrayList<>();
+        for (ExtractionJob job : extractionJobRepository.lockClaimableJobs(now, limit)) {
+            if (job.getAttempts() >= maxAttempts) {
+                logger.warn("Extraction job {} was abandoned after {} attempts; marking it as failed.", job.getId(), job.getAttempts());
+                finish(job, ExtractionJob.Status.FAILED, "Extraction did not finish after " + job.getAttempts() + " attempts.");
+                continue;
+            }
+            if (job.getStatus() == ExtractionJob.Status.RUNNING) {
+                logger.info("Resuming extraction job {} whose lease held by '{}' expired.", job.getId(), job.getLockedBy());
+            }
+            job.setStatus(ExtractionJob.Status.RUNNING);
+            job.setLockedBy(workerId);
+            job.setLeaseExpiresAt(now.plus(lease));
+            job.setAttempts(job.getAttempts() + 1);
+            claimed.add(job);
+        }
+        return claimed;
+    }
+
+    /**
+     * Saves the extracted tasks and marks the job as completed, in one transaction.
+     * @return the finished job, or empty if the worker no longer holds the job (its lease ran out and
+     * another worker claimed it), in which case nothing is saved.
+     */
+    @Transactional
+    public Optional<ExtractionJobDTO> complete(Long jobId, String workerId, ExtractedTaskListDTO docData) {
+        Optional<ExtractionJob> held = findHeldJob(jobId, workerId);
+        held.ifPresent(job -> {
+            if (docData != null && docData.todos() != null && !docData.todos().isEmpty()) {
+                TaskListDTO saved = taskService.createTaskList(docData, job.getUser());
+                job.setTaskListId(saved.id());
+            }
+            finish(job, ExtractionJob.Status.COMPLETED, null);
+        });
+        return held.map(this::convertToDto);
+    }
+
+    /**
+     * Records a failed attempt. The job is queued again while it has attempts left.
+     * @return the job if it has now failed for good, otherwise empty.
+     */
+    @Transactional
+    public Optional<ExtractionJobDTO> fail(Long jobId, String workerId, String error) {
+        Optional<ExtractionJob> held = findHeldJob(jobId, workerId);
+        if (held.isEmpty()) {
+            return Optional.empty();
+        }
+        ExtractionJob job = held.get();
+        if (job.getAttempts() < maxAttempts) {
+            logger.info("Extraction job {} failed on attempt {}; queueing it again.", jobId, job.getAttempts());
+            job.setStatus(ExtractionJob.Status.QUEUED);
+            job.setLockedBy(null);
+            job.setLeaseExpiresAt(null);
+            job.setError(truncate(error));
+            return Optional.empty();
+        }
+        finish(job, ExtractionJob.Status.FAILED, error);
+        return Optional.of(convertToDto(job));
+    }
+
+    @Transactional
+    public int renewLeases(String workerId) {
+        return extractionJobRepository.renewLeases(workerId, LocalDateTime.now().plus(lease));
+    }
+
+    /**
+     * Hands every job the worker is running back to the queue, e.g. when the application is shutting down.
+     */
+    @Transactional
+    public int releaseJobs(String workerId) {
+        return extractionJobRepository.releaseJobs(workerId);
+    }
+
+    private Optional<ExtractionJob> findHeldJob(Long jobId, String workerId) {
+        Optional<ExtractionJob> job = extractionJobRepository.findById(jobId)
+                .filter(j -> j.getStatus() == ExtractionJob.Status.RUNNING && workerId.equals(j.getLockedBy()));
+        if (job.isEmpty()) {
+            logger.warn("Worker '{}' no longer holds extraction job {}; discarding its result.", workerId, jobId);
+        }
+        return job;
+    }
+
+    private void finish(ExtractionJob job, ExtractionJob.Status status, String error) {
+        job.setStatus(status);
+        job.setError(truncate(error));
+        job.setLockedBy(null);
+        job.setLeaseExpiresAt(null);
+        // The document is only needed until the job is done
+        job.setDocumentText("");
+        job.setCompletedAt(LocalDateTime.now());
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private ExtractionJobDTO convertToDto(ExtractionJob job) {
+        return new ExtractionJobDTO(
+                job.getId(),
+                job.getStatus().name(),
+                job.getTaskListId(),
+                job.getError(),
+                job.getCreatedAt(),
+                job.getCompletedAt()
+        );
+    }
+}
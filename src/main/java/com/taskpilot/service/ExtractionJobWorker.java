@@ -0,0 +1,138 @@
+package com.taskpilot.service;
+
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+import com.taskpilot.dto.task.ExtractionJobDTO;
+import com.taskpilot.exception.InvalidLLMResponseException;
+import com.taskpilot.model.ExtractionJob;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Polls the extraction job queue and runs the jobs it claims on virtual threads. Every instance of the
+ * application runs its own worker; the row locks taken when claiming keep two workers off the same job.
+ */
+@Component
+public class ExtractionJobWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionJobWorker.class);
+
+    private final ExtractionJobService extractionJobService;
+    private final TaskRouterService taskRouterService;
+    private final RestTemplate restTemplate;
+    private final boolean enabled;
+    private final int maxConcurrent;
+    private final Semaphore slots;
+    private final String workerId;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("extraction-job-", 0).factory());
+
+    public ExtractionJobWorker(ExtractionJobService extractionJobService,
+                               TaskRouterService taskRouterService,
+                               RestTemplate restTemplate,
+                               @Value("${app.jobs.enabled:true}") boolean enabled,
+                               @Value("${app.jobs.max-concurrent:4}") int maxConcurrent) {
+        this.extractionJobService = extractionJobService;
+        this.taskRouterService = taskRouterService;
+        this.restTemplate = restTemplate;
+        this.enabled = enabled;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.slots = new Semaphore(this.maxConcurrent);
+        this.workerId = hostName() + ":" + UUID.randomUUID();
+    }
+
+    String getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * Claims as many jobs as there are free slots and starts running them.
+     */
+    @Scheduled(fixedDelayString = "${app.jobs.poll-interval-ms:2000}")
+    public void poll() {
+        if (!enabled || slots.availablePermits() == 0) {
+            return;
+        }
+        List<ExtractionJob> jobs = extractionJobService.claim(workerId, slots.availablePermits());
+        for (ExtractionJob job : jobs) {
+            // Only this thread takes permits, so one is always free for each claimed job
+            slots.acquireUninterruptibly();
+            Long jobId = job.getId();
+            String documentText = job.getDocumentText();
+            String callbackUrl = job.getCallbackUrl();
+            executor.execute(() -> {
+                try {
+                    run(jobId, documentText, callbackUrl);
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Keeps the leases on running jobs from expiring. Runs well inside the lease so one missed renewal
+     * doesn't hand a healthy job to another worker.
+     */
+    @Scheduled(fixedDelayString = "${app.jobs.lease-renewal-ms:20000}")
+    public void renewLeases() {
+        if (slots.availablePermits() < maxConcurrent) {
+            extractionJobService.renewLeases(workerId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        int released = extractionJobService.releaseJobs(workerId);
+        if (released > 0) {
+            logger.info("Returned {} unfinished extraction jobs to the queue.", released);
+        }
+    }
+
+    void run(Long jobId, String documentText, String callbackUrl) {
+        Optional<ExtractionJobDTO> finished;
+        try {
+            ExtractedTaskListDTO docData = taskRouterService.processDocument(documentText);
+            finished = extractionJobService.complete(jobId, workerId, docData);
+            finished.ifPresent(job -> logger.info("Extraction job {} completed.", jobId));
+        } catch (InvalidLLMResponseException | RuntimeException e) {
+            logger.error("Extraction job {} failed", jobId, e);
+            String message = e instanceof InvalidLLMResponseException ? e.getMessage() : "Task extraction failed.";
+            finished = extractionJobService.fail(jobId, workerId, message);
+        }
+        if (callbackUrl != null) {
+            finished.ifPresent(job -> notifyCallback(callbackUrl, job));
+        }
+    }
+
+    private void notifyCallback(String callbackUrl, ExtractionJobDTO job) {
+        try {
+            restTemplate.postForEntity(callbackUrl, job, Void.class);
+        } catch (RestClientException e) {
+            // The result is stored either way; the client can still poll for it
+            logger.warn("Callback for extraction job {} to '{}' failed: {}", job.id(), callbackUrl, e.getMessage());
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown-host";
+        }
+    }
+}
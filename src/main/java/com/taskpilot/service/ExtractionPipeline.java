@@ -0,0 +1,228 @@
+package com.taskpilot.service;
+
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+import com.taskpilot.exception.InvalidLLMResponseException;
+import com.taskpilot.parser.TextSegment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accepts document text while it is still being parsed and sends each chunk to the LLM
+ * as soon as it is full, so extraction overlaps with parsing instead of waiting for it.
+ * Obtain one per document from {@link TaskRouterService#openPipeline()}.
+ * <p>
+ * An exercise sheet is split into todos locally, which needs the whole text. So when the first chunk fills up, the
+ * text so far is checked for the start of a clean exercise sheet. If it isn't one, chunks are dispatched from then
+ * on as usual. If it is, text is held back and checked again each time another chunk's worth arrives; the held
+ * chunks are dispatched at once if a check fails, and otherwise the whole document goes through
+ * {@link TaskRouterService#processDocument(String)} on completion, which still falls back to the LLM if the end of
+ * the sheet turns out not to be clean.
+ */
+public class ExtractionPipeline {
+
+    private static final String PARAGRAPH_BREAK = "\n\n";
+
+    private final TaskRouterService taskRouterService;
+    private final int targetChunkSize;
+    private final Semaphore requestBulkhead;
+    private final DescriptionReducer descriptions;
+    private final long startedAt = System.nanoTime();
+    private final AtomicLong firstLlmCallAt = new AtomicLong();
+    private final StringBuilder pending = new StringBuilder();
+    private final List<Integer> segmentEnds = new ArrayList<>();
+    private final List<CompletableFuture<ExtractedTaskListDTO>> futures = new ArrayList<>();
+    private boolean exerciseSheetRuledOut;
+    // While text is held back for a possible exercise sheet, it is checked again once it reaches this length
+    private int nextExerciseCheck;
+    private volatile boolean cancelled;
+
+    ExtractionPipeline(TaskRouterService taskRouterService, int targetChunkSize) {
+        this.taskRouterService = taskRouterService;
+        this.targetChunkSize = targetChunkSize;
+        this.requestBulkhead = taskRouterService.newRequestBulkhead();
+        this.descriptions = taskRouterService.newDescriptionReducer(requestBulkhead);
+    }
+
+    /**
+     * Adds the next segment of the document. The end of a segment that ends a page, paragraph or line is treated as
+     * a place where a chunk may be cut, alongside paragraph breaks; other segment ends are arbitrary and ignored.
+     * Any chunks that are now complete are dispatched immediately.
+     */
+    public void accept(TextSegment segment) {
+        if (segment == null || segment.text().isEmpty()) {
+            return;
+        }
+        pending.append(segment.text());
+        if (segment.endsAtBoundary()) {
+            segmentEnds.add(pending.length());
+        }
+        dispatchFullChunks();
+    }
+
+    /**
+     * Adds the next piece of document text. Any chunks that are now complete are dispatched immediately.
+     */
+    public void accept(String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        pending.append(text);
+        dispatchFullChunks();
+    }
+
+    /**
+     * @return true if any text has been received so far.
+     */
+    public boolean hasText() {
+        return !futures.isEmpty() || !pending.isEmpty();
+    }
+
+    /**
+     * Dispatches whatever text is left, waits for every chunk and combines their results. If a chunk failed, the
+     * result is made from the others and marked partial, as far as the failure policy allows.
+     */
+    public ExtractedTaskListDTO complete() throws InvalidLLMResponseException {
+        ExtractedTaskListDTO result;
+
+        if (futures.isEmpty()) {
+            // Nothing was dispatched early, because the document was small or may be an exercise sheet, so this is an
+            // ordinary single pass
+            firstLlmCallAt.compareAndSet(0, System.nanoTime());
+            result = taskRouterService.processDocument(pending.toString());
+        } else {
+            if (!pending.isEmpty()) {
+                dispatch(pending.toString());
+                pending.setLength(0);
+                segmentEnds.clear();
+            }
+            result = taskRouterService.combineChunks(futures, descriptions);
+        }
+
+        long firstCall = firstLlmCallAt.get();
+        taskRouterService.recordPipelineTimings(firstCall == 0 ? -1 : firstCall - startedAt, System.nanoTime() - startedAt, futures.size());
+        return result;
+    }
+
+    /**
+     * Gives up on the document, e.g. because parsing it failed. Chunks still waiting for a bulkhead permit or a
+     * retry are never sent; calls already in flight are left to finish, but their results are not used.
+     */
+    public void cancel() {
+        cancelled = true;
+        futures.forEach(future -> future.cancel(false));
+    }
+
+    private void dispatchFullChunks() {
+        if (pending.length() <= targetChunkSize || holdsForExercises()) {
+            return;
+        }
+        if (taskRouterService.hasContentDefinedChunks()) {
+            dispatchContentDefinedChunks();
+            return;
+        }
+        while (pending.length() > targetChunkSize) {
+            int end = findChunkEnd();
+            if (end <= 0) {
+                return;
+            }
+            dispatch(pending.substring(0, end));
+            pending.delete(0, end);
+            segmentEnds.removeIf(segmentEnd -> segmentEnd <= end);
+            segmentEnds.replaceAll(segmentEnd -> segmentEnd - end);
+        }
+    }
+
+    /**
+     * Checks whether the document may still be an exercise sheet when the first chunk would be sent, and again
+     * after every further chunk's worth of held text, until it is ruled out.
+     */
+    private boolean holdsForExercises() {
+        if (exerciseSheetRuledOut) {
+            return false;
+        }
+        if (pending.length() < nextExerciseCheck) {
+            return true;
+        }
+        if (!taskRouterService.mayBeExerciseSheet(pending)) {
+            exerciseSheetRuledOut = true;
+            return false;
+        }
+        nextExerciseCheck = pending.length() + targetChunkSize;
+        return true;
+    }
+
+    /**
+     * Splits the text received so far and sends every chunk except the last, which may still grow. The splitter
+     * cuts by content, so the chunks sent are the ones splitting the whole document would give, and an unchanged
+     * region of an edited document produces the same chunks as before.
+     */
+    private void dispatchContentDefinedChunks() {
+        if (pending.length() <= targetChunkSize) {
+            return;
+        }
+        List<String> chunks = taskRouterService.splitText(pending.toString());
+        int sent = 0;
+        for (String chunk : chunks.subList(0, chunks.size() - 1)) {
+            dispatchPiece(chunk);
+            sent += chunk.length();
+        }
+        int end = sent;
+        pending.delete(0, end);
+        segmentEnds.removeIf(segmentEnd -> segmentEnd <= end);
+        segmentEnds.replaceAll(segmentEnd -> segmentEnd - end);
+    }
+
+    /**
+     * Picks the latest paragraph break or segment end that fits in a chunk. A paragraph longer than a whole
+     * chunk is kept together, so if nothing fits we cut at the first boundary past the target, or wait for one.
+     */
+    private int findChunkEnd() {
+        int paragraphEnd = pending.lastIndexOf(PARAGRAPH_BREAK, targetChunkSize);
+        paragraphEnd = paragraphEnd > 0 ? paragraphEnd + PARAGRAPH_BREAK.length() : 0;
+        int segmentEnd = 0;
+        for (int end : segmentEnds) {
+            if (end > targetChunkSize) {
+                break;
+            }
+            segmentEnd = end;
+        }
+        int end = Math.max(paragraphEnd, segmentEnd);
+        if (end > 0) {
+            return end;
+        }
+
+        int nextBreak = pending.indexOf(PARAGRAPH_BREAK, targetChunkSize);
+        int nextParagraphEnd = nextBreak > 0 ? nextBreak + PARAGRAPH_BREAK.length() : Integer.MAX_VALUE;
+        int nextSegmentEnd = segmentEnds.stream().filter(e -> e > targetChunkSize).findFirst().orElse(Integer.MAX_VALUE);
+        end = Math.min(nextParagraphEnd, nextSegmentEnd);
+        return end == Integer.MAX_VALUE ? 0 : end;
+    }
+
+    /**
+     * Sends a chunk to the LLM. A chunk that had to grow past the target to reach a boundary is split
+     * again so that nothing dispatched goes over the provider's budget.
+     */
+    private void dispatch(String chunk) {
+        for (String piece : taskRouterService.splitText(chunk)) {
+            dispatchPiece(piece);
+        }
+    }
+
+    private void dispatchPiece(String piece) {
+        CompletableFuture<ExtractedTaskListDTO> future =
+                taskRouterService.dispatchChunk(piece, requestBulkhead, () -> {
+                    if (cancelled) {
+                        throw new CancellationException("The document's extraction was cancelled");
+                    }
+                    firstLlmCallAt.compareAndSet(0, System.nanoTime());
+                });
+        futures.add(future);
+        // Summarising starts while later chunks are still being parsed and extracted
+        descriptions.add(TaskRouterService.descriptionOf(future));
+    }
+}
@@ -2,23 +2,37 @@ package com.taskpilot.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.taskpilot.exception.InvalidLLMResponseException;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.vertexai.gemini.VertexAiGeminiChatOptions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.stream.Collectors;
 
 @Service
 public class GeminiService implements LLMService{
 
+    private static final String JSON_MIME_TYPE = "application/json";
+
     private final Logger logger = LoggerFactory.getLogger(GeminiService.class);
 
     private final ChatClient chatClient;
-    private final ObjectMapper objectMapper;
+    private final LLMResponseReader reader;
+    private final LLMResponseMetrics metrics;
+    private final boolean structuredOutput;
 
 
-    public GeminiService(ChatClient.Builder builder, ObjectMapper objectMapper) {
+    public GeminiService(ChatClient.Builder builder, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                         @Value("${app.llm.structured-output.enabled:true}") boolean structuredOutput) {
         this.chatClient = builder.build();
-        this.objectMapper = objectMapper;
+        this.metrics = new LLMResponseMetrics(meterRegistry, "gemini");
+        this.reader = new LLMResponseReader(objectMapper, metrics);
+        this.structuredOutput = structuredOutput;
     }
 
     /**
@@ -28,38 +42,72 @@ public class GeminiService implements LLMService{
     public <T> T executePrompt(String prompt, Class<T> responseType) throws InvalidLLMResponseException {
         logger.info("Executing prompt with Gemini.");
 
-        String response = chatClient.prompt().user(u -> u.text(prompt)).call().content();
+        String response = request(prompt, responseType).call().content();
+        return readResponse(response, responseType);
+    }
 
-        if (response == null || response.trim().isEmpty()) {
-            throw new InvalidLLMResponseException("Received empty response from the Gemini.");
-        }
+    /**
+     * Streams the response from Gemini and deserializes it once complete, without holding a thread while waiting.
+     */
+    @Override
+    public <T> Mono<T> executePromptReactive(String prompt, Class<T> responseType) {
+        logger.info("Executing prompt with Gemini (non-blocking).");
 
-        String cleanedResponse = cleanLlmJsonResponse(response);
+        return request(prompt, responseType).stream().content()
+                .collect(Collectors.joining())
+                .handle((response, sink) -> {
+                    try {
+                        sink.next(readResponse(response, responseType));
+                    } catch (InvalidLLMResponseException e) {
+                        sink.error(e);
+                    }
+                });
+    }
+
+    /**
+     * Streams the generated text from Gemini as it arrives. Streamed responses are always parsed as JSON,
+     * so Gemini is asked for JSON output.
+     */
+    @Override
+    public Flux<String> streamPrompt(String prompt) {
+        logger.info("Streaming prompt with Gemini.");
 
-        try {
-            return objectMapper.readValue(cleanedResponse, responseType);
-        } catch (Exception e) {
-            throw new InvalidLLMResponseException("Failed to parse API response content", e);
+        metrics.recordPrompt(prompt);
+        ChatClient.ChatClientRequestSpec request = chatClient.prompt();
+        if (structuredOutput) {
+            request = request.options(VertexAiGeminiChatOptions.builder().responseMimeType(JSON_MIME_TYPE).build());
         }
+        return request.user(u -> u.text(prompt)).stream().content();
     }
 
     /**
-     * Cleans the raw JSON string from the LLM.
-     * It removes markdown code fences (```) and the optional "json" language identifier.
+     * Builds the request for a prompt. A structured response is requested in Gemini's JSON mode. This version of
+     * the Gemini chat options has no field for a response schema, so the prompt names the fields to fill in; the
+     * full schema generated from the response type is only given when JSON mode is off.
      */
-    private String cleanLlmJsonResponse(String content) {
-        String cleaned = content.trim();
-
-        // First, check for and remove markdown code block fences
-        if (cleaned.startsWith("```") && cleaned.endsWith("```")) {
-            cleaned = cleaned.substring(3, cleaned.length() - 3).trim();
+    private ChatClient.ChatClientRequestSpec request(String prompt, Class<?> responseType) {
+        ChatClient.ChatClientRequestSpec request = chatClient.prompt();
+        String text = prompt;
+        if (ResponseSchemas.isStructured(responseType)) {
+            ResponseSchemas.Schema schema = ResponseSchemas.of(responseType);
+            if (structuredOutput) {
+                text = prompt + "\nRespond with a JSON object with the fields " + String.join(", ", schema.fields()) + ".";
+                request = request.options(VertexAiGeminiChatOptions.builder().responseMimeType(JSON_MIME_TYPE).build());
+            } else {
+                text = prompt + "\nRespond with JSON matching this schema: " + schema.json();
+            }
         }
+        String userText = text;
+        metrics.recordPrompt(userText);
+        return request.user(u -> u.text(userText));
+    }
 
-        // After removing fences, check for and remove the "json" prefix
-        if (cleaned.toLowerCase().startsWith("json")) {
-            cleaned = cleaned.substring(4).trim();
+    private <T> T readResponse(String response, Class<T> responseType) throws InvalidLLMResponseException {
+        if (response == null || response.trim().isEmpty()) {
+            metrics.recordInvalid();
+            throw new InvalidLLMResponseException("Received empty response from the Gemini.");
         }
 
-        return cleaned;
+        return reader.read(response, responseType);
     }
 }
@@ -5,9 +5,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.taskpilot.client.HuggingFaceClient;
 import com.taskpilot.dto.task.HuggingFaceApiV1;
 import com.taskpilot.exception.InvalidLLMResponseException;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
 
 @Service
 public class HuggingFaceService implements LLMService {
@@ -15,10 +21,17 @@ public class HuggingFaceService implements LLMService {
     private final Logger logger = LoggerFactory.getLogger(HuggingFaceService.class);
     private final HuggingFaceClient huggingFaceClient;
     private final ObjectMapper objectMapper;
+    private final LLMResponseMetrics metrics;
+    private final LLMResponseReader reader;
+    private final boolean structuredOutput;
 
-    public HuggingFaceService(HuggingFaceClient huggingFaceClient, ObjectMapper objectMapper) {
+    public HuggingFaceService(HuggingFaceClient huggingFaceClient, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                              @Value("${app.llm.structured-output.enabled:true}") boolean structuredOutput) {
         this.huggingFaceClient = huggingFaceClient;
         this.objectMapper = objectMapper;
+        this.metrics = new LLMResponseMetrics(meterRegistry, "huggingface");
+        this.reader = new LLMResponseReader(objectMapper, metrics);
+        this.structuredOutput = structuredOutput;
     }
 
     /**
@@ -27,41 +40,88 @@ public class HuggingFaceService implements LLMService {
     public <T> T executePrompt(String prompt, Class<T> responseType) throws InvalidLLMResponseException {
         logger.info("Executing prompt against Hugging Face API");
 
-        HuggingFaceApiV1.ChatCompletion apiResponse = huggingFaceClient.chatCompletion(prompt);
+        String text = promptFor(prompt, responseType);
+        return readResponse(huggingFaceClient.chatCompletion(text, responseFormat(responseType)), responseType);
+    }
 
-        if (apiResponse == null || apiResponse.choices().isEmpty()) {
-            throw new InvalidLLMResponseException("API returned an empty or malformed response.");
-        }
+    /**
+     * Executes a given prompt against the Hugging Face API without blocking and deserializes the response.
+     */
+    @Override
+    public <T> Mono<T> executePromptReactive(String prompt, Class<T> responseType) {
+        logger.info("Executing prompt against Hugging Face API (non-blocking)");
 
-        try {
-            String rawContent = apiResponse.choices().getFirst().message().content();
+        return huggingFaceClient.chatCompletionReactive(promptFor(prompt, responseType), responseFormat(responseType))
+                .switchIfEmpty(Mono.error(() -> {
+                    metrics.recordInvalid();
+                    return new InvalidLLMResponseException("API returned an empty or malformed response.");
+                }))
+                .handle((apiResponse, sink) -> {
+                    try {
+                        sink.next(readResponse(apiResponse, responseType));
+                    } catch (InvalidLLMResponseException e) {
+                        sink.error(e);
+                    }
+                });
+    }
 
-            // Clean the JSON string before parsing
-            String cleanedContent = cleanLlmJsonResponse(rawContent);
+    /**
+     * Streams the generated text from the Hugging Face API as each chunk of the completion arrives. Streamed
+     * responses are always parsed as JSON, so JSON mode is requested.
+     */
+    @Override
+    public Flux<String> streamPrompt(String prompt) {
+        logger.info("Streaming prompt against Hugging Face API");
 
-            return objectMapper.readValue(cleanedContent, responseType);
-        } catch (JsonProcessingException e) {
-            throw new InvalidLLMResponseException("Failed to parse API response content", e);
-        }
+        metrics.recordPrompt(prompt);
+        return huggingFaceClient.streamChatCompletion(prompt, structuredOutput ? Map.of("type", "json_object") : null)
+                .handle((data, sink) -> {
+                    try {
+                        HuggingFaceApiV1.ChatCompletionChunk chunk = objectMapper.readValue(data, HuggingFaceApiV1.ChatCompletionChunk.class);
+                        if (chunk.choices() != null && !chunk.choices().isEmpty() && chunk.choices().getFirst().delta() != null) {
+                            String content = chunk.choices().getFirst().delta().content();
+                            if (content != null && !content.isEmpty()) {
+                                sink.next(content);
+                            }
+                        }
+                    } catch (JsonProcessingException e) {
+                        sink.error(new InvalidLLMResponseException("Failed to parse streamed API response chunk", e));
+                    }
+                });
     }
 
     /**
-     * Cleans the raw JSON string from the LLM.
-     * It removes markdown code fences (```) and the optional "json" language identifier.
+     * A structured response is constrained by a strict JSON schema generated from the response type, so the schema
+     * only goes in the prompt when that isn't switched on.
      */
-    private String cleanLlmJsonResponse(String content) {
-        String cleaned = content.trim();
+    private String promptFor(String prompt, Class<?> responseType) {
+        String text = !structuredOutput && ResponseSchemas.isStructured(responseType)
+                ? prompt + "\nRespond with JSON matching this schema: " + ResponseSchemas.of(responseType).json()
+                : prompt;
+        metrics.recordPrompt(text);
+        return text;
+    }
 
-        // First, check for and remove markdown code block fences
-        if (cleaned.startsWith("```") && cleaned.endsWith("```")) {
-            cleaned = cleaned.substring(3, cleaned.length() - 3).trim();
+    private Map<String, Object> responseFormat(Class<?> responseType) {
+        if (!structuredOutput || !ResponseSchemas.isStructured(responseType)) {
+            return null;
         }
+        return Map.of(
+                "type", "json_schema",
+                "json_schema", Map.of(
+                        "name", responseType.getSimpleName(),
+                        "schema", ResponseSchemas.of(responseType).properties(),
+                        "strict", true
+                )
+        );
+    }
 
-        // After removing fences, check for and remove the "json" prefix
-        if (cleaned.toLowerCase().startsWith("json")) {
-            cleaned = cleaned.substring(4).trim();
+    private <T> T readResponse(HuggingFaceApiV1.ChatCompletion apiResponse, Class<T> responseType) throws InvalidLLMResponseException {
+        if (apiResponse == null || apiResponse.choices().isEmpty()) {
+            metrics.recordInvalid();
+            throw new InvalidLLMResponseException("API returned an empty or malformed response.");
         }
 
-        return cleaned;
+        return reader.read(apiResponse.choices().getFirst().message().content(), responseType);
     }
-}
\ No newline at end of file
+}
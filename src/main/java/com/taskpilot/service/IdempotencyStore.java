@@ -0,0 +1,99 @@
+package com.taskpilot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.taskpilot.exception.IdempotencyKeyReuseException;
+import com.taskpilot.exception.InvalidLLMResponseException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Remembers the outcome of requests sent with an Idempotency-Key header, so a client that retries a request
+ * gets the original result back instead of the work being done twice. A retry that arrives while the original
+ * is still running waits for it. Requests that fail with an exception are forgotten, so they can be retried.
+ * Entries are held in memory for a limited time and are not shared between instances.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final Cache<String, Entry> entries;
+    private final Counter replays;
+
+    public IdempotencyStore(MeterRegistry meterRegistry,
+                            @Value("${app.tasks.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                            @Value("${app.tasks.idempotency.max-entries:10000}") long maxEntries) {
+        this.entries = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .maximumSize(maxEntries)
+                .build();
+        this.replays = Counter.builder("taskpilot.tasks.idempotent.replays")
+                .description("Requests answered with the stored result of an earlier request with the same Idempotency-Key")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The outcome of a request, and whether it was replayed from an earlier request rather than produced now.
+     */
+    public record Outcome<T>(T value, boolean replayed) {}
+
+    /**
+     * Keys are scoped to the user and the endpoint, so a key can't be used to replay another user's result,
+     * or to skip the rate limit on a different endpoint.
+     */
+    public static String scope(Long userId, String requestPath) {
+        return userId + ":" + requestPath;
+    }
+
+    /**
+     * @return true if a request with this key from the owner, which names the user, has finished successfully and
+     * is still remembered, so a retry will be answered with its result. A request that is still running may yet
+     * fail and be forgotten, so it doesn't count.
+     */
+    public boolean hasCompleted(String owner, String idempotencyKey) {
+        Entry entry = entries.getIfPresent(owner + ":" + idempotencyKey);
+        return entry != null && entry.outcome().isDone() && !entry.outcome().isCompletedExceptionally();
+    }
+
+    /**
+     * Runs the request, or returns the outcome of the earlier request with the same key.
+     * @param owner The scope of the key, from {@link #scope}.
+     * @param fingerprint Identifies what was requested. A key that is reused for a different request is rejected.
+     * @throws IdempotencyKeyReuseException if the key was already used with a different fingerprint.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Outcome<T> execute(String owner, String idempotencyKey, String fingerprint,
+                                  ExtractionCoalescer.Extraction<T> request) throws IOException, InvalidLLMResponseException {
+        String key = owner + ":" + idempotencyKey;
+        Entry mine = new Entry(fingerprint, new CompletableFuture<>());
+        Entry existing = entries.asMap().putIfAbsent(key, mine);
+        if (existing != null) {
+            if (!existing.fingerprint().equals(fingerprint)) {
+                throw new IdempotencyKeyReuseException("Idempotency key '" + idempotencyKey + "' was already used for a different request.");
+            }
+            replays.increment();
+            return new Outcome<>((T) ExtractionCoalescer.await(existing.outcome()), true);
+        }
+
+        try {
+            T value = request.run();
+            mine.outcome().complete(value);
+            return new Outcome<>(value, false);
+        } catch (IOException | InvalidLLMResponseException | RuntimeException | Error e) {
+            entries.asMap().remove(key, mine);
+            mine.outcome().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private record Entry(String fingerprint, CompletableFuture<Object> outcome) {}
+}
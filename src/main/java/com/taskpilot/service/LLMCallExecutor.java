@@ -0,0 +1,119 @@
+package com.taskpilot.service;
+
+import com.taskpilot.config.LLMConcurrencyConfig;
+import com.taskpilot.exception.InvalidLLMResponseException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs LLM calls on the shared virtual-thread executor behind two bulkheads: one per provider, shared by every
+ * request, and one per request, so a single large document can't take all of a provider's capacity.
+ * A call waits for its request's permit before it queues for the provider's, so waiting calls never hold provider permits.
+ */
+@Component
+public class LLMCallExecutor {
+
+    private final ExecutorService executor;
+    private final LLMConcurrencyConfig concurrencyConfig;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Semaphore> providerBulkheads = new ConcurrentHashMap<>();
+
+    public LLMCallExecutor(@Qualifier("llmExecutor") ExecutorService executor, LLMConcurrencyConfig concurrencyConfig, MeterRegistry meterRegistry) {
+        this.executor = executor;
+        this.concurrencyConfig = concurrencyConfig;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @return a bulkhead to share between all the calls made for one request.
+     */
+    public Semaphore newRequestBulkhead() {
+        return new Semaphore(concurrencyConfig.maxPerRequest());
+    }
+
+    /**
+     * @return how many calls one request may have in flight at once.
+     */
+    public int maxConcurrentPerRequest() {
+        return concurrencyConfig.maxPerRequest();
+    }
+
+    /**
+     * Runs the call asynchronously once both bulkheads have a free permit.
+     * @param provider The name of the provider the call goes to, e.g. "gemini".
+     * @param requestBulkhead The bulkhead of the request the call belongs to.
+     * @param call The LLM call.
+     */
+    public <T> CompletableFuture<T> submit(String provider, Semaphore requestBulkhead, Supplier<T> call) {
+        Semaphore providerBulkhead = providerBulkhead(provider);
+        Timer waitTime = waitTimer(provider);
+
+        return CompletableFuture.supplyAsync(() -> {
+            long queuedAt = System.nanoTime();
+            acquire(requestBulkhead);
+            try {
+                acquire(providerBulkhead);
+                try {
+                    waitTime.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                    return call.get();
+                } finally {
+                    providerBulkhead.release();
+                }
+            } finally {
+                requestBulkhead.release();
+            }
+        }, executor);
+    }
+
+    /**
+     * Makes the call on the current thread once the provider's bulkhead has a free permit.
+     * Used for single calls that don't belong to a fan-out.
+     */
+    public <T> T call(String provider, LLMCall<T> call) throws InvalidLLMResponseException {
+        Semaphore providerBulkhead = providerBulkhead(provider);
+        long queuedAt = System.nanoTime();
+        acquire(providerBulkhead);
+        try {
+            waitTimer(provider).record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+            return call.execute();
+        } finally {
+            providerBulkhead.release();
+        }
+    }
+
+    private Semaphore providerBulkhead(String provider) {
+        return providerBulkheads.computeIfAbsent(provider, name -> new Semaphore(concurrencyConfig.maxFor(name)));
+    }
+
+    private Timer waitTimer(String provider) {
+        return Timer.builder("taskpilot.llm.bulkhead.wait")
+                .description("Time an LLM call waits for a free slot before it is sent")
+                .tag("provider", provider)
+                .register(meterRegistry);
+    }
+
+    private static void acquire(Semaphore bulkhead) {
+        try {
+            bulkhead.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface LLMCall<T> {
+        T execute() throws InvalidLLMResponseException;
+    }
+}
@@ -0,0 +1,189 @@
+package com.taskpilot.service;
+
+import com.taskpilot.config.LLMHedgingConfig;
+import com.taskpilot.exception.InvalidLLMResponseException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Races an LLM call against a second provider when the first is slow. If the primary hasn't answered within a
+ * recent high percentile of its own latency, the same call is sent to the secondary as well; whichever returns
+ * a valid response first is used and the other call is cancelled. A primary call that fails is failed over to
+ * the secondary straight away.
+ * Hedges cost an extra call, so they are paid for out of a budget that grows by a fixed fraction of a hedge with
+ * every call; when it is empty, calls just wait for the primary. Failovers aren't charged to the budget, since
+ * the primary didn't produce anything.
+ */
+@Component
+public class LLMHedger {
+
+    private final Logger logger = LoggerFactory.getLogger(LLMHedger.class);
+
+    private final LLMHedgingConfig config;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final Counter hedgesFired;
+    private final Counter hedgesWon;
+    private final Counter hedgesSkipped;
+    private final Counter failovers;
+    private double budget;
+
+    public LLMHedger(LLMHedgingConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.budget = config.budgetBurst();
+        this.hedgesFired = hedgeCounter(meterRegistry, "fired", "LLM calls that were also sent to a second provider");
+        this.hedgesWon = hedgeCounter(meterRegistry, "won", "Hedged LLM calls that the second provider answered first");
+        this.hedgesSkipped = hedgeCounter(meterRegistry, "skipped", "LLM calls that would have been hedged but the hedge budget was spent");
+        this.failovers = hedgeCounter(meterRegistry, "failover", "LLM calls sent to a second provider because the first one failed");
+    }
+
+    /**
+     * Makes the call with the primary, hedging or failing over to the secondary as needed.
+     * @param primaryProvider The name of the primary provider, e.g. "gemini". Its latencies set the hedge delay.
+     * @param primary Makes the call with the primary provider.
+     * @param secondary Makes the call with the secondary provider, or null if there is no provider to fall back on.
+     * @return the first valid response; if neither call produces one, the primary's error.
+     */
+    public <T> Mono<T> call(String primaryProvider, Supplier<Mono<T>> primary, Supplier<Mono<T>> secondary) {
+        if (secondary == null) {
+            return Mono.defer(primary);
+        }
+
+        return Mono.defer(() -> {
+            earnBudget();
+            LatencyWindow primaryLatencies = latencyWindow(primaryProvider);
+            long startedAt = System.nanoTime();
+            AtomicReference<Throwable> primaryError = new AtomicReference<>();
+            Sinks.Empty<Void> primaryFailed = Sinks.empty();
+
+            Mono<T> primaryCall = Mono.defer(primary)
+                    // An empty response is a failure too; otherwise nothing would ever trigger the failover
+                    .switchIfEmpty(Mono.error(() -> new InvalidLLMResponseException(
+                            "LLM provider '" + primaryProvider + "' returned no response.")))
+                    .doOnSuccess(response -> {
+                        if (response != null) {
+                            primaryLatencies.record(System.nanoTime() - startedAt);
+                        }
+                    })
+                    // A call cancelled because the hedge won took at least this long, which is still worth counting
+                    .doOnCancel(() -> primaryLatencies.record(System.nanoTime() - startedAt))
+                    .doOnError(e -> {
+                        primaryError.set(e);
+                        primaryFailed.tryEmitEmpty();
+                    });
+
+            Mono<T> failover = primaryFailed.asMono().then(Mono.defer(() -> {
+                failovers.increment();
+                logger.info("Primary LLM provider '{}' failed; failing over to the secondary provider.", primaryProvider);
+                return Mono.defer(secondary);
+            }));
+
+            Mono<T> secondaryCall = config.enabled()
+                    ? Mono.firstWithSignal(Mono.delay(hedgeDelay(primaryProvider)).thenReturn(true), primaryFailed.asMono().thenReturn(false))
+                            .flatMap(hedgeDue -> hedgeDue ? hedge(primaryProvider, secondary, failover) : failover)
+                    : failover;
+
+            return Mono.firstWithValue(primaryCall, secondaryCall)
+                    // Neither call produced a response; the primary's error says more than "no value"
+                    .onErrorMap(e -> primaryError.get() != null ? primaryError.get() : e);
+        });
+    }
+
+    /**
+     * @return how long a call waits for the provider before it is hedged, from the latencies seen recently.
+     */
+    Duration hedgeDelay(String provider) {
+        long maxDelayNanos = Duration.ofMillis(config.maxDelayMs()).toNanos();
+        long delayNanos = latencyWindow(provider).percentile(config.percentile(), config.minSamples()).orElse(maxDelayNanos);
+        return Duration.ofNanos(Math.clamp(delayNanos, Duration.ofMillis(config.minDelayMs()).toNanos(), maxDelayNanos));
+    }
+
+    private <T> Mono<T> hedge(String primaryProvider, Supplier<Mono<T>> secondary, Mono<T> failover) {
+        if (!spendBudget()) {
+            hedgesSkipped.increment();
+            return failover;
+        }
+        hedgesFired.increment();
+        logger.info("Primary LLM provider '{}' is slow; hedging the call with the secondary provider.", primaryProvider);
+        return Mono.defer(secondary)
+                .doOnSuccess(response -> {
+                    if (response != null) {
+                        hedgesWon.increment();
+                    }
+                });
+    }
+
+    private LatencyWindow latencyWindow(String provider) {
+        return latencies.computeIfAbsent(provider, name -> {
+            LatencyWindow window = new LatencyWindow(config.window());
+            Gauge.builder("taskpilot.llm.hedge.delay", this, hedger -> hedger.hedgeDelay(name).toMillis())
+                    .description("How long, in milliseconds, an LLM call currently waits for the provider before it is hedged")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            return window;
+        });
+    }
+
+    private synchronized void earnBudget() {
+        budget = Math.min(config.budgetBurst(), budget + config.budgetRatio());
+    }
+
+    private synchronized boolean spendBudget() {
+        if (budget < 1) {
+            return false;
+        }
+        budget--;
+        return true;
+    }
+
+    private static Counter hedgeCounter(MeterRegistry meterRegistry, String outcome, String description) {
+        return Counter.builder("taskpilot.llm.hedges")
+                .description(description)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The most recent latencies of one provider, kept in a ring buffer.
+     */
+    private static final class LatencyWindow {
+        private final long[] samples;
+        private int next;
+        private int size;
+
+        LatencyWindow(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        synchronized OptionalLong percentile(double percentile, int minSamples) {
+            if (size < minSamples) {
+                return OptionalLong.empty();
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * size) - 1;
+            return OptionalLong.of(sorted[Math.clamp(index, 0, size - 1)]);
+        }
+    }
+}
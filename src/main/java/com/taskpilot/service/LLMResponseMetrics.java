@@ -0,0 +1,55 @@
+package com.taskpilot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Tracks, for one provider, how large the prompts sent to it are and how often its responses had to be repaired
+ * or couldn't be used.
+ */
+final class LLMResponseMetrics {
+
+    // The same four characters to a token that the chunk budgets assume
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final DistributionSummary promptTokens;
+    private final Counter parsed;
+    private final Counter repaired;
+    private final Counter invalid;
+
+    LLMResponseMetrics(MeterRegistry meterRegistry, String provider) {
+        this.promptTokens = DistributionSummary.builder("taskpilot.llm.prompt.tokens")
+                .description("Estimated tokens in each prompt sent to the provider, including any schema")
+                .baseUnit("tokens")
+                .tag("provider", provider)
+                .register(meterRegistry);
+        this.parsed = responseCounter(meterRegistry, provider, "parsed", "LLM responses that were deserialized");
+        this.repaired = responseCounter(meterRegistry, provider, "repaired", "LLM responses that were deserialized after being repaired, e.g. because they were cut off");
+        this.invalid = responseCounter(meterRegistry, provider, "invalid", "LLM responses that were empty or could not be deserialized");
+    }
+
+    void recordPrompt(String prompt) {
+        promptTokens.record((double) prompt.length() / CHARS_PER_TOKEN);
+    }
+
+    void recordParsed() {
+        parsed.increment();
+    }
+
+    void recordRepaired() {
+        repaired.increment();
+    }
+
+    void recordInvalid() {
+        invalid.increment();
+    }
+
+    private static Counter responseCounter(MeterRegistry meterRegistry, String provider, String outcome, String description) {
+        return Counter.builder("taskpilot.llm.responses")
+                .description(description)
+                .tag("provider", provider)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,82 @@
+package com.taskpilot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+import com.taskpilot.exception.InvalidLLMResponseException;
+
+import java.util.Optional;
+
+/**
+ * Deserializes the text a provider generated. A structured response is found and, if need be, repaired by
+ * {@link LenientJsonExtractor}, and a repaired task list is marked partial; a plain text response is taken as it is,
+ * or read as a JSON string if it is quoted.
+ */
+final class LLMResponseReader {
+
+    private static final String FENCE = "```";
+
+    private final ObjectMapper objectMapper;
+    private final LLMResponseMetrics metrics;
+
+    LLMResponseReader(ObjectMapper objectMapper, LLMResponseMetrics metrics) {
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+    }
+
+    <T> T read(String content, Class<T> responseType) throws InvalidLLMResponseException {
+        if (!ResponseSchemas.isStructured(responseType)) {
+            return responseType.cast(readText(content));
+        }
+
+        Optional<LenientJsonExtractor.Extraction> extraction = LenientJsonExtractor.extract(content);
+        if (extraction.isEmpty()) {
+            metrics.recordInvalid();
+            throw new InvalidLLMResponseException("Failed to parse API response content");
+        }
+        try {
+            T result = objectMapper.readValue(extraction.get().json(), responseType);
+            if (extraction.get().repaired()) {
+                metrics.recordRepaired();
+                // A repaired task list is missing whatever came after the cut, so it must not be cached as the full answer
+                if (result instanceof ExtractedTaskListDTO taskList) {
+                    result = responseType.cast(taskList.asPartial());
+                }
+            } else {
+                metrics.recordParsed();
+            }
+            return result;
+        } catch (Exception e) {
+            metrics.recordInvalid();
+            throw new InvalidLLMResponseException("Failed to parse API response content", e);
+        }
+    }
+
+    private String readText(String content) throws InvalidLLMResponseException {
+        String text = stripFence(content == null ? "" : content.strip());
+        if (!text.startsWith("\"")) {
+            metrics.recordParsed();
+            return text;
+        }
+        try {
+            String result = objectMapper.readValue(text, String.class);
+            metrics.recordParsed();
+            return result;
+        } catch (Exception e) {
+            metrics.recordInvalid();
+            throw new InvalidLLMResponseException("Failed to parse API response content", e);
+        }
+    }
+
+    /**
+     * @return the text inside a markdown code fence, without the fence's language identifier, or the text itself
+     * if it isn't fenced.
+     */
+    private static String stripFence(String text) {
+        if (!text.startsWith(FENCE) || !text.endsWith(FENCE) || text.length() < 2 * FENCE.length()) {
+            return text;
+        }
+        int firstLineEnd = text.indexOf('\n');
+        int bodyStart = firstLineEnd < 0 ? FENCE.length() : firstLineEnd + 1;
+        return bodyStart > text.length() - FENCE.length() ? "" : text.substring(bodyStart, text.length() - FENCE.length()).strip();
+    }
+}
@@ -1,6 +1,9 @@
 package com.taskpilot.service;
 
 import com.taskpilot.exception.InvalidLLMResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 public interface LLMService {
     /**
@@ -12,4 +15,25 @@ public interface LLMService {
      */
     <T> T executePrompt(String prompt, Class<T> responseType) throws InvalidLLMResponseException;
 
+    /**
+     * Generates a response without holding a thread while the provider is working on it.
+     * Providers with a non-blocking client override this; by default the blocking call is moved onto
+     * Reactor's bounded elastic scheduler so that at least the subscriber's thread isn't blocked.
+     *
+     * @param prompt  The prompt to generate a response for
+     * @param responseType The DTO class type to deserialize the response into.
+     * @return A Mono of the deserialized response, which fails with InvalidLLMResponseException if the response can't be used.
+     */
+    default <T> Mono<T> executePromptReactive(String prompt, Class<T> responseType) {
+        return Mono.fromCallable(() -> executePrompt(prompt, responseType))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Streams the raw text of the response as the provider generates it, without any cleaning or deserialization.
+     *
+     * @param prompt  The prompt to generate a response for
+     * @return A Flux of response text pieces, in order, which fails with InvalidLLMResponseException if the stream can't be read.
+     */
+    Flux<String> streamPrompt(String prompt);
 }
@@ -0,0 +1,229 @@
+package com.taskpilot.service;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Finds the JSON object in an LLM response and repairs the faults LLMs commonly make, so that a response wrapped in
+ * a code fence or prose, or cut off part-way, can still be read. The response is scanned once; an object that needs
+ * no repair is returned as a substring of it, and one that does is copied once with the repairs applied.
+ * <p>
+ * Repairs: a comma before a closing bracket is dropped; a raw line break or other control character in a string is
+ * escaped; and a response that ends part-way through the object is cut back to its last complete value, with every
+ * open array and object closed. A response that ends inside a string value keeps the string, so a todo that was
+ * still being written is salvaged; a truncated key, number or literal is dropped rather than guessed at.
+ */
+public final class LenientJsonExtractor {
+
+    /**
+     * @param json The object, ready to deserialize.
+     * @param repaired True if the object had to be changed, not just found.
+     */
+    public record Extraction(String json, boolean repaired) {}
+
+    private LenientJsonExtractor() {}
+
+    /**
+     * @return the first JSON object in the text, or an empty Optional if there is none.
+     */
+    public static Optional<Extraction> extract(String text) {
+        int start = objectStart(text);
+        return start < 0 ? Optional.empty() : Optional.of(new Scan(text, start).run());
+    }
+
+    /**
+     * @return where the object starts: the first brace followed by a key or a closing brace, so that braces in
+     * surrounding prose aren't mistaken for it.
+     */
+    private static int objectStart(String text) {
+        if (text == null) {
+            return -1;
+        }
+        for (int brace = text.indexOf('{'); brace >= 0; brace = text.indexOf('{', brace + 1)) {
+            int next = brace + 1;
+            while (next < text.length() && Character.isWhitespace(text.charAt(next))) {
+                next++;
+            }
+            if (next == text.length() || text.charAt(next) == '"' || text.charAt(next) == '}') {
+                return brace;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The state of one pass over a response.
+     */
+    private static final class Scan {
+        private final String text;
+        private final int start;
+        // The brackets that are open, and for each open object whether a key comes next
+        private char[] open = new char[8];
+        private boolean[] keyNext = new boolean[8];
+        private int depth;
+        private boolean inString;
+        private boolean stringIsKey;
+        private int stringStart;
+        private int escapeStart = -1;
+        private int unicodeDigits;
+        private char lastSignificant;
+        private int lastComma;
+        // The latest point at which the object could be cut off and closed, and how many brackets are open there
+        private int cutIndex;
+        private int cutDepth;
+        // Commas to drop and control characters to escape, by index
+        private int[] edits = new int[4];
+        private int editCount;
+
+        Scan(String text, int start) {
+            this.text = text;
+            this.start = start;
+        }
+
+        Extraction run() {
+            int length = text.length();
+            for (int i = start; i < length; i++) {
+                char c = text.charAt(i);
+                if (inString) {
+                    readStringChar(c, i);
+                    continue;
+                }
+                switch (c) {
+                    case '"' -> {
+                        inString = true;
+                        stringStart = i;
+                        stringIsKey = depth > 0 && open[depth - 1] == '{' && keyNext[depth - 1];
+                    }
+                    case '{', '[' -> {
+                        push(c);
+                        lastSignificant = c;
+                        cut(i + 1);
+                    }
+                    case '}', ']' -> {
+                        if (lastSignificant == ',') {
+                            edit(lastComma);
+                        }
+                        depth--;
+                        lastSignificant = c;
+                        if (depth == 0) {
+                            return complete(i + 1);
+                        }
+                        cut(i + 1);
+                    }
+                    case ',' -> {
+                        // Everything before the comma is complete, including a number or literal that it ends
+                        cut(i);
+                        lastSignificant = c;
+                        lastComma = i;
+                        if (open[depth - 1] == '{') {
+                            keyNext[depth - 1] = true;
+                        }
+                    }
+                    case ':' -> {
+                        lastSignificant = c;
+                        keyNext[depth - 1] = false;
+                    }
+                    default -> {
+                        if (!Character.isWhitespace(c)) {
+                            lastSignificant = c;
+                        }
+                    }
+                }
+            }
+            return truncated();
+        }
+
+        private void readStringChar(char c, int i) {
+            if (escapeStart >= 0) {
+                if (unicodeDigits > 0) {
+                    unicodeDigits--;
+                } else if (c == 'u') {
+                    unicodeDigits = 4;
+                }
+                if (unicodeDigits == 0) {
+                    escapeStart = -1;
+                }
+            } else if (c == '\\') {
+                escapeStart = i;
+            } else if (c == '"') {
+                inString = false;
+                lastSignificant = c;
+                if (!stringIsKey) {
+                    cut(i + 1);
+                }
+            } else if (c < 0x20) {
+                edit(i);
+            }
+        }
+
+        private Extraction complete(int end) {
+            if (editCount == 0) {
+                return new Extraction(start == 0 && end == text.length() ? text : text.substring(start, end), false);
+            }
+            return new Extraction(copy(end, 0, ""), true);
+        }
+
+        private Extraction truncated() {
+            int stringEnd = escapeStart >= 0 ? escapeStart : text.length();
+            if (inString && !stringIsKey && stringEnd > stringStart + 1) {
+                // Close the string that was being written, without any half-written escape sequence
+                return new Extraction(copy(stringEnd, depth, "\""), true);
+            }
+            return new Extraction(copy(cutIndex, cutDepth, ""), true);
+        }
+
+        /**
+         * Copies the object up to the end index with the edits applied, then appends the suffix and closes the
+         * first closeDepth open brackets.
+         */
+        private String copy(int end, int closeDepth, String suffix) {
+            StringBuilder json = new StringBuilder(end - start + suffix.length() + closeDepth);
+            int from = start;
+            for (int e = 0; e < editCount && edits[e] < end; e++) {
+                int index = edits[e];
+                json.append(text, from, index);
+                char c = text.charAt(index);
+                if (c != ',') {
+                    json.append(escape(c));
+                }
+                from = index + 1;
+            }
+            json.append(text, from, end).append(suffix);
+            for (int level = closeDepth - 1; level >= 0; level--) {
+                json.append(open[level] == '{' ? '}' : ']');
+            }
+            return json.toString();
+        }
+
+        private void push(char bracket) {
+            if (depth == open.length) {
+                open = Arrays.copyOf(open, depth * 2);
+                keyNext = Arrays.copyOf(keyNext, depth * 2);
+            }
+            open[depth] = bracket;
+            keyNext[depth] = bracket == '{';
+            depth++;
+        }
+
+        private void cut(int index) {
+            cutIndex = index;
+            cutDepth = depth;
+        }
+
+        private void edit(int index) {
+            if (editCount == edits.length) {
+                edits = Arrays.copyOf(edits, editCount * 2);
+            }
+            edits[editCount++] = index;
+        }
+
+        private static String escape(char c) {
+            return switch (c) {
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                case '\t' -> "\\t";
+                default -> String.format("\\u%04x", (int) c);
+            };
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.taskpilot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.taskpilot.model.ParsedText;
+import com.taskpilot.repository.ParsedTextRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Remembers the text extracted from previously seen uploads, keyed by a SHA-256 digest of the upload bytes
+ * and the parser mode. Entries live in a memory tier bounded by their approximate size in bytes and,
+ * when enabled, in a Postgres table that survives restarts and is shared between instances.
+ * Failures of the persistent tier are logged and treated as misses, so they never fail a parse.
+ */
+@Component
+public class ParsedTextCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParsedTextCache.class);
+
+    private final ParsedTextRepository parsedTextRepository;
+    private final boolean enabled;
+    private final int maxEntryChars;
+    private final boolean persistent;
+    private final int persistentTtlDays;
+    private final Cache<String, String> memory;
+    private final CacheTiers.Lookups lookups;
+
+    public ParsedTextCache(ParsedTextRepository parsedTextRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.parser.cache.enabled:true}") boolean enabled,
+                           @Value("${app.parser.cache.max-weight-bytes:50000000}") long maxWeightBytes,
+                           @Value("${app.parser.cache.max-entry-chars:2000000}") int maxEntryChars,
+                           @Value("${app.parser.cache.persistent:false}") boolean persistent,
+                           @Value("${app.parser.cache.persistent-ttl-days:30}") int persistentTtlDays) {
+        this.parsedTextRepository = parsedTextRepository;
+        this.enabled = enabled;
+        this.maxEntryChars = maxEntryChars;
+        this.persistent = persistent;
+        this.persistentTtlDays = persistentTtlDays;
+        this.memory = CacheTiers.memoryTier(maxWeightBytes, String::length);
+        this.lookups = CacheTiers.Lookups.register(meterRegistry, "taskpilot.parser.cache", "Lookups of parsed document text");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true if text of this length is small enough to be cached.
+     */
+    public boolean isCacheable(int length) {
+        return length <= maxEntryChars;
+    }
+
+    /**
+     * Builds the cache key for an upload. The same bytes parsed in a different mode get a different key.
+     * @param file The uploaded file.
+     * @param mode Identifies how the file is parsed, e.g. whether equations are extracted.
+     */
+    public String keyFor(MultipartFile file, String mode) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest()) + ":" + mode;
+    }
+
+    public Optional<String> get(String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        String text = memory.getIfPresent(key);
+        if (text != null) {
+            lookups.memoryHits().increment();
+            return Optional.of(text);
+        }
+
+        if (persistent) {
+            try {
+                Optional<String> stored = parsedTextRepository.findById(key).map(ParsedText::getText);
+                if (stored.isPresent()) {
+                    lookups.databaseHits().increment();
+                    memory.put(key, stored.get());
+                    return stored;
+                }
+            } catch (DataAccessException e) {
+                logger.warn("Could not read parsed text cache entry {}: {}", key, e.getMessage());
+            }
+        }
+
+        lookups.misses().increment();
+        return Optional.empty();
+    }
+
+    public void put(String key, String text) {
+        if (!enabled || text == null || !isCacheable(text.length())) {
+            return;
+        }
+        memory.put(key, text);
+
+        if (persistent) {
+            try {
+                parsedTextRepository.save(new ParsedText(key, text));
+            } catch (DataAccessException e) {
+                logger.warn("Could not store parsed text cache entry {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * This method runs every day at 2 AM server time and removes persisted entries older than the configured TTL.
+     */
+    @Scheduled(cron = "0 0 2 * * ?")
+    @Transactional
+    public void purgeExpiredEntries() {
+        if (!persistent) {
+            return;
+        }
+        int deleted = parsedTextRepository.deleteByCreatedAtBefore(LocalDateTime.now().minusDays(persistentTtlDays));
+        logger.info("Removed {} expired parsed text cache entries.", deleted);
+    }
+}
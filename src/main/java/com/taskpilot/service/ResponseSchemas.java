@@ -0,0 +1,85 @@
+package com.taskpilot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.converter.BeanOutputConverter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JSON schemas for the DTOs that providers are asked to fill in, generated from the classes themselves so the
+ * schema can't drift from what is deserialized. Generating one is slow, so each is made once and kept.
+ * <p>
+ * The schemas meet the rules of strict structured output: every object lists all of its properties as required
+ * and allows no others.
+ */
+final class ResponseSchemas {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Map<Class<?>, Schema> SCHEMAS = new ConcurrentHashMap<>();
+
+    /**
+     * @param properties The schema as a map, for request bodies.
+     * @param json The schema as compact JSON, for prompts.
+     * @param fields The names of the top-level properties, for a prompt that only needs to name them.
+     */
+    record Schema(Map<String, Object> properties, String json, List<String> fields) {}
+
+    private ResponseSchemas() {}
+
+    /**
+     * @return true if responses of this type are JSON objects. Plain text responses have no schema.
+     */
+    static boolean isStructured(Class<?> responseType) {
+        return responseType != String.class;
+    }
+
+    static Schema of(Class<?> responseType) {
+        return SCHEMAS.computeIfAbsent(responseType, type -> {
+            Map<String, Object> properties = strict(new BeanOutputConverter<>(type).getJsonSchemaMap());
+            // The meta-schema URI costs prompt tokens and some providers reject it in a response format
+            properties.remove("$schema");
+            List<String> fields = properties.get("properties") instanceof Map<?, ?> fieldSchemas
+                    ? fieldSchemas.keySet().stream().map(String::valueOf).toList()
+                    : List.of();
+            try {
+                return new Schema(Collections.unmodifiableMap(properties), MAPPER.writeValueAsString(properties), fields);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Could not write the JSON schema of " + type.getSimpleName(), e);
+            }
+        });
+    }
+
+    /**
+     * Copies a schema, making every property of every object required and closing the objects to other properties.
+     * Read-only properties, such as a task list's partial flag, are set by the application, so they are left out.
+     */
+    private static Map<String, Object> strict(Map<?, ?> schema) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        schema.forEach((key, value) -> copy.put(String.valueOf(key), value));
+        if (copy.get("items") instanceof Map<?, ?> items) {
+            copy.put("items", strict(items));
+        }
+        if (copy.get("properties") instanceof Map<?, ?> fields) {
+            Map<String, Object> writable = new LinkedHashMap<>();
+            fields.forEach((name, field) -> {
+                if (field instanceof Map<?, ?> fieldSchema) {
+                    if (!Boolean.TRUE.equals(fieldSchema.get("readOnly"))) {
+                        writable.put(String.valueOf(name), strict(fieldSchema));
+                    }
+                } else {
+                    writable.put(String.valueOf(name), field);
+                }
+            });
+            copy.put("properties", writable);
+            copy.put("required", new ArrayList<>(writable.keySet()));
+            copy.put("additionalProperties", false);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,405 @@
+package com.taskpilot.service;
+
+import com.taskpilot.config.LLMRoutingConfig;
+import com.taskpilot.exception.InvalidLLMResponseException;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Spreads LLM calls across the configured providers by weight. Each provider's share is scaled down by its rolling
+ * error rate, and by how much slower it is than the fastest provider once it is more than twice as slow.
+ * A provider that keeps failing has its circuit opened and gets no calls; once the circuit has been open for a while
+ * the provider is sent a single trial call, with any others it is picked for refused until that call finishes, and if
+ * the trial succeeds its share ramps back up to full over a configurable period.
+ * Every call also names a second provider, which {@link LLMHedger} hedges or fails over to.
+ */
+@Service("extractionLLMService")
+public class RoutingLLMService implements LLMService {
+
+    // A provider with a half-open circuit and no trial call in flight, or one that has only just closed, gets this fraction of its weight
+    private static final double TRIAL_SHARE = 0.1;
+    // Providers within this factor of the fastest provider's latency keep their full weight
+    private static final double LATENCY_TOLERANCE = 2.0;
+    // A slow provider keeps at least this fraction of its weight, so its latency keeps being measured
+    private static final double MIN_LATENCY_SHARE = 0.25;
+
+    private final Logger logger = LoggerFactory.getLogger(RoutingLLMService.class);
+
+    private final List<Provider> providers;
+    private final LLMHedger hedger;
+    private final LLMRoutingConfig config;
+    // The meter registry's clock, so tests can move time on without waiting for it
+    private final Clock clock;
+
+    public RoutingLLMService(@Qualifier("geminiService") LLMService gemini,
+                             @Qualifier("huggingFaceService") LLMService huggingFace,
+                             LLMRoutingConfig config, LLMHedger hedger, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.hedger = hedger;
+        this.clock = meterRegistry.config().clock();
+
+        Map<String, LLMService> available = new LinkedHashMap<>();
+        available.put("gemini", gemini);
+        available.put("huggingface", huggingFace);
+        this.providers = available.entrySet().stream()
+                .filter(entry -> config.weightOf(entry.getKey()) > 0)
+                .map(entry -> new Provider(entry.getKey(), entry.getValue(), config.weightOf(entry.getKey()), meterRegistry))
+                .toList();
+        if (providers.isEmpty()) {
+            throw new IllegalStateException("No LLM provider has a positive weight in app.llm.routing.weights");
+        }
+    }
+
+    /**
+     * The health of one provider as it stands, for the actuator endpoint.
+     * @param circuit CLOSED, OPEN or HALF_OPEN.
+     * @param share The fraction of new calls the provider is currently given as the first choice.
+     * @param latencyMs The rolling latency of successful calls, or null if there haven't been any.
+     */
+    public record ProviderStatus(String name, String circuit, int weight, double share, double errorRate,
+                                 Double latencyMs, long calls, long failures) {}
+
+    @Override
+    public <T> T executePrompt(String prompt, Class<T> responseType) throws InvalidLLMResponseException {
+        try {
+            return executePromptReactive(prompt, responseType).block();
+        } catch (RuntimeException e) {
+            if (Exceptions.unwrap(e) instanceof InvalidLLMResponseException invalid) {
+                throw invalid;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> Mono<T> executePromptReactive(String prompt, Class<T> responseType) {
+        return Mono.defer(() -> {
+            Route route = route();
+            Function<LLMService, Mono<T>> call = service -> service.executePromptReactive(prompt, responseType);
+            return hedger.call(route.primary().name, attempt(route.primary(), call),
+                    route.secondary() == null ? null : attempt(route.secondary(), call));
+        });
+    }
+
+    /**
+     * Streams from one provider. If it fails before sending any text, the stream is started again with the second provider.
+     */
+    @Override
+    public Flux<String> streamPrompt(String prompt) {
+        return Flux.defer(() -> {
+            Route route = route();
+            AtomicBoolean started = new AtomicBoolean();
+            Flux<String> primaryStream = stream(route.primary(), prompt).doOnNext(text -> started.set(true));
+            if (route.secondary() == null) {
+                return primaryStream;
+            }
+            return primaryStream.onErrorResume(e -> !started.get(), e -> {
+                logger.info("Stream from LLM provider '{}' failed before it started; retrying with '{}'.",
+                        route.primary().name, route.secondary().name);
+                return stream(route.secondary(), prompt);
+            });
+        });
+    }
+
+    public List<ProviderStatus> providerStatuses() {
+        Map<Provider, Double> shares = shares(clock.monotonicTime());
+        double total = shares.values().stream().mapToDouble(Double::doubleValue).sum();
+        return providers.stream()
+                .map(provider -> provider.status(total > 0 ? shares.get(provider) / total : 0))
+                .toList();
+    }
+
+    private <T> Supplier<Mono<T>> attempt(Provider provider, Function<LLMService, Mono<T>> call) {
+        return () -> {
+            Admission admission = provider.admit(clock.monotonicTime());
+            if (admission == Admission.REFUSED) {
+                return Mono.error(provider.refusal());
+            }
+            boolean probe = admission == Admission.PROBE;
+            long startedAt = clock.monotonicTime();
+            return call.apply(provider.service)
+                    .doOnSuccess(response -> {
+                        if (response != null) {
+                            provider.recordSuccess(clock.monotonicTime() - startedAt, probe);
+                        }
+                    })
+                    .doOnError(e -> provider.recordFailure(clock.monotonicTime() - startedAt, e, probe))
+                    // A call cancelled because another provider answered first was at least this slow
+                    .doOnCancel(() -> provider.recordLatency(clock.monotonicTime() - startedAt))
+                    .doFinally(signal -> {
+                        if (probe) {
+                            provider.endProbe();
+                        }
+                    });
+        };
+    }
+
+    private Flux<String> stream(Provider provider, String prompt) {
+        return Flux.defer(() -> {
+            Admission admission = provider.admit(clock.monotonicTime());
+            if (admission == Admission.REFUSED) {
+                return Flux.error(provider.refusal());
+            }
+            boolean probe = admission == Admission.PROBE;
+            long startedAt = clock.monotonicTime();
+            return provider.service.streamPrompt(prompt)
+                    .doOnComplete(() -> provider.recordSuccess(clock.monotonicTime() - startedAt, probe))
+                    .doOnError(e -> provider.recordFailure(clock.monotonicTime() - startedAt, e, probe))
+                    .doFinally(signal -> {
+                        if (probe) {
+                            provider.endProbe();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Picks the provider for a call by share, and a second one from those left.
+     * If every circuit is open, the providers whose circuits opened first are tried anyway, rather than failing the call outright.
+     */
+    private Route route() {
+        Map<Provider, Double> shares = shares(clock.monotonicTime());
+        Provider primary = pick(shares);
+        if (primary == null) {
+            List<Provider> byOpenedAt = providers.stream().sorted(Comparator.comparingLong(Provider::openedAt)).toList();
+            logger.warn("Every LLM provider's circuit is open; trying '{}' anyway.", byOpenedAt.getFirst().name);
+            return new Route(byOpenedAt.getFirst(), byOpenedAt.size() > 1 ? byOpenedAt.get(1) : null);
+        }
+        shares.remove(primary);
+        return new Route(primary, pick(shares));
+    }
+
+    private Map<Provider, Double> shares(long now) {
+        double fastest = providers.stream()
+                .mapToDouble(Provider::latencyNanos)
+                .filter(latency -> latency > 0)
+                .min()
+                .orElse(0);
+        Map<Provider, Double> shares = new LinkedHashMap<>();
+        for (Provider provider : providers) {
+            shares.put(provider, provider.share(now, fastest));
+        }
+        return shares;
+    }
+
+    private static Provider pick(Map<Provider, Double> shares) {
+        double total = shares.values().stream().mapToDouble(Double::doubleValue).sum();
+        if (total <= 0) {
+            return null;
+        }
+        double target = ThreadLocalRandom.current().nextDouble(total);
+        Provider last = null;
+        for (Map.Entry<Provider, Double> entry : shares.entrySet()) {
+            if (entry.getValue() <= 0) {
+                continue;
+            }
+            last = entry.getKey();
+            target -= entry.getValue();
+            if (target < 0) {
+                return last;
+            }
+        }
+        return last;
+    }
+
+    private record Route(Provider primary, Provider secondary) {}
+
+    private enum Circuit { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Whether a call may go to a provider: as usual, as the one trial call of a half-open circuit, or not at all
+     * because the trial call is still in flight.
+     */
+    private enum Admission { CALL, PROBE, REFUSED }
+
+    /**
+     * One provider and its rolling health. The error rate and latency are exponentially weighted moving averages,
+     * so recent calls count for more than old ones.
+     */
+    private final class Provider {
+        private final String name;
+        private final LLMService service;
+        private final int weight;
+        private final Timer successes;
+        private final Timer failureTimer;
+        private final Counter opened;
+        private Circuit circuit = Circuit.CLOSED;
+        private double errorRate;
+        private double latencyNanos;
+        private long calls;
+        private long failures;
+        private int consecutiveFailures;
+        private long openedAt;
+        private long closedAt;
+        private boolean rampingUp;
+        private boolean probing;
+
+        Provider(String name, LLMService service, int weight, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.service = service;
+            this.weight = weight;
+            this.successes = callTimer(meterRegistry, name, "success");
+            this.failureTimer = callTimer(meterRegistry, name, "failure");
+            this.opened = Counter.builder("taskpilot.llm.circuit.opened")
+                    .description("Times an LLM provider's circuit was opened")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            Gauge.builder("taskpilot.llm.provider.error.rate", this, Provider::errorRate)
+                    .description("Rolling error rate of calls to an LLM provider")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            Gauge.builder("taskpilot.llm.provider.circuit", this, provider -> provider.circuit(clock.monotonicTime()).ordinal())
+                    .description("State of an LLM provider's circuit: 0 closed, 1 open, 2 half-open")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * Lets a call through, except while the circuit is half-open: then the first call to get here becomes the
+         * trial call, and the rest are refused until it finishes.
+         */
+        synchronized Admission admit(long now) {
+            if (circuit(now) != Circuit.HALF_OPEN) {
+                return Admission.CALL;
+            }
+            if (probing) {
+                return Admission.REFUSED;
+            }
+            probing = true;
+            return Admission.PROBE;
+        }
+
+        synchronized void endProbe() {
+            probing = false;
+        }
+
+        InvalidLLMResponseException refusal() {
+            return new InvalidLLMResponseException("LLM provider '" + name + "' is still answering the trial call of its half-open circuit.");
+        }
+
+        /**
+         * @param probe Whether this was the trial call of a half-open circuit; only that call's outcome closes or reopens it.
+         */
+        synchronized void recordSuccess(long nanos, boolean probe) {
+            successes.record(nanos, TimeUnit.NANOSECONDS);
+            calls++;
+            consecutiveFailures = 0;
+            errorRate = (1 - config.ewmaAlpha()) * errorRate;
+            recordLatency(nanos);
+            if (probe && circuit(clock.monotonicTime()) == Circuit.HALF_OPEN) {
+                circuit = Circuit.CLOSED;
+                closedAt = clock.monotonicTime();
+                rampingUp = true;
+                errorRate = 0;
+                logger.info("LLM provider '{}' answered its trial call; closing its circuit.", name);
+            }
+        }
+
+        synchronized void recordFailure(long nanos, Throwable error, boolean probe) {
+            failureTimer.record(nanos, TimeUnit.NANOSECONDS);
+            calls++;
+            failures++;
+            consecutiveFailures++;
+            errorRate = (1 - config.ewmaAlpha()) * errorRate + config.ewmaAlpha();
+
+            Circuit current = circuit(clock.monotonicTime());
+            boolean tripped = consecutiveFailures >= config.consecutiveFailures()
+                    || (calls >= config.minCalls() && errorRate >= config.failureRateThreshold());
+            if ((current == Circuit.HALF_OPEN && probe) || (current == Circuit.CLOSED && tripped)) {
+                circuit = Circuit.OPEN;
+                openedAt = clock.monotonicTime();
+                opened.increment();
+                logger.warn("Opening the circuit of LLM provider '{}' (error rate {}, {} failures in a row): {}",
+                        name, String.format("%.2f", errorRate), consecutiveFailures, error.toString());
+            }
+        }
+
+        synchronized void recordLatency(long nanos) {
+            latencyNanos = latencyNanos == 0 ? nanos : (1 - config.ewmaAlpha()) * latencyNanos + config.ewmaAlpha() * nanos;
+        }
+
+        synchronized double latencyNanos() {
+            return latencyNanos;
+        }
+
+        synchronized double errorRate() {
+            return errorRate;
+        }
+
+        synchronized long openedAt() {
+            return openedAt;
+        }
+
+        /**
+         * An open circuit turns half-open by itself once it has been open long enough.
+         */
+        synchronized Circuit circuit(long now) {
+            if (circuit == Circuit.OPEN && now - openedAt >= TimeUnit.MILLISECONDS.toNanos(config.openMs())) {
+                circuit = Circuit.HALF_OPEN;
+                logger.info("Circuit of LLM provider '{}' is half-open; sending it a trial call.", name);
+            }
+            return circuit;
+        }
+
+        synchronized double share(long now, double fastestLatencyNanos) {
+            return switch (circuit(now)) {
+                case OPEN -> 0;
+                case HALF_OPEN -> probing ? 0 : weight * TRIAL_SHARE;
+                case CLOSED -> weight * rampFactor(now) * (1 - errorRate) * latencyFactor(fastestLatencyNanos);
+            };
+        }
+
+        private double rampFactor(long now) {
+            if (!rampingUp) {
+                return 1;
+            }
+            long rampUpNanos = TimeUnit.MILLISECONDS.toNanos(config.rampUpMs());
+            double progress = rampUpNanos == 0 ? 1 : (double) (now - closedAt) / rampUpNanos;
+            if (progress >= 1) {
+                rampingUp = false;
+                return 1;
+            }
+            return TRIAL_SHARE + (1 - TRIAL_SHARE) * progress;
+        }
+
+        private double latencyFactor(double fastestLatencyNanos) {
+            if (latencyNanos <= 0 || fastestLatencyNanos <= 0) {
+                return 1;
+            }
+            return Math.clamp(LATENCY_TOLERANCE * fastestLatencyNanos / latencyNanos, MIN_LATENCY_SHARE, 1.0);
+        }
+
+        synchronized ProviderStatus status(double share) {
+            return new ProviderStatus(name, circuit(clock.monotonicTime()).name(), weight, share, errorRate,
+                    latencyNanos > 0 ? latencyNanos / 1_000_000 : null, calls, failures);
+        }
+
+        private static Timer callTimer(MeterRegistry meterRegistry, String provider, String outcome) {
+            return Timer.builder("taskpilot.llm.calls")
+                    .description("LLM calls routed to a provider")
+                    .tag("provider", provider)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+}
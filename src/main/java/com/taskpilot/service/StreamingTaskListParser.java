@@ -0,0 +1,123 @@
+package com.taskpilot.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+import com.taskpilot.exception.InvalidLLMResponseException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a task list response while it is still being streamed from the LLM. Text is fed to Jackson's non-blocking
+ * parser as it arrives, and each todo is handed back as soon as its array element closes, rather than once the whole
+ * response is in. Anything before the opening brace or after the closing one, such as a markdown code fence, is ignored.
+ * One instance parses one response and is not thread-safe.
+ */
+public class StreamingTaskListParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final List<String> todos = new ArrayList<>();
+    private String title;
+    private String description;
+    private String field;
+    private int depth;
+    private boolean started;
+    private boolean finished;
+
+    public StreamingTaskListParser() {
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create a non-blocking JSON parser", e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Feeds the next piece of the response.
+     * @param text The next piece of streamed text, of any length.
+     * @return The todos completed by this piece, in order; usually empty.
+     * @throws InvalidLLMResponseException if the text can't be part of a valid task list.
+     */
+    public List<String> feed(String text) throws InvalidLLMResponseException {
+        if (finished || text == null || text.isEmpty()) {
+            return List.of();
+        }
+        if (!started) {
+            int objectStart = text.indexOf('{');
+            if (objectStart < 0) {
+                return List.of();
+            }
+            started = true;
+            text = text.substring(objectStart);
+        }
+
+        List<String> completed = new ArrayList<>();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            readAvailableTokens(completed);
+        } catch (IOException e) {
+            throw new InvalidLLMResponseException("Failed to parse streamed response content", e);
+        }
+        return completed;
+    }
+
+    /**
+     * Signals the end of the stream and returns the whole task list.
+     * @throws InvalidLLMResponseException if the stream ended before the task list was complete.
+     */
+    public ExtractedTaskListDTO finish() throws InvalidLLMResponseException {
+        if (!finished) {
+            throw new InvalidLLMResponseException(started
+                    ? "Streamed response ended before the JSON was complete."
+                    : "Received empty response from the LLM.");
+        }
+        return new ExtractedTaskListDTO(title, description, List.copyOf(todos));
+    }
+
+    private void readAvailableTokens(List<String> completed) throws IOException {
+        JsonToken token;
+        while (!finished && (token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null) {
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> depth++;
+                case END_OBJECT, END_ARRAY -> {
+                    depth--;
+                    if (depth == 0) {
+                        // Whatever follows the root object, such as a closing code fence, isn't JSON
+                        finished = true;
+                        parser.close();
+                    }
+                }
+                case FIELD_NAME -> {
+                    if (depth == 1) {
+                        field = parser.currentName();
+                    }
+                }
+                case VALUE_STRING -> readString(completed);
+                default -> {
+                }
+            }
+        }
+    }
+
+    private void readString(List<String> completed) throws IOException {
+        if (depth == 1 && "title".equals(field)) {
+            title = parser.getText();
+        } else if (depth == 1 && "description".equals(field)) {
+            description = parser.getText();
+        } else if (depth == 2 && "todos".equals(field) && parser.getParsingContext().inArray()) {
+            String todo = parser.getText();
+            todos.add(todo);
+            completed.add(todo);
+        }
+    }
+}
@@ -1,20 +1,42 @@
 // src/main/java/com/taskpilot/service/TaskRouterService.java
 package com.taskpilot.service;
 
+import com.taskpilot.chunking.ChunkSplitter;
+import com.taskpilot.client.HuggingFaceClient;
+import com.taskpilot.config.ChunkRetryConfig;
+import com.taskpilot.config.ChunkingConfig;
+import com.taskpilot.config.LLMRoutingConfig;
+import com.taskpilot.config.LLMSummaryConfig;
 import com.taskpilot.dto.task.ExtractedTaskListDTO;
 import com.taskpilot.exception.InvalidLLMResponseException;
 import com.taskpilot.prompt.PromptFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
 
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -24,110 +46,581 @@ public class TaskRouterService {
 
     // Regex to find "Exercise <number>" case-insensitively.
     private static final Pattern EXERCISE_PATTERN = Pattern.compile("(?i)exercise\\s+\\d+(\\.\\d+)*");
+    // Every call goes through the routing service, so all of them share the bulkhead kept under the main provider's name
+    private static final String PROVIDER = "gemini";
     private final Logger logger = LoggerFactory.getLogger(TaskRouterService.class);
     private final LLMService llmService;
     private final PromptFactory promptFactory;
+    private final ChunkSplitter chunkSplitter;
+    private final LLMCallExecutor llmCallExecutor;
+    private final ChunkResultCache chunkResultCache;
+    private final TodoDeduplicator todoDeduplicator;
+    private final ExerciseExtractor exerciseExtractor;
+    private final ChunkRetryConfig retryConfig;
+    private final String modelId;
+    private final int maxChunkTokens;
+    private final int maxChunkChars;
+    private final int summaryFanIn;
+    private final int maxDescriptionChars;
+    private final int maxSummaryWords;
+    private final Timer timeToFirstLlmCall;
+    private final Timer extractionTime;
+    private final Timer timeToFirstTodo;
+    private final Counter chunkRetries;
+    private final Counter chunkFailures;
+    private final Counter partialResults;
 
-    public TaskRouterService(@Qualifier("geminiService") LLMService llmService, PromptFactory promptFactory) {
+    public TaskRouterService(@Qualifier("extractionLLMService") LLMService llmService, PromptFactory promptFactory, MeterRegistry meterRegistry,
+                             ChunkSplitter chunkSplitter, ChunkingConfig chunkingConfig, LLMRoutingConfig routingConfig, LLMCallExecutor llmCallExecutor,
+                             ChunkResultCache chunkResultCache, LLMSummaryConfig summaryConfig, TodoDeduplicator todoDeduplicator,
+                             ExerciseExtractor exerciseExtractor, ChunkRetryConfig retryConfig,
+                             @Value("${spring.ai.vertex.ai.gemini.chat.options.model:default}") String model) {
         this.llmService = llmService;
         this.promptFactory = promptFactory;
+        this.chunkSplitter = chunkSplitter;
+        this.llmCallExecutor = llmCallExecutor;
+        this.chunkResultCache = chunkResultCache;
+        this.todoDeduplicator = todoDeduplicator;
+        this.exerciseExtractor = exerciseExtractor;
+        this.retryConfig = retryConfig;
+        // The cache can't know up front which provider will answer a chunk, so the key names every provider a chunk
+        // may be routed to instead: their answers are treated as interchangeable, and changing the routed providers
+        // or their models starts a fresh set of entries
+        this.modelId = routingConfig.routedProviders().stream()
+                .map(provider -> provider + "/" + modelOf(provider, model))
+                .collect(Collectors.joining(","));
+        // A chunk may be routed, hedged or failed over to any provider with a weight, so it must fit the smallest budget among them
+        this.maxChunkTokens = chunkingConfig.maxTokensFor(routingConfig.routedProviders());
+        this.maxChunkChars = maxChunkTokens * chunkingConfig.charsPerToken();
+        this.summaryFanIn = summaryConfig.fanIn();
+        this.maxDescriptionChars = summaryConfig.maxDescriptionTokens() * chunkingConfig.charsPerToken();
+        // Roughly three words to every four tokens
+        this.maxSummaryWords = Math.max(1, summaryConfig.maxDescriptionTokens() * 3 / 4);
+        this.timeToFirstLlmCall = Timer.builder("taskpilot.extraction.first.llm.call")
+                .description("Time from the start of a document pipeline until its first LLM call")
+                .register(meterRegistry);
+        this.extractionTime = Timer.builder("taskpilot.extraction.total")
+                .description("Time from the start of a document pipeline until its combined result is ready")
+                .register(meterRegistry);
+        this.timeToFirstTodo = Timer.builder("taskpilot.extraction.first.todo")
+                .description("Time from the start of a streamed extraction until its first todo is parsed")
+                .register(meterRegistry);
+        this.chunkRetries = Counter.builder("taskpilot.extraction.chunk.retries")
+                .description("Chunks sent to the LLM again after their previous attempt failed")
+                .register(meterRegistry);
+        this.chunkFailures = Counter.builder("taskpilot.extraction.chunk.failures")
+                .description("Chunks that still failed after all their attempts")
+                .register(meterRegistry);
+        this.partialResults = Counter.builder("taskpilot.extraction.partial")
+                .description("Documents whose result was combined from only the chunks that succeeded")
+                .register(meterRegistry);
     }
 
-    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(10);
-
     public ExtractedTaskListDTO processDocument(String documentText) throws InvalidLLMResponseException {
         if (documentText == null) {
             return null;
         }
 
+        // An exercise sheet is split into todos locally; the LLM only sees it if the local result looks malformed
+        Optional<ExtractedTaskListDTO> exercises = exerciseExtractor.extract(documentText);
+        if (exercises.isPresent()) {
+            return exerciseExtractor.describeWithLlm() ? describeExercises(exercises.get()) : exercises.get();
+        }
+
         List<String> chunks = splitText(documentText);
 
         if (chunks.size() <= 1) {
-            return processChunk(documentText);
+            ChunkPrompt prompt = chunkPrompt(documentText);
+            Optional<ExtractedTaskListDTO> cached = chunkResultCache.get(prompt.cacheKey());
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+            return callChunk(prompt);
         }
 
-        // Submit each chunk with its index using a fixed thread pool
-        List<CompletableFuture<ResultWithIndex>> futures = IntStream.range(0, chunks.size())
-                .mapToObj(i -> CompletableFuture.supplyAsync(() -> {
-                    try {
-                        return new ResultWithIndex(i, processChunk(chunks.get(i)));
-                    } catch (InvalidLLMResponseException e) {
-                        throw new RuntimeException(e);
-                    }
-                }, EXECUTOR))
+        // Submit every chunk in document order; the bulkheads decide how many run at once.
+        // Chunks answered from the cache don't take a permit.
+        Semaphore requestBulkhead = newRequestBulkhead();
+        DescriptionReducer descriptions = newDescriptionReducer(requestBulkhead);
+        List<CompletableFuture<ExtractedTaskListDTO>> futures = chunks.stream()
+                .map(chunk -> submitChunk(chunk, requestBulkhead, () -> {}))
                 .toList();
+        // Descriptions are summarised group by group as their chunks finish
+        futures.forEach(future -> descriptions.add(descriptionOf(future)));
 
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return combineChunks(futures, descriptions);
+    }
 
-        List<ExtractedTaskListDTO> results = futures.stream()
-                .map(CompletableFuture::join)
-                .sorted(Comparator.comparingInt(ResultWithIndex::index))
-                .map(ResultWithIndex::result)
-                .toList();
+    /**
+     * Processes the document without blocking any thread while the LLM is working. Chunks are sent with at most
+     * the per-request concurrency in flight, and their results are combined in document order.
+     * @return A Mono of the combined result, or an empty Mono if there is no text.
+     */
+    public Mono<ExtractedTaskListDTO> processDocumentReactive(String documentText) {
+        if (documentText == null) {
+            return Mono.empty();
+        }
+
+        Optional<ExtractedTaskListDTO> exercises = exerciseExtractor.extract(documentText);
+        if (exercises.isPresent()) {
+            return describeExercisesReactive(exercises.get());
+        }
+
+        List<String> chunks = splitText(documentText);
+
+        if (chunks.size() <= 1) {
+            return processChunkReactive(documentText);
+        }
+
+        // A failed chunk doesn't cancel the others, so their results are still cached and can go into a partial result
+        return Flux.fromIterable(chunks)
+                .flatMapSequential(chunk -> processChunkReactive(chunk)
+                                .map(result -> new ChunkOutcome(result, null))
+                                .onErrorResume(error -> Mono.just(new ChunkOutcome(null, error))),
+                        llmCallExecutor.maxConcurrentPerRequest())
+                .collectList()
+                .flatMap(this::combineResultsReactive);
+    }
+
+    /**
+     * Streams the extraction of a document. Each chunk's response is parsed while it is still being generated,
+     * so todos are emitted as soon as the LLM has written them, tagged with the chunk they came from. Chunks run
+     * with at most the per-request concurrency, so todos from different chunks may interleave. Each chunk ends with
+     * a {@link ExtractionEvent.ChunkCompleted}, or a {@link ExtractionEvent.ChunkFailed} if the document has other
+     * chunks a partial result could come from, and the stream ends with one {@link ExtractionEvent.DocumentCompleted}.
+     */
+    public Flux<ExtractionEvent> streamDocument(String documentText) {
+        if (documentText == null) {
+            return Flux.empty();
+        }
+
+        return Flux.defer(() -> {
+            Optional<ExtractedTaskListDTO> exercises = exerciseExtractor.extract(documentText);
+            if (exercises.isPresent()) {
+                return streamExercises(exercises.get());
+            }
+
+            long startedAt = System.nanoTime();
+            AtomicBoolean firstTodoSeen = new AtomicBoolean();
+            List<String> chunks = documentText.isEmpty() ? List.of(documentText) : splitText(documentText);
+            ExtractedTaskListDTO[] results = new ExtractedTaskListDTO[chunks.size()];
+            AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+            // Each chunk's description joins the summary tree as soon as the chunk completes
+            DescriptionReducer descriptions = newReactiveDescriptionReducer();
+            List<CompletableFuture<String>> chunkDescriptions = IntStream.range(0, chunks.size())
+                    .mapToObj(i -> new CompletableFuture<String>())
+                    .toList();
+            chunkDescriptions.forEach(descriptions::add);
+
+            Flux<ExtractionEvent> chunkEvents = Flux.range(0, chunks.size())
+                    .flatMap(i -> chunks.size() == 1
+                            ? streamChunk(i, chunks.get(i))
+                            : streamChunk(i, chunks.get(i)).onErrorResume(error -> Mono.just(new ExtractionEvent.ChunkFailed(i, error))),
+                            llmCallExecutor.maxConcurrentPerRequest())
+                    .doOnNext(event -> {
+                        if (event instanceof ExtractionEvent.TodoExtracted && firstTodoSeen.compareAndSet(false, true)) {
+                            timeToFirstTodo.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                        } else if (event instanceof ExtractionEvent.ChunkCompleted completed) {
+                            results[completed.chunk()] = completed.result();
+                            chunkDescriptions.get(completed.chunk()).complete(completed.result().description());
+                        } else if (event instanceof ExtractionEvent.ChunkFailed failed) {
+                            firstFailure.compareAndSet(null, failed.error());
+                            chunkDescriptions.get(failed.chunk()).complete(null);
+                        }
+                    });
+
+            Mono<ExtractionEvent> documentCompleted = Mono.defer(() -> {
+                        if (results.length == 1) {
+                            return Mono.just(results[0]);
+                        }
+                        List<ExtractedTaskListDTO> succeeded = Arrays.stream(results).filter(Objects::nonNull).toList();
+                        try {
+                            checkFailures(results.length, results.length - succeeded.size(), firstFailure.get());
+                        } catch (InvalidLLMResponseException e) {
+                            return Mono.error(e);
+                        }
+                        return Mono.fromFuture(descriptions.finish())
+                                .map(description -> combine(succeeded, description, succeeded.size() < results.length));
+                    })
+                    .map(ExtractionEvent.DocumentCompleted::new);
+
+            return chunkEvents.concatWith(documentCompleted);
+        });
+    }
+
+    private Flux<ExtractionEvent> streamChunk(int index, String chunk) {
+        return Flux.defer(() -> {
+            ChunkPrompt prompt = chunkPrompt(chunk);
+            Optional<ExtractedTaskListDTO> cached = chunkResultCache.get(prompt.cacheKey());
+            if (cached.isPresent()) {
+                return Flux.fromIterable(cached.get().todos() == null ? List.<String>of() : cached.get().todos())
+                        .<ExtractionEvent>map(todo -> new ExtractionEvent.TodoExtracted(index, todo))
+                        .concatWith(Mono.just(new ExtractionEvent.ChunkCompleted(index, cached.get())));
+            }
+
+            AtomicBoolean streamedTodo = new AtomicBoolean();
+            Flux<ExtractionEvent> attempt = Flux.defer(() -> {
+                StreamingTaskListParser parser = new StreamingTaskListParser();
+                Flux<ExtractionEvent> todos = llmService.streamPrompt(prompt.text())
+                        .concatMap(text -> {
+                            try {
+                                return Flux.fromIterable(parser.feed(text));
+                            } catch (InvalidLLMResponseException e) {
+                                return Flux.error(e);
+                            }
+                        })
+                        .doOnNext(todo -> streamedTodo.set(true))
+                        .map(todo -> new ExtractionEvent.TodoExtracted(index, todo));
+                return todos.concatWith(Mono.fromCallable(() -> {
+                    ExtractedTaskListDTO result = parser.finish();
+                    chunkResultCache.put(prompt.cacheKey(), result);
+                    return new ExtractionEvent.ChunkCompleted(index, result);
+                }));
+            });
+            // A retry would send the chunk's todos again, so only a chunk that failed before its first todo is retried
+            return attempt.retryWhen(chunkRetry().filter(error -> !streamedTodo.get()))
+                    .doOnError(error -> chunkFailures.increment());
+        });
+    }
+
+    /**
+     * Streams a locally extracted exercise sheet as if it were a single chunk.
+     */
+    private Flux<ExtractionEvent> streamExercises(ExtractedTaskListDTO exercises) {
+        Flux<ExtractionEvent> todos = Flux.fromIterable(exercises.todos())
+                .map(todo -> new ExtractionEvent.TodoExtracted(0, todo));
+        Flux<ExtractionEvent> completed = describeExercisesReactive(exercises)
+                .flatMapMany(result -> Flux.just(new ExtractionEvent.ChunkCompleted(0, result), new ExtractionEvent.DocumentCompleted(result)));
+        return todos.concatWith(completed);
+    }
+
+    /**
+     * Asks the LLM for the title and description of a locally extracted exercise sheet, keeping the local ones if
+     * the call fails. Only the heading and the exercises are sent, so the prompt is much shorter than the document.
+     */
+    private ExtractedTaskListDTO describeExercises(ExtractedTaskListDTO exercises) {
+        try {
+            ExtractedTaskListDTO described = llmCallExecutor.call(PROVIDER,
+                    () -> llmService.executePrompt(exerciseDescriptionPrompt(exercises), ExtractedTaskListDTO.class));
+            return withDescription(exercises, described);
+        } catch (InvalidLLMResponseException | RuntimeException e) {
+            logger.warn("Could not describe the exercise sheet with the LLM; keeping the local title and description.", e);
+            return exercises;
+        }
+    }
+
+    private Mono<ExtractedTaskListDTO> describeExercisesReactive(ExtractedTaskListDTO exercises) {
+        if (!exerciseExtractor.describeWithLlm()) {
+            return Mono.just(exercises);
+        }
+        return Mono.defer(() -> llmService.executePromptReactive(exerciseDescriptionPrompt(exercises), ExtractedTaskListDTO.class))
+                .map(described -> withDescription(exercises, described))
+                .onErrorResume(e -> {
+                    logger.warn("Could not describe the exercise sheet with the LLM; keeping the local title and description.", e);
+                    return Mono.just(exercises);
+                })
+                .defaultIfEmpty(exercises);
+    }
+
+    private String exerciseDescriptionPrompt(ExtractedTaskListDTO exercises) {
+        StringBuilder sheet = new StringBuilder(exercises.title()).append('\n');
+        for (String todo : exercises.todos()) {
+            if (sheet.length() + todo.length() > maxChunkChars) {
+                break;
+            }
+            sheet.append(todo).append('\n');
+        }
+        return String.format(promptFactory.exerciseDescriptionPromptTemplate, sheet);
+    }
+
+    private static ExtractedTaskListDTO withDescription(ExtractedTaskListDTO exercises, ExtractedTaskListDTO described) {
+        String title = described == null || described.title() == null || described.title().isBlank() ? exercises.title() : described.title();
+        String description = described == null || described.description() == null || described.description().isBlank()
+                ? exercises.description() : described.description();
+        return new ExtractedTaskListDTO(title, description, exercises.todos());
+    }
+
+    /**
+     * What came of one chunk: its result, or the error it failed with after its retries.
+     */
+    private record ChunkOutcome(ExtractedTaskListDTO result, Throwable error) {}
+
+    /**
+     * Opens a pipeline that takes document text while it is still being parsed and starts
+     * sending chunks to the LLM as soon as they are full.
+     */
+    public ExtractionPipeline openPipeline() {
+        return new ExtractionPipeline(this, maxChunkChars);
+    }
+
+    Semaphore newRequestBulkhead() {
+        return llmCallExecutor.newRequestBulkhead();
+    }
+
+    /**
+     * @return true if the text received so far may still turn out to be a clean exercise sheet, which is extracted
+     * locally once the whole document has arrived rather than sent to the LLM a chunk at a time.
+     */
+    boolean mayBeExerciseSheet(CharSequence text) {
+        return exerciseExtractor.mayBeExerciseSheet(text);
+    }
+
+    /**
+     * @return true if chunk boundaries depend only on the surrounding text, so a pipeline may split the text it
+     * has received so far and send every chunk but the last.
+     */
+    boolean hasContentDefinedChunks() {
+        return chunkSplitter.isContentDefined();
+    }
+
+    /**
+     * Sends a chunk to the LLM, or answers it from the cache without taking a bulkhead permit.
+     * @param onStart Runs just before the LLM is called; not run for a cached chunk. It may throw a
+     *                {@link CancellationException} to stop the chunk, which is then not retried.
+     */
+    CompletableFuture<ExtractedTaskListDTO> dispatchChunk(String chunk, Semaphore requestBulkhead, Runnable onStart) {
+        return submitChunk(chunk, requestBulkhead, onStart);
+    }
+
+    private CompletableFuture<ExtractedTaskListDTO> submitChunk(String chunk, Semaphore requestBulkhead, Runnable onStart) {
+        ChunkPrompt prompt = chunkPrompt(chunk);
+        Optional<ExtractedTaskListDTO> cached = chunkResultCache.get(prompt.cacheKey());
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+        return submitAttempt(prompt, requestBulkhead, onStart, 1);
+    }
+
+    private CompletableFuture<ExtractedTaskListDTO> submitAttempt(ChunkPrompt prompt, Semaphore requestBulkhead, Runnable onStart, int attempt) {
+        return llmCallExecutor.submit(PROVIDER, requestBulkhead, () -> {
+            onStart.run();
+            try {
+                return processChunk(prompt);
+            } catch (InvalidLLMResponseException e) {
+                throw new RuntimeException(e);
+            }
+        }).exceptionallyCompose(error -> {
+            if (error.getCause() instanceof CancellationException) {
+                return CompletableFuture.failedFuture(error);
+            }
+            if (attempt >= retryConfig.maxAttempts()) {
+                chunkFailures.increment();
+                return CompletableFuture.failedFuture(error);
+            }
+            recordRetry(attempt, error);
+            // The bulkhead permits are given back during the backoff, so waiting doesn't hold up other chunks
+            return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(jitteredBackoffMs(attempt), TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> submitAttempt(prompt, requestBulkhead, onStart, attempt + 1));
+        });
+    }
+
+    /**
+     * Sends a chunk on the current thread, retrying it with backoff if it fails.
+     */
+    private ExtractedTaskListDTO callChunk(ChunkPrompt prompt) throws InvalidLLMResponseException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return llmCallExecutor.call(PROVIDER, () -> processChunk(prompt));
+            } catch (InvalidLLMResponseException | RuntimeException e) {
+                if (attempt >= retryConfig.maxAttempts()) {
+                    chunkFailures.increment();
+                    throw e;
+                }
+                recordRetry(attempt, e);
+                try {
+                    Thread.sleep(jitteredBackoffMs(attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private RetryBackoffSpec chunkRetry() {
+        return Retry.backoff(retryConfig.maxAttempts() - 1, Duration.ofMillis(retryConfig.initialBackoffMs()))
+                .maxBackoff(Duration.ofMillis(retryConfig.maxBackoffMs()))
+                .doBeforeRetry(signal -> recordRetry((int) signal.totalRetries() + 1, signal.failure()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    private void recordRetry(int retry, Throwable error) {
+        chunkRetries.increment();
+        logger.warn("Chunk extraction failed; retry {} of {}.", retry, retryConfig.maxAttempts() - 1, error);
+    }
+
+    /**
+     * @return the backoff before the given retry, with up to half of it added or taken away at random.
+     */
+    private long jitteredBackoffMs(int retry) {
+        long backoff = retryConfig.backoffMs(retry);
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff + 1);
+    }
+
+    /**
+     * @param nanosToFirstLlmCall Negative if every chunk was answered from the cache.
+     */
+    void recordPipelineTimings(long nanosToFirstLlmCall, long totalNanos, int dispatchedChunks) {
+        extractionTime.record(totalNanos, TimeUnit.NANOSECONDS);
+        if (nanosToFirstLlmCall < 0) {
+            logger.info("Extraction finished without calling the LLM: total {} ms, {} chunks dispatched while parsing.",
+                    TimeUnit.NANOSECONDS.toMillis(totalNanos), dispatchedChunks);
+            return;
+        }
+        timeToFirstLlmCall.record(nanosToFirstLlmCall, TimeUnit.NANOSECONDS);
+        logger.info("Extraction finished: first LLM call after {} ms, total {} ms, {} chunks dispatched while parsing.",
+                TimeUnit.NANOSECONDS.toMillis(nanosToFirstLlmCall), TimeUnit.NANOSECONDS.toMillis(totalNanos), dispatchedChunks);
+    }
+
+
+    /**
+     * The prompt for a chunk and the key its result is cached under.
+     */
+    private record ChunkPrompt(String text, String cacheKey) {}
 
-        return combineResults(results);
+    private ChunkPrompt chunkPrompt(String chunk) {
+        String template = chooseTemplate(chunk);
+        return new ChunkPrompt(String.format(template, chunk), chunkResultCache.keyFor(chunk, template, modelId));
     }
 
-    private record ResultWithIndex(int index, ExtractedTaskListDTO result) {}
+    /**
+     * Sends the chunk to the LLM and caches what comes back. Callers look in the cache first.
+     */
+    private ExtractedTaskListDTO processChunk(ChunkPrompt prompt) throws InvalidLLMResponseException {
+        // Call the client with the selected, formatted prompt
+        ExtractedTaskListDTO result = llmService.executePrompt(prompt.text(), ExtractedTaskListDTO.class);
+        chunkResultCache.put(prompt.cacheKey(), result);
+        return result;
+    }
 
+    private Mono<ExtractedTaskListDTO> processChunkReactive(String chunk) {
+        return Mono.defer(() -> {
+            ChunkPrompt prompt = chunkPrompt(chunk);
+            return Mono.justOrEmpty(chunkResultCache.get(prompt.cacheKey()))
+                    .switchIfEmpty(Mono.defer(() -> llmService.executePromptReactive(prompt.text(), ExtractedTaskListDTO.class))
+                            .retryWhen(chunkRetry())
+                            .doOnError(error -> chunkFailures.increment())
+                            .doOnNext(result -> chunkResultCache.put(prompt.cacheKey(), result)));
+        });
+    }
 
-    private ExtractedTaskListDTO processChunk(String chunk) throws InvalidLLMResponseException {
-        String chosenPrompt;
+    private static String modelOf(String provider, String geminiModel) {
+        return switch (provider) {
+            case "gemini" -> geminiModel;
+            case "huggingface" -> HuggingFaceClient.MODEL_NAME;
+            default -> "default";
+        };
+    }
 
+    private String chooseTemplate(String chunk) {
         // The core routing logic
         if (EXERCISE_PATTERN.matcher(chunk).find()) {
             logger.info("Detected 'Exercise' pattern in document text. Using exercise-specific prompt.");
-            chosenPrompt = String.format(promptFactory.exercisePatternPromptTemplate, chunk);
-        } else {
-            logger.info("No 'Exercise' pattern detected. Using general task prompt.");
-            chosenPrompt = String.format(promptFactory.generalTaskPromptTemplate, chunk);
+            return promptFactory.exercisePatternPromptTemplate;
         }
+        logger.info("No 'Exercise' pattern detected. Using general task prompt.");
+        return promptFactory.generalTaskPromptTemplate;
+    }
 
-        // Call the client with the selected, formatted prompt
-        return llmService.executePrompt(chosenPrompt, ExtractedTaskListDTO.class);
-    }
-
-    private List<String> splitText(String text) {
-        List<String> chunks = new ArrayList<>();
-        String[] paragraphs = text.split("\n\n"); // Split by double newline
-        StringBuilder chunk = new StringBuilder();
-        int targetChunkSize = 50000;
-        for (String paragraph : paragraphs) {
-            if (chunk.length() + paragraph.length() > targetChunkSize && !chunk.isEmpty()) {
-                chunks.add(chunk.toString());
-                chunk = new StringBuilder();
+    /**
+     * Splits text into chunks that fit the provider's token budget.
+     */
+    List<String> splitText(String text) {
+        return chunkSplitter.split(text, maxChunkTokens);
+    }
+
+    /**
+     * Starts a summary tree whose summary calls share the request's bulkhead with its chunks.
+     */
+    DescriptionReducer newDescriptionReducer(Semaphore requestBulkhead) {
+        return new DescriptionReducer(summaryFanIn, maxDescriptionChars, maxSummaryWords,
+                prompt -> llmCallExecutor.submit(PROVIDER, requestBulkhead, () -> {
+                    try {
+                        return llmService.executePrompt(prompt, String.class);
+                    } catch (InvalidLLMResponseException e) {
+                        throw new RuntimeException(e);
+                    }
+                }));
+    }
+
+    private DescriptionReducer newReactiveDescriptionReducer() {
+        return new DescriptionReducer(summaryFanIn, maxDescriptionChars, maxSummaryWords,
+                prompt -> llmService.executePromptReactive(prompt, String.class).toFuture());
+    }
+
+    /**
+     * @return the description of a chunk's result, or null if the chunk failed, for a {@link DescriptionReducer}.
+     */
+    static CompletableFuture<String> descriptionOf(CompletableFuture<ExtractedTaskListDTO> chunk) {
+        return chunk.handle((result, error) -> error == null ? result.description() : null);
+    }
+
+    /**
+     * Waits for every chunk and the summary tree, and combines the results of the chunks that succeeded under the
+     * document's description. The result is marked partial if any chunk failed or was repaired from a truncated response.
+     * @param chunks The chunks' results, in document order.
+     * @param descriptions Holds the {@link #descriptionOf description} of every chunk, added in the same order.
+     * @throws InvalidLLMResponseException if a chunk failed and the failure policy doesn't allow a partial result.
+     */
+    ExtractedTaskListDTO combineChunks(List<CompletableFuture<ExtractedTaskListDTO>> chunks, DescriptionReducer descriptions)
+            throws InvalidLLMResponseException {
+        List<ExtractedTaskListDTO> results = new ArrayList<>();
+        Throwable firstFailure = null;
+        for (CompletableFuture<ExtractedTaskListDTO> chunk : chunks) {
+            try {
+                results.add(chunk.join());
+            } catch (CompletionException | CancellationException e) {
+                firstFailure = firstFailure == null ? e : firstFailure;
+            }
+        }
+        checkFailures(chunks.size(), chunks.size() - results.size(), firstFailure);
+        return combine(results, descriptions.finish().join(), results.size() < chunks.size());
+    }
+
+    private Mono<ExtractedTaskListDTO> combineResultsReactive(List<ChunkOutcome> outcomes) {
+        return Mono.defer(() -> {
+            List<ExtractedTaskListDTO> results = outcomes.stream().map(ChunkOutcome::result).filter(Objects::nonNull).toList();
+            Throwable firstFailure = outcomes.stream().map(ChunkOutcome::error).filter(Objects::nonNull).findFirst().orElse(null);
+            try {
+                checkFailures(outcomes.size(), outcomes.size() - results.size(), firstFailure);
+            } catch (InvalidLLMResponseException e) {
+                return Mono.error(e);
             }
-            chunk.append(paragraph).append("\n\n");
+            DescriptionReducer descriptions = newReactiveDescriptionReducer();
+            results.forEach(result -> descriptions.add(CompletableFuture.completedFuture(result.description())));
+            return Mono.fromFuture(descriptions.finish())
+                    .map(finalDescription -> combine(results, finalDescription, results.size() < outcomes.size()));
+        });
+    }
+
+    /**
+     * Decides whether a document with failed chunks still gets a result made from the others.
+     * @throws InvalidLLMResponseException if it doesn't.
+     */
+    private void checkFailures(int chunks, int failed, Throwable firstFailure) throws InvalidLLMResponseException {
+        if (failed == 0) {
+            return;
         }
-        if (!chunk.isEmpty()) {
-            chunks.add(chunk.toString());
+        if (!retryConfig.acceptsPartial(chunks, failed)) {
+            throw new InvalidLLMResponseException(failed + " of " + chunks + " chunks of the document could not be extracted.", firstFailure);
         }
-        return chunks;
+        partialResults.increment();
+        logger.warn("{} of {} chunks of the document could not be extracted; returning the todos of the others as a partial result.",
+                failed, chunks, firstFailure);
     }
 
-    // src/main/java/com/taskpilot/service/TaskRouterService.java
-    private ExtractedTaskListDTO combineResults(List<ExtractedTaskListDTO> results) {
+    private ExtractedTaskListDTO combine(List<ExtractedTaskListDTO> results, String finalDescription, boolean partial) {
         // Title of the first chunk likely to represent the full document
         String title = results.getFirst().title();
 
-        // Summarise the other descriptions to produce one for the whole document
-        String combinedDescription = results.stream()
-                .map(ExtractedTaskListDTO::description)
-                .collect(Collectors.joining("\n"));
-
-        String finalDescription;
-        try {
-            finalDescription = llmService.executePrompt("Summarise the following text:\n" + combinedDescription, String.class);
-        } catch (InvalidLLMResponseException e) {
-            // Handle the exception, perhaps by falling back to the first description
-            finalDescription = results.getFirst().description();
-        }
-
-        // Include all the todos from all chunks. There shouldn't be any duplicates since the chunks don't overlap.
+        // Include all the todos from all chunks. The chunks don't overlap, but the LLM can still repeat a heading or
+        // a cross-referenced exercise in more than one, so near-duplicates are dropped.
         List<String> todos = new ArrayList<>();
+        boolean truncated = false;
         for (ExtractedTaskListDTO result : results) {
             todos.addAll(result.todos());
+            truncated |= result.partial();
         }
-        return new ExtractedTaskListDTO(title, finalDescription, todos);
+        return new ExtractedTaskListDTO(title, finalDescription, todoDeduplicator.deduplicate(todos), partial || truncated);
     }
 }
\ No newline at end of file
@@ -54,6 +54,7 @@ public class TaskService {
         TaskList newTaskList = new TaskList();
         newTaskList.setTitle(docData.title());
         newTaskList.setDescription(docData.description());
+        newTaskList.setPartial(docData.partial());
         newTaskList.setUser(user);
         newTaskList.setTodos(new ArrayList<>());
 
@@ -186,7 +187,8 @@ public class TaskService {
                 task.getDescription(),
                 todoDTOs,
                 task.getCreatedAt(),
-                task.getUpdatedAt()
+                task.getUpdatedAt(),
+                task.isPartial()
         );
     }
 }
\ No newline at end of file
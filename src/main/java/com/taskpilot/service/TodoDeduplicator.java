@@ -0,0 +1,187 @@
+package com.taskpilot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drops todos that are near-duplicates of an earlier todo in the same list, such as a heading or exercise that the
+ * LLM repeated in two chunks. Each todo is broken into overlapping character shingles and given a MinHash signature;
+ * signatures are banded into a locality-sensitive hash index, so each todo is only compared with the few earlier todos
+ * that share a band, and a whole list is deduplicated in roughly linear time. Candidates are confirmed by the Jaccard
+ * similarity of their shingles, and todos that mention different numbers are never merged, so "Exercise 1.2" and
+ * "Exercise 1.3" stay apart. The first occurrence of each todo is kept.
+ */
+@Component
+public class TodoDeduplicator {
+
+    private static final int SHINGLE_LENGTH = 4;
+    // 10 bands of 3 rows: a pair with 0.8 similarity shares a band over 99.9% of the time, and one with 0.5 about
+    // three times in four. Few rows keep the signature cheap, which is most of the cost of a pass
+    private static final int BANDS = 10;
+    private static final int ROWS = 3;
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final boolean enabled;
+    private final double similarityThreshold;
+    // Each MinHash function is h * multiplier + addend on a well-mixed shingle hash; the multipliers are odd
+    private final long[] multipliers = new long[BANDS * ROWS];
+    private final long[] addends = new long[BANDS * ROWS];
+    private final Counter removed;
+
+    public TodoDeduplicator(MeterRegistry meterRegistry,
+                            @Value("${app.tasks.dedup.enabled:true}") boolean enabled,
+                            @Value("${app.tasks.dedup.similarity-threshold:0.8}") double similarityThreshold) {
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        // A fixed seed keeps signatures the same from run to run
+        SplittableRandom random = new SplittableRandom(0x5EED_70D0L);
+        for (int i = 0; i < multipliers.length; i++) {
+            multipliers[i] = random.nextLong() | 1;
+            addends[i] = random.nextLong();
+        }
+        this.removed = Counter.builder("taskpilot.tasks.todos.deduplicated")
+                .description("Todos dropped when merging chunk results because they nearly repeated an earlier todo")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the todos in their original order, without any that nearly repeat an earlier one.
+     */
+    public List<String> deduplicate(List<String> todos) {
+        if (!enabled || todos.size() < 2) {
+            return todos;
+        }
+
+        List<String> kept = new ArrayList<>();
+        List<Fingerprint> keptFingerprints = new ArrayList<>();
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+
+        for (String todo : todos) {
+            Fingerprint fingerprint = fingerprint(todo);
+            if (isDuplicate(fingerprint, keptFingerprints, buckets)) {
+                removed.increment();
+                continue;
+            }
+            int index = kept.size();
+            kept.add(todo);
+            keptFingerprints.add(fingerprint);
+            for (long bandKey : fingerprint.bandKeys()) {
+                buckets.computeIfAbsent(bandKey, key -> new ArrayList<>(1)).add(index);
+            }
+        }
+        return kept;
+    }
+
+    private boolean isDuplicate(Fingerprint fingerprint, List<Fingerprint> keptFingerprints, Map<Long, List<Integer>> buckets) {
+        Set<Integer> compared = new HashSet<>();
+        for (long bandKey : fingerprint.bandKeys()) {
+            for (int candidate : buckets.getOrDefault(bandKey, List.of())) {
+                if (compared.add(candidate) && isNearDuplicate(fingerprint, keptFingerprints.get(candidate))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isNearDuplicate(Fingerprint a, Fingerprint b) {
+        return a.numbers().equals(b.numbers()) && jaccard(a.shingles(), b.shingles()) >= similarityThreshold;
+    }
+
+    private Fingerprint fingerprint(String todo) {
+        String normalized = NON_WORD.matcher(todo == null ? "" : todo.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+
+        List<String> numbers = new ArrayList<>();
+        Matcher matcher = NUMBER.matcher(normalized);
+        while (matcher.find()) {
+            numbers.add(matcher.group());
+        }
+
+        long[] shingles = shingles(normalized);
+        long[] signature = new long[multipliers.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < signature.length; i++) {
+                signature[i] = Math.min(signature[i], shingle * multipliers[i] + addends[i]);
+            }
+        }
+
+        long[] bandKeys = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long key = band;
+            for (int row = 0; row < ROWS; row++) {
+                key = mix(key * 31 + signature[band * ROWS + row]);
+            }
+            bandKeys[band] = key;
+        }
+        return new Fingerprint(shingles, numbers, bandKeys);
+    }
+
+    /**
+     * @return the distinct hashes of every run of {@value SHINGLE_LENGTH} characters, sorted. Text shorter than
+     * that is one shingle.
+     */
+    private static long[] shingles(String text) {
+        if (text.length() <= SHINGLE_LENGTH) {
+            return new long[]{mix(text.hashCode())};
+        }
+        long[] hashes = new long[text.length() - SHINGLE_LENGTH + 1];
+        for (int start = 0; start < hashes.length; start++) {
+            long hash = 0;
+            for (int i = start; i < start + SHINGLE_LENGTH; i++) {
+                hash = hash * 65_599 + text.charAt(i);
+            }
+            hashes[start] = mix(hash);
+        }
+        Arrays.sort(hashes);
+        int distinct = 1;
+        for (int i = 1; i < hashes.length; i++) {
+            if (hashes[i] != hashes[distinct - 1]) {
+                hashes[distinct++] = hashes[i];
+            }
+        }
+        return Arrays.copyOf(hashes, distinct);
+    }
+
+    private static double jaccard(long[] a, long[] b) {
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) shared / (a.length + b.length - shared);
+    }
+
+    // The SplitMix64 finaliser, used to spread shingle and band hashes
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private record Fingerprint(long[] shingles, List<String> numbers, long[] bandKeys) {}
+}
@@ -0,0 +1,9 @@
+-- Text extracted from uploaded documents, keyed by a digest of the upload bytes and the parser mode.
+-- This is the optional persistent tier behind the in-memory parsed text cache.
+CREATE TABLE parsed_text_cache (
+                       cache_key VARCHAR(255) PRIMARY KEY,
+                       text TEXT NOT NULL,
+                       created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_parsed_text_cache_created_at ON parsed_text_cache (created_at);
@@ -0,0 +1,29 @@
+-- Documents queued for task extraction outside the request that uploaded them.
+-- Workers on any node claim rows with SELECT ... FOR UPDATE SKIP LOCKED and hold a lease while they run;
+-- a RUNNING row whose lease has expired belonged to a worker that died and can be claimed again.
+CREATE TABLE extraction_jobs (
+                       id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                       user_id BIGINT NOT NULL,
+                       status VARCHAR(20) NOT NULL,
+                       document_text TEXT NOT NULL,
+                       callback_url VARCHAR(2048),
+                       attempts INT NOT NULL DEFAULT 0,
+                       locked_by VARCHAR(255),
+                       lease_expires_at TIMESTAMP,
+                       task_list_id BIGINT,
+                       error VARCHAR(1000),
+                       created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                       updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                       completed_at TIMESTAMP,
+                       CONSTRAINT fk_extraction_jobs_user
+                           FOREIGN KEY (user_id)
+                               REFERENCES users (id)
+                               ON DELETE CASCADE,
+                       CONSTRAINT fk_extraction_jobs_task_list
+                           FOREIGN KEY (task_list_id)
+                               REFERENCES task_lists (id)
+                               ON DELETE SET NULL
+);
+
+CREATE INDEX idx_extraction_jobs_status_created_at ON extraction_jobs (status, created_at);
+CREATE INDEX idx_extraction_jobs_user_id ON extraction_jobs (user_id);
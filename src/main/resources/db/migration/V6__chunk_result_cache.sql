@@ -0,0 +1,10 @@
+-- What the LLM extracted from a single chunk of document text, keyed by a digest of the chunk,
+-- the version of the prompt template and the model. This is the optional persistent tier behind
+-- the in-memory chunk result cache.
+CREATE TABLE chunk_result_cache (
+                       cache_key VARCHAR(255) PRIMARY KEY,
+                       result TEXT NOT NULL,
+                       created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_chunk_result_cache_created_at ON chunk_result_cache (created_at);
@@ -0,0 +1,2 @@
+-- Marks a task list extracted from a document some of whose chunks failed, so it holds the todos of the others only.
+ALTER TABLE task_lists ADD COLUMN partial BOOLEAN NOT NULL DEFAULT FALSE;
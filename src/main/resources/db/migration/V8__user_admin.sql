@@ -0,0 +1,2 @@
+-- Marks the users who may read the operational actuator endpoints, such as /actuator/llmproviders.
+ALTER TABLE users ADD COLUMN admin BOOLEAN NOT NULL DEFAULT FALSE;
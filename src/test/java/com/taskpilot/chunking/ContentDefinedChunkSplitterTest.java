@@ -0,0 +1,133 @@
+package com.taskpilot.chunking;
+
+import com.taskpilot.config.ChunkingConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentDefinedChunkSplitterTest {
+
+    private static final String[] PIECES = {
+            "word", "exercise", "x", " ", " ", "  ", ". ", "! ", "? ", "\n", "\n\n", "\t", "é", "😀", "—"
+    };
+
+    private final ContentDefinedChunkSplitter splitter = new ContentDefinedChunkSplitter(new ChunkingConfig(4, 12500, Map.of()));
+
+    @Test
+    @DisplayName("split() should return no chunks for empty text and one chunk for text under half the budget")
+    void split_ShouldHandleSmallInputs() {
+        assertTrue(splitter.split("", 10).isEmpty());
+        assertEquals(List.of("short text"), splitter.split("short text", 10));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1L, 7L, 42L, 1234L, 99991L})
+    @DisplayName("split() should never exceed the budget and should lose nothing, for random text")
+    void split_ShouldHoldItsGuaranteesForRandomText(long seed) {
+        Random random = new Random(seed);
+        for (int run = 0; run < 200; run++) {
+            String text = randomText(random, random.nextInt(2000));
+            int maxTokens = 1 + random.nextInt(60);
+
+            List<String> chunks = splitter.split(text, maxTokens);
+
+            String context = "seed " + seed + ", run " + run + ", budget " + maxTokens;
+            assertEquals(text, String.join("", chunks), context);
+            for (String chunk : chunks) {
+                assertFalse(chunk.isEmpty(), context);
+                assertTrue(splitter.estimateTokens(chunk) <= maxTokens, context);
+                assertFalse(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)), context);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {3L, 11L, 2024L})
+    @DisplayName("split() should give the same chunks before and after an edit everywhere except around it")
+    void split_ShouldResynchroniseAfterAnEdit(long seed) {
+        Random random = new Random(seed);
+        String original = proseText(random, 20_000);
+        int editAt = original.indexOf(' ', original.length() / 2);
+        String edited = original.substring(0, editAt) + " an inserted clause," + original.substring(editAt);
+
+        List<String> before = splitter.split(original, 500);
+        List<String> after = splitter.split(edited, 500);
+
+        Set<String> unchanged = new HashSet<>(before);
+        unchanged.retainAll(new HashSet<>(after));
+        assertTrue(before.size() > 20, "the text should span many chunks");
+        assertTrue(unchanged.size() >= before.size() - 2,
+                "only the chunk holding the edit and the one after it may change, but " + (before.size() - unchanged.size()) + " did");
+    }
+
+    @Test
+    @DisplayName("split() should cut a prefix of a document the same way as the whole document, apart from the prefix's last chunk")
+    void split_ShouldAgreeOnPrefixes() {
+        String text = proseText(new Random(5), 10_000);
+        List<String> whole = splitter.split(text, 500);
+
+        List<String> prefixChunks = splitter.split(text.substring(0, text.length() * 2 / 3), 500);
+
+        assertTrue(splitter.isContentDefined());
+        assertEquals(whole.subList(0, prefixChunks.size() - 1), prefixChunks.subList(0, prefixChunks.size() - 1));
+    }
+
+    @Test
+    @DisplayName("split() should end chunks at word starts and keep them between half and all of the budget")
+    void split_ShouldCutBetweenWords() {
+        String text = proseText(new Random(9), 10_000);
+
+        List<String> chunks = splitter.split(text, 500);
+
+        chunks.subList(0, chunks.size() - 1).forEach(chunk -> {
+            assertTrue(chunk.length() >= 1000 && chunk.length() <= 2000, "chunk of " + chunk.length() + " chars");
+            assertTrue(chunk.endsWith(" "));
+        });
+    }
+
+    @Test
+    @DisplayName("split() should hard-cut text with no whitespace without separating a surrogate pair")
+    void split_ShouldHardCutUnbrokenText() {
+        String text = "😀".repeat(1000);
+
+        List<String> chunks = splitter.split(text, 10);
+
+        assertEquals(text, String.join("", chunks));
+        chunks.forEach(chunk -> {
+            assertTrue(chunk.length() <= 40);
+            assertFalse(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)));
+        });
+    }
+
+    private static String proseText(Random random, int words) {
+        String[] vocabulary = {"the", "task", "review", "chapter", "exercise", "deadline", "submit", "notes", "and", "read"};
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(vocabulary[random.nextInt(vocabulary.length)]).append(random.nextInt(100)).append(i % 12 == 11 ? ". " : " ");
+        }
+        return text.toString();
+    }
+
+    private static String randomText(Random random, int pieces) {
+        StringBuilder text = new StringBuilder();
+        // Some texts are one long run with no boundaries at all, as PDF output sometimes is
+        boolean unbroken = random.nextInt(10) == 0;
+        for (int i = 0; i < pieces; i++) {
+            String piece = PIECES[random.nextInt(PIECES.length)];
+            if (unbroken && piece.isBlank()) {
+                piece = "z";
+            }
+            text.append(piece);
+        }
+        return text.toString();
+    }
+}
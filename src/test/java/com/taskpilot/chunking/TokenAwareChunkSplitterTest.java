@@ -0,0 +1,125 @@
+package com.taskpilot.chunking;
+
+import com.taskpilot.config.ChunkingConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenAwareChunkSplitterTest {
+
+    private static final String[] PIECES = {
+            "word", "exercise", "x", " ", " ", "  ", ". ", "! ", "? ", "\n", "\n\n", "\t", "é", "😀", "—"
+    };
+
+    private final TokenAwareChunkSplitter splitter = new TokenAwareChunkSplitter(new ChunkingConfig(4, 12500, Map.of()));
+
+    @Test
+    @DisplayName("split() should pack whole paragraphs into as few chunks as fit")
+    void split_ShouldPackParagraphs() {
+        String text = "aaaa\n\nbbbb\n\ncccc\n\n";
+
+        List<String> chunks = splitter.split(text, 3);
+
+        assertEquals(List.of("aaaa\n\nbbbb\n\n", "cccc\n\n"), chunks);
+    }
+
+    @Test
+    @DisplayName("split() should fall back to sentence ends, then whitespace, then a hard cut")
+    void split_ShouldFallBackToSmallerBoundaries() {
+        assertEquals(List.of("One two. ", "Three four"), splitter.split("One two. Three four", 3));
+        assertEquals(List.of("alpha beta ", "gamma"), splitter.split("alpha beta gamma", 3));
+        assertEquals(List.of("abcdefgh", "ijkl"), splitter.split("abcdefghijkl", 2));
+    }
+
+    @Test
+    @DisplayName("split() should not separate the two halves of a surrogate pair")
+    void split_ShouldKeepSurrogatePairsTogether() {
+        String text = "abc😀def";
+
+        List<String> chunks = splitter.split(text, 1);
+
+        assertEquals(text, String.join("", chunks));
+        assertEquals(List.of("abc", "😀de", "f"), chunks);
+    }
+
+    @Test
+    @DisplayName("split() should return no chunks for empty text and one chunk for text within the budget")
+    void split_ShouldHandleSmallInputs() {
+        assertTrue(splitter.split("", 10).isEmpty());
+        assertEquals(List.of("short text"), splitter.split("short text", 10));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1L, 7L, 42L, 1234L, 99991L})
+    @DisplayName("split() should never exceed the budget and should lose nothing, for random text")
+    void split_ShouldHoldItsGuaranteesForRandomText(long seed) {
+        Random random = new Random(seed);
+        for (int run = 0; run < 200; run++) {
+            String text = randomText(random, random.nextInt(2000));
+            int maxTokens = 1 + random.nextInt(60);
+
+            List<String> chunks = splitter.split(text, maxTokens);
+
+            String context = "seed " + seed + ", run " + run + ", budget " + maxTokens;
+            assertEquals(text, String.join("", chunks), context);
+            for (int i = 0; i < chunks.size(); i++) {
+                String chunk = chunks.get(i);
+                assertFalse(chunk.isEmpty(), context);
+                assertTrue(splitter.estimateTokens(chunk) <= maxTokens, context);
+                assertFalse(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)), context);
+                if (i < chunks.size() - 1) {
+                    assertCutAtBestBoundary(chunk, context);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("split() should cut one huge paragraph with no blank lines into full-size chunks")
+    void split_ShouldSplitHugeParagraph() {
+        String text = "Lorem ipsum dolor sit amet consectetur adipiscing elit ".repeat(10_000);
+
+        List<String> chunks = splitter.split(text, 12500);
+
+        assertEquals(text, String.join("", chunks));
+        assertTrue(chunks.size() >= 11);
+        chunks.forEach(chunk -> assertTrue(chunk.length() <= 50_000));
+        chunks.subList(0, chunks.size() - 1).forEach(chunk -> {
+            assertTrue(chunk.length() > 49_900);
+            assertTrue(chunk.endsWith(" "));
+        });
+    }
+
+    /**
+     * A chunk that isn't the last one must end on the strongest kind of boundary it contains.
+     */
+    private static void assertCutAtBestBoundary(String chunk, String context) {
+        String body = chunk.substring(0, chunk.length() - 1);
+        if (chunk.contains("\n\n")) {
+            assertTrue(chunk.endsWith("\n\n"), context + ": chunk should end on a paragraph break");
+        } else if (body.chars().anyMatch(Character::isWhitespace)) {
+            assertTrue(Character.isWhitespace(chunk.charAt(chunk.length() - 1)), context + ": chunk should end on whitespace");
+        }
+    }
+
+    private static String randomText(Random random, int pieces) {
+        StringBuilder text = new StringBuilder();
+        // Some texts are one long run with no boundaries at all, as PDF output sometimes is
+        boolean unbroken = random.nextInt(10) == 0;
+        for (int i = 0; i < pieces; i++) {
+            String piece = PIECES[random.nextInt(PIECES.length)];
+            if (unbroken && piece.isBlank()) {
+                piece = "z";
+            }
+            text.append(piece);
+        }
+        return text.toString();
+    }
+}
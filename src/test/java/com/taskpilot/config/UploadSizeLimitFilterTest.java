@@ -0,0 +1,358 @@
+package com.taskpilot.config;
+
+import com.taskpilot.exception.FileTooLargeException;
+import com.taskpilot.model.Plan;
+import com.taskpilot.model.User;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.MultipartConfigElement;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockPart;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class UploadSizeLimitFilterTest {
+
+    private static final int FREE_PLAN_LIMIT = 1_000_000;
+    private static final int OVERHEAD = 64 * 1024;
+
+    private HandlerExceptionResolver handlerExceptionResolver;
+    private UploadSizeLimitFilter filter;
+    private FilterChain filterChain;
+
+    @BeforeEach
+    void setUp() {
+        handlerExceptionResolver = mock(HandlerExceptionResolver.class);
+        filter = new UploadSizeLimitFilter(handlerExceptionResolver, OVERHEAD);
+        filterChain = mock(FilterChain.class);
+        SecurityContextHolder.getContext().setAuthentication(authenticationFor(freePlanUser()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("doFilter() should reject a multipart request declaring more than the plan limit without reading it")
+    void doFilter_ShouldRejectOversizedUploadWithoutReadingBody() throws ServletException, IOException {
+        MockHttpServletRequest request = multipartRequest(50_000_000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, filterChain);
+
+        verify(handlerExceptionResolver).resolveException(eq(request), eq(response), isNull(), any(FileTooLargeException.class));
+        verifyNoInteractions(filterChain);
+        assertEquals("close", response.getHeader("Connection"));
+    }
+
+    @Test
+    @DisplayName("doFilter() should let uploads within the plan limit through")
+    void doFilter_ShouldAllowUploadWithinLimit() throws ServletException, IOException {
+        MockHttpServletRequest request = multipartRequest(FREE_PLAN_LIMIT + OVERHEAD);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(handlerExceptionResolver);
+    }
+
+    @Test
+    @DisplayName("doFilter() should let a multipart request without a declared length through with its size limited")
+    void doFilter_ShouldLimitUploadWithoutContentLength() throws ServletException, IOException {
+        // ARRANGE
+        MockHttpServletRequest request = multipartRequest(-1);
+        request.addPart(new MockPart("file", "notes.pdf", new byte[FREE_PLAN_LIMIT]));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // ACT
+        filter.doFilter(request, response, filterChain);
+
+        // ASSERT
+        ArgumentCaptor<HttpServletRequest> passedOn = ArgumentCaptor.forClass(HttpServletRequest.class);
+        verify(filterChain).doFilter(passedOn.capture(), eq(response));
+        assertInstanceOf(UploadSizeLimitFilter.SizeLimitedRequest.class, passedOn.getValue());
+        verifyNoInteractions(handlerExceptionResolver);
+    }
+
+    @Test
+    @DisplayName("doFilter() should reject a multipart request without a declared length once its parts pass the limit")
+    void doFilter_ShouldRejectOversizedUploadWithoutContentLength() throws ServletException, IOException {
+        // ARRANGE
+        MockHttpServletRequest request = multipartRequest(-1);
+        request.addPart(new MockPart("file", "notes.pdf", new byte[FREE_PLAN_LIMIT + OVERHEAD + 1]));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // ACT
+        filter.doFilter(request, response, filterChain);
+
+        // ASSERT
+        verify(handlerExceptionResolver).resolveException(eq(request), eq(response), isNull(), any(FileTooLargeException.class));
+        verifyNoInteractions(filterChain);
+        assertEquals("close", response.getHeader("Connection"));
+    }
+
+    @Test
+    @DisplayName("A size limited request should stop reading its body as soon as it passes the limit")
+    void sizeLimitedRequest_ShouldFailOnceBodyPassesLimit() throws IOException {
+        // ARRANGE
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/tasks/process");
+        request.setContent(new byte[3_000]);
+        HttpServletRequest limitedRequest = new UploadSizeLimitFilter.SizeLimitedRequest(request, 1_000, 2_000);
+        InputStream body = limitedRequest.getInputStream();
+        byte[] buffer = new byte[500];
+
+        // ACT
+        long read = 0;
+        for (int i = 0; i < 4; i++) {
+            read += body.read(buffer);
+        }
+
+        // ASSERT
+        assertEquals(2_000, read);
+        FileTooLargeException e = assertThrows(FileTooLargeException.class, () -> body.read(buffer));
+        assertEquals(2_500, e.getFileSize());
+        assertEquals(1_000, e.getMaxFileSize());
+    }
+
+    @Test
+    @DisplayName("doFilter() should ignore requests that aren't multipart or aren't from a known user")
+    void doFilter_ShouldIgnoreOtherRequests() throws ServletException, IOException {
+        MockHttpServletRequest json = new MockHttpServletRequest("POST", "/api/v1/tasks");
+        json.setContentType("application/json");
+        json.setContent(new byte[2_000_000]);
+        filter.doFilter(json, new MockHttpServletResponse(), filterChain);
+
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest anonymous = multipartRequest(50_000_000);
+        filter.doFilter(anonymous, new MockHttpServletResponse(), filterChain);
+
+        verify(filterChain, times(2)).doFilter(any(), any());
+        verifyNoInteractions(handlerExceptionResolver);
+    }
+
+    @Test
+    @DisplayName("An oversized upload to a real server should be cut off long before the whole body is sent")
+    void oversizedUpload_ShouldBeCutOffByServer(@TempDir Path tempDir) throws Exception {
+        // ARRANGE
+        long bodySize = 200_000_000;
+        AtomicReference<Boolean> servletReached = new AtomicReference<>(false);
+        Tomcat tomcat = startTomcat(tempDir, new UploadSizeLimitFilter(badRequestResolver(), OVERHEAD), servletReached);
+
+        long sent = 0;
+        String statusLine;
+        try (Socket socket = new Socket("localhost", tomcat.getConnector().getLocalPort())) {
+            socket.setSendBufferSize(64 * 1024);
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /upload HTTP/1.1\r\n"
+                    + "Host: localhost\r\n"
+                    + "Content-Type: multipart/form-data; boundary=xyz\r\n"
+                    + "Content-Length: " + bodySize + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+            // ACT: keep streaming the body until the server hangs up
+            byte[] chunk = new byte[64 * 1024];
+            try {
+                while (sent < bodySize) {
+                    out.write(chunk);
+                    sent += chunk.length;
+                }
+            } catch (IOException e) {
+                // Expected once the server closes the connection
+            }
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            statusLine = in.readLine();
+        } finally {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+
+        // ASSERT: the server answered without reaching the servlet, and the client got nowhere near sending the whole body.
+        // What was sent is the plan limit's order of magnitude plus what the socket buffers and container swallow held.
+        assertNotNull(statusLine);
+        assertTrue(statusLine.contains("400"), "Status line was " + statusLine);
+        assertFalse(servletReached.get());
+        assertTrue(sent < bodySize / 10, "Sent " + sent + " of " + bodySize + " bytes before the server cut off the upload");
+    }
+
+    @Test
+    @DisplayName("A chunked upload over the limit to a real server should be rejected before reaching the servlet")
+    void oversizedChunkedUpload_ShouldBeRejectedByServer(@TempDir Path tempDir) throws Exception {
+        AtomicReference<Boolean> servletReached = new AtomicReference<>(false);
+        Tomcat tomcat = startTomcat(tempDir, new UploadSizeLimitFilter(badRequestResolver(), OVERHEAD), servletReached);
+
+        String statusLine;
+        try {
+            statusLine = sendChunkedUpload(tomcat, FREE_PLAN_LIMIT + OVERHEAD + 1);
+        } finally {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+
+        assertNotNull(statusLine);
+        assertTrue(statusLine.contains("400"), "Status line was " + statusLine);
+        assertFalse(servletReached.get());
+    }
+
+    @Test
+    @DisplayName("A chunked upload within the limit to a real server should reach the servlet")
+    void chunkedUploadWithinLimit_ShouldReachServlet(@TempDir Path tempDir) throws Exception {
+        AtomicReference<Boolean> servletReached = new AtomicReference<>(false);
+        Tomcat tomcat = startTomcat(tempDir, new UploadSizeLimitFilter(badRequestResolver(), OVERHEAD), servletReached);
+
+        String statusLine;
+        try {
+            statusLine = sendChunkedUpload(tomcat, FREE_PLAN_LIMIT);
+        } finally {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+
+        assertNotNull(statusLine);
+        assertTrue(statusLine.contains("200"), "Status line was " + statusLine);
+        assertTrue(servletReached.get());
+    }
+
+    private static String sendChunkedUpload(Tomcat tomcat, int fileSize) throws IOException {
+        try (Socket socket = new Socket("localhost", tomcat.getConnector().getLocalPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /upload HTTP/1.1\r\n"
+                    + "Host: localhost\r\n"
+                    + "Content-Type: multipart/form-data; boundary=xyz\r\n"
+                    + "Transfer-Encoding: chunked\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            writeChunk(out, ("--xyz\r\n"
+                    + "Content-Disposition: form-data; name=\"file\"; filename=\"notes.pdf\"\r\n"
+                    + "Content-Type: application/pdf\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            byte[] chunk = new byte[64 * 1024];
+            for (int remaining = fileSize; remaining > 0; remaining -= chunk.length) {
+                writeChunk(out, remaining >= chunk.length ? chunk : new byte[remaining]);
+            }
+            writeChunk(out, "\r\n--xyz--\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            return in.readLine();
+        }
+    }
+
+    private static void writeChunk(OutputStream out, byte[] data) throws IOException {
+        out.write((Integer.toHexString(data.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(data);
+        out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static HandlerExceptionResolver badRequestResolver() {
+        return (request, response, handler, ex) -> {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return new ModelAndView();
+        };
+    }
+
+    private Tomcat startTomcat(Path baseDir, UploadSizeLimitFilter uploadFilter, AtomicReference<Boolean> servletReached) throws Exception {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(0);
+        Context context = tomcat.addContext("", baseDir.toString());
+
+        Wrapper servlet = Tomcat.addServlet(context, "upload", new HttpServlet() {
+            @Override
+            protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+                servletReached.set(true);
+                request.getParts();
+                response.setStatus(HttpServletResponse.SC_OK);
+            }
+        });
+        servlet.setMultipartConfigElement(new MultipartConfigElement(baseDir.toString()));
+        context.addServletMappingDecoded("/upload", "upload");
+
+        // Stands in for JwtAuthenticationFilter by putting a Free plan user in the security context
+        addFilter(context, "authentication", new HttpFilter() {
+            @Override
+            protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+                SecurityContextHolder.getContext().setAuthentication(authenticationFor(freePlanUser()));
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            }
+        });
+        addFilter(context, "uploadSizeLimit", uploadFilter);
+
+        tomcat.getConnector();
+        tomcat.start();
+        return tomcat;
+    }
+
+    private static void addFilter(Context context, String name, jakarta.servlet.Filter filter) {
+        FilterDef definition = new FilterDef();
+        definition.setFilterName(name);
+        definition.setFilter(filter);
+        context.addFilterDef(definition);
+        FilterMap mapping = new FilterMap();
+        mapping.setFilterName(name);
+        mapping.addURLPattern("/*");
+        context.addFilterMap(mapping);
+    }
+
+    private static MockHttpServletRequest multipartRequest(long contentLength) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/tasks/process") {
+            @Override
+            public long getContentLengthLong() {
+                return contentLength;
+            }
+
+            @Override
+            public jakarta.servlet.ServletInputStream getInputStream() {
+                throw new AssertionError("The filter must not read the request body");
+            }
+        };
+        request.setContentType("multipart/form-data; boundary=xyz");
+        return request;
+    }
+
+    private static User freePlanUser() {
+        User user = new User("free@example.com", "password");
+        user.setPlan(new Plan("Free", 100, 10, FREE_PLAN_LIMIT, List.of()));
+        return user;
+    }
+
+    private static UsernamePasswordAuthenticationToken authenticationFor(User user) {
+        return new UsernamePasswordAuthenticationToken(user, null, List.of());
+    }
+}
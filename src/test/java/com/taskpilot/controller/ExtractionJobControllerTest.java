@@ -0,0 +1,158 @@
+package com.taskpilot.controller;
+
+import com.taskpilot.config.JwtAuthenticationFilter;
+import com.taskpilot.config.SecurityConfiguration;
+import com.taskpilot.dto.task.ExtractionJobDTO;
+import com.taskpilot.model.Plan;
+import com.taskpilot.model.User;
+import com.taskpilot.repository.UserRepository;
+import com.taskpilot.service.DocumentParsingService;
+import com.taskpilot.service.ExtractionJobService;
+import com.taskpilot.service.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ExtractionJobController.class)
+@Import({SecurityConfiguration.class, JwtAuthenticationFilter.class})
+class ExtractionJobControllerTest {
+
+    private static final String AUTH_HEADER = "Authorization";
+    private static final String BEARER_TOKEN = "Bearer test-token";
+    private static final String RAW_TOKEN = "test-token";
+    private static final String USER_EMAIL = "test@example.com";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    // Security collaborators for the filter chain
+    @MockitoBean
+    private JwtService jwtService;
+    @MockitoBean
+    private UserDetailsService userDetailsService;
+    @MockitoBean
+    private AuthenticationProvider authenticationProvider;
+
+    // Controller collaborators
+    @MockitoBean
+    private DocumentParsingService parsingService;
+    @MockitoBean
+    private ExtractionJobService extractionJobService;
+    @MockitoBean
+    private UserRepository userRepository;
+
+    private User currentUser;
+
+    @BeforeEach
+    void setupSecurityStubs() {
+        when(jwtService.extractUsername(RAW_TOKEN)).thenReturn(USER_EMAIL);
+
+        UserDetails userDetails = org.springframework.security.core.userdetails.User
+                .withUsername(USER_EMAIL)
+                .password("N/A")
+                .authorities("ROLE_USER")
+                .build();
+        when(userDetailsService.loadUserByUsername(USER_EMAIL)).thenReturn(userDetails);
+        when(jwtService.isTokenValid(eq(RAW_TOKEN), any(UserDetails.class))).thenReturn(true);
+
+        currentUser = org.mockito.Mockito.mock(User.class);
+        when(currentUser.getEmail()).thenReturn(USER_EMAIL);
+        when(currentUser.getPlan()).thenReturn(new Plan("Free", 50, 5, 1000000, List.of()));
+        when(userRepository.findByEmail(USER_EMAIL)).thenReturn(Optional.of(currentUser));
+    }
+
+    // POST /api/v1/tasks/jobs
+    @Test
+    @DisplayName("POST /api/v1/tasks/jobs returns 202 with the queued job and its location")
+    void submitJob_returnsAccepted_withJob() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.pdf", MediaType.APPLICATION_PDF_VALUE, "pdf-bytes".getBytes());
+        when(parsingService.parseDocument(any(), eq(false))).thenReturn("Document text");
+        ExtractionJobDTO queued = new ExtractionJobDTO(9L, "QUEUED", null, null, LocalDateTime.now(), null);
+        when(extractionJobService.enqueue(currentUser, "Document text", "https://example.com/hook")).thenReturn(queued);
+
+        mockMvc.perform(multipart("/api/v1/tasks/jobs")
+                        .file(file)
+                        .param("callbackUrl", "https://example.com/hook")
+                        .header(AUTH_HEADER, BEARER_TOKEN))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/api/v1/tasks/jobs/9"))
+                .andExpect(jsonPath("$.id").value(9L))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/tasks/jobs returns 400 when the callback URL is not http or https")
+    void submitJob_returnsBadRequest_whenCallbackUrlInvalid() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.pdf", MediaType.APPLICATION_PDF_VALUE, "pdf-bytes".getBytes());
+
+        mockMvc.perform(multipart("/api/v1/tasks/jobs")
+                        .file(file)
+                        .param("callbackUrl", "file:///etc/passwd")
+                        .header(AUTH_HEADER, BEARER_TOKEN))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Callback URL must be an absolute http or https URL."));
+
+        verify(parsingService, never()).parseDocument(any(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/tasks/jobs returns 400 and queues nothing when the parsed document is empty")
+    void submitJob_returnsBadRequest_whenParsedTextEmpty() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.pdf", MediaType.APPLICATION_PDF_VALUE, "pdf-bytes".getBytes());
+        when(parsingService.parseDocument(any(), eq(false))).thenReturn("  ");
+
+        mockMvc.perform(multipart("/api/v1/tasks/jobs")
+                        .file(file)
+                        .header(AUTH_HEADER, BEARER_TOKEN))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Parsed document text is empty."));
+
+        verify(extractionJobService, never()).enqueue(any(), any(), any());
+    }
+
+    // GET /api/v1/tasks/jobs/{id}
+    @Test
+    @DisplayName("GET /api/v1/tasks/jobs/{id} returns 200 with the job when the user owns it")
+    void getJob_returnsOk_whenOwned() throws Exception {
+        ExtractionJobDTO completed = new ExtractionJobDTO(9L, "COMPLETED", 55L, null, LocalDateTime.now(), LocalDateTime.now());
+        when(extractionJobService.getJobForUser(9L, currentUser)).thenReturn(Optional.of(completed));
+
+        mockMvc.perform(get("/api/v1/tasks/jobs/9").header(AUTH_HEADER, BEARER_TOKEN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.taskListId").value(55L));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/tasks/jobs/{id} returns 404 when the job is missing or not owned")
+    void getJob_returnsNotFound_whenNotOwned() throws Exception {
+        when(extractionJobService.getJobForUser(9L, currentUser)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/tasks/jobs/9").header(AUTH_HEADER, BEARER_TOKEN))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -7,10 +7,17 @@ import com.taskpilot.dto.task.*;
 import com.taskpilot.model.Plan;
 import com.taskpilot.model.User;
 import com.taskpilot.repository.UserRepository;
+import com.taskpilot.exception.InvalidLLMResponseException;
 import com.taskpilot.service.DocumentParsingService;
+import com.taskpilot.service.ExtractionCoalescer;
+import com.taskpilot.service.ExtractionEvent;
+import com.taskpilot.service.ExtractionPipeline;
+import com.taskpilot.service.IdempotencyStore;
 import com.taskpilot.service.JwtService;
 import com.taskpilot.service.TaskRouterService;
 import com.taskpilot.service.TaskService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -28,20 +35,31 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(TaskController.class)
-@Import({SecurityConfiguration.class, JwtAuthenticationFilter.class, TaskControllerTest.ValidationConfig.class})
+@Import({SecurityConfiguration.class, JwtAuthenticationFilter.class, TaskControllerTest.ValidationConfig.class,
+        TaskControllerTest.MetricsConfig.class, ExtractionCoalescer.class, IdempotencyStore.class})
 class TaskControllerTest {
 
     private static final String AUTH_HEADER = "Authorization";
@@ -92,6 +110,11 @@ class TaskControllerTest {
         when(userRepository.findByEmail(USER_EMAIL)).thenReturn(Optional.of(currentUser));
     }
 
+    @BeforeEach
+    void setupDocumentKey() throws Exception {
+        when(parsingService.documentKey(any(), anyBoolean())).thenReturn("document-digest:text");
+    }
+
     @TestConfiguration
     static class ValidationConfig {
         @Bean
@@ -100,6 +123,14 @@ class TaskControllerTest {
         }
     }
 
+    @TestConfiguration
+    static class MetricsConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
     // GET /api/v1/tasks
     @Test
     @DisplayName("GET /api/v1/tasks returns 200 with a page of tasks")
@@ -190,10 +221,12 @@ class TaskControllerTest {
         MockMultipartFile file = new MockMultipartFile("file", "test.pdf", MediaType.APPLICATION_PDF_VALUE, "pdf-bytes".getBytes());
         Plan plan = new Plan("Free", 50, 5, 1000000, List.of());
         when(currentUser.getPlan()).thenReturn(plan);
-        when(parsingService.parseDocument(any(), eq(false))).thenReturn("parsed-text");
+        ExtractionPipeline pipeline = org.mockito.Mockito.mock(ExtractionPipeline.class);
+        when(taskRouterService.openPipeline()).thenReturn(pipeline);
+        when(pipeline.hasText()).thenReturn(true);
 
         ExtractedTaskListDTO docData = new ExtractedTaskListDTO("Doc Title", "Doc Desc", List.of("x"));
-        when(taskRouterService.processDocument("parsed-text")).thenReturn(docData);
+        when(pipeline.complete()).thenReturn(docData);
 
         LocalDateTime now = LocalDateTime.now();
         TaskListDTO saved = new TaskListDTO(
@@ -212,6 +245,47 @@ class TaskControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(55L))
                 .andExpect(jsonPath("$.title").value("Doc Title"));
+
+        verify(parsingService).parseDocument(any(), eq(false), eq("document-digest:text"), any());
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/tasks/process cancels the chunks already sent when parsing fails")
+    void processDocument_cancelsPipeline_whenParsingFails() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.pdf", MediaType.APPLICATION_PDF_VALUE, "pdf-bytes".getBytes());
+        Plan plan = new Plan("Free", 50, 5, 1000000, List.of());
+        when(currentUser.getPlan()).thenReturn(plan);
+        ExtractionPipeline pipeline = org.mockito.Mockito.mock(ExtractionPipeline.class);
+        when(taskRouterService.openPipeline()).thenReturn(pipeline);
+        doThrow(new IOException("Truncated PDF")).when(parsingService).parseDocument(any(), eq(false), anyString(), any());
+
+        mockMvc.perform(multipart("/api/v1/tasks/process")
+                        .file(file)
+                        .header(AUTH_HEADER, BEARER_TOKEN))
+                .andExpect(status().isInternalServerError());
+
+        verify(pipeline).cancel();
+        verify(pipeline, never()).complete();
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/tasks/process returns 400 when the parsed document is empty")
+    void processDocument_returnsBadRequest_whenParsedTextEmpty() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.pdf", MediaType.APPLICATION_PDF_VALUE, "pdf-bytes".getBytes());
+        Plan plan = new Plan("Free", 50, 5, 1000000, List.of());
+        when(currentUser.getPlan()).thenReturn(plan);
+
+        ExtractionPipeline pipeline = org.mockito.Mockito.mock(ExtractionPipeline.class);
+        when(taskRouterService.openPipeline()).thenReturn(pipeline);
+        when(pipeline.hasText()).thenReturn(false);
+
+        mockMvc.perform(multipart("/api/v1/tasks/process")
+                        .file(file)
+                        .header(AUTH_HEADER, BEARER_TOKEN))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Parsed document text is empty."));
+
+        verify(pipeline, never()).complete();
     }
 
     @Test
@@ -229,6 +303,188 @@ class TaskControllerTest {
                 .andExpect(jsonPath("$.body.detail").value("File with size 2MB exceeds limit of 1MB."));
     }
 
+    @Test
+    @DisplayName("POST /api/v1/tasks/process with a repeated Idempotency-Key replays the first response without extracting again")
+    void processDocument_replaysResponse_forRepeatedIdempotencyKey() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.pdf", MediaType.APPLICATION_PDF_VALUE, "pdf-bytes".getBytes());
+        Plan plan = new Plan("Free", 50, 5, 1000000, List.of());
+        when(currentUser.getPlan()).thenReturn(plan);
+        ExtractionPipeline pipeline = org.mockito.Mockito.mock(ExtractionPipeline.class);
+        when(taskRouterService.openPipeline()).thenReturn(pipeline);
+        when(pipeline.hasText()).thenReturn(true);
+        ExtractedTaskListDTO docData = new ExtractedTaskListDTO("Doc Title", "Doc Desc", List.of("x"));
+        when(pipeline.complete()).thenReturn(docData);
+        LocalDateTime now = LocalDateTime.now();
+        TaskListDTO saved = new TaskListDTO(55L, "Doc Title", "Doc Desc", List.of(new TodoDTO(101L, "x", false, null)), now, now);
+        when(taskService.createTaskList(eq(docData), eq(currentUser))).thenReturn(saved);
+
+        mockMvc.perform(multipart("/api/v1/tasks/process")
+                        .file(file)
+                        .header(IdempotencyStore.HEADER, "retry-1")
+                        .header(AUTH_HEADER, BEARER_TOKEN))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IdempotencyStore.REPLAYED_HEADER))
+                .andExpect(jsonPath("$.id").value(55L));
+
+        mockMvc.perform(multipart("/api/v1/tasks/process")
+                        .file(file)
+                        .header(IdempotencyStore.HEADER, "retry-1")
+                        .header(AUTH_HEADER, BEARER_TOKEN))
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyStore.REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.id").value(55L));
+
+        verify(taskRouterService, org.mockito.Mockito.times(1)).openPipeline();
+        verify(taskService, org.mockito.Mockito.times(1)).createTaskList(any(ExtractedTaskListDTO.class), any());
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/tasks/process returns 422 when an Idempotency-Key is reused for a different document")
+    void processDocument_returnsUnprocessable_whenIdempotencyKeyReusedForOtherDocument() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.pdf", MediaType.APPLICATION_PDF_VALUE, "pdf-bytes".getBytes());
+        MockMultipartFile other = new MockMultipartFile("file", "other.pdf", MediaType.APPLICATION_PDF_VALUE, "other-bytes".getBytes());
+        Plan plan = new Plan("Free", 50, 5, 1000000, List.of());
+        when(currentUser.getPlan()).thenReturn(plan);
+        ExtractionPipeline pipeline = org.mockito.Mockito.mock(ExtractionPipeline.class);
+        when(taskRouterService.openPipeline()).thenReturn(pipeline);
+        when(pipeline.hasText()).thenReturn(false);
+        when(parsingService.documentKey(any(), anyBoolean())).thenReturn("first-digest:text", "second-digest:text");
+
+        mockMvc.perform(multipart("/api/v1/tasks/process")
+                        .file(file)
+                        .header(IdempotencyStore.HEADER, "retry-2")
+                        .header(AUTH_HEADER, BEARER_TOKEN))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(multipart("/api/v1/tasks/process")
+                        .file(other)
+                        .header(IdempotencyStore.HEADER, "retry-2")
+                        .header(AUTH_HEADER, BEARER_TOKEN))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(taskRouterService, org.mockito.Mockito.times(1)).openPipeline();
+    }
+
+    // POST /api/v1/tasks/process/stream
+    @Test
+    @DisplayName("POST /api/v1/tasks/process/stream streams parse, todo and chunk events and ends with the saved task list")
+    void processDocumentStream_streamsEventsAndSavedTaskList() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.pdf", MediaType.APPLICATION_PDF_VALUE, "pdf-bytes".getBytes());
+        Plan plan = new Plan("Free", 50, 5, 1000000, List.of());
+        when(currentUser.getPlan()).thenReturn(plan);
+        when(parsingService.parseDocument(any(), eq(false))).thenReturn("Document text");
+
+        ExtractedTaskListDTO secondChunk = new ExtractedTaskListDTO("Title 2", "Desc 2", List.of("y"));
+        ExtractedTaskListDTO firstChunk = new ExtractedTaskListDTO("Title 1", "Desc 1", List.of("x"));
+        ExtractedTaskListDTO docData = new ExtractedTaskListDTO("Title 1", "Doc Desc", List.of("x", "y"));
+        // The second chunk finishes first
+        when(taskRouterService.streamDocument("Document text")).thenReturn(Flux.just(
+                new ExtractionEvent.TodoExtracted(1, "y"),
+                new ExtractionEvent.ChunkCompleted(1, secondChunk),
+                new ExtractionEvent.TodoExtracted(0, "x"),
+                new ExtractionEvent.ChunkCompleted(0, firstChunk),
+                new ExtractionEvent.DocumentCompleted(docData)));
+
+        LocalDateTime now = LocalDateTime.now();
+        TaskListDTO saved = new TaskListDTO(55L, "Title 1", "Doc Desc",
+                List.of(new TodoDTO(101L, "x", false, null), new TodoDTO(102L, "y", false, null)), now, now);
+        AtomicReference<Thread> savingThread = new AtomicReference<>();
+        when(taskService.createTaskList(eq(docData), eq(currentUser))).thenAnswer(invocation -> {
+            savingThread.set(Thread.currentThread());
+            return saved;
+        });
+
+        MvcResult result = mockMvc.perform(multipart("/api/v1/tasks/process/stream")
+                        .file(file)
+                        .header(AUTH_HEADER, BEARER_TOKEN))
+                .andExpect(request().asyncStarted())
+                .andExpect(header().string("Content-Type", org.hamcrest.Matchers.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE)))
+                .andReturn();
+        // The task list is saved off the stream's thread, so the response finishes after perform() returns
+        result.getAsyncResult(5_000);
+
+        String body = result.getResponse().getContentAsString();
+        int parsed = body.indexOf("event:parsed\ndata:{\"characters\":13}");
+        int firstChunkEvent = body.indexOf("event:chunk\ndata:{\"index\":1,\"todos\":[\"y\"]}");
+        int secondChunkEvent = body.indexOf("event:chunk\ndata:{\"index\":0,\"todos\":[\"x\"]}");
+        int complete = body.indexOf("event:complete\ndata:{\"id\":55");
+        assertTrue(parsed >= 0 && parsed < firstChunkEvent && firstChunkEvent < secondChunkEvent && secondChunkEvent < complete, body);
+        assertTrue(body.contains("event:todo\ndata:{"), body);
+        assertTrue(savingThread.get().getName().startsWith("boundedElastic"), savingThread.get().getName());
+        verify(parsingService).parseDocument(any(), eq(false));
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/tasks/process/stream reports a failed chunk and ends with the saved partial task list")
+    void processDocumentStream_streamsChunkFailedEventAndPartialTaskList() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.pdf", MediaType.APPLICATION_PDF_VALUE, "pdf-bytes".getBytes());
+        Plan plan = new Plan("Free", 50, 5, 1000000, List.of());
+        when(currentUser.getPlan()).thenReturn(plan);
+        when(parsingService.parseDocument(any(), eq(false))).thenReturn("Document text");
+
+        ExtractedTaskListDTO firstChunk = new ExtractedTaskListDTO("Title 1", "Desc 1", List.of("x"));
+        ExtractedTaskListDTO docData = new ExtractedTaskListDTO("Title 1", "Desc 1", List.of("x"), true);
+        when(taskRouterService.streamDocument("Document text")).thenReturn(Flux.just(
+                new ExtractionEvent.TodoExtracted(0, "x"),
+                new ExtractionEvent.ChunkCompleted(0, firstChunk),
+                new ExtractionEvent.ChunkFailed(1, new InvalidLLMResponseException("LLM error")),
+                new ExtractionEvent.DocumentCompleted(docData)));
+
+        LocalDateTime now = LocalDateTime.now();
+        TaskListDTO saved = new TaskListDTO(55L, "Title 1", "Desc 1", List.of(new TodoDTO(101L, "x", false, null)), now, now, true);
+        when(taskService.createTaskList(eq(docData), eq(currentUser))).thenReturn(saved);
+
+        MvcResult result = mockMvc.perform(multipart("/api/v1/tasks/process/stream")
+                        .file(file)
+                        .header(AUTH_HEADER, BEARER_TOKEN))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(5_000);
+
+        String body = result.getResponse().getContentAsString();
+        int chunkFailed = body.indexOf("event:chunk-failed\ndata:{\"chunk\":1}");
+        int complete = body.indexOf("event:complete\ndata:{\"id\":55");
+        assertTrue(chunkFailed >= 0 && chunkFailed < complete, body);
+        assertTrue(body.contains("\"partial\":true"), body);
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/tasks/process/stream ends with an error event when extraction fails")
+    void processDocumentStream_streamsErrorEvent_whenExtractionFails() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.pdf", MediaType.APPLICATION_PDF_VALUE, "pdf-bytes".getBytes());
+        Plan plan = new Plan("Free", 50, 5, 1000000, List.of());
+        when(currentUser.getPlan()).thenReturn(plan);
+        when(parsingService.parseDocument(any(), eq(false))).thenReturn("Document text");
+        when(taskRouterService.streamDocument(anyString())).thenReturn(Flux.error(new InvalidLLMResponseException("Received empty response from the LLM.")));
+
+        MvcResult result = mockMvc.perform(multipart("/api/v1/tasks/process/stream")
+                        .file(file)
+                        .header(AUTH_HEADER, BEARER_TOKEN))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = result.getResponse().getContentAsString();
+        assertTrue(body.contains("event:error\ndata:{\"error\":\"Received empty response from the LLM.\"}"), body);
+        verify(taskService, never()).createTaskList(any(ExtractedTaskListDTO.class), any());
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/tasks/process/stream returns 400 before streaming when the parsed document is empty")
+    void processDocumentStream_returnsBadRequest_whenParsedTextEmpty() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.pdf", MediaType.APPLICATION_PDF_VALUE, "pdf-bytes".getBytes());
+        Plan plan = new Plan("Free", 50, 5, 1000000, List.of());
+        when(currentUser.getPlan()).thenReturn(plan);
+        when(parsingService.parseDocument(any(), eq(false))).thenReturn("  ");
+
+        mockMvc.perform(multipart("/api/v1/tasks/process/stream")
+                        .file(file)
+                        .header(AUTH_HEADER, BEARER_TOKEN))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Parsed document text is empty."));
+
+        verify(taskRouterService, never()).streamDocument(anyString());
+    }
+
 
     // PUT /api/v1/tasks/{taskId}
     @Test
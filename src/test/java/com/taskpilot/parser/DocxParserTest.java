@@ -1,11 +1,27 @@
 package com.taskpilot.parser;
 
 import org.apache.poi.openxml4j.exceptions.NotOfficeXmlFileException;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.mock.web.MockMultipartFile;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class DocxParserTest {
@@ -14,7 +30,7 @@ class DocxParserTest {
 
     @BeforeEach
     void setUp() {
-        docxParser = new DocxParser();
+        docxParser = new DocxParser(new UploadSpooler(1_000_000), true);
     }
 
     @Test
@@ -43,4 +59,154 @@ class DocxParserTest {
 
         assertThrows(NotOfficeXmlFileException.class, () -> docxParser.parse(invalidFile));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("parse() should extract the same text whether the upload is in memory or spooled to disk")
+    void parse_ShouldMatchForInMemoryAndSpooledUploads() throws IOException {
+        byte[] content;
+        try (InputStream in = getClass().getResourceAsStream("/test-documents/sample.docx")) {
+            content = Objects.requireNonNull(in).readAllBytes();
+        }
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "sample.docx",
+                "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+                content
+        );
+
+        String inMemory = docxParser.parse(file);
+        String spooled = new DocxParser(new UploadSpooler(0), true).parse(file);
+
+        assertFalse(inMemory.isBlank());
+        assertEquals(inMemory, spooled);
+    }
+
+    @Test
+    @DisplayName("parse() should extract the same text from sample.docx in streaming and DOM modes")
+    void parse_StreamingShouldMatchDomForSample() throws IOException {
+        byte[] content;
+        try (InputStream in = getClass().getResourceAsStream("/test-documents/sample.docx")) {
+            content = Objects.requireNonNull(in).readAllBytes();
+        }
+
+        assertStreamingMatchesDom(content);
+    }
+
+    @Test
+    @DisplayName("parse() should lay out tabs, breaks and tables in streaming mode the same way as DOM mode")
+    void parse_StreamingShouldMatchDomForTablesAndBreaks() throws IOException {
+        byte[] content = createDocxWithTable();
+
+        String streamed = assertStreamingMatchesDom(content);
+
+        assertTrue(streamed.contains("Task\tDue date\n"));
+        assertTrue(streamed.contains("Write report\tFriday\tafternoon\n"));
+    }
+
+    @Test
+    @DisplayName("parse() with a consumer should emit one segment per top-level paragraph or table")
+    void parse_WithConsumer_ShouldEmitSegmentPerBlock() throws IOException {
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "test.docx",
+                "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+                createDocxWithTable()
+        );
+
+        List<TextSegment> segments = new ArrayList<>();
+        docxParser.parse(file, segments::add);
+
+        assertEquals(4, segments.size());
+        assertEquals("Weekly tasks\n", segments.get(0).text());
+        assertTrue(segments.get(2).text().startsWith("Task\tDue date\n"));
+        assertEquals(3, segments.get(3).index());
+        assertEquals(docxParser.parse(file), String.join("", segments.stream().map(TextSegment::text).toList()));
+    }
+
+    @Test
+    @DisplayName("parse() should refuse a document part that inflates far beyond its compressed size")
+    void parse_ShouldRejectZipBomb() throws IOException {
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "bomb.docx",
+                "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+                createDocxWithRepeatedText(50_000_000)
+        );
+        assertTrue(file.getSize() < 1_000_000);
+
+        IOException inMemory = assertThrows(IOException.class, () -> new DocxParser(new UploadSpooler(10_000_000), true).parse(file));
+        IOException spooled = assertThrows(IOException.class, () -> new DocxParser(new UploadSpooler(0), true).parse(file));
+
+        assertTrue(messages(inMemory).contains("Zip bomb detected"), messages(inMemory));
+        assertTrue(messages(spooled).contains("Zip bomb detected"), messages(spooled));
+    }
+
+    private String assertStreamingMatchesDom(byte[] content) throws IOException {
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "test.docx",
+                "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+                content
+        );
+
+        String dom = new DocxParser(new UploadSpooler(1_000_000), false).parse(file);
+        String streamedInMemory = docxParser.parse(file);
+        String streamedFromDisk = new DocxParser(new UploadSpooler(0), true).parse(file);
+
+        assertEquals(dom, streamedInMemory);
+        assertEquals(dom, streamedFromDisk);
+        return streamedInMemory;
+    }
+
+    private byte[] createDocxWithTable() throws IOException {
+        try (XWPFDocument document = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            document.createParagraph().createRun().setText("Weekly tasks");
+
+            XWPFRun run = document.createParagraph().createRun();
+            run.setText("Owner:");
+            run.addTab();
+            run.setText("Alice");
+            run.addBreak();
+            run.setText("Reviewer: Bob");
+
+            XWPFTable table = document.createTable(2, 2);
+            table.getRow(0).getCell(0).setText("Task");
+            table.getRow(0).getCell(1).setText("Due date");
+            table.getRow(1).getCell(0).setText("Write report");
+            XWPFTableCell dueCell = table.getRow(1).getCell(1);
+            dueCell.setText("Friday");
+            XWPFParagraph second = dueCell.addParagraph();
+            second.createRun().setText("afternoon");
+
+            document.createParagraph().createRun().setText("End of list");
+            document.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    // A single paragraph of one repeated letter, which deflates to a tiny fraction of its size
+    private static byte[] createDocxWithRepeatedText(int length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("word/document.xml"));
+            zip.write(("<w:document xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\">"
+                    + "<w:body><w:p><w:r><w:t>").getBytes(StandardCharsets.UTF_8));
+            byte[] text = new byte[1_000_000];
+            Arrays.fill(text, (byte) 'a');
+            for (int written = 0; written < length; written += text.length) {
+                zip.write(text);
+            }
+            zip.write("</w:t></w:r></w:p></w:body></w:document>".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return out.toByteArray();
+    }
+
+    private static String messages(Throwable e) {
+        StringBuilder messages = new StringBuilder();
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            messages.append(cause.getMessage()).append('\n');
+        }
+        return messages.toString();
+    }
+}
@@ -9,15 +9,34 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.Answer;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.core.io.Resource;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.MimeType;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class EquationParserTest {
@@ -44,7 +63,7 @@ class EquationParserTest {
     void setUp() {
         // Only stub what's always needed - the builder
         when(chatClientBuilder.build()).thenReturn(chatClient);
-        equationParser = new EquationParser(chatClientBuilder, promptFactory);
+        equationParser = new EquationParser(chatClientBuilder, promptFactory, new UploadSpooler(1_000_000), 2, 4, 2, 0);
     }
 
     private void setupChatClientMocks() {
@@ -156,4 +175,129 @@ class EquationParserTest {
 
         assertEquals("Received empty response from the LLM.", exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("parse() should send page groups separately and reassemble them in page order")
+    void parse_ShouldReassemblePageGroupsInOrder() throws IOException, InvalidLLMResponseException {
+        // ARRANGE
+        Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        stubPageGroupResponses(pages -> {
+            int attempt = attempts.computeIfAbsent(pages, key -> new AtomicInteger()).incrementAndGet();
+            if (pages.equals("Page 3 Page 4") && attempt == 1) {
+                throw new RuntimeException("Gemini unavailable");
+            }
+            if (pages.startsWith("Page 1")) {
+                // Make the first group come back last
+                sleep(200);
+            }
+            return "LaTeX of " + pages;
+        });
+        MockMultipartFile testFile = new MockMultipartFile("file", "sheet.pdf", "application/pdf", createPdf(5));
+
+        // ACT
+        List<TextSegment> segments = new ArrayList<>();
+        equationParser.parse(testFile, segments::add);
+
+        // ASSERT
+        assertEquals(List.of("LaTeX of Page 1 Page 2\n\n", "LaTeX of Page 3 Page 4\n\n", "LaTeX of Page 5"),
+                segments.stream().map(TextSegment::text).toList());
+        assertEquals(List.of(1, 3, 5), segments.stream().map(TextSegment::firstPage).toList());
+        assertEquals(5, segments.get(2).lastPage());
+        // Only the failed group was sent again
+        assertEquals(2, attempts.get("Page 3 Page 4").get());
+        assertEquals(1, attempts.get("Page 1 Page 2").get());
+        assertEquals(1, attempts.get("Page 5").get());
+    }
+
+    @Test
+    @DisplayName("parse() should keep the number of page groups in flight within the concurrency limit")
+    void parse_ShouldBoundConcurrentPageGroups() throws IOException, InvalidLLMResponseException {
+        // ARRANGE
+        EquationParser groupParser = new EquationParser(chatClientBuilder, promptFactory, new UploadSpooler(1_000_000), 1, 3, 1, 0);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        stubPageGroupResponses(pages -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            sleep(100);
+            inFlight.decrementAndGet();
+            return pages;
+        });
+        MockMultipartFile testFile = new MockMultipartFile("file", "sheet.pdf", "application/pdf", createPdf(9));
+
+        // ACT
+        String result = groupParser.parse(testFile);
+
+        // ASSERT
+        assertEquals("Page 1\n\nPage 2\n\nPage 3\n\nPage 4\n\nPage 5\n\nPage 6\n\nPage 7\n\nPage 8\n\nPage 9", result);
+        // Groups overlap, but never more than three at a time
+        assertTrue(maxInFlight.get() > 1 && maxInFlight.get() <= 3, "Max in flight was " + maxInFlight.get());
+        groupParser.shutdown();
+    }
+
+    @Test
+    @DisplayName("parse() should fail once a page group has used up its attempts")
+    void parse_ShouldFailWhenPageGroupKeepsFailing() throws IOException {
+        // ARRANGE
+        stubPageGroupResponses(pages -> pages.equals("Page 5") ? "  " : pages);
+        MockMultipartFile testFile = new MockMultipartFile("file", "sheet.pdf", "application/pdf", createPdf(5));
+
+        // ACT & ASSERT
+        InvalidLLMResponseException exception = assertThrows(
+                InvalidLLMResponseException.class,
+                () -> equationParser.parse(testFile)
+        );
+        assertEquals("Received empty response from the LLM.", exception.getMessage());
+    }
+
+    /**
+     * Answers each ChatClient call by reading the page group attached to it, so responses can depend on which pages were sent.
+     */
+    @SuppressWarnings("unchecked")
+    private void stubPageGroupResponses(Function<String, String> responseForPages) {
+        when(chatClient.prompt()).thenReturn(requestSpec);
+        when(requestSpec.user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())).thenAnswer(invocation -> {
+            ChatClient.PromptUserSpec userSpec = mock(ChatClient.PromptUserSpec.class, RETURNS_SELF);
+            ((Consumer<ChatClient.PromptUserSpec>) invocation.getArgument(0)).accept(userSpec);
+            ArgumentCaptor<Resource> media = ArgumentCaptor.forClass(Resource.class);
+            verify(userSpec).media(any(MimeType.class), media.capture());
+            String pages = readPages(media.getValue());
+
+            ChatClient.CallResponseSpec call = mock(ChatClient.CallResponseSpec.class, (Answer<Object>) content ->
+                    "content".equals(content.getMethod().getName()) ? responseForPages.apply(pages) : null);
+            return mock(ChatClient.ChatClientRequestSpec.class, (Answer<Object>) request ->
+                    "call".equals(request.getMethod().getName()) ? call : null);
+        });
+    }
+
+    private static String readPages(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream(); PDDocument document = Loader.loadPDF(in.readAllBytes())) {
+            return new PDFTextStripper().getText(document).trim().replaceAll("\\s+", " ");
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] createPdf(int pageCount) throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int i = 1; i <= pageCount; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                    content.newLineAtOffset(50, 700);
+                    content.showText("Page " + i);
+                    content.endText();
+                }
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.taskpilot.parser;
+
+import com.taskpilot.exception.InvalidLLMResponseException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HybridMathParserTest {
+
+    @Mock
+    private EquationParser equationParser;
+
+    private SimpleMeterRegistry meterRegistry;
+    private HybridMathParser hybridMathParser;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        hybridMathParser = new HybridMathParser(new UploadSpooler(1_000_000), equationParser, meterRegistry, true, 0.3);
+    }
+
+    @Test
+    @DisplayName("supports() should always return false")
+    void supports_ShouldAlwaysReturnFalse() {
+        assertFalse(hybridMathParser.supports("application/pdf"));
+        assertFalse(hybridMathParser.supports(null));
+    }
+
+    @Test
+    @DisplayName("parse() should only send maths pages to the LLM and keep the text in page order")
+    void parse_ShouldRouteOnlyMathsPagesToLlm() throws IOException, InvalidLLMResponseException {
+        // ARRANGE
+        MockMultipartFile file = new MockMultipartFile("file", "sheet.pdf", "application/pdf", createMixedPdf());
+        EquationParser.PageGroup mathsGroup = new EquationParser.PageGroup(new byte[0], 3, 3);
+        when(equationParser.splitPages(any(PDDocument.class), eq(3), eq(3))).thenReturn(List.of(mathsGroup));
+        when(equationParser.submit(List.of(mathsGroup))).thenReturn(List.of(CompletableFuture.completedFuture("(/ \\alpha + \\beta = \\gamma /)")));
+
+        // ACT
+        List<TextSegment> segments = new ArrayList<>();
+        hybridMathParser.parse(file, segments::add);
+
+        // ASSERT
+        assertEquals(3, segments.size());
+        assertEquals(List.of(1, 3, 4), segments.stream().map(TextSegment::firstPage).toList());
+        assertTrue(segments.get(0).text().contains("Read chapter one") && segments.get(0).text().contains("Read chapter two"));
+        assertEquals("(/ \\alpha + \\beta = \\gamma /)\n\n", segments.get(1).text());
+        assertTrue(segments.get(2).text().contains("Read chapter four"));
+        assertEquals(3, meterRegistry.get("taskpilot.parser.math.pages").tag("route", "local").counter().count());
+        assertEquals(1, meterRegistry.get("taskpilot.parser.math.pages").tag("route", "llm").counter().count());
+        assertEquals(4, meterRegistry.get("taskpilot.parser.math.page.score").summary().count());
+        verify(equationParser, never()).parse(any());
+    }
+
+    @Test
+    @DisplayName("parse() should hand a PDF it can't read to the EquationParser whole")
+    @SuppressWarnings("unchecked")
+    void parse_ShouldFallBackToEquationParserForUnreadablePdf() throws IOException, InvalidLLMResponseException {
+        // ARRANGE
+        MockMultipartFile file = new MockMultipartFile("file", "sheet.pdf", "application/pdf", "not a pdf".getBytes());
+        doAnswer(invocation -> {
+            Consumer<TextSegment> consumer = invocation.getArgument(1);
+            consumer.accept(TextSegment.ofSection(0, "Whole file"));
+            return null;
+        }).when(equationParser).parse(eq(file), any(Consumer.class));
+
+        // ACT
+        String result = hybridMathParser.parse(file);
+
+        // ASSERT
+        assertEquals("Whole file", result);
+        verify(equationParser, never()).submit(any());
+    }
+
+    private static byte[] createMixedPdf() throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            addPage(document, Standard14Fonts.FontName.HELVETICA, "Read chapter one and summarise the main argument in a paragraph.");
+            addPage(document, Standard14Fonts.FontName.HELVETICA, "Read chapter two and prepare three questions for the seminar group.");
+            addPage(document, Standard14Fonts.FontName.SYMBOL, "α + β = γ");
+            addPage(document, Standard14Fonts.FontName.HELVETICA, "Read chapter four and write a short reflection on the case study.");
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static void addPage(PDDocument document, Standard14Fonts.FontName font, String text) throws IOException {
+        PDPage page = new PDPage();
+        document.addPage(page);
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.beginText();
+            content.setFont(new PDType1Font(font), 12);
+            content.newLineAtOffset(50, 700);
+            content.showText(text);
+            content.endText();
+        }
+    }
+}
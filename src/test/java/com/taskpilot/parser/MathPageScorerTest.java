@@ -0,0 +1,71 @@
+package com.taskpilot.parser;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MathPageScorerTest {
+
+    private static final double THRESHOLD = 0.3;
+
+    @Test
+    @DisplayName("score() should score prose low, maths high and pages without text as 1")
+    void score_ShouldSeparateProseFromMaths() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            addPage(document, Standard14Fonts.FontName.HELVETICA, List.of(
+                    "Please read chapter four before the seminar on Thursday morning.",
+                    "Submit the group report through the course website by Friday.",
+                    "Each member of the group should review the draft at least once."));
+            addPage(document, Standard14Fonts.FontName.SYMBOL, List.of(
+                    "α + β = γ",
+                    "∑ ξ ≤ π",
+                    "∫ φ(θ) ∂θ"));
+            document.addPage(new PDPage());
+
+            List<Double> scores = new MathPageScorer().score(document);
+
+            assertEquals(3, scores.size());
+            assertTrue(scores.get(0) < THRESHOLD, "Prose page scored " + scores.get(0));
+            assertTrue(scores.get(1) >= THRESHOLD, "Maths page scored " + scores.get(1));
+            assertEquals(1.0, scores.get(2));
+        }
+    }
+
+    @Test
+    @DisplayName("isMathSymbol() should recognise operators, Greek letters and scripts but not letters or digits")
+    void isMathSymbol_ShouldRecogniseMathCharacters() {
+        assertTrue(MathPageScorer.isMathSymbol('∑'));
+        assertTrue(MathPageScorer.isMathSymbol('≤'));
+        assertTrue(MathPageScorer.isMathSymbol('α'));
+        assertTrue(MathPageScorer.isMathSymbol('₂'));
+        assertTrue(MathPageScorer.isMathSymbol('='));
+        assertFalse(MathPageScorer.isMathSymbol('a'));
+        assertFalse(MathPageScorer.isMathSymbol('7'));
+        assertFalse(MathPageScorer.isMathSymbol('.'));
+    }
+
+    private static void addPage(PDDocument document, Standard14Fonts.FontName font, List<String> lines) throws IOException {
+        PDPage page = new PDPage();
+        document.addPage(page);
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.beginText();
+            content.setFont(new PDType1Font(font), 12);
+            content.setLeading(16);
+            content.newLineAtOffset(50, 700);
+            for (String line : lines) {
+                content.showText(line);
+                content.newLine();
+            }
+            content.endText();
+        }
+    }
+}
@@ -1,11 +1,31 @@
 package com.taskpilot.parser;
 
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -15,7 +35,7 @@ class PdfParserTest {
 
     @BeforeEach
     void setUp() {
-        pdfParser = new PdfParser();
+        pdfParser = new PdfParser(new UploadSpooler(1_000_000), 2, 50, 2);
     }
 
     @Test
@@ -44,4 +64,163 @@ class PdfParserTest {
 
         assertThrows(IOException.class, () -> pdfParser.parse(invalidFile));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("parse() with a consumer should emit page windows in order")
+    void parse_WithConsumer_ShouldEmitPageWindowsInOrder() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "test.pdf", "application/pdf", createPdf(5));
+
+        List<TextSegment> segments = new ArrayList<>();
+        pdfParser.parse(file, segments::add);
+        List<String> windows = segments.stream().map(TextSegment::text).toList();
+
+        // 5 pages in windows of 2 pages
+        assertEquals(3, windows.size());
+        assertEquals(TextSegment.ofPages(2, windows.get(2), 5, 5), segments.get(2));
+        assertEquals(List.of(0, 1, 2), segments.stream().map(TextSegment::index).toList());
+        assertTrue(windows.get(0).contains("Page 1") && windows.get(0).contains("Page 2"));
+        assertTrue(windows.get(1).contains("Page 3") && windows.get(1).contains("Page 4"));
+        assertTrue(windows.get(2).contains("Page 5"));
+        assertEquals(pdfParser.parse(file), String.join("", windows));
+    }
+
+    @Test
+    @DisplayName("parse() should produce the same text in parallel mode as in a single pass")
+    void parse_InParallelMode_ShouldMatchSinglePass() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "test.pdf", "application/pdf", createPdf(11));
+        PdfParser parallelParser = new PdfParser(new UploadSpooler(1_000_000), 2, 4, 3);
+
+        String parallel = parallelParser.parse(file);
+        String singlePass = pdfParser.parse(file);
+
+        assertEquals(singlePass, parallel);
+        for (int i = 1; i < 11; i++) {
+            assertTrue(parallel.indexOf("Page " + i + "\n") < parallel.indexOf("Page " + (i + 1) + "\n"));
+        }
+        parallelParser.shutdown();
+    }
+
+    @Test
+    @DisplayName("parse() with a consumer should emit windows in page order in parallel mode")
+    void parse_WithConsumerInParallelMode_ShouldEmitWindowsInOrder() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "test.pdf", "application/pdf", createPdf(11));
+        PdfParser parallelParser = new PdfParser(new UploadSpooler(0), 2, 4, 3);
+
+        List<TextSegment> segments = new ArrayList<>();
+        parallelParser.parse(file, segments::add);
+        List<String> windows = segments.stream().map(TextSegment::text).toList();
+
+        // 3 slices of 4, 4 and 3 pages, each cut into windows of at most 2 pages
+        assertEquals(6, windows.size());
+        assertEquals(List.of(1, 3, 5, 7, 9, 11), segments.stream().map(TextSegment::firstPage).toList());
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), segments.stream().map(TextSegment::index).toList());
+        assertTrue(windows.get(0).contains("Page 1") && windows.get(0).contains("Page 2"));
+        assertTrue(windows.get(2).contains("Page 5") && windows.get(2).contains("Page 6"));
+        assertTrue(windows.get(5).contains("Page 11"));
+        assertEquals(pdfParser.parse(file), String.join("", windows));
+        parallelParser.shutdown();
+    }
+
+    @Test
+    @DisplayName("parse() should not copy a large spooled PDF onto the heap")
+    void parse_ShouldKeepAllocationsBelowFileSizeForLargePdf(@TempDir Path tempDir) throws IOException {
+        // A 16MB PDF whose bulk is a stream the text stripper never needs to read
+        Path pdf = tempDir.resolve("large.pdf");
+        try (PDDocument document = new PDDocument()) {
+            addTextPages(document, 2);
+            byte[] noise = new byte[16_000_000];
+            new Random(42).nextBytes(noise);
+            PDStream blob = new PDStream(document, new ByteArrayInputStream(noise));
+            document.getDocumentCatalog().getCOSObject().setItem(COSName.getPDFName("TestBlob"), blob);
+            document.save(pdf.toFile());
+        }
+        long fileSize = Files.size(pdf);
+        MultipartFile upload = new FileBackedMultipartFile(pdf);
+
+        // Warm up so class loading and font metrics aren't counted against the parse
+        pdfParser.parse(new MockMultipartFile("file", "small.pdf", "application/pdf", createPdf(1)));
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        String text = pdfParser.parse(upload);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(text.contains("Page 1") && text.contains("Page 2"));
+        assertTrue(allocated < fileSize / 4,
+                "Parsing a " + fileSize + " byte PDF allocated " + allocated + " bytes");
+    }
+
+    private static byte[] createPdf(int pageCount) throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            addTextPages(document, pageCount);
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static void addTextPages(PDDocument document, int pageCount) throws IOException {
+        for (int i = 1; i <= pageCount; i++) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                content.newLineAtOffset(50, 700);
+                content.showText("Page " + i);
+                content.endText();
+            }
+        }
+    }
+
+    // Stands in for a multipart upload that the servlet container has already written to disk
+    private record FileBackedMultipartFile(Path path) implements MultipartFile {
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return path.getFileName().toString();
+        }
+
+        @Override
+        public String getContentType() {
+            return "application/pdf";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getSize() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            try {
+                return Files.size(path);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public byte[] getBytes() {
+            throw new AssertionError("The upload should not be read into memory");
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            transferTo(dest.toPath());
+        }
+
+        @Override
+        public void transferTo(Path dest) throws IOException {
+            Files.copy(path, dest, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
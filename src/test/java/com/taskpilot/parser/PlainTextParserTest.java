@@ -6,6 +6,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.mock.web.MockMultipartFile;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -16,7 +19,7 @@ class PlainTextParserTest {
 
     @BeforeEach
     void setUp() {
-        plainTextParser = new PlainTextParser();
+        plainTextParser = new PlainTextParser(new UploadSpooler(1_000_000));
     }
 
     @Test
@@ -71,4 +74,74 @@ class PlainTextParserTest {
 
         assertEquals("", result);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("parse() should read text from a spooled upload")
+    void parse_ShouldReadSpooledUpload() throws IOException {
+        PlainTextParser spoolingParser = new PlainTextParser(new UploadSpooler(0));
+        MockMultipartFile textFile = new MockMultipartFile(
+                "file",
+                "test.txt",
+                "text/plain",
+                TEST_CONTENT.getBytes()
+        );
+
+        String result = spoolingParser.parse(textFile);
+
+        assertEquals(TEST_CONTENT, result);
+    }
+
+    @Test
+    @DisplayName("parse() with a consumer should emit ordered segments that add up to the whole text")
+    void parse_WithConsumer_ShouldEmitOrderedSegments() throws IOException {
+        String content = "Line of text with ünïcödé.\n".repeat(10_000);
+        MockMultipartFile textFile = new MockMultipartFile(
+                "file",
+                "test.txt",
+                "text/plain",
+                content.getBytes(StandardCharsets.UTF_8)
+        );
+
+        List<TextSegment> segments = new ArrayList<>();
+        new PlainTextParser(new UploadSpooler(0)).parse(textFile, segments::add);
+
+        assertTrue(segments.size() > 1);
+        for (int i = 0; i < segments.size(); i++) {
+            assertEquals(i, segments.get(i).index());
+            assertFalse(segments.get(i).hasPages());
+        }
+        assertEquals(content, String.join("", segments.stream().map(TextSegment::text).toList()));
+    }
+
+    @Test
+    @DisplayName("parse() with a consumer should end segments at whitespace rather than mid-word")
+    void parse_WithConsumer_ShouldNotCutMidWord() throws IOException {
+        String content = "Prove the statement by induction. ".repeat(5_000);
+        MockMultipartFile textFile = new MockMultipartFile("file", "test.txt", "text/plain", content.getBytes(StandardCharsets.UTF_8));
+
+        List<TextSegment> segments = new ArrayList<>();
+        plainTextParser.parse(textFile, segments::add);
+
+        assertTrue(segments.size() > 1);
+        for (TextSegment segment : segments) {
+            assertTrue(segment.text().endsWith(". "), "Segment ends with: " + segment.text().substring(segment.text().length() - 10));
+        }
+        assertEquals(content, String.join("", segments.stream().map(TextSegment::text).toList()));
+    }
+
+    @Test
+    @DisplayName("parse() with a consumer should never split a surrogate pair between segments")
+    void parse_WithConsumer_ShouldNotSplitSurrogatePairs() throws IOException {
+        String content = "x" + "\uD83D\uDCDA".repeat(50_000);
+        MockMultipartFile textFile = new MockMultipartFile("file", "test.txt", "text/plain", content.getBytes(StandardCharsets.UTF_8));
+
+        List<TextSegment> segments = new ArrayList<>();
+        plainTextParser.parse(textFile, segments::add);
+
+        assertTrue(segments.size() > 1);
+        for (TextSegment segment : segments) {
+            assertFalse(Character.isHighSurrogate(segment.text().charAt(segment.text().length() - 1)));
+        }
+        assertEquals(content, String.join("", segments.stream().map(TextSegment::text).toList()));
+    }
+}
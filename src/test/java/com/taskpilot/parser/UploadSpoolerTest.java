@@ -0,0 +1,54 @@
+package com.taskpilot.parser;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadSpoolerTest {
+
+    private static final String TEST_CONTENT = "Hello, World!\nThis is a test document with ünïcödé.";
+
+    @Test
+    @DisplayName("spool() should keep uploads within the heap budget in memory")
+    void spool_ShouldKeepSmallUploadInMemory() throws IOException {
+        UploadSpooler spooler = new UploadSpooler(1_000);
+        MockMultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", TEST_CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        try (SpooledUpload upload = spooler.spool(file)) {
+            assertFalse(upload.isOnDisk());
+            assertNull(upload.getFile());
+            assertEquals(TEST_CONTENT, upload.readText(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("spool() should write uploads over the heap budget to a temporary file")
+    void spool_ShouldWriteLargeUploadToDisk() throws IOException {
+        UploadSpooler spooler = new UploadSpooler(10);
+        byte[] content = TEST_CONTENT.getBytes(StandardCharsets.UTF_8);
+        MockMultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", content);
+
+        Path spooledFile;
+        try (SpooledUpload upload = spooler.spool(file)) {
+            assertTrue(upload.isOnDisk());
+            spooledFile = upload.getFile();
+            assertTrue(Files.exists(spooledFile));
+            assertEquals(content.length, upload.size());
+            assertEquals(TEST_CONTENT, upload.readText(StandardCharsets.UTF_8));
+
+            try (InputStream in = upload.openStream()) {
+                assertArrayEquals(content, in.readAllBytes());
+            }
+        }
+
+        assertFalse(Files.exists(spooledFile), "Temporary file should be deleted on close");
+    }
+}
@@ -0,0 +1,79 @@
+package com.taskpilot.repository;
+
+import com.taskpilot.model.ChunkResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Testcontainers
+class ChunkResultRepositoryTest {
+
+    @Container
+    @SuppressWarnings("resource")
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ChunkResultRepository chunkResultRepository;
+
+    @Test
+    @DisplayName("findById() should return the stored result for a cache key")
+    void findById_ShouldReturnStoredResult() {
+        // ARRANGE
+        entityManager.persistAndFlush(new ChunkResult("abc123:0f1e2d3c4b5a:gemini/default", "{\"todos\":[]}"));
+
+        // ACT
+        Optional<ChunkResult> result = chunkResultRepository.findById("abc123:0f1e2d3c4b5a:gemini/default");
+
+        // ASSERT
+        assertTrue(result.isPresent());
+        assertEquals("{\"todos\":[]}", result.get().getResult());
+        assertNotNull(result.get().getCreatedAt());
+    }
+
+    @Test
+    @DisplayName("deleteByCreatedAtBefore() should only remove entries older than the cutoff")
+    void deleteByCreatedAtBefore_ShouldRemoveOldEntries() {
+        // ARRANGE
+        entityManager.persistAndFlush(new ChunkResult("old:0f1e2d3c4b5a:gemini/default", "{}"));
+        entityManager.persistAndFlush(new ChunkResult("new:0f1e2d3c4b5a:gemini/default", "{}"));
+        entityManager.getEntityManager()
+                .createQuery("UPDATE ChunkResult c SET c.createdAt = :createdAt WHERE c.cacheKey = 'old:0f1e2d3c4b5a:gemini/default'")
+                .setParameter("createdAt", LocalDateTime.now().minusDays(40))
+                .executeUpdate();
+        entityManager.clear();
+
+        // ACT
+        int deleted = chunkResultRepository.deleteByCreatedAtBefore(LocalDateTime.now().minusDays(30));
+
+        // ASSERT
+        assertEquals(1, deleted);
+        assertTrue(chunkResultRepository.findById("old:0f1e2d3c4b5a:gemini/default").isEmpty());
+        assertTrue(chunkResultRepository.findById("new:0f1e2d3c4b5a:gemini/default").isPresent());
+    }
+}
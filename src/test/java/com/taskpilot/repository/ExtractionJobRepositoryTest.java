@@ -0,0 +1,160 @@
+package com.taskpilot.repository;
+
+import com.taskpilot.model.ExtractionJob;
+import com.taskpilot.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Testcontainers
+class ExtractionJobRepositoryTest {
+
+    @Container
+    @SuppressWarnings("resource")
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ExtractionJobRepository extractionJobRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    @DisplayName("lockClaimableJobs() should return queued jobs and running jobs with an expired lease, oldest first")
+    void lockClaimableJobs_ShouldReturnQueuedAndAbandonedJobs() {
+        // ARRANGE
+        User user = createAndPersistUser("jobs@example.com");
+        ExtractionJob queued = createAndPersistJob(user, ExtractionJob.Status.QUEUED, null, null);
+        ExtractionJob abandoned = createAndPersistJob(user, ExtractionJob.Status.RUNNING, "dead-worker", LocalDateTime.now().minusMinutes(5));
+        createAndPersistJob(user, ExtractionJob.Status.RUNNING, "live-worker", LocalDateTime.now().plusMinutes(5));
+        createAndPersistJob(user, ExtractionJob.Status.COMPLETED, null, null);
+        entityManager.clear();
+
+        // ACT
+        List<ExtractionJob> result = extractionJobRepository.lockClaimableJobs(LocalDateTime.now(), 10);
+
+        // ASSERT
+        assertEquals(List.of(queued.getId(), abandoned.getId()), result.stream().map(ExtractionJob::getId).toList());
+    }
+
+    @Test
+    @DisplayName("lockClaimableJobs() should skip jobs that another transaction has locked")
+    void lockClaimableJobs_ShouldSkipLockedRows() throws Exception {
+        // ARRANGE
+        // The rows have to be committed for a second connection to see them, so they are written outside the test transaction
+        try (Connection setup = dataSource.getConnection()) {
+            setup.setAutoCommit(true);
+            setup.createStatement().executeUpdate("INSERT INTO users (email, password, enabled, created_at, updated_at) VALUES ('skip@example.com', 'pw', true, now(), now())");
+            for (int i = 0; i < 2; i++) {
+                setup.createStatement().executeUpdate(
+                        "INSERT INTO extraction_jobs (user_id, status, document_text) SELECT id, 'QUEUED', 'text' FROM users WHERE email = 'skip@example.com'");
+            }
+        }
+
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            first.setAutoCommit(false);
+            second.setAutoCommit(false);
+            String claimSql = "SELECT id FROM extraction_jobs WHERE status = 'QUEUED' ORDER BY created_at, id LIMIT 1 FOR UPDATE SKIP LOCKED";
+
+            // ACT
+            long firstClaim = claimOne(first, claimSql);
+            long secondClaim = claimOne(second, claimSql);
+
+            // ASSERT
+            assertNotEquals(firstClaim, secondClaim, "A locked job must not be handed to a second worker");
+            first.rollback();
+            second.rollback();
+        } finally {
+            try (Connection cleanup = dataSource.getConnection()) {
+                cleanup.setAutoCommit(true);
+                cleanup.createStatement().executeUpdate("DELETE FROM users WHERE email = 'skip@example.com'");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("releaseJobs() should return only the worker's running jobs to the queue")
+    void releaseJobs_ShouldRequeueWorkersJobs() {
+        // ARRANGE
+        User user = createAndPersistUser("release@example.com");
+        ExtractionJob mine = createAndPersistJob(user, ExtractionJob.Status.RUNNING, "worker-1", LocalDateTime.now().plusMinutes(1));
+        ExtractionJob theirs = createAndPersistJob(user, ExtractionJob.Status.RUNNING, "worker-2", LocalDateTime.now().plusMinutes(1));
+
+        // ACT
+        int released = extractionJobRepository.releaseJobs("worker-1");
+        entityManager.clear();
+
+        // ASSERT
+        assertEquals(1, released);
+        ExtractionJob reloadedMine = extractionJobRepository.findById(mine.getId()).orElseThrow();
+        assertEquals(ExtractionJob.Status.QUEUED, reloadedMine.getStatus());
+        assertNull(reloadedMine.getLockedBy());
+        assertEquals(ExtractionJob.Status.RUNNING, extractionJobRepository.findById(theirs.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    @DisplayName("findByIdAndUser() should not return another user's job")
+    void findByIdAndUser_ShouldNotReturnOtherUsersJob() {
+        // ARRANGE
+        User owner = createAndPersistUser("owner@example.com");
+        User other = createAndPersistUser("other@example.com");
+        ExtractionJob job = createAndPersistJob(owner, ExtractionJob.Status.QUEUED, null, null);
+
+        // ACT & ASSERT
+        assertTrue(extractionJobRepository.findByIdAndUser(job.getId(), owner).isPresent());
+        assertTrue(extractionJobRepository.findByIdAndUser(job.getId(), other).isEmpty());
+    }
+
+    private static long claimOne(Connection connection, String sql) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(sql); ResultSet rs = statement.executeQuery()) {
+            assertTrue(rs.next(), "Expected an unlocked job to claim");
+            return rs.getLong(1);
+        }
+    }
+
+    // Helper methods
+    private User createAndPersistUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("hashedPassword");
+        return entityManager.persistAndFlush(user);
+    }
+
+    private ExtractionJob createAndPersistJob(User user, ExtractionJob.Status status, String lockedBy, LocalDateTime leaseExpiresAt) {
+        ExtractionJob job = new ExtractionJob(user, "Document text", null);
+        job.setStatus(status);
+        job.setLockedBy(lockedBy);
+        job.setLeaseExpiresAt(leaseExpiresAt);
+        return entityManager.persistAndFlush(job);
+    }
+}
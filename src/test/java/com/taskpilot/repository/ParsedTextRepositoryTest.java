@@ -0,0 +1,79 @@
+package com.taskpilot.repository;
+
+import com.taskpilot.model.ParsedText;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Testcontainers
+class ParsedTextRepositoryTest {
+
+    @Container
+    @SuppressWarnings("resource")
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ParsedTextRepository parsedTextRepository;
+
+    @Test
+    @DisplayName("findById() should return the stored text for a cache key")
+    void findById_ShouldReturnStoredText() {
+        // ARRANGE
+        entityManager.persistAndFlush(new ParsedText("abc123:equations", "Parsed text"));
+
+        // ACT
+        Optional<ParsedText> result = parsedTextRepository.findById("abc123:equations");
+
+        // ASSERT
+        assertTrue(result.isPresent());
+        assertEquals("Parsed text", result.get().getText());
+        assertNotNull(result.get().getCreatedAt());
+    }
+
+    @Test
+    @DisplayName("deleteByCreatedAtBefore() should only remove entries older than the cutoff")
+    void deleteByCreatedAtBefore_ShouldRemoveOldEntries() {
+        // ARRANGE
+        entityManager.persistAndFlush(new ParsedText("old:text/plain", "Old text"));
+        entityManager.persistAndFlush(new ParsedText("new:text/plain", "New text"));
+        entityManager.getEntityManager()
+                .createQuery("UPDATE ParsedText p SET p.createdAt = :createdAt WHERE p.cacheKey = 'old:text/plain'")
+                .setParameter("createdAt", LocalDateTime.now().minusDays(40))
+                .executeUpdate();
+        entityManager.clear();
+
+        // ACT
+        int deleted = parsedTextRepository.deleteByCreatedAtBefore(LocalDateTime.now().minusDays(30));
+
+        // ASSERT
+        assertEquals(1, deleted);
+        assertTrue(parsedTextRepository.findById("old:text/plain").isEmpty());
+        assertTrue(parsedTextRepository.findById("new:text/plain").isPresent());
+    }
+}
@@ -0,0 +1,136 @@
+package com.taskpilot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+import com.taskpilot.model.ChunkResult;
+import com.taskpilot.repository.ChunkResultRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkResultCacheTest {
+
+    private static final ExtractedTaskListDTO RESULT = new ExtractedTaskListDTO("Title", "Description", List.of("Task 1", "Task 2"));
+
+    @Mock
+    private ChunkResultRepository chunkResultRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private ChunkResultCache cache(long maxWeightBytes, boolean persistent) {
+        return new ChunkResultCache(chunkResultRepository, new ObjectMapper(), meterRegistry, true, maxWeightBytes, persistent, 30);
+    }
+
+    private double count(String result, String tier) {
+        return meterRegistry.get("taskpilot.llm.chunk.cache").tag("result", result).tag("tier", tier).counter().count();
+    }
+
+    @Test
+    @DisplayName("keyFor() should depend on the chunk, the prompt template and the model")
+    void keyFor_ShouldDependOnChunkTemplateAndModel() {
+        ChunkResultCache cache = cache(1_000_000, false);
+
+        String key = cache.keyFor("chunk", "Template %s", "gemini/flash");
+
+        assertEquals(key, cache.keyFor("chunk", "Template %s", "gemini/flash"));
+        assertNotEquals(key, cache.keyFor("chunk!", "Template %s", "gemini/flash"));
+        assertNotEquals(key, cache.keyFor("chunk", "Revised template %s", "gemini/flash"));
+        assertNotEquals(key, cache.keyFor("chunk", "Template %s", "gemini/pro"));
+        assertTrue(key.length() <= 255);
+        assertTrue(cache.keyFor("chunk", "Template %s", "gemini/flash,".repeat(50)).length() <= 255);
+    }
+
+    @Test
+    @DisplayName("get() should count hits and misses and report the hit ratio")
+    void get_ShouldCountHitsAndMisses() {
+        ChunkResultCache cache = cache(1_000_000, false);
+
+        assertTrue(cache.get("key").isEmpty());
+        cache.put("key", RESULT);
+        assertEquals(Optional.of(RESULT), cache.get("key"));
+
+        assertEquals(1, count("hit", "memory"));
+        assertEquals(1, count("miss", "none"));
+        assertEquals(0.5, meterRegistry.get("taskpilot.llm.chunk.cache.hit.ratio").gauge().value());
+        verifyNoInteractions(chunkResultRepository);
+    }
+
+    @Test
+    @DisplayName("put() should evict entries once their total size exceeds the weight limit")
+    void put_ShouldEvictBySize() {
+        // Each entry weighs 2 * (4 + 29) = 66 bytes, so only one fits in 100
+        ChunkResultCache cache = cache(100, false);
+
+        cache.put("key1", RESULT);
+        cache.put("key2", RESULT);
+
+        assertFalse(cache.get("key1").isPresent() && cache.get("key2").isPresent());
+    }
+
+    @Test
+    @DisplayName("get() should fall back to the database tier and promote the entry to memory")
+    void get_ShouldReadThroughDatabaseTier() {
+        ChunkResultCache cache = cache(1_000_000, true);
+        when(chunkResultRepository.findById("key")).thenReturn(Optional.of(new ChunkResult("key",
+                "{\"title\":\"Title\",\"description\":\"Description\",\"todos\":[\"Task 1\",\"Task 2\"]}")));
+
+        assertEquals(Optional.of(RESULT), cache.get("key"));
+        assertEquals(Optional.of(RESULT), cache.get("key"));
+
+        verify(chunkResultRepository, times(1)).findById("key");
+        assertEquals(1, count("hit", "database"));
+        assertEquals(1, count("hit", "memory"));
+    }
+
+    @Test
+    @DisplayName("put() should store the result as JSON in the database tier")
+    void put_ShouldPersistJson() {
+        ChunkResultCache cache = cache(1_000_000, true);
+
+        cache.put("key", RESULT);
+
+        verify(chunkResultRepository).save(argThat(stored -> "key".equals(stored.getCacheKey())
+                && stored.getResult().contains("\"todos\":[\"Task 1\",\"Task 2\"]")));
+    }
+
+    @Test
+    @DisplayName("put() should not cache a partial result repaired from a truncated response")
+    void put_ShouldSkipPartialResult() {
+        ChunkResultCache cache = cache(1_000_000, true);
+
+        cache.put("key", RESULT.asPartial());
+
+        assertTrue(cache.get("key").isEmpty());
+        verify(chunkResultRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("get() and put() should treat database failures as misses")
+    void databaseFailures_ShouldNotPropagate() {
+        ChunkResultCache cache = cache(1_000_000, true);
+        when(chunkResultRepository.findById("key")).thenThrow(new DataAccessResourceFailureException("down"));
+        when(chunkResultRepository.save(any())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertTrue(cache.get("key").isEmpty());
+        assertDoesNotThrow(() -> cache.put("key", RESULT));
+        assertEquals(Optional.of(RESULT), cache.get("key"));
+    }
+}
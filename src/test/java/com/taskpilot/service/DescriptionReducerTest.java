@@ -0,0 +1,153 @@
+package com.taskpilot.service;
+
+import com.taskpilot.exception.InvalidLLMResponseException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DescriptionReducerTest {
+
+    private final List<String> prompts = new CopyOnWriteArrayList<>();
+
+    @Test
+    @DisplayName("finish() should summarise descriptions that fit one group in a single prompt, in document order")
+    void finish_summarisesOneGroup_inOnePrompt() {
+        // ARRANGE
+        DescriptionReducer reducer = new DescriptionReducer(4, 1000, 100, recordingSummariser());
+        List.of("First part.", "Second part.", "Third part.").forEach(d -> reducer.add(CompletableFuture.completedFuture(d)));
+
+        // ACT
+        String description = reducer.finish().join();
+
+        // ASSERT
+        assertEquals(1, prompts.size());
+        assertTrue(prompts.getFirst().endsWith(":\nFirst part.\nSecond part.\nThird part."));
+        assertEquals("summary 1", description);
+    }
+
+    @Test
+    @DisplayName("add() should summarise a full group as soon as its members are done, before later chunks finish")
+    void add_summarisesFullGroup_beforeLaterChunksFinish() {
+        // ARRANGE
+        DescriptionReducer reducer = new DescriptionReducer(2, 1000, 100, recordingSummariser());
+        List<CompletableFuture<String>> chunks = IntStream.range(0, 3).mapToObj(i -> new CompletableFuture<String>()).toList();
+        chunks.forEach(reducer::add);
+
+        // ACT
+        chunks.get(0).complete("Chunk 0.");
+        chunks.get(1).complete("Chunk 1.");
+
+        // ASSERT
+        assertEquals(1, prompts.size());
+        assertTrue(prompts.getFirst().endsWith("Chunk 0.\nChunk 1."));
+
+        // ACT
+        CompletableFuture<String> description = reducer.finish();
+        assertFalse(description.isDone());
+        chunks.get(2).complete("Chunk 2.");
+
+        // ASSERT: the group summary comes before the later chunk
+        assertEquals("summary 2", description.join());
+        assertTrue(prompts.getLast().endsWith("summary 1\nChunk 2."));
+    }
+
+    @Test
+    @DisplayName("finish() should reduce group summaries in further levels, never exceeding the fan-in per prompt")
+    void finish_reducesInLevels() {
+        // ARRANGE
+        DescriptionReducer reducer = new DescriptionReducer(3, 1000, 100, recordingSummariser());
+        IntStream.range(0, 9).forEach(i -> reducer.add(CompletableFuture.completedFuture("Chunk " + i + ".")));
+
+        // ACT
+        String description = reducer.finish().join();
+
+        // ASSERT: three groups of three, then one summary of the three group summaries
+        assertEquals(4, prompts.size());
+        assertEquals("summary 4", description);
+        assertTrue(prompts.getLast().endsWith("summary 1\nsummary 2\nsummary 3"));
+        for (String prompt : prompts) {
+            assertTrue(prompt.split("\n").length - 1 <= 3);
+        }
+    }
+
+    @Test
+    @DisplayName("finish() should return a lone description without calling the LLM")
+    void finish_returnsLoneDescription() {
+        DescriptionReducer reducer = new DescriptionReducer(4, 1000, 100, recordingSummariser());
+        reducer.add(CompletableFuture.completedFuture("Only part."));
+
+        assertEquals("Only part.", reducer.finish().join());
+        assertTrue(prompts.isEmpty());
+    }
+
+    @Test
+    @DisplayName("finish() should fall back to the group's first description when a summary can't be read")
+    void finish_fallsBack_whenSummaryIsInvalid() {
+        // ARRANGE
+        DescriptionReducer reducer = new DescriptionReducer(4, 1000, 100,
+                prompt -> CompletableFuture.failedFuture(new RuntimeException(new InvalidLLMResponseException("Received empty response from the Gemini."))));
+        reducer.add(CompletableFuture.completedFuture(null));
+        reducer.add(CompletableFuture.completedFuture("Second part."));
+        reducer.add(CompletableFuture.completedFuture("Third part."));
+
+        // ACT & ASSERT
+        assertEquals("Second part.", reducer.finish().join());
+    }
+
+    @Test
+    @DisplayName("finish() should fall back to the group's first description when the summary call fails in any other way")
+    void finish_fallsBack_whenSummaryCallFails() {
+        // ARRANGE: one level times out and the next throws before it returns a future
+        AtomicInteger calls = new AtomicInteger();
+        DescriptionReducer reducer = new DescriptionReducer(2, 1000, 100, prompt -> {
+            if (calls.incrementAndGet() == 1) {
+                return CompletableFuture.failedFuture(new TimeoutException("LLM call timed out"));
+            }
+            throw new IllegalStateException("Bulkhead closed");
+        });
+        reducer.add(CompletableFuture.completedFuture("First part."));
+        reducer.add(CompletableFuture.completedFuture("Second part."));
+        reducer.add(CompletableFuture.completedFuture("Third part."));
+
+        // ACT & ASSERT
+        assertEquals("First part.", reducer.finish().join());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("add() should cap each description at the configured length")
+    void add_capsDescriptionLength() {
+        // ARRANGE
+        DescriptionReducer reducer = new DescriptionReducer(4, 10, 100, recordingSummariser());
+        reducer.add(CompletableFuture.completedFuture("A".repeat(50)));
+        reducer.add(CompletableFuture.completedFuture("Short."));
+
+        // ACT
+        reducer.finish().join();
+
+        // ASSERT
+        assertTrue(prompts.getFirst().endsWith(":\n" + "A".repeat(10) + "\nShort."));
+        assertTrue(prompts.getFirst().contains("at most 100 words"));
+    }
+
+    private Function<String, CompletableFuture<String>> recordingSummariser() {
+        List<String> summaries = new ArrayList<>();
+        return prompt -> {
+            prompts.add(prompt);
+            synchronized (summaries) {
+                summaries.add("summary " + (summaries.size() + 1));
+                return CompletableFuture.completedFuture(summaries.getLast());
+            }
+        };
+    }
+}
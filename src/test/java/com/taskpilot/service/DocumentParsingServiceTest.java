@@ -3,7 +3,13 @@ package com.taskpilot.service;
 import com.taskpilot.exception.InvalidLLMResponseException;
 import com.taskpilot.exception.UnsupportedFileTypeException;
 import com.taskpilot.parser.DocumentParser;
+import com.taskpilot.parser.DocxParser;
 import com.taskpilot.parser.EquationParser;
+import com.taskpilot.parser.HybridMathParser;
+import com.taskpilot.parser.PdfParser;
+import com.taskpilot.parser.TextSegment;
+import com.taskpilot.repository.ParsedTextRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,9 +20,12 @@ import org.springframework.mock.web.MockMultipartFile;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
@@ -32,13 +41,19 @@ class DocumentParsingServiceTest {
     @Mock
     private EquationParser equationParser;
 
+    @Mock
+    private ParsedTextRepository parsedTextRepository;
+
+    private ParsedTextCache parsedTextCache;
+
     private DocumentParsingService documentParsingService;
     private static final String PARSED_CONTENT = "Parsed document content";
 
     @BeforeEach
     void setUp() {
         List<DocumentParser> parsers = Arrays.asList(pdfParser, plainTextParser, equationParser);
-        documentParsingService = new DocumentParsingService(parsers);
+        parsedTextCache = new ParsedTextCache(parsedTextRepository, new SimpleMeterRegistry(), true, 1_000_000, 100_000, false, 30);
+        documentParsingService = new DocumentParsingService(parsers, parsedTextCache, true);
     }
 
     @Test
@@ -159,4 +174,183 @@ class DocumentParsingServiceTest {
 
         assertEquals(testException, exception);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("parseDocument() with a consumer should stream segments from the parser")
+    @SuppressWarnings("unchecked")
+    void parseDocument_WithConsumer_ShouldStreamFromPdfParser() throws IOException, InvalidLLMResponseException {
+        // ARRANGE
+        PdfParser streamingPdfParser = mock(PdfParser.class);
+        documentParsingService = new DocumentParsingService(List.of(streamingPdfParser), parsedTextCache, true);
+        MockMultipartFile testFile = new MockMultipartFile(
+                "file",
+                "test.pdf",
+                "application/pdf",
+                "test content".getBytes()
+        );
+
+        when(streamingPdfParser.supports("application/pdf")).thenReturn(true);
+        doAnswer(invocation -> {
+            Consumer<TextSegment> consumer = invocation.getArgument(1);
+            consumer.accept(TextSegment.ofPages(0, "window 1", 1, 5));
+            consumer.accept(TextSegment.ofPages(1, "window 2", 6, 8));
+            return null;
+        }).when(streamingPdfParser).parse(eq(testFile), any(Consumer.class));
+
+        // ACT
+        List<TextSegment> received = new ArrayList<>();
+        documentParsingService.parseDocument(testFile, false, documentParsingService.documentKey(testFile, false), received::add);
+
+        // ASSERT
+        assertEquals(List.of("window 1", "window 2"), received.stream().map(TextSegment::text).toList());
+        assertEquals(6, received.get(1).firstPage());
+        verify(streamingPdfParser, never()).parse(testFile);
+    }
+
+    @Test
+    @DisplayName("parseDocument() with a consumer should deliver the whole text in one segment when streaming is disabled")
+    void parseDocument_WithConsumer_ShouldDeliverWholeTextWhenStreamingDisabled() throws IOException, InvalidLLMResponseException {
+        // ARRANGE
+        documentParsingService = new DocumentParsingService(List.of(pdfParser, plainTextParser), parsedTextCache, false);
+        MockMultipartFile testFile = new MockMultipartFile(
+                "file",
+                "test.txt",
+                "text/plain",
+                "test content".getBytes()
+        );
+
+        when(pdfParser.supports("text/plain")).thenReturn(false);
+        when(plainTextParser.supports("text/plain")).thenReturn(true);
+        when(plainTextParser.parse(testFile)).thenReturn(PARSED_CONTENT);
+
+        // ACT
+        List<TextSegment> received = new ArrayList<>();
+        documentParsingService.parseDocument(testFile, false, documentParsingService.documentKey(testFile, false), received::add);
+
+        // ASSERT
+        assertEquals(List.of(TextSegment.ofSection(0, PARSED_CONTENT)), received);
+        verify(plainTextParser, never()).parse(eq(testFile), any());
+    }
+
+    @Test
+    @DisplayName("parseDocument() should serve a re-upload from the cache without calling the EquationParser again")
+    void parseDocument_ShouldSkipEquationParserOnCacheHit() throws IOException, InvalidLLMResponseException {
+        // ARRANGE
+        MockMultipartFile firstUpload = new MockMultipartFile("file", "sheet.pdf", "application/pdf", "same bytes".getBytes());
+        MockMultipartFile reUpload = new MockMultipartFile("file", "renamed.pdf", "application/pdf", "same bytes".getBytes());
+        when(equationParser.parse(firstUpload)).thenReturn(PARSED_CONTENT);
+
+        // ACT
+        String first = documentParsingService.parseDocument(firstUpload, true);
+        String second = documentParsingService.parseDocument(reUpload, true);
+
+        // ASSERT
+        assertEquals(PARSED_CONTENT, first);
+        assertEquals(PARSED_CONTENT, second);
+        verify(equationParser, times(1)).parse(any(MockMultipartFile.class));
+    }
+
+    @Test
+    @DisplayName("parseDocument() should use the HybridMathParser for PDFs with equations when it is enabled")
+    void parseDocument_ShouldUseHybridParserForPdfsWithEquations() throws IOException, InvalidLLMResponseException {
+        // ARRANGE
+        HybridMathParser hybridMathParser = mock(HybridMathParser.class);
+        documentParsingService = new DocumentParsingService(List.of(equationParser, hybridMathParser), parsedTextCache, true);
+        MockMultipartFile pdfFile = new MockMultipartFile("file", "sheet.pdf", "application/pdf", "pdf".getBytes());
+        MockMultipartFile imageFile = new MockMultipartFile("file", "sheet.png", "image/png", "png".getBytes());
+        when(hybridMathParser.isEnabled()).thenReturn(true);
+        when(hybridMathParser.parse(pdfFile)).thenReturn("Hybrid text");
+        when(equationParser.parse(imageFile)).thenReturn("Image text");
+
+        // ACT & ASSERT
+        assertEquals("Hybrid text", documentParsingService.parseDocument(pdfFile, true));
+        assertEquals("Image text", documentParsingService.parseDocument(imageFile, true));
+        verify(equationParser, never()).parse(pdfFile);
+    }
+
+    @Test
+    @DisplayName("parseDocument() should not share cached text between parser modes")
+    void parseDocument_ShouldKeyCacheOnParserMode() throws IOException, InvalidLLMResponseException {
+        // ARRANGE
+        MockMultipartFile testFile = new MockMultipartFile("file", "test.pdf", "application/pdf", "same bytes".getBytes());
+        when(equationParser.parse(testFile)).thenReturn("With equations");
+        when(pdfParser.supports("application/pdf")).thenReturn(true);
+        when(pdfParser.parse(testFile)).thenReturn("Without equations");
+
+        // ACT & ASSERT
+        assertEquals("With equations", documentParsingService.parseDocument(testFile, true));
+        assertEquals("Without equations", documentParsingService.parseDocument(testFile, false));
+    }
+
+    @Test
+    @DisplayName("parseDocument() with a consumer should cache streamed text and replay it as one segment")
+    @SuppressWarnings("unchecked")
+    void parseDocument_WithConsumer_ShouldReplayCachedText() throws IOException, InvalidLLMResponseException {
+        // ARRANGE
+        PdfParser streamingPdfParser = mock(PdfParser.class);
+        documentParsingService = new DocumentParsingService(List.of(streamingPdfParser), parsedTextCache, true);
+        MockMultipartFile testFile = new MockMultipartFile("file", "test.pdf", "application/pdf", "test content".getBytes());
+
+        when(streamingPdfParser.supports("application/pdf")).thenReturn(true);
+        doAnswer(invocation -> {
+            Consumer<TextSegment> consumer = invocation.getArgument(1);
+            consumer.accept(TextSegment.ofPages(0, "window 1", 1, 5));
+            consumer.accept(TextSegment.ofPages(1, "window 2", 6, 8));
+            return null;
+        }).when(streamingPdfParser).parse(eq(testFile), any(Consumer.class));
+
+        // ACT
+        documentParsingService.parseDocument(testFile, false, documentParsingService.documentKey(testFile, false), segment -> { });
+        List<TextSegment> replayed = new ArrayList<>();
+        documentParsingService.parseDocument(testFile, false, documentParsingService.documentKey(testFile, false), replayed::add);
+
+        // ASSERT
+        assertEquals(List.of(TextSegment.ofSection(0, "window 1window 2")), replayed);
+        verify(streamingPdfParser, times(1)).parse(eq(testFile), any(Consumer.class));
+    }
+
+    @Test
+    @DisplayName("parseDocument() with a document key should cache under that key without hashing the upload again")
+    @SuppressWarnings("unchecked")
+    void parseDocument_WithDocumentKey_ShouldNotHashUploadAgain() throws IOException, InvalidLLMResponseException {
+        // ARRANGE
+        PdfParser streamingPdfParser = mock(PdfParser.class);
+        documentParsingService = new DocumentParsingService(List.of(streamingPdfParser), parsedTextCache, true);
+        MockMultipartFile testFile = spy(new MockMultipartFile("file", "test.pdf", "application/pdf", "test content".getBytes()));
+        when(streamingPdfParser.supports("application/pdf")).thenReturn(true);
+        doAnswer(invocation -> {
+            Consumer<TextSegment> consumer = invocation.getArgument(1);
+            consumer.accept(TextSegment.ofSection(0, PARSED_CONTENT));
+            return null;
+        }).when(streamingPdfParser).parse(eq(testFile), any(Consumer.class));
+
+        // ACT
+        String documentKey = documentParsingService.documentKey(testFile, false);
+        documentParsingService.parseDocument(testFile, false, documentKey, segment -> { });
+
+        // ASSERT: only documentKey() read the upload, and the text is cached under its key
+        verify(testFile, times(1)).getInputStream();
+        assertEquals(PARSED_CONTENT, parsedTextCache.get(documentKey).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("documentKey() should not share cached text between the DOCX streaming and DOM readers")
+    void documentKey_ShouldDependOnDocxReader() throws IOException {
+        // ARRANGE
+        DocxParser streamingDocxParser = mock(DocxParser.class);
+        DocxParser domDocxParser = mock(DocxParser.class);
+        String docxType = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+        MockMultipartFile testFile = new MockMultipartFile("file", "notes.docx", docxType, "same bytes".getBytes());
+        when(streamingDocxParser.supports(docxType)).thenReturn(true);
+        when(streamingDocxParser.isStreaming()).thenReturn(true);
+        when(domDocxParser.supports(docxType)).thenReturn(true);
+        when(domDocxParser.isStreaming()).thenReturn(false);
+
+        // ACT
+        String streamingKey = new DocumentParsingService(List.of(streamingDocxParser), parsedTextCache, true).documentKey(testFile, false);
+        String domKey = new DocumentParsingService(List.of(domDocxParser), parsedTextCache, true).documentKey(testFile, false);
+
+        // ASSERT
+        assertNotEquals(streamingKey, domKey);
+    }
+}
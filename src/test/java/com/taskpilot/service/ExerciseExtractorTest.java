@@ -0,0 +1,173 @@
+package com.taskpilot.service;
+
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExerciseExtractorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExerciseExtractor extractor = new ExerciseExtractor(meterRegistry, true, 2, 1500, false);
+
+    @Test
+    @DisplayName("extract() should turn each exercise into a todo, joining its lines, and take the title from the heading")
+    void extract_splitsSheetOnMarkers() {
+        // ARRANGE
+        String sheet = """
+                Linear Algebra: Problem Sheet 2
+
+                Exercise 2.1. Show that the matrix A is invertible
+                and find its inverse.
+                Exercise 2.2: Compute det(B), using the result
+                of Exercise 2.1 where helpful.
+                  exercise 2.3) Find the eigenvalues of C.
+                """;
+
+        // ACT
+        Optional<ExtractedTaskListDTO> result = extractor.extract(sheet);
+
+        // ASSERT: a reference in the middle of a sentence does not start a new exercise
+        assertTrue(result.isPresent());
+        assertEquals("Linear Algebra: Problem Sheet 2", result.get().title());
+        assertEquals("3 exercises, from Exercise 2.1 to Exercise 2.3.", result.get().description());
+        assertEquals(List.of(
+                "Exercise 2.1: Show that the matrix A is invertible and find its inverse",
+                "Exercise 2.2: Compute det(B), using the result of Exercise 2.1 where helpful",
+                "Exercise 2.3: Find the eigenvalues of C"), result.get().todos());
+        assertEquals(1.0, meterRegistry.counter("taskpilot.extraction.exercises.local", "outcome", "extracted").count());
+    }
+
+    @Test
+    @DisplayName("extract() should use a default title when there is no short heading above the first exercise")
+    void extract_usesDefaultTitle_withoutHeading() {
+        // ACT
+        Optional<ExtractedTaskListDTO> result = extractor.extract("Exercise 1 Add 2 and 2.\nExercise 2 Subtract 1 from 3.");
+
+        // ASSERT
+        assertEquals("Exercises", result.orElseThrow().title());
+    }
+
+    @Test
+    @DisplayName("extract() should end the last exercise at a blank line and keep the instructions and notes around the exercises")
+    void extract_endsLastExerciseAtBlankLine_andKeepsInstructions() {
+        // ARRANGE
+        String sheet = """
+                Problem Sheet 4
+                Answer all questions. Show your working.
+
+                Exercise 1. Add 2 and 2.
+                Exercise 2. Subtract 1 from 3.
+
+                Submit your answers by Friday.
+                """;
+
+        // ACT
+        ExtractedTaskListDTO result = extractor.extract(sheet).orElseThrow();
+
+        // ASSERT
+        assertEquals("Problem Sheet 4", result.title());
+        assertEquals(List.of("Exercise 1: Add 2 and 2", "Exercise 2: Subtract 1 from 3"), result.todos());
+        assertEquals("Answer all questions. Show your working. 2 exercises, from Exercise 1 to Exercise 2. Submit your answers by Friday.",
+                result.description());
+    }
+
+    @Test
+    @DisplayName("extract() should end the last exercise at a heading")
+    void extract_endsLastExerciseAtHeading() {
+        // ACT
+        ExtractedTaskListDTO result = extractor.extract("Exercise 1 Add 2 and 2.\nExercise 2 Subtract 1 from 3.\n## Hints\nCount on your fingers.")
+                .orElseThrow();
+
+        // ASSERT
+        assertEquals("Exercise 2: Subtract 1 from 3", result.todos().getLast());
+        assertTrue(result.description().endsWith("## Hints Count on your fingers."), result.description());
+    }
+
+    @Test
+    @DisplayName("extract() should leave the document to the LLM when a long text follows the last exercise")
+    void extract_fallsBack_onLongTextAfterLastExercise() {
+        // ARRANGE
+        String sheet = "Exercise 1 Add 2 and 2.\nExercise 2 Subtract 1 from 3.\n\n" + "The chapter continues with more theory. ".repeat(50);
+
+        // ACT & ASSERT
+        assertTrue(extractor.extract(sheet).isEmpty());
+        assertEquals(1.0, meterRegistry.counter("taskpilot.extraction.exercises.local", "outcome", "fallback").count());
+    }
+
+    @Test
+    @DisplayName("extract() should leave the document to the LLM when there are too few exercises")
+    void extract_fallsBack_withTooFewExercises() {
+        assertTrue(extractor.extract("Notes on limits.\nExercise 1 Find the limit of 1/n.").isEmpty());
+        assertEquals(1.0, meterRegistry.counter("taskpilot.extraction.exercises.local", "outcome", "fallback").count());
+    }
+
+    @Test
+    @DisplayName("extract() should leave the document to the LLM when an exercise number repeats")
+    void extract_fallsBack_onRepeatedNumber() {
+        assertTrue(extractor.extract("Exercise 1 Add 2 and 2.\nExercise 1 Add 3 and 3.").isEmpty());
+    }
+
+    @Test
+    @DisplayName("extract() should leave the document to the LLM when an exercise is long enough to hold notes or theory")
+    void extract_fallsBack_onOverlongExercise() {
+        // ARRANGE
+        String sheet = "Exercise 1 Add 2 and 2.\nExercise 2 Read the following.\n" + "Some theory. ".repeat(200);
+
+        // ACT & ASSERT
+        assertTrue(extractor.extract(sheet).isEmpty());
+    }
+
+    @Test
+    @DisplayName("mayBeExerciseSheet() should only look for a marker at the start of a line")
+    void mayBeExerciseSheet_looksForLineStartMarker() {
+        assertTrue(extractor.mayBeExerciseSheet("Problem Sheet 1\n  Exercise 3. Add 2 and 2."));
+        assertFalse(extractor.mayBeExerciseSheet("Revise the notes, then see Exercise 2 in the book."));
+        assertFalse(new ExerciseExtractor(meterRegistry, false, 2, 1500, false).mayBeExerciseSheet("Exercise 1 Add 2 and 2."));
+    }
+
+    @Test
+    @DisplayName("mayBeExerciseSheet() should rule out text whose exercises so far wouldn't pass extract()")
+    void mayBeExerciseSheet_rulesOutUncleanStart() {
+        // The last exercise may still be arriving, so it may be empty for now
+        assertTrue(extractor.mayBeExerciseSheet("Exercise 1. Add 2 and 2.\nExercise 2."));
+        assertFalse(extractor.mayBeExerciseSheet("Exercise 1. Add 2 and 2.\nExercise 1. Add 3 and 3.\nExercise 2."));
+        assertFalse(extractor.mayBeExerciseSheet("Exercise 1. Read the notes first.\n" + "The theory goes on at length. ".repeat(100)));
+        assertEquals(0.0, meterRegistry.counter("taskpilot.extraction.exercises.local", "outcome", "fallback").count());
+    }
+
+    @Test
+    @DisplayName("extract() should do nothing when disabled or when there are no markers")
+    void extract_returnsEmpty_whenDisabledOrNoMarkers() {
+        ExerciseExtractor disabled = new ExerciseExtractor(meterRegistry, false, 2, 1500, false);
+
+        assertTrue(disabled.extract("Exercise 1 Add 2 and 2.\nExercise 2 Add 3 and 3.").isEmpty());
+        assertTrue(extractor.extract("Plan the sprint and write the release notes.").isEmpty());
+        assertEquals(0.0, meterRegistry.counter("taskpilot.extraction.exercises.local", "outcome", "fallback").count());
+    }
+
+    @Test
+    @DisplayName("extract() should split a 500-exercise sheet into one todo per exercise, in order")
+    void extract_handlesLargeSheet() {
+        // ARRANGE
+        StringBuilder sheet = new StringBuilder("Analysis Problem Book\n\n");
+        for (int i = 1; i <= 500; i++) {
+            sheet.append("Exercise ").append(i / 10 + 1).append('.').append(i % 10).append(' ')
+                    .append("Prove that the sequence a_n = 1/(n + ").append(i).append(") converges,\nand find its limit.\n\n");
+        }
+
+        // ACT
+        Optional<ExtractedTaskListDTO> result = extractor.extract(sheet.toString());
+
+        // ASSERT
+        List<String> todos = result.orElseThrow().todos();
+        assertEquals(500, todos.size());
+        assertTrue(todos.getFirst().startsWith("Exercise 1.1"), todos.getFirst());
+        assertTrue(todos.getLast().startsWith("Exercise 51.0") && todos.getLast().contains("a_n = 1/(n + 500)"), todos.getLast());
+    }
+}
@@ -0,0 +1,131 @@
+package com.taskpilot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtractionCoalescerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ExtractionCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new ExtractionCoalescer(meterRegistry);
+    }
+
+    @Test
+    @DisplayName("coalesce() should run the extraction once for concurrent callers with the same key")
+    void coalesce_sharesOneRun_forConcurrentCallers() throws Exception {
+        // ARRANGE
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExtractionCoalescer.Extraction<String> extraction = () -> {
+            runs.incrementAndGet();
+            leaderStarted.countDown();
+            awaitLatch(release);
+            return "result";
+        };
+
+        // ACT
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> call("doc", extraction));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> call("doc", extraction));
+        waitForFollower();
+        release.countDown();
+
+        // ASSERT
+        assertEquals("result", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("result", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+        assertEquals(1.0, meterRegistry.counter("taskpilot.extraction.coalesced").count());
+    }
+
+    @Test
+    @DisplayName("coalesce() should hand the leader's exception to callers that joined it")
+    void coalesce_sharesException_withJoinedCallers() throws Exception {
+        // ARRANGE
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExtractionCoalescer.Extraction<String> extraction = () -> {
+            leaderStarted.countDown();
+            awaitLatch(release);
+            throw new IOException("parse failed");
+        };
+
+        // ACT
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> call("doc", extraction));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> call("doc", extraction));
+        waitForFollower();
+        release.countDown();
+
+        // ASSERT
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException followerError = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, leaderError.getCause().getCause());
+        assertSame(leaderError.getCause().getCause(), followerError.getCause().getCause());
+    }
+
+    @Test
+    @DisplayName("coalesce() should start a fresh run once the previous one has finished")
+    void coalesce_runsAgain_afterPreviousRunFinished() throws Exception {
+        // ARRANGE
+        AtomicInteger runs = new AtomicInteger();
+
+        // ACT
+        coalescer.coalesce("doc", runs::incrementAndGet);
+        coalescer.coalesce("doc", runs::incrementAndGet);
+
+        // ASSERT
+        assertEquals(2, runs.get());
+        assertEquals(0.0, meterRegistry.counter("taskpilot.extraction.coalesced").count());
+    }
+
+    @Test
+    @DisplayName("coalesce() should not share runs between different keys")
+    void coalesce_doesNotShare_betweenKeys() throws Exception {
+        // ACT
+        String first = coalescer.coalesce("doc-a", () -> "a");
+        String second = coalescer.coalesce("doc-b", () -> "b");
+
+        // ASSERT
+        assertEquals("a", first);
+        assertEquals("b", second);
+    }
+
+    private String call(String key, ExtractionCoalescer.Extraction<String> extraction) {
+        try {
+            return coalescer.coalesce(key, extraction);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void waitForFollower() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.counter("taskpilot.extraction.coalesced").count() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void awaitLatch(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.taskpilot.service;
+
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+import com.taskpilot.dto.task.ExtractionJobDTO;
+import com.taskpilot.dto.task.TaskListDTO;
+import com.taskpilot.model.ExtractionJob;
+import com.taskpilot.model.User;
+import com.taskpilot.repository.ExtractionJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExtractionJobServiceTest {
+
+    private static final String WORKER = "host:worker-1";
+
+    @Mock
+    private ExtractionJobRepository extractionJobRepository;
+    @Mock
+    private TaskService taskService;
+
+    private ExtractionJobService extractionJobService;
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        extractionJobService = new ExtractionJobService(extractionJobRepository, taskService, 3, 60_000);
+        testUser = new User("user@example.com", "password");
+        testUser.setId(1L);
+    }
+
+    private ExtractionJob job(long id, ExtractionJob.Status status, int attempts, String lockedBy) {
+        ExtractionJob job = new ExtractionJob(testUser, "Document text", null);
+        job.setId(id);
+        job.setStatus(status);
+        job.setAttempts(attempts);
+        job.setLockedBy(lockedBy);
+        job.setCreatedAt(LocalDateTime.now());
+        return job;
+    }
+
+    @Test
+    @DisplayName("enqueue() should save a queued job for the user")
+    void enqueue_ShouldSaveQueuedJob() {
+        // ARRANGE
+        when(extractionJobRepository.save(any(ExtractionJob.class))).thenAnswer(invocation -> {
+            ExtractionJob saved = invocation.getArgument(0);
+            saved.setId(7L);
+            return saved;
+        });
+
+        // ACT
+        ExtractionJobDTO result = extractionJobService.enqueue(testUser, "Document text", "https://example.com/hook");
+
+        // ASSERT
+        assertEquals(7L, result.id());
+        assertEquals("QUEUED", result.status());
+        verify(extractionJobRepository).save(argThat(job ->
+                job.getUser() == testUser && "https://example.com/hook".equals(job.getCallbackUrl())));
+    }
+
+    @Test
+    @DisplayName("claim() should lease locked jobs to the worker and count the attempt")
+    void claim_ShouldLeaseJobsToWorker() {
+        // ARRANGE
+        ExtractionJob queued = job(1L, ExtractionJob.Status.QUEUED, 0, null);
+        ExtractionJob abandoned = job(2L, ExtractionJob.Status.RUNNING, 1, "dead-worker");
+        when(extractionJobRepository.lockClaimableJobs(any(LocalDateTime.class), eq(2))).thenReturn(List.of(queued, abandoned));
+
+        // ACT
+        List<ExtractionJob> claimed = extractionJobService.claim(WORKER, 2);
+
+        // ASSERT
+        assertEquals(List.of(queued, abandoned), claimed);
+        for (ExtractionJob job : claimed) {
+            assertEquals(ExtractionJob.Status.RUNNING, job.getStatus());
+            assertEquals(WORKER, job.getLockedBy());
+            assertTrue(job.getLeaseExpiresAt().isAfter(LocalDateTime.now()));
+        }
+        assertEquals(1, queued.getAttempts());
+        assertEquals(2, abandoned.getAttempts());
+    }
+
+    @Test
+    @DisplayName("claim() should fail a job that has used up its attempts instead of handing it out")
+    void claim_ShouldFailExhaustedJob() {
+        // ARRANGE
+        ExtractionJob exhausted = job(1L, ExtractionJob.Status.RUNNING, 3, "dead-worker");
+        when(extractionJobRepository.lockClaimableJobs(any(LocalDateTime.class), anyInt())).thenReturn(List.of(exhausted));
+
+        // ACT
+        List<ExtractionJob> claimed = extractionJobService.claim(WORKER, 4);
+
+        // ASSERT
+        assertTrue(claimed.isEmpty());
+        assertEquals(ExtractionJob.Status.FAILED, exhausted.getStatus());
+        assertNull(exhausted.getLockedBy());
+        assertNotNull(exhausted.getCompletedAt());
+    }
+
+    @Test
+    @DisplayName("complete() should save the extracted tasks and mark the job completed")
+    void complete_ShouldSaveTasksAndFinishJob() {
+        // ARRANGE
+        ExtractionJob running = job(1L, ExtractionJob.Status.RUNNING, 1, WORKER);
+        ExtractedTaskListDTO docData = new ExtractedTaskListDTO("Title", "Desc", List.of("Task 1"));
+        when(extractionJobRepository.findById(1L)).thenReturn(Optional.of(running));
+        when(taskService.createTaskList(docData, testUser))
+                .thenReturn(new TaskListDTO(50L, "Title", "Desc", List.of(), LocalDateTime.now(), LocalDateTime.now()));
+
+        // ACT
+        Optional<ExtractionJobDTO> result = extractionJobService.complete(1L, WORKER, docData);
+
+        // ASSERT
+        assertTrue(result.isPresent());
+        assertEquals("COMPLETED", result.get().status());
+        assertEquals(50L, result.get().taskListId());
+        assertNull(running.getLockedBy());
+        assertEquals("", running.getDocumentText());
+    }
+
+    @Test
+    @DisplayName("complete() should discard the result when another worker has taken the job over")
+    void complete_ShouldDiscardResult_WhenLeaseWasLost() {
+        // ARRANGE
+        ExtractionJob reclaimed = job(1L, ExtractionJob.Status.RUNNING, 2, "other-worker");
+        when(extractionJobRepository.findById(1L)).thenReturn(Optional.of(reclaimed));
+
+        // ACT
+        Optional<ExtractionJobDTO> result = extractionJobService.complete(1L, WORKER,
+                new ExtractedTaskListDTO("Title", "Desc", List.of("Task 1")));
+
+        // ASSERT
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(taskService);
+        assertEquals(ExtractionJob.Status.RUNNING, reclaimed.getStatus());
+    }
+
+    @Test
+    @DisplayName("fail() should queue the job again while it has attempts left")
+    void fail_ShouldRequeue_WhenAttemptsRemain() {
+        // ARRANGE
+        ExtractionJob running = job(1L, ExtractionJob.Status.RUNNING, 1, WORKER);
+        when(extractionJobRepository.findById(1L)).thenReturn(Optional.of(running));
+
+        // ACT
+        Optional<ExtractionJobDTO> result = extractionJobService.fail(1L, WORKER, "LLM timed out");
+
+        // ASSERT
+        assertTrue(result.isEmpty());
+        assertEquals(ExtractionJob.Status.QUEUED, running.getStatus());
+        assertNull(running.getLockedBy());
+        assertEquals("LLM timed out", running.getError());
+    }
+
+    @Test
+    @DisplayName("fail() should fail the job for good on its last attempt")
+    void fail_ShouldFinishJob_OnLastAttempt() {
+        // ARRANGE
+        ExtractionJob running = job(1L, ExtractionJob.Status.RUNNING, 3, WORKER);
+        when(extractionJobRepository.findById(1L)).thenReturn(Optional.of(running));
+
+        // ACT
+        Optional<ExtractionJobDTO> result = extractionJobService.fail(1L, WORKER, "LLM timed out");
+
+        // ASSERT
+        assertTrue(result.isPresent());
+        assertEquals("FAILED", result.get().status());
+        assertEquals("LLM timed out", result.get().error());
+        assertNotNull(result.get().completedAt());
+    }
+}
@@ -0,0 +1,135 @@
+package com.taskpilot.service;
+
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+import com.taskpilot.dto.task.ExtractionJobDTO;
+import com.taskpilot.exception.InvalidLLMResponseException;
+import com.taskpilot.model.ExtractionJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExtractionJobWorkerTest {
+
+    @Mock
+    private ExtractionJobService extractionJobService;
+    @Mock
+    private TaskRouterService taskRouterService;
+    @Mock
+    private RestTemplate restTemplate;
+
+    private ExtractionJobWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        worker = new ExtractionJobWorker(extractionJobService, taskRouterService, restTemplate, true, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdown();
+    }
+
+    @Test
+    @DisplayName("poll() should claim no more jobs than there are free slots and run each one")
+    void poll_ShouldClaimUpToFreeSlotsAndRunJobs() throws InvalidLLMResponseException {
+        // ARRANGE
+        ExtractionJob job = new ExtractionJob(null, "Document text", null);
+        job.setId(1L);
+        ExtractedTaskListDTO docData = new ExtractedTaskListDTO("Title", "Desc", List.of("Task 1"));
+        when(extractionJobService.claim(worker.getWorkerId(), 2)).thenReturn(List.of(job));
+        when(taskRouterService.processDocument("Document text")).thenReturn(docData);
+
+        // ACT
+        worker.poll();
+
+        // ASSERT
+        verify(extractionJobService, timeout(5000)).complete(1L, worker.getWorkerId(), docData);
+    }
+
+    @Test
+    @DisplayName("poll() should do nothing when the worker is disabled")
+    void poll_ShouldDoNothing_WhenDisabled() {
+        // ARRANGE
+        ExtractionJobWorker disabled = new ExtractionJobWorker(extractionJobService, taskRouterService, restTemplate, false, 2);
+
+        // ACT
+        disabled.poll();
+
+        // ASSERT
+        verify(extractionJobService, never()).claim(anyString(), anyInt());
+    }
+
+    @Test
+    @DisplayName("run() should POST the finished job to the callback URL")
+    void run_ShouldNotifyCallback_WhenJobCompletes() throws InvalidLLMResponseException {
+        // ARRANGE
+        ExtractedTaskListDTO docData = new ExtractedTaskListDTO("Title", "Desc", List.of("Task 1"));
+        ExtractionJobDTO finished = new ExtractionJobDTO(1L, "COMPLETED", 50L, null, LocalDateTime.now(), LocalDateTime.now());
+        when(taskRouterService.processDocument("Document text")).thenReturn(docData);
+        when(extractionJobService.complete(1L, worker.getWorkerId(), docData)).thenReturn(Optional.of(finished));
+
+        // ACT
+        worker.run(1L, "Document text", "https://example.com/hook");
+
+        // ASSERT
+        verify(restTemplate).postForEntity("https://example.com/hook", finished, Void.class);
+    }
+
+    @Test
+    @DisplayName("run() should record a failed attempt and not call back while the job will be retried")
+    void run_ShouldRecordFailure_WhenExtractionFails() throws InvalidLLMResponseException {
+        // ARRANGE
+        when(taskRouterService.processDocument("Document text")).thenThrow(new InvalidLLMResponseException("Bad response"));
+        when(extractionJobService.fail(1L, worker.getWorkerId(), "Bad response")).thenReturn(Optional.empty());
+
+        // ACT
+        worker.run(1L, "Document text", "https://example.com/hook");
+
+        // ASSERT
+        verify(extractionJobService, never()).complete(any(), any(), any());
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    @DisplayName("run() should keep the result when the callback cannot be delivered")
+    void run_ShouldIgnoreCallbackFailure() throws InvalidLLMResponseException {
+        // ARRANGE
+        ExtractedTaskListDTO docData = new ExtractedTaskListDTO("Title", "Desc", List.of("Task 1"));
+        ExtractionJobDTO finished = new ExtractionJobDTO(1L, "COMPLETED", 50L, null, LocalDateTime.now(), LocalDateTime.now());
+        when(taskRouterService.processDocument("Document text")).thenReturn(docData);
+        when(extractionJobService.complete(1L, worker.getWorkerId(), docData)).thenReturn(Optional.of(finished));
+        when(restTemplate.postForEntity(eq("https://example.com/hook"), any(), eq(Void.class)))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+
+        // ACT & ASSERT
+        assertDoesNotThrow(() -> worker.run(1L, "Document text", "https://example.com/hook"));
+    }
+
+    @Test
+    @DisplayName("shutdown() should hand the worker's jobs back to the queue")
+    void shutdown_ShouldReleaseJobs() {
+        // ACT
+        worker.shutdown();
+
+        // ASSERT
+        verify(extractionJobService, atLeastOnce()).releaseJobs(worker.getWorkerId());
+    }
+}
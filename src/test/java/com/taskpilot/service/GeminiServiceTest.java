@@ -2,21 +2,32 @@ package com.taskpilot.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
 import com.taskpilot.exception.InvalidLLMResponseException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.vertexai.gemini.VertexAiGeminiChatOptions;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,11 +43,13 @@ class GeminiServiceTest {
     private ObjectMapper objectMapper;
 
     private GeminiService geminiService;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
         when(chatClientBuilder.build()).thenReturn(chatClient);
-        geminiService = new GeminiService(chatClientBuilder, objectMapper);
+        meterRegistry = new SimpleMeterRegistry();
+        geminiService = new GeminiService(chatClientBuilder, objectMapper, meterRegistry, true);
     }
 
     // A simple DTO for testing deserialization
@@ -56,6 +69,7 @@ class GeminiServiceTest {
         ChatClient.CallResponseSpec mockResponse = mock(ChatClient.CallResponseSpec.class);
 
         when(chatClient.prompt()).thenReturn(mockRequest);
+        when(mockRequest.options(any())).thenReturn(mockRequest);
         when(mockRequest.user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())).thenReturn(mockRequest);
         when(mockRequest.call()).thenReturn(mockResponse);
         when(mockResponse.content()).thenReturn(jsonResponse);
@@ -82,6 +96,7 @@ class GeminiServiceTest {
         ChatClient.CallResponseSpec mockResponse = mock(ChatClient.CallResponseSpec.class);
 
         when(chatClient.prompt()).thenReturn(mockRequest);
+        when(mockRequest.options(any())).thenReturn(mockRequest);
         when(mockRequest.user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())).thenReturn(mockRequest);
         when(mockRequest.call()).thenReturn(mockResponse);
         when(mockResponse.content()).thenReturn(rawResponse);
@@ -108,6 +123,7 @@ class GeminiServiceTest {
         ChatClient.CallResponseSpec mockResponse = mock(ChatClient.CallResponseSpec.class);
 
         when(chatClient.prompt()).thenReturn(mockRequest);
+        when(mockRequest.options(any())).thenReturn(mockRequest);
         when(mockRequest.user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())).thenReturn(mockRequest);
         when(mockRequest.call()).thenReturn(mockResponse);
         when(mockResponse.content()).thenReturn(rawResponse);
@@ -130,6 +146,7 @@ class GeminiServiceTest {
         ChatClient.CallResponseSpec mockResponse = mock(ChatClient.CallResponseSpec.class);
 
         when(chatClient.prompt()).thenReturn(mockRequest);
+        when(mockRequest.options(any())).thenReturn(mockRequest);
         when(mockRequest.user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())).thenReturn(mockRequest);
         when(mockRequest.call()).thenReturn(mockResponse);
         when(mockResponse.content()).thenReturn(null);
@@ -148,6 +165,7 @@ class GeminiServiceTest {
         ChatClient.CallResponseSpec mockResponse = mock(ChatClient.CallResponseSpec.class);
 
         when(chatClient.prompt()).thenReturn(mockRequest);
+        when(mockRequest.options(any())).thenReturn(mockRequest);
         when(mockRequest.user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())).thenReturn(mockRequest);
         when(mockRequest.call()).thenReturn(mockResponse);
         when(mockResponse.content()).thenReturn("   ");
@@ -161,12 +179,13 @@ class GeminiServiceTest {
     void executePrompt_shouldThrowInvalidLLMResponseException_whenParsingFails() throws JsonProcessingException {
         // Arrange
         String prompt = "test prompt";
-        String malformedJsonResponse = "{\"field\":\"value\""; // Malformed JSON
+        String malformedJsonResponse = "{\"field\": oops}"; // Malformed JSON that can't be repaired
 
         ChatClient.ChatClientRequestSpec mockRequest = mock(ChatClient.ChatClientRequestSpec.class);
         ChatClient.CallResponseSpec mockResponse = mock(ChatClient.CallResponseSpec.class);
 
         when(chatClient.prompt()).thenReturn(mockRequest);
+        when(mockRequest.options(any())).thenReturn(mockRequest);
         when(mockRequest.user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())).thenReturn(mockRequest);
         when(mockRequest.call()).thenReturn(mockResponse);
         when(mockResponse.content()).thenReturn(malformedJsonResponse);
@@ -178,5 +197,195 @@ class GeminiServiceTest {
         InvalidLLMResponseException exception = assertThrows(InvalidLLMResponseException.class, () -> geminiService.executePrompt(prompt, TestResponse.class));
         assertThat(exception.getMessage()).isEqualTo("Failed to parse API response content");
         assertThat(exception.getCause()).isEqualTo(cause);
+        assertThat(meterRegistry.counter("taskpilot.llm.responses", "provider", "gemini", "outcome", "invalid").count()).isEqualTo(1.0);
     }
-}
\ No newline at end of file
+
+    @Test
+    void executePromptReactive_shouldJoinStreamedContentAndDeserialize() throws Exception {
+        // Arrange
+        String prompt = "test prompt";
+        String cleanedResponse = "{\"field\":\"value\"}";
+        TestResponse expectedResponse = new TestResponse();
+        expectedResponse.field = "value";
+
+        ChatClient.ChatClientRequestSpec mockRequest = mock(ChatClient.ChatClientRequestSpec.class);
+        ChatClient.StreamResponseSpec mockStream = mock(ChatClient.StreamResponseSpec.class);
+
+        when(chatClient.prompt()).thenReturn(mockRequest);
+        when(mockRequest.options(any())).thenReturn(mockRequest);
+        when(mockRequest.user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())).thenReturn(mockRequest);
+        when(mockRequest.stream()).thenReturn(mockStream);
+        when(mockStream.content()).thenReturn(Flux.just("```json\n{\"field\":", "\"value\"}", "\n```"));
+        when(objectMapper.readValue(eq(cleanedResponse), eq(TestResponse.class))).thenReturn(expectedResponse);
+
+        // Act & Assert
+        StepVerifier.create(geminiService.executePromptReactive(prompt, TestResponse.class))
+                .assertNext(actualResponse -> assertThat(actualResponse.field).isEqualTo("value"))
+                .verifyComplete();
+    }
+
+    @Test
+    void executePromptReactive_shouldFailWithInvalidLLMResponseException_whenStreamIsEmpty() {
+        // Arrange
+        ChatClient.ChatClientRequestSpec mockRequest = mock(ChatClient.ChatClientRequestSpec.class);
+        ChatClient.StreamResponseSpec mockStream = mock(ChatClient.StreamResponseSpec.class);
+
+        when(chatClient.prompt()).thenReturn(mockRequest);
+        when(mockRequest.options(any())).thenReturn(mockRequest);
+        when(mockRequest.user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())).thenReturn(mockRequest);
+        when(mockRequest.stream()).thenReturn(mockStream);
+        when(mockStream.content()).thenReturn(Flux.empty());
+
+        // Act & Assert
+        StepVerifier.create(geminiService.executePromptReactive("test prompt", TestResponse.class))
+                .expectErrorSatisfies(error -> {
+                    assertThat(error).isInstanceOf(InvalidLLMResponseException.class);
+                    assertThat(error.getMessage()).isEqualTo("Received empty response from the Gemini.");
+                })
+                .verify();
+    }
+
+    @Test
+    void streamPrompt_shouldPassThroughStreamedContent() {
+        // Arrange
+        ChatClient.ChatClientRequestSpec mockRequest = mock(ChatClient.ChatClientRequestSpec.class);
+        ChatClient.StreamResponseSpec mockStream = mock(ChatClient.StreamResponseSpec.class);
+
+        when(chatClient.prompt()).thenReturn(mockRequest);
+        when(mockRequest.options(any())).thenReturn(mockRequest);
+        when(mockRequest.user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())).thenReturn(mockRequest);
+        when(mockRequest.stream()).thenReturn(mockStream);
+        when(mockStream.content()).thenReturn(Flux.just("{\"todos\":", "[]}"));
+
+        // Act & Assert
+        StepVerifier.create(geminiService.streamPrompt("test prompt"))
+                .expectNext("{\"todos\":", "[]}")
+                .verifyComplete();
+    }
+
+    @Test
+    void executePrompt_shouldRequestJsonModeAndNameTheFields_whenResponseIsStructured() throws Exception {
+        // Arrange
+        ChatClient.ChatClientRequestSpec mockRequest = mock(ChatClient.ChatClientRequestSpec.class);
+        ChatClient.CallResponseSpec mockResponse = mock(ChatClient.CallResponseSpec.class);
+        ChatClient.PromptUserSpec userSpec = mock(ChatClient.PromptUserSpec.class);
+        ArgumentCaptor<ChatOptions> options = ArgumentCaptor.forClass(ChatOptions.class);
+        ArgumentCaptor<Consumer<ChatClient.PromptUserSpec>> user = ArgumentCaptor.captor();
+
+        when(chatClient.prompt()).thenReturn(mockRequest);
+        when(mockRequest.options(options.capture())).thenReturn(mockRequest);
+        when(mockRequest.user(user.capture())).thenReturn(mockRequest);
+        when(mockRequest.call()).thenReturn(mockResponse);
+        when(mockResponse.content()).thenReturn("{\"field\":\"value\"}");
+        when(objectMapper.readValue(eq("{\"field\":\"value\"}"), eq(TestResponse.class))).thenReturn(new TestResponse());
+
+        // Act
+        geminiService.executePrompt("test prompt", TestResponse.class);
+
+        // Assert
+        assertThat(((VertexAiGeminiChatOptions) options.getValue()).getResponseMimeType()).isEqualTo("application/json");
+        user.getValue().accept(userSpec);
+        ArgumentCaptor<String> text = ArgumentCaptor.forClass(String.class);
+        verify(userSpec).text(text.capture());
+        assertThat(text.getValue()).startsWith("test prompt").endsWith("with the fields field.").doesNotContain("\"type\"");
+        assertThat(meterRegistry.counter("taskpilot.llm.responses", "provider", "gemini", "outcome", "parsed").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.summary("taskpilot.llm.prompt.tokens", "provider", "gemini").count()).isEqualTo(1);
+    }
+
+    @Test
+    void executePrompt_shouldSendPlainPrompt_whenResponseIsText() throws Exception {
+        // Arrange
+        ChatClient.ChatClientRequestSpec mockRequest = mock(ChatClient.ChatClientRequestSpec.class);
+        ChatClient.CallResponseSpec mockResponse = mock(ChatClient.CallResponseSpec.class);
+
+        when(chatClient.prompt()).thenReturn(mockRequest);
+        when(mockRequest.user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())).thenReturn(mockRequest);
+        when(mockRequest.call()).thenReturn(mockResponse);
+        when(mockResponse.content()).thenReturn("\"A summary\"");
+        when(objectMapper.readValue("\"A summary\"", String.class)).thenReturn("A summary");
+
+        // Act
+        String summary = geminiService.executePrompt("Summarise", String.class);
+
+        // Assert
+        assertThat(summary).isEqualTo("A summary");
+        verify(mockRequest, never()).options(any());
+    }
+
+    @Test
+    void executePrompt_shouldRepairTruncatedResponse() throws Exception {
+        // Arrange
+        ChatClient.ChatClientRequestSpec mockRequest = mock(ChatClient.ChatClientRequestSpec.class);
+        ChatClient.CallResponseSpec mockResponse = mock(ChatClient.CallResponseSpec.class);
+        TestResponse expectedResponse = new TestResponse();
+        expectedResponse.field = "val";
+
+        when(chatClient.prompt()).thenReturn(mockRequest);
+        when(mockRequest.options(any())).thenReturn(mockRequest);
+        when(mockRequest.user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())).thenReturn(mockRequest);
+        when(mockRequest.call()).thenReturn(mockResponse);
+        when(mockResponse.content()).thenReturn("Here you go:\n```json\n{\"field\":\"val");
+        when(objectMapper.readValue(eq("{\"field\":\"val\"}"), eq(TestResponse.class))).thenReturn(expectedResponse);
+
+        // Act
+        TestResponse actualResponse = geminiService.executePrompt("test prompt", TestResponse.class);
+
+        // Assert
+        assertThat(actualResponse.field).isEqualTo("val");
+        assertThat(meterRegistry.counter("taskpilot.llm.responses", "provider", "gemini", "outcome", "repaired").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void executePrompt_shouldMarkRepairedTaskListPartial() throws Exception {
+        // Arrange
+        ChatClient.ChatClientRequestSpec mockRequest = mock(ChatClient.ChatClientRequestSpec.class);
+        ChatClient.CallResponseSpec mockResponse = mock(ChatClient.CallResponseSpec.class);
+
+        when(chatClient.prompt()).thenReturn(mockRequest);
+        when(mockRequest.options(any())).thenReturn(mockRequest);
+        when(mockRequest.user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())).thenReturn(mockRequest);
+        when(mockRequest.call()).thenReturn(mockResponse);
+        when(mockResponse.content()).thenReturn("{\"title\":\"T\",\"todos\":[\"One\",\"Tw");
+        when(objectMapper.readValue(any(String.class), eq(ExtractedTaskListDTO.class)))
+                .thenReturn(new ExtractedTaskListDTO("T", null, List.of("One", "Tw")));
+
+        // Act
+        ExtractedTaskListDTO actualResponse = geminiService.executePrompt("test prompt", ExtractedTaskListDTO.class);
+
+        // Assert
+        assertThat(actualResponse.partial()).isTrue();
+        assertThat(actualResponse.todos()).containsExactly("One", "Tw");
+    }
+
+    @Test
+    void executePrompt_shouldThrowInvalidLLMResponseException_whenThereIsNoJsonObject() {
+        // Arrange
+        ChatClient.ChatClientRequestSpec mockRequest = mock(ChatClient.ChatClientRequestSpec.class);
+        ChatClient.CallResponseSpec mockResponse = mock(ChatClient.CallResponseSpec.class);
+
+        when(chatClient.prompt()).thenReturn(mockRequest);
+        when(mockRequest.options(any())).thenReturn(mockRequest);
+        when(mockRequest.user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())).thenReturn(mockRequest);
+        when(mockRequest.call()).thenReturn(mockResponse);
+        when(mockResponse.content()).thenReturn("I could not find any tasks in this document.");
+
+        // Act & Assert
+        InvalidLLMResponseException exception = assertThrows(InvalidLLMResponseException.class, () -> geminiService.executePrompt("test prompt", TestResponse.class));
+        assertThat(exception.getMessage()).isEqualTo("Failed to parse API response content");
+    }
+
+    @Test
+    void executePrompt_shouldReturnPlainTextAsIs_whenResponseTypeIsText() throws Exception {
+        // Arrange
+        ChatClient.ChatClientRequestSpec mockRequest = mock(ChatClient.ChatClientRequestSpec.class);
+        ChatClient.CallResponseSpec mockResponse = mock(ChatClient.CallResponseSpec.class);
+
+        when(chatClient.prompt()).thenReturn(mockRequest);
+        when(mockRequest.user(ArgumentMatchers.<Consumer<ChatClient.PromptUserSpec>>any())).thenReturn(mockRequest);
+        when(mockRequest.call()).thenReturn(mockResponse);
+        when(mockResponse.content()).thenReturn("```\nA sheet of calculus exercises.\n```");
+
+        // Act & Assert
+        assertThat(geminiService.executePrompt("Summarise", String.class)).isEqualTo("A sheet of calculus exercises.");
+    }
+}
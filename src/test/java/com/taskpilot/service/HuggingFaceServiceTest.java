@@ -0,0 +1,248 @@
+package com.taskpilot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskpilot.client.HuggingFaceClient;
+import com.taskpilot.config.HuggingFaceApiConfig;
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+import com.taskpilot.exception.InvalidLLMResponseException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HuggingFaceServiceTest {
+
+    private static final String TASK_LIST_JSON = "{\"title\":\"Title\",\"description\":\"Description\",\"todos\":[\"Task 1\"]}";
+
+    private MockWebServer server;
+    private HuggingFaceService huggingFaceService;
+    private SimpleMeterRegistry meterRegistry;
+    private HuggingFaceClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        String baseUrl = "http://" + server.getHostName() + ":" + server.getPort();
+        meterRegistry = new SimpleMeterRegistry();
+        client = new HuggingFaceClient(WebClient.builder(), new HuggingFaceApiConfig(baseUrl, "test-token"));
+        huggingFaceService = new HuggingFaceService(client, new ObjectMapper(), meterRegistry, true);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    @DisplayName("executePromptReactive() should deserialize the message content once the response arrives")
+    void executePromptReactive_ShouldDeserializeResponse() throws InterruptedException {
+        // ARRANGE
+        server.enqueue(chatCompletion("```json\n" + TASK_LIST_JSON + "\n```"));
+
+        // ACT & ASSERT
+        StepVerifier.create(huggingFaceService.executePromptReactive("Extract the tasks", ExtractedTaskListDTO.class))
+                .assertNext(result -> {
+                    assertEquals("Title", result.title());
+                    assertEquals(List.of("Task 1"), result.todos());
+                })
+                .verifyComplete();
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/v1/chat/completions", request.getPath());
+        assertEquals("Bearer test-token", request.getHeader("Authorization"));
+        assertTrue(request.getBody().readUtf8().contains("Extract the tasks"));
+    }
+
+    @Test
+    @DisplayName("executePromptReactive() should fail with InvalidLLMResponseException when there are no choices or the content isn't JSON")
+    void executePromptReactive_ShouldFailOnUnusableResponse() {
+        server.enqueue(new MockResponse().setHeader("Content-Type", "application/json").setBody("{\"choices\":[]}"));
+        server.enqueue(chatCompletion("not json"));
+
+        StepVerifier.create(huggingFaceService.executePromptReactive("prompt", ExtractedTaskListDTO.class))
+                .expectErrorSatisfies(error -> {
+                    assertInstanceOf(InvalidLLMResponseException.class, error);
+                    assertEquals("API returned an empty or malformed response.", error.getMessage());
+                })
+                .verify();
+        StepVerifier.create(huggingFaceService.executePromptReactive("prompt", ExtractedTaskListDTO.class))
+                .expectError(InvalidLLMResponseException.class)
+                .verify();
+        assertEquals(2.0, meterRegistry.counter("taskpilot.llm.responses", "provider", "huggingface", "outcome", "invalid").count());
+    }
+
+    @Test
+    @DisplayName("executePrompt() should ask for a strict JSON schema generated from the response type instead of putting it in the prompt")
+    void executePrompt_ShouldRequestJsonSchema() throws Exception {
+        // ARRANGE
+        server.enqueue(chatCompletion(TASK_LIST_JSON));
+
+        // ACT
+        huggingFaceService.executePrompt("Extract the tasks", ExtractedTaskListDTO.class);
+
+        // ASSERT
+        JsonNode body = new ObjectMapper().readTree(server.takeRequest().getBody().readUtf8());
+        JsonNode format = body.get("response_format");
+        assertEquals("json_schema", format.get("type").asText());
+        assertTrue(format.get("json_schema").get("strict").asBoolean());
+        assertTrue(format.get("json_schema").get("schema").get("properties").has("todos"));
+        assertFalse(format.get("json_schema").get("schema").get("properties").has("partial"));
+        // Strict mode needs every property listed as required, and no others allowed
+        JsonNode schema = format.get("json_schema").get("schema");
+        assertEquals(Set.of("title", "description", "todos"), Set.copyOf(new ObjectMapper().convertValue(schema.get("required"), List.class)));
+        assertFalse(schema.get("additionalProperties").asBoolean());
+        assertEquals("Extract the tasks", body.get("messages").get(0).get("content").asText());
+        assertEquals(1.0, meterRegistry.counter("taskpilot.llm.responses", "provider", "huggingface", "outcome", "parsed").count());
+    }
+
+    @Test
+    @DisplayName("executePrompt() should put the schema in the prompt when structured output is off, and send text prompts as they are")
+    void executePrompt_ShouldFallBackToSchemaInPrompt_WhenStructuredOutputIsOff() throws Exception {
+        // ARRANGE
+        HuggingFaceService unstructured = new HuggingFaceService(client, new ObjectMapper(), meterRegistry, false);
+        server.enqueue(chatCompletion(TASK_LIST_JSON));
+        server.enqueue(chatCompletion("\"A summary\""));
+
+        // ACT
+        unstructured.executePrompt("Extract the tasks", ExtractedTaskListDTO.class);
+        String summary = huggingFaceService.executePrompt("Summarise", String.class);
+
+        // ASSERT
+        JsonNode structured = new ObjectMapper().readTree(server.takeRequest().getBody().readUtf8());
+        assertFalse(structured.has("response_format"));
+        assertTrue(structured.get("messages").get(0).get("content").asText().contains("\"todos\""));
+        JsonNode text = new ObjectMapper().readTree(server.takeRequest().getBody().readUtf8());
+        assertFalse(text.has("response_format"));
+        assertEquals("Summarise", text.get("messages").get(0).get("content").asText());
+        assertEquals("A summary", summary);
+    }
+
+    @Test
+    @DisplayName("executePrompt() should still return the deserialized response synchronously")
+    void executePrompt_ShouldDeserializeResponse() throws InvalidLLMResponseException {
+        server.enqueue(chatCompletion(TASK_LIST_JSON));
+
+        ExtractedTaskListDTO result = huggingFaceService.executePrompt("prompt", ExtractedTaskListDTO.class);
+
+        assertEquals("Description", result.description());
+    }
+
+    @Test
+    @DisplayName("streamPrompt() should request a stream and emit each content delta until the end marker")
+    void streamPrompt_ShouldEmitContentDeltas() throws InterruptedException {
+        // ARRANGE
+        String body = streamEvent("{\"id\":\"1\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"\"}}]}")
+                + streamEvent(contentChunk("{\\\"todos\\\":["))
+                + streamEvent(contentChunk("\\\"Task 1\\\"]}"))
+                + streamEvent("[DONE]");
+        server.enqueue(new MockResponse().setHeader("Content-Type", "text/event-stream").setBody(body));
+
+        // ACT & ASSERT
+        StepVerifier.create(huggingFaceService.streamPrompt("Extract the tasks"))
+                .expectNext("{\"todos\":[")
+                .expectNext("\"Task 1\"]}")
+                .verifyComplete();
+        String request = server.takeRequest().getBody().readUtf8();
+        assertTrue(request.contains("\"stream\":true"));
+        assertTrue(request.contains("\"response_format\":{\"type\":\"json_object\"}"));
+    }
+
+    @Test
+    @DisplayName("Load test: reactive calls should have more requests in flight than a blocking pool and never hold a thread per call")
+    void executePromptReactive_ShouldUseFewerThreadsAndKeepMoreCallsInFlightThanBlockingCalls() throws Exception {
+        // ARRANGE: every response takes 200 ms, and the server records how many requests it is serving at once
+        int prompts = 100;
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(200);
+                    return chatCompletion(TASK_LIST_JSON);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        });
+
+        // ACT: the blocking contract needs a thread per call in flight, as the old ten-thread pool did
+        Set<String> blockingThreads = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<ExtractedTaskListDTO>> futures = IntStream.range(0, prompts)
+                    .mapToObj(i -> pool.submit(() -> {
+                        blockingThreads.add(Thread.currentThread().getName());
+                        return huggingFaceService.executePrompt("prompt " + i, ExtractedTaskListDTO.class);
+                    }))
+                    .toList();
+            for (Future<ExtractedTaskListDTO> future : futures) {
+                assertNotNull(future.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        int blockingMaxInFlight = maxInFlight.getAndSet(0);
+
+        // The reactive contract keeps every call in flight on the client's event loop threads
+        Set<String> reactiveThreads = ConcurrentHashMap.newKeySet();
+        List<ExtractedTaskListDTO> results = Flux.range(0, prompts)
+                .flatMap(i -> huggingFaceService.executePromptReactive("prompt " + i, ExtractedTaskListDTO.class)
+                        .doOnNext(result -> reactiveThreads.add(Thread.currentThread().getName())), prompts)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        int reactiveMaxInFlight = maxInFlight.get();
+
+        // ASSERT: ten blocked threads can only have ten requests in flight, while the reactive calls go past that
+        // (up to the client's connection pool) on a handful of event loops
+        assertEquals(prompts, results.size());
+        assertEquals(10, blockingThreads.size());
+        assertTrue(blockingMaxInFlight <= 10, "blocking calls had " + blockingMaxInFlight + " requests in flight");
+        assertTrue(reactiveMaxInFlight > 10, "reactive calls had " + reactiveMaxInFlight + " requests in flight");
+        int eventLoops = Math.max(Runtime.getRuntime().availableProcessors(), 4);
+        assertTrue(reactiveThreads.size() <= eventLoops, "Reactive responses were handled on " + reactiveThreads);
+        assertTrue(reactiveThreads.stream().allMatch(name -> name.startsWith("reactor-http")), "Reactive responses were handled on " + reactiveThreads);
+    }
+
+    private static String streamEvent(String data) {
+        return "data: " + data + "\n\n";
+    }
+
+    private static String contentChunk(String escapedContent) {
+        return "{\"id\":\"1\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + escapedContent + "\"},\"finish_reason\":null}]}";
+    }
+
+    private static MockResponse chatCompletion(String content) {
+        String escaped = content.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        String body = """
+                {"id":"1","object":"chat.completion","created":0,"model":"test",
+                 "choices":[{"index":0,"message":{"role":"assistant","content":"%s"},"finish_reason":"stop"}]}
+                """.formatted(escaped);
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+}
@@ -0,0 +1,126 @@
+package com.taskpilot.service;
+
+import com.taskpilot.exception.IdempotencyKeyReuseException;
+import com.taskpilot.exception.InvalidLLMResponseException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+    private static final String OWNER = IdempotencyStore.scope(1L, "/api/v1/tasks/process");
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        store = new IdempotencyStore(meterRegistry, 60, 100);
+    }
+
+    @Test
+    @DisplayName("execute() should replay the stored outcome for a repeated key")
+    void execute_replaysOutcome_forRepeatedKey() throws Exception {
+        // ARRANGE
+        AtomicInteger runs = new AtomicInteger();
+
+        // ACT
+        IdempotencyStore.Outcome<Integer> first = store.execute(OWNER, "key-1", "doc", runs::incrementAndGet);
+        IdempotencyStore.Outcome<Integer> second = store.execute(OWNER, "key-1", "doc", runs::incrementAndGet);
+
+        // ASSERT
+        assertFalse(first.replayed());
+        assertTrue(second.replayed());
+        assertEquals(1, second.value());
+        assertEquals(1, runs.get());
+        assertEquals(1.0, meterRegistry.counter("taskpilot.tasks.idempotent.replays").count());
+    }
+
+    @Test
+    @DisplayName("execute() should reject a key reused for a different request")
+    void execute_throws_whenKeyReusedWithDifferentFingerprint() throws Exception {
+        // ARRANGE
+        store.execute(OWNER, "key-1", "doc-a", () -> "a");
+
+        // ACT & ASSERT
+        assertThrows(IdempotencyKeyReuseException.class, () -> store.execute(OWNER, "key-1", "doc-b", () -> "b"));
+    }
+
+    @Test
+    @DisplayName("execute() should forget a request that failed so it can be retried")
+    void execute_forgetsFailedRequest() throws Exception {
+        // ARRANGE
+        assertThrows(IOException.class, () -> store.execute(OWNER, "key-1", "doc", () -> {
+            throw new IOException("parse failed");
+        }));
+
+        // ACT
+        IdempotencyStore.Outcome<String> retry = store.execute(OWNER, "key-1", "doc", () -> "ok");
+
+        // ASSERT
+        assertFalse(retry.replayed());
+        assertEquals("ok", retry.value());
+    }
+
+    @Test
+    @DisplayName("hasCompleted() should only report keys seen for the same user and endpoint")
+    void hasCompleted_isScopedToOwner() throws Exception {
+        // ARRANGE
+        store.execute(OWNER, "key-1", "doc", () -> "a");
+
+        // ACT & ASSERT
+        assertTrue(store.hasCompleted(OWNER, "key-1"));
+        assertFalse(store.hasCompleted(IdempotencyStore.scope(2L, "/api/v1/tasks/process"), "key-1"));
+        assertFalse(store.hasCompleted(IdempotencyStore.scope(1L, "/api/v1/tasks/process/stream"), "key-1"));
+        assertFalse(store.hasCompleted(OWNER, "key-2"));
+    }
+
+    @Test
+    @DisplayName("hasCompleted() should not report a request that is still running or that failed")
+    void hasCompleted_isFalse_whileRunningOrAfterFailure() throws Exception {
+        // ARRANGE
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> running = CompletableFuture.runAsync(() -> {
+            try {
+                store.execute(OWNER, "key-1", "doc", () -> {
+                    started.countDown();
+                    awaitQuietly(release);
+                    return "ok";
+                });
+            } catch (IOException | InvalidLLMResponseException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        started.await();
+
+        // ACT & ASSERT
+        assertFalse(store.hasCompleted(OWNER, "key-1"));
+        release.countDown();
+        running.join();
+        assertTrue(store.hasCompleted(OWNER, "key-1"));
+
+        assertThrows(IOException.class, () -> store.execute(OWNER, "key-2", "doc", () -> {
+            throw new IOException("parse failed");
+        }));
+        assertFalse(store.hasCompleted(OWNER, "key-2"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
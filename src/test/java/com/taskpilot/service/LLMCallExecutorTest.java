@@ -0,0 +1,184 @@
+package com.taskpilot.service;
+
+import com.taskpilot.config.LLMConcurrencyConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LLMCallExecutorTest {
+
+    private static final long LLM_LATENCY_MS = 50;
+
+    private final List<ExecutorService> executors = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        executors.forEach(ExecutorService::shutdownNow);
+    }
+
+    @Test
+    @DisplayName("submit() should never run more calls at once than the provider's bulkhead allows")
+    void submit_ShouldBoundCallsPerProvider() {
+        // ARRANGE
+        LLMCallExecutor llmCallExecutor = newExecutor(Executors.newVirtualThreadPerTaskExecutor(), new LLMConcurrencyConfig(16, Map.of("gemini", 3), 100));
+        SlowLLM gemini = new SlowLLM();
+        SlowLLM huggingFace = new SlowLLM();
+
+        // ACT
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        Semaphore requestBulkhead = llmCallExecutor.newRequestBulkhead();
+        for (int i = 0; i < 20; i++) {
+            futures.add(llmCallExecutor.submit("gemini", requestBulkhead, gemini::call));
+            futures.add(llmCallExecutor.submit("huggingface", requestBulkhead, huggingFace::call));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        // ASSERT: the limits are independent, so the provider without an entry gets the default
+        assertEquals(3, gemini.maxInFlight.get());
+        assertTrue(huggingFace.maxInFlight.get() > 3);
+        assertTrue(huggingFace.maxInFlight.get() <= 16);
+    }
+
+    @Test
+    @DisplayName("submit() should never run more calls at once for one request than the request's bulkhead allows")
+    void submit_ShouldBoundCallsPerRequest() {
+        // ARRANGE
+        LLMCallExecutor llmCallExecutor = newExecutor(Executors.newVirtualThreadPerTaskExecutor(), new LLMConcurrencyConfig(64, Map.of(), 2));
+        SlowLLM firstDocument = new SlowLLM();
+        SlowLLM secondDocument = new SlowLLM();
+        Semaphore firstRequest = llmCallExecutor.newRequestBulkhead();
+        Semaphore secondRequest = llmCallExecutor.newRequestBulkhead();
+
+        // ACT
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(llmCallExecutor.submit("gemini", firstRequest, firstDocument::call));
+            futures.add(llmCallExecutor.submit("gemini", secondRequest, secondDocument::call));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        // ASSERT
+        assertEquals(2, firstDocument.maxInFlight.get());
+        assertEquals(2, secondDocument.maxInFlight.get());
+    }
+
+    @Test
+    @DisplayName("call() should run on the calling thread and release its permit when the call fails")
+    void call_ShouldReleasePermitOnFailure() {
+        LLMCallExecutor llmCallExecutor = newExecutor(Executors.newVirtualThreadPerTaskExecutor(), new LLMConcurrencyConfig(1, Map.of(), 1));
+        Thread caller = Thread.currentThread();
+
+        assertThrows(IllegalStateException.class, () -> llmCallExecutor.call("gemini", () -> {
+            throw new IllegalStateException("LLM error");
+        }));
+        String result = assertDoesNotThrow(() -> llmCallExecutor.call("gemini", () -> {
+            assertSame(caller, Thread.currentThread());
+            return "ok";
+        }));
+
+        assertEquals("ok", result);
+    }
+
+    @Test
+    @DisplayName("Load test: many users behind a slow LLM should run more calls at once than a shared fixed pool, within the bulkheads")
+    void submit_ShouldRunMoreCallsAtOnceThanSharedFixedPoolUnderLoad() throws Exception {
+        // ARRANGE: 40 users each send a 5-chunk document to an LLM that takes 50 ms per call
+        int users = 40;
+        int chunksPerDocument = 5;
+        LLMConcurrencyConfig config = new LLMConcurrencyConfig(64, Map.of(), 4);
+
+        // ACT: the old setup, where every request shared ten platform threads with no other limit, then the new one
+        LoadResult fixedPool = runLoad(newExecutor(Executors.newFixedThreadPool(10), new LLMConcurrencyConfig(Integer.MAX_VALUE, Map.of(), Integer.MAX_VALUE)),
+                users, chunksPerDocument);
+        LoadResult virtualThreads = runLoad(newExecutor(Executors.newVirtualThreadPerTaskExecutor(), config), users, chunksPerDocument);
+
+        // ASSERT: the fixed pool never gets past its ten threads
+        assertTrue(fixedPool.threads().size() <= 10, "fixed pool used " + fixedPool.threads().size() + " threads");
+        assertTrue(fixedPool.maxInFlight() <= 10, "fixed pool ran " + fixedPool.maxInFlight() + " calls at once");
+        // Virtual threads go past ten calls at once, up to the provider's 64, with no document over its four
+        assertTrue(virtualThreads.threads().stream().allMatch(Thread::isVirtual));
+        assertTrue(virtualThreads.maxInFlight() > 10, "virtual threads ran " + virtualThreads.maxInFlight() + " calls at once");
+        assertTrue(virtualThreads.maxInFlight() <= 64, "virtual threads ran " + virtualThreads.maxInFlight() + " calls at once");
+        assertTrue(virtualThreads.maxInFlightPerDocument() <= 4,
+                "a document ran " + virtualThreads.maxInFlightPerDocument() + " calls at once");
+    }
+
+    private LoadResult runLoad(LLMCallExecutor llmCallExecutor, int users, int chunksPerDocument) throws Exception {
+        SlowLLM llm = new SlowLLM();
+        AtomicInteger maxInFlightPerDocument = new AtomicInteger();
+
+        try (ExecutorService userThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<Void>> documents = new ArrayList<>();
+            for (int user = 0; user < users; user++) {
+                documents.add(CompletableFuture.runAsync(() -> {
+                    Semaphore requestBulkhead = llmCallExecutor.newRequestBulkhead();
+                    AtomicInteger documentInFlight = new AtomicInteger();
+                    List<CompletableFuture<String>> chunks = new ArrayList<>();
+                    for (int chunk = 0; chunk < chunksPerDocument; chunk++) {
+                        chunks.add(llmCallExecutor.submit("gemini", requestBulkhead, () -> {
+                            maxInFlightPerDocument.accumulateAndGet(documentInFlight.incrementAndGet(), Math::max);
+                            try {
+                                return llm.call();
+                            } finally {
+                                documentInFlight.decrementAndGet();
+                            }
+                        }));
+                    }
+                    chunks.forEach(CompletableFuture::join);
+                }, userThreads));
+            }
+            for (CompletableFuture<Void> document : documents) {
+                document.get(30, TimeUnit.SECONDS);
+            }
+        }
+
+        return new LoadResult(llm.maxInFlight.get(), maxInFlightPerDocument.get(), Set.copyOf(llm.threads));
+    }
+
+    private LLMCallExecutor newExecutor(ExecutorService executor, LLMConcurrencyConfig config) {
+        executors.add(executor);
+        return new LLMCallExecutor(executor, config, new SimpleMeterRegistry());
+    }
+
+    private record LoadResult(int maxInFlight, int maxInFlightPerDocument, Set<Thread> threads) {
+    }
+
+    /**
+     * Stands in for a provider whose calls block for a fixed time, recording how many were in flight at once and
+     * which threads ran them.
+     */
+    private static final class SlowLLM {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        String call() {
+            threads.add(Thread.currentThread());
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(LLM_LATENCY_MS);
+                return "{}";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
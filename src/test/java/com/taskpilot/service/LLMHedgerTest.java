@@ -0,0 +1,218 @@
+package com.taskpilot.service;
+
+import com.taskpilot.config.LLMHedgingConfig;
+import com.taskpilot.exception.InvalidLLMResponseException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LLMHedgerTest {
+
+    private static final String PROVIDER = "gemini";
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("call() should not hedge a primary call that answers within the delay")
+    void call_doesNotHedge_whenPrimaryIsFast() {
+        // ARRANGE
+        LLMHedger hedger = newHedger(config(200, 200, 1.0, 10));
+        CountingCall secondary = new CountingCall(Mono.just("secondary"));
+
+        // ACT
+        String response = hedger.call(PROVIDER, () -> Mono.just("primary"), secondary).block(Duration.ofSeconds(5));
+
+        // ASSERT
+        assertEquals("primary", response);
+        assertEquals(0, secondary.calls.get());
+        assertEquals(0.0, hedgeCount("fired"));
+    }
+
+    @Test
+    @DisplayName("call() should use the secondary's response and cancel the primary when the secondary answers first")
+    void call_usesSecondary_whenPrimaryIsSlow() {
+        // ARRANGE
+        LLMHedger hedger = newHedger(config(50, 50, 1.0, 10));
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+        Mono<String> slowPrimary = Mono.delay(Duration.ofSeconds(10)).thenReturn("primary").doOnCancel(() -> primaryCancelled.set(true));
+
+        // ACT
+        String response = hedger.call(PROVIDER, () -> slowPrimary, () -> Mono.just("secondary")).block(Duration.ofSeconds(5));
+
+        // ASSERT
+        assertEquals("secondary", response);
+        assertTrue(primaryCancelled.get());
+        assertEquals(1.0, hedgeCount("fired"));
+        assertEquals(1.0, hedgeCount("won"));
+    }
+
+    @Test
+    @DisplayName("call() should wait for the primary once the hedge budget is spent")
+    void call_waitsForPrimary_whenBudgetIsSpent() {
+        // ARRANGE: one hedge to start with, and calls earn nothing towards another
+        LLMHedger hedger = newHedger(config(20, 20, 0.0, 1));
+        CountingCall secondary = new CountingCall(Mono.delay(Duration.ofSeconds(10)).thenReturn("secondary"));
+        Supplier<Mono<String>> primary = () -> Mono.delay(Duration.ofMillis(300)).thenReturn("primary");
+
+        // ACT
+        String first = hedger.call(PROVIDER, primary, secondary).block(Duration.ofSeconds(5));
+        String second = hedger.call(PROVIDER, primary, secondary).block(Duration.ofSeconds(5));
+
+        // ASSERT
+        assertEquals("primary", first);
+        assertEquals("primary", second);
+        assertEquals(1, secondary.calls.get());
+        assertEquals(1.0, hedgeCount("fired"));
+        assertEquals(1.0, hedgeCount("skipped"));
+    }
+
+    @Test
+    @DisplayName("call() should fail over straight away when the primary fails, even with no hedge budget")
+    void call_failsOverImmediately_whenPrimaryFails() {
+        // ARRANGE
+        LLMHedger hedger = newHedger(config(30_000, 30_000, 0.0, 0));
+        Mono<String> failingPrimary = Mono.error(new InvalidLLMResponseException("Received empty response from the Gemini."));
+
+        // ACT
+        String response = hedger.call(PROVIDER, () -> failingPrimary, () -> Mono.just("secondary")).block(Duration.ofSeconds(5));
+
+        // ASSERT
+        assertEquals("secondary", response);
+        assertEquals(1.0, hedgeCount("failover"));
+        assertEquals(0.0, hedgeCount("fired"));
+    }
+
+    @Test
+    @DisplayName("call() should fail over when the primary completes without a response and hedging is enabled")
+    void call_failsOver_whenPrimaryIsEmpty_withHedging() {
+        // ARRANGE: the hedge delay is far off and there is no budget, so only a failover can reach the secondary
+        LLMHedger hedger = newHedger(config(30_000, 30_000, 0.0, 0));
+
+        // ACT
+        String response = hedger.call(PROVIDER, Mono::<String>empty, () -> Mono.just("secondary")).block(Duration.ofSeconds(5));
+
+        // ASSERT
+        assertEquals("secondary", response);
+        assertEquals(1.0, hedgeCount("failover"));
+    }
+
+    @Test
+    @DisplayName("call() should fail over when the primary completes without a response and hedging is disabled")
+    void call_failsOver_whenPrimaryIsEmpty_withoutHedging() {
+        // ARRANGE
+        LLMHedger hedger = newHedger(new LLMHedgingConfig(false, 0.95, 10, 10, 10, 1, 1.0, 10));
+
+        // ACT
+        String response = hedger.call(PROVIDER, Mono::<String>empty, () -> Mono.just("secondary")).block(Duration.ofSeconds(5));
+
+        // ASSERT
+        assertEquals("secondary", response);
+        assertEquals(1.0, hedgeCount("failover"));
+    }
+
+    @Test
+    @DisplayName("call() should fail with the primary's error when the secondary fails too")
+    void call_failsWithPrimaryError_whenBothFail() {
+        // ARRANGE
+        LLMHedger hedger = newHedger(config(50, 50, 1.0, 10));
+        InvalidLLMResponseException failure = new InvalidLLMResponseException("Failed to parse API response content");
+        Mono<String> failingSecondary = Mono.error(new InvalidLLMResponseException("API returned an empty or malformed response."));
+
+        // ACT & ASSERT
+        Mono<String> call = hedger.call(PROVIDER, () -> Mono.error(failure), () -> failingSecondary);
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> call.block(Duration.ofSeconds(5)));
+        assertSame(failure, thrown.getCause());
+    }
+
+    @Test
+    @DisplayName("call() should only fail over, never hedge, when hedging is disabled")
+    void call_onlyFailsOver_whenHedgingDisabled() {
+        // ARRANGE
+        LLMHedger hedger = newHedger(new LLMHedgingConfig(false, 0.95, 10, 10, 10, 1, 1.0, 10));
+        CountingCall secondary = new CountingCall(Mono.just("secondary"));
+
+        // ACT
+        String response = hedger.call(PROVIDER, () -> Mono.delay(Duration.ofMillis(200)).thenReturn("primary"), secondary)
+                .block(Duration.ofSeconds(5));
+
+        // ASSERT
+        assertEquals("primary", response);
+        assertEquals(0, secondary.calls.get());
+    }
+
+    @Test
+    @DisplayName("hedgeDelay() should wait the longest delay until enough latencies have been seen, then follow the percentile")
+    void hedgeDelay_followsPercentile_onceWarmedUp() {
+        // ARRANGE
+        LLMHedger hedger = newHedger(new LLMHedgingConfig(true, 0.95, 10, 5_000, 20, 5, 1.0, 10));
+        Duration coldDelay = hedger.hedgeDelay(PROVIDER);
+
+        // ACT
+        for (int i = 0; i < 5; i++) {
+            hedger.call(PROVIDER, () -> Mono.just("primary"), () -> Mono.just("secondary")).block(Duration.ofSeconds(5));
+        }
+
+        // ASSERT: latencies are kept per provider
+        Duration warmDelay = hedger.hedgeDelay(PROVIDER);
+        assertEquals(Duration.ofMillis(5_000), coldDelay);
+        assertTrue(warmDelay.compareTo(Duration.ofMillis(10)) >= 0);
+        assertTrue(warmDelay.compareTo(Duration.ofSeconds(1)) < 0, "Fast responses should shorten the delay, was " + warmDelay);
+        assertEquals(Duration.ofMillis(5_000), hedger.hedgeDelay("huggingface"));
+    }
+
+    @Test
+    @DisplayName("call() should just make the primary call when there is no secondary")
+    void call_usesPrimaryOnly_withoutSecondary() {
+        // ARRANGE
+        LLMHedger hedger = newHedger(config(10, 10, 1.0, 10));
+
+        // ACT
+        String response = hedger.call(PROVIDER, () -> Mono.delay(Duration.ofMillis(100)).thenReturn("primary"), null)
+                .block(Duration.ofSeconds(5));
+
+        // ASSERT
+        assertEquals("primary", response);
+        assertEquals(0.0, hedgeCount("fired"));
+    }
+
+    private LLMHedger newHedger(LLMHedgingConfig config) {
+        return new LLMHedger(config, meterRegistry);
+    }
+
+    private static LLMHedgingConfig config(long minDelayMs, long maxDelayMs, double budgetRatio, int budgetBurst) {
+        return new LLMHedgingConfig(true, 0.95, minDelayMs, maxDelayMs, 200, 20, budgetRatio, budgetBurst);
+    }
+
+    private double hedgeCount(String outcome) {
+        return meterRegistry.counter("taskpilot.llm.hedges", "outcome", outcome).count();
+    }
+
+    private static final class CountingCall implements Supplier<Mono<String>> {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Mono<String> response;
+
+        CountingCall(Mono<String> response) {
+            this.response = response;
+        }
+
+        @Override
+        public Mono<String> get() {
+            calls.incrementAndGet();
+            return response;
+        }
+    }
+}
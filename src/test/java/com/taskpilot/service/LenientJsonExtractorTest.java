@@ -0,0 +1,161 @@
+package com.taskpilot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LenientJsonExtractorTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String TASK_LIST = "{\"title\":\"Calculus\",\"description\":\"Derivatives\",\"todos\":[\"Exercise 1: Differentiate x^2\",\"Exercise 2: Say \\\"hi\\\" \\u00e9\"]}";
+
+    /**
+     * Responses of the kinds LLMs return, and the object each should yield.
+     */
+    private static final List<String[]> CORPUS = List.of(
+            new String[]{TASK_LIST, TASK_LIST},
+            new String[]{"```json\n" + TASK_LIST + "\n```", TASK_LIST},
+            new String[]{"```\n" + TASK_LIST + "\n```\n", TASK_LIST},
+            new String[]{"Here is the JSON you asked for {as requested}:\n" + TASK_LIST + "\nLet me know if you need more.", TASK_LIST},
+            new String[]{"{\"title\":\"T\",\"todos\":[\"a\",\"b\",],}", "{\"title\":\"T\",\"todos\":[\"a\",\"b\"]}"},
+            new String[]{"{\"title\":\"T\",\"todos\":[\"line one\nline two\"]}", "{\"title\":\"T\",\"todos\":[\"line one\\nline two\"]}"},
+            new String[]{"{\"title\":\"T\",\"todos\":[\"a\",\"b is cut", "{\"title\":\"T\",\"todos\":[\"a\",\"b is cut\"]}"},
+            new String[]{"{\"title\":\"T\",\"todos\":[\"a\",", "{\"title\":\"T\",\"todos\":[\"a\"]}"},
+            new String[]{"{\"title\":\"T\",\"todos\":[\"a\",\"", "{\"title\":\"T\",\"todos\":[\"a\"]}"},
+            new String[]{"{\"title\":\"T\",\"descrip", "{\"title\":\"T\"}"},
+            new String[]{"{\"title\":\"T\",\"count\":12", "{\"title\":\"T\"}"},
+            new String[]{"{\"title\":\"T\",\"todos\":[\"a \\u00", "{\"title\":\"T\",\"todos\":[\"a \"]}"},
+            new String[]{"{\"title\":\"T\",\"todos\":[\"a \\", "{\"title\":\"T\",\"todos\":[\"a \"]}"},
+            new String[]{"{\"nested\":{\"todos\":[[\"a\"],[\"b\"", "{\"nested\":{\"todos\":[[\"a\"],[\"b\"]]}}"},
+            new String[]{"{", "{}"}
+    );
+
+    @Test
+    @DisplayName("extract() should find and repair the object in every response of the corpus")
+    void extract_handlesCorpus() throws Exception {
+        for (String[] entry : CORPUS) {
+            // ACT
+            LenientJsonExtractor.Extraction extraction = LenientJsonExtractor.extract(entry[0]).orElseThrow();
+
+            // ASSERT
+            assertEquals(entry[1], extraction.json(), "For response: " + entry[0]);
+            assertEquals(!entry[0].contains(entry[1]), extraction.repaired(), "For response: " + entry[0]);
+            MAPPER.readTree(extraction.json());
+        }
+    }
+
+    @Test
+    @DisplayName("extract() should return the response itself when it is exactly one valid object")
+    void extract_returnsResponseItself_whenNothingToDo() {
+        assertSame(TASK_LIST, LenientJsonExtractor.extract(TASK_LIST).orElseThrow().json());
+    }
+
+    @Test
+    @DisplayName("extract() should find nothing in a response without an object")
+    void extract_returnsEmpty_withoutObject() {
+        assertTrue(LenientJsonExtractor.extract(null).isEmpty());
+        assertTrue(LenientJsonExtractor.extract("").isEmpty());
+        assertTrue(LenientJsonExtractor.extract("No tasks found {sorry}.").isEmpty());
+        assertTrue(LenientJsonExtractor.extract("[\"a\", \"b\"]").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Fuzz: a task list cut off at any point should yield a valid task list whose todos are a prefix of the original")
+    void extract_salvagesTaskListTruncatedAnywhere() throws Exception {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int list = 0; list < 50; list++) {
+            // ARRANGE
+            ExtractedTaskListDTO original = randomTaskList(random);
+            String response = "```json\n" + MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(original) + "\n```";
+
+            for (int end = response.indexOf('{') + 1; end <= response.length(); end++) {
+                // ACT
+                String truncated = response.substring(0, end);
+                Optional<LenientJsonExtractor.Extraction> extraction = LenientJsonExtractor.extract(truncated);
+
+                // ASSERT
+                assertTrue(extraction.isPresent(), truncated);
+                ExtractedTaskListDTO salvaged = MAPPER.readValue(extraction.get().json(), ExtractedTaskListDTO.class);
+                List<String> todos = salvaged.todos() == null ? List.of() : salvaged.todos();
+                assertTrue(todos.size() <= original.todos().size(), truncated);
+                for (int i = 0; i < todos.size(); i++) {
+                    String expected = original.todos().get(i);
+                    assertTrue(i < todos.size() - 1 ? todos.get(i).equals(expected) : expected.startsWith(todos.get(i)),
+                            "Todo " + i + " of " + extraction.get().json());
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Fuzz: extract() should never throw, and an unrepaired object should be part of the response, whatever the noise")
+    void extract_neverThrowsOnNoise() {
+        SplittableRandom random = new SplittableRandom(11);
+        String alphabet = "{}[]\",:\\ \nabc0u-";
+        for (int i = 0; i < 20_000; i++) {
+            // ARRANGE: a task list with a few random characters inserted, deleted or replaced
+            StringBuilder response = new StringBuilder(TASK_LIST);
+            for (int edit = random.nextInt(1, 4); edit > 0; edit--) {
+                int at = random.nextInt(response.length());
+                char noise = alphabet.charAt(random.nextInt(alphabet.length()));
+                switch (random.nextInt(3)) {
+                    case 0 -> response.insert(at, noise);
+                    case 1 -> response.deleteCharAt(at);
+                    default -> response.setCharAt(at, noise);
+                }
+            }
+            String text = response.substring(0, random.nextInt(response.length() + 1));
+
+            // ACT & ASSERT
+            Optional<LenientJsonExtractor.Extraction> extraction = assertDoesNotThrow(() -> LenientJsonExtractor.extract(text), text);
+            extraction.filter(e -> !e.repaired()).ifPresent(e -> assertTrue(text.contains(e.json()), text));
+        }
+    }
+
+    @Test
+    @DisplayName("extract() should return a large fenced response as it is, and salvage every todo of one cut off in its last todo")
+    void extract_handlesLargeResponse() throws Exception {
+        // ARRANGE: a fenced response of about 50 KB, and the same response cut off in its last todo
+        List<String> todos = new ArrayList<>();
+        for (int i = 0; todos.size() < 600; i++) {
+            todos.add("Exercise " + i + ": Prove that the sequence (/ a_n = 1/(n + " + i + ") /) converges, and find its limit.");
+        }
+        String json = MAPPER.writeValueAsString(new ExtractedTaskListDTO("Title", "Description", todos));
+        String response = "```json\n" + json + "\n```";
+        String truncated = response.substring(0, response.length() - 40);
+
+        // ACT
+        LenientJsonExtractor.Extraction whole = LenientJsonExtractor.extract(response).orElseThrow();
+        LenientJsonExtractor.Extraction salvaged = LenientJsonExtractor.extract(truncated).orElseThrow();
+
+        // ASSERT
+        assertEquals(json, whole.json());
+        assertFalse(whole.repaired());
+        assertTrue(salvaged.repaired());
+        List<String> salvagedTodos = MAPPER.readValue(salvaged.json(), ExtractedTaskListDTO.class).todos();
+        assertEquals(600, salvagedTodos.size());
+        assertEquals(todos.subList(0, 599), salvagedTodos.subList(0, 599));
+    }
+
+    private static ExtractedTaskListDTO randomTaskList(SplittableRandom random) {
+        List<String> todos = new ArrayList<>();
+        for (int i = random.nextInt(0, 6); i > 0; i--) {
+            StringBuilder todo = new StringBuilder();
+            for (int c = random.nextInt(1, 30); c > 0; c--) {
+                // Letters, with the odd quote, backslash, line break and accented character to escape
+                int pick = random.nextInt(40);
+                todo.append(pick == 0 ? '"' : pick == 1 ? '\\' : pick == 2 ? '\n' : pick == 3 ? 'é' : (char) ('a' + random.nextInt(26)));
+            }
+            todos.add(todo.toString());
+        }
+        return new ExtractedTaskListDTO("Title " + random.nextInt(100), "Description", todos);
+    }
+}
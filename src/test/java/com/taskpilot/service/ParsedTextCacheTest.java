@@ -0,0 +1,130 @@
+package com.taskpilot.service;
+
+import com.taskpilot.model.ParsedText;
+import com.taskpilot.repository.ParsedTextRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ParsedTextCacheTest {
+
+    @Mock
+    private ParsedTextRepository parsedTextRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private ParsedTextCache cache(long maxWeightBytes, boolean persistent) {
+        return new ParsedTextCache(parsedTextRepository, meterRegistry, true, maxWeightBytes, 1_000, persistent, 30);
+    }
+
+    private double count(String result, String tier) {
+        return meterRegistry.get("taskpilot.parser.cache").tag("result", result).tag("tier", tier).counter().count();
+    }
+
+    @Test
+    @DisplayName("keyFor() should depend on the upload bytes and the mode, not the file name")
+    void keyFor_ShouldDependOnBytesAndMode() throws IOException {
+        ParsedTextCache cache = cache(1_000_000, false);
+        MockMultipartFile file = new MockMultipartFile("file", "a.pdf", "application/pdf", "content".getBytes());
+        MockMultipartFile renamed = new MockMultipartFile("file", "b.pdf", "application/pdf", "content".getBytes());
+        MockMultipartFile changed = new MockMultipartFile("file", "a.pdf", "application/pdf", "content!".getBytes());
+
+        assertEquals(cache.keyFor(file, "equations"), cache.keyFor(renamed, "equations"));
+        assertNotEquals(cache.keyFor(file, "equations"), cache.keyFor(file, "text:application/pdf"));
+        assertNotEquals(cache.keyFor(file, "equations"), cache.keyFor(changed, "equations"));
+    }
+
+    @Test
+    @DisplayName("get() should count memory hits and misses")
+    void get_ShouldCountHitsAndMisses() {
+        ParsedTextCache cache = cache(1_000_000, false);
+
+        assertTrue(cache.get("key").isEmpty());
+        cache.put("key", "text");
+        assertEquals(Optional.of("text"), cache.get("key"));
+
+        assertEquals(1, count("hit", "memory"));
+        assertEquals(1, count("miss", "none"));
+        verifyNoInteractions(parsedTextRepository);
+    }
+
+    @Test
+    @DisplayName("get() and put() should do nothing while the cache is disabled")
+    void disabledCache_ShouldNeitherStoreNorServe() {
+        ParsedTextCache cache = new ParsedTextCache(parsedTextRepository, meterRegistry, false, 1_000_000, 1_000, true, 30);
+
+        cache.put("key", "text");
+
+        assertTrue(cache.get("key").isEmpty());
+        assertEquals(0, count("miss", "none"));
+        verifyNoInteractions(parsedTextRepository);
+    }
+
+    @Test
+    @DisplayName("put() should evict entries once their total size exceeds the weight limit")
+    void put_ShouldEvictBySize() {
+        // Each entry weighs 2 * (4 + 30) = 68 bytes, so only one fits in 100
+        ParsedTextCache cache = cache(100, false);
+
+        cache.put("key1", "a".repeat(30));
+        cache.put("key2", "b".repeat(30));
+
+        assertFalse(cache.get("key1").isPresent() && cache.get("key2").isPresent());
+    }
+
+    @Test
+    @DisplayName("put() should skip text longer than the entry limit")
+    void put_ShouldSkipOversizedText() {
+        ParsedTextCache cache = cache(1_000_000, true);
+
+        cache.put("key", "a".repeat(1_001));
+
+        assertFalse(cache.isCacheable(1_001));
+        verify(parsedTextRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("get() should fall back to the database tier and promote the entry to memory")
+    void get_ShouldReadThroughDatabaseTier() {
+        ParsedTextCache cache = cache(1_000_000, true);
+        when(parsedTextRepository.findById("key")).thenReturn(Optional.of(new ParsedText("key", "stored text")));
+
+        assertEquals(Optional.of("stored text"), cache.get("key"));
+        assertEquals(Optional.of("stored text"), cache.get("key"));
+
+        verify(parsedTextRepository, times(1)).findById("key");
+        assertEquals(1, count("hit", "database"));
+        assertEquals(1, count("hit", "memory"));
+    }
+
+    @Test
+    @DisplayName("get() and put() should treat database failures as misses")
+    void databaseFailures_ShouldNotPropagate() {
+        ParsedTextCache cache = cache(1_000_000, true);
+        when(parsedTextRepository.findById("key")).thenThrow(new DataAccessResourceFailureException("down"));
+        when(parsedTextRepository.save(any())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertTrue(cache.get("key").isEmpty());
+        assertDoesNotThrow(() -> cache.put("key", "text"));
+        assertEquals(Optional.of("text"), cache.get("key"));
+    }
+}
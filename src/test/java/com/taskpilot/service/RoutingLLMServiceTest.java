@@ -0,0 +1,266 @@
+package com.taskpilot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskpilot.client.HuggingFaceClient;
+import com.taskpilot.config.HuggingFaceApiConfig;
+import com.taskpilot.config.LLMHedgingConfig;
+import com.taskpilot.config.LLMRoutingConfig;
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+import com.taskpilot.exception.InvalidLLMResponseException;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * The providers are stood in for by Hugging Face clients pointed at MockWebServers, so failures are real HTTP errors.
+ */
+class RoutingLLMServiceTest {
+
+    private static final String TASK_LIST_JSON = "{\"title\":\"Title\",\"description\":\"Description\",\"todos\":[\"Task 1\"]}";
+    private static final LLMHedgingConfig NO_HEDGING = new LLMHedgingConfig(false, 0.95, 30_000, 30_000, 200, 20, 0.0, 0);
+
+    private MockWebServer geminiServer;
+    private MockWebServer huggingFaceServer;
+    private StandIn gemini;
+    private StandIn huggingFace;
+    private MockClock clock;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        geminiServer = new MockWebServer();
+        huggingFaceServer = new MockWebServer();
+        gemini = new StandIn();
+        huggingFace = new StandIn();
+        geminiServer.setDispatcher(gemini);
+        huggingFaceServer.setDispatcher(huggingFace);
+        geminiServer.start();
+        huggingFaceServer.start();
+        // The router reads the time from the registry's clock, so circuits open and close only when the test moves it on
+        clock = new MockClock();
+        meterRegistry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        geminiServer.shutdown();
+        huggingFaceServer.shutdown();
+    }
+
+    @Test
+    @DisplayName("executePrompt() should fail over to the other provider when the chosen one returns an error")
+    void executePrompt_failsOver_whenProviderErrors() throws Exception {
+        // ARRANGE: Gemini is all but certain to be chosen first
+        gemini.healthy = false;
+        RoutingLLMService service = newService(routingConfig(1_000_000, 1, 5, 30_000));
+
+        // ACT
+        ExtractedTaskListDTO result = service.executePrompt("Extract the tasks", ExtractedTaskListDTO.class);
+
+        // ASSERT
+        assertEquals("Title", result.title());
+        assertEquals(1, geminiServer.getRequestCount());
+        assertEquals(1, huggingFaceServer.getRequestCount());
+        RoutingLLMService.ProviderStatus geminiStatus = status(service, "gemini");
+        assertEquals(1, geminiStatus.failures());
+        assertEquals("CLOSED", geminiStatus.circuit());
+    }
+
+    @Test
+    @DisplayName("executePrompt() should stop sending calls to a provider whose circuit has opened, and try it again once the circuit is half-open")
+    void executePrompt_opensCircuit_andRecoversThroughHalfOpen() throws Exception {
+        // ARRANGE
+        gemini.healthy = false;
+        RoutingLLMService service = newService(routingConfig(1_000_000, 1, 2, 2_000));
+
+        // ACT: two failures in a row open Gemini's circuit
+        service.executePrompt("prompt", ExtractedTaskListDTO.class);
+        service.executePrompt("prompt", ExtractedTaskListDTO.class);
+        for (int i = 0; i < 5; i++) {
+            service.executePrompt("prompt", ExtractedTaskListDTO.class);
+        }
+
+        // ASSERT
+        assertEquals(2, geminiServer.getRequestCount());
+        assertEquals(7, huggingFaceServer.getRequestCount());
+        assertEquals("OPEN", status(service, "gemini").circuit());
+        assertEquals(0.0, status(service, "gemini").share());
+        assertEquals(1.0, meterRegistry.counter("taskpilot.llm.circuit.opened", "provider", "gemini").count());
+
+        // ACT: once the circuit is half-open, a successful trial call closes it
+        clock.add(Duration.ofMillis(1_999));
+        assertEquals("OPEN", status(service, "gemini").circuit());
+        clock.add(Duration.ofMillis(1));
+        assertEquals("HALF_OPEN", status(service, "gemini").circuit());
+        gemini.healthy = true;
+        service.executePrompt("prompt", ExtractedTaskListDTO.class);
+
+        // ASSERT
+        assertEquals(3, geminiServer.getRequestCount());
+        assertEquals("CLOSED", status(service, "gemini").circuit());
+    }
+
+    @Test
+    @DisplayName("executePrompt() should send a half-open provider a single trial call, and route the rest elsewhere until it finishes")
+    void executePrompt_sendsOneTrialCall_whileHalfOpen() throws Exception {
+        // ARRANGE: two failures open the first provider's circuit, and its trial call then hangs until the test answers it
+        LLMService first = mock(LLMService.class);
+        LLMService second = mock(LLMService.class);
+        Sinks.One<String> trialCall = Sinks.one();
+        InvalidLLMResponseException failure = new InvalidLLMResponseException("Failed to parse API response content");
+        when(first.executePromptReactive("prompt", String.class))
+                .thenReturn(Mono.error(failure), Mono.error(failure), trialCall.asMono());
+        when(second.executePromptReactive("prompt", String.class)).thenReturn(Mono.just("second"));
+        RoutingLLMService service = new RoutingLLMService(first, second, routingConfig(1_000_000, 1, 2, 2_000),
+                new LLMHedger(NO_HEDGING, meterRegistry), meterRegistry);
+        service.executePrompt("prompt", String.class);
+        service.executePrompt("prompt", String.class);
+        clock.add(Duration.ofMillis(2_000));
+
+        // ACT
+        Mono<String> trial = service.executePromptReactive("prompt", String.class).cache();
+        trial.subscribe();
+        List<String> others = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            others.add(service.executePrompt("prompt", String.class));
+        }
+
+        // ASSERT: only the trial call reached the provider, and the circuit stays half-open until it is answered
+        verify(first, times(3)).executePromptReactive("prompt", String.class);
+        assertEquals(List.of("second", "second", "second", "second", "second"), others);
+        assertEquals("HALF_OPEN", status(service, "gemini").circuit());
+        assertEquals(0.0, status(service, "gemini").share());
+
+        trialCall.tryEmitValue("first");
+        assertEquals("first", trial.block(Duration.ofSeconds(5)));
+        assertEquals("CLOSED", status(service, "gemini").circuit());
+    }
+
+    @Test
+    @DisplayName("executePrompt() should fail with the chosen provider's error when every provider fails")
+    void executePrompt_throws_whenEveryProviderFails() {
+        // ARRANGE
+        gemini.healthy = false;
+        huggingFace.healthy = false;
+        RoutingLLMService service = newService(routingConfig(1_000_000, 1, 5, 30_000));
+
+        // ACT & ASSERT
+        assertThrows(RuntimeException.class, () -> service.executePrompt("prompt", ExtractedTaskListDTO.class));
+        assertEquals(1, geminiServer.getRequestCount());
+        assertEquals(1, huggingFaceServer.getRequestCount());
+    }
+
+    @Test
+    @DisplayName("executePrompt() should spread calls across providers by weight")
+    void executePrompt_spreadsCallsByWeight() throws Exception {
+        // ARRANGE
+        LLMService first = mock(LLMService.class);
+        LLMService second = mock(LLMService.class);
+        when(first.executePromptReactive("prompt", String.class)).thenReturn(Mono.delay(Duration.ofMillis(2)).thenReturn("first"));
+        when(second.executePromptReactive("prompt", String.class)).thenReturn(Mono.delay(Duration.ofMillis(2)).thenReturn("second"));
+        RoutingLLMService service = new RoutingLLMService(first, second, routingConfig(3, 1, 5, 30_000),
+                new LLMHedger(NO_HEDGING, meterRegistry), meterRegistry);
+
+        // ACT
+        int firstCount = 0;
+        for (int i = 0; i < 400; i++) {
+            if ("first".equals(service.executePrompt("prompt", String.class))) {
+                firstCount++;
+            }
+        }
+
+        // ASSERT: about three quarters, allowing for chance and for latency scaling
+        assertTrue(firstCount > 240 && firstCount < 360, "Expected about 300 calls to the heavier provider, got " + firstCount);
+    }
+
+    @Test
+    @DisplayName("streamPrompt() should restart the stream with the other provider if the chosen one fails before sending anything")
+    void streamPrompt_failsOver_beforeFirstText() {
+        // ARRANGE
+        LLMService first = mock(LLMService.class);
+        LLMService second = mock(LLMService.class);
+        when(first.streamPrompt("prompt")).thenReturn(Flux.error(new InvalidLLMResponseException("Failed to parse streamed API response chunk")));
+        when(second.streamPrompt("prompt")).thenReturn(Flux.just("{\"title\"", ":\"T\"}"));
+        RoutingLLMService service = new RoutingLLMService(first, second, routingConfig(1_000_000, 1, 5, 30_000),
+                new LLMHedger(NO_HEDGING, meterRegistry), meterRegistry);
+
+        // ACT
+        List<String> pieces = service.streamPrompt("prompt").collectList().block(Duration.ofSeconds(5));
+
+        // ASSERT
+        assertEquals(List.of("{\"title\"", ":\"T\"}"), pieces);
+    }
+
+    @Test
+    @DisplayName("The constructor should refuse a configuration that gives no provider a weight")
+    void constructor_throws_whenNoProviderHasWeight() {
+        LLMRoutingConfig config = new LLMRoutingConfig(Map.of("gemini", 0), 0.2, 0.5, 10, 5, 30_000, 60_000);
+
+        assertThrows(IllegalStateException.class, () -> new RoutingLLMService(mock(LLMService.class), mock(LLMService.class),
+                config, new LLMHedger(NO_HEDGING, meterRegistry), meterRegistry));
+    }
+
+    private RoutingLLMService newService(LLMRoutingConfig config) {
+        return new RoutingLLMService(standInFor(geminiServer), standInFor(huggingFaceServer), config,
+                new LLMHedger(NO_HEDGING, meterRegistry), meterRegistry);
+    }
+
+    private static LLMService standInFor(MockWebServer server) {
+        String baseUrl = "http://" + server.getHostName() + ":" + server.getPort();
+        HuggingFaceClient client = new HuggingFaceClient(WebClient.builder(), new HuggingFaceApiConfig(baseUrl, "test-token"));
+        return new HuggingFaceService(client, new ObjectMapper(), new SimpleMeterRegistry(), true);
+    }
+
+    private static LLMRoutingConfig routingConfig(int geminiWeight, int huggingFaceWeight, int consecutiveFailures, long openMs) {
+        return new LLMRoutingConfig(Map.of("gemini", geminiWeight, "huggingface", huggingFaceWeight),
+                0.2, 0.5, 100, consecutiveFailures, openMs, 0);
+    }
+
+    private static RoutingLLMService.ProviderStatus status(RoutingLLMService service, String provider) {
+        return service.providerStatuses().stream()
+                .filter(status -> status.name().equals(provider))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * Answers every chat completion with the same task list, or with a 503 while unhealthy.
+     */
+    private static final class StandIn extends Dispatcher {
+        private volatile boolean healthy = true;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            if (!healthy) {
+                return new MockResponse().setResponseCode(503);
+            }
+            String escaped = TASK_LIST_JSON.replace("\"", "\\\"");
+            String body = """
+                    {"id":"1","object":"chat.completion","created":0,"model":"test",
+                     "choices":[{"index":0,"message":{"role":"assistant","content":"%s"},"finish_reason":"stop"}]}
+                    """.formatted(escaped);
+            return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+        }
+    }
+}
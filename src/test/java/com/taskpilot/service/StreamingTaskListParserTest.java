@@ -0,0 +1,76 @@
+package com.taskpilot.service;
+
+import com.taskpilot.dto.task.ExtractedTaskListDTO;
+import com.taskpilot.exception.InvalidLLMResponseException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingTaskListParserTest {
+
+    private static final String RESPONSE = """
+            ```json
+            {
+              "title": "Week 3 \\"Sheet\\"",
+              "description": "Problems on {sets} and [lists]",
+              "meta": {"todos": ["not a todo"], "pages": [1, 2]},
+              "todos": ["Exercise 1: prove A ⊆ B", "Exercise 2, part (a)", "Read chapter 4"]
+            }
+            ```""";
+
+    @Test
+    @DisplayName("feed() should emit each todo as soon as its array element closes")
+    void feed_ShouldEmitTodosAsTheyClose() throws InvalidLLMResponseException {
+        // ARRANGE
+        StreamingTaskListParser parser = new StreamingTaskListParser();
+        int secondTodoEnd = RESPONSE.indexOf("Exercise 2, part (a)\"") + "Exercise 2, part (a)\"".length();
+
+        // ACT & ASSERT: nothing comes out until the first todo's closing quote has arrived
+        assertEquals(List.of(), parser.feed(RESPONSE.substring(0, RESPONSE.indexOf("prove A"))));
+        assertEquals(List.of("Exercise 1: prove A ⊆ B"), parser.feed(RESPONSE.substring(RESPONSE.indexOf("prove A"), secondTodoEnd - 3)));
+        assertEquals(List.of("Exercise 2, part (a)"), parser.feed(RESPONSE.substring(secondTodoEnd - 3, secondTodoEnd)));
+        assertEquals(List.of("Read chapter 4"), parser.feed(RESPONSE.substring(secondTodoEnd)));
+
+        ExtractedTaskListDTO result = parser.finish();
+        assertEquals("Week 3 \"Sheet\"", result.title());
+        assertEquals("Problems on {sets} and [lists]", result.description());
+        assertEquals(List.of("Exercise 1: prove A ⊆ B", "Exercise 2, part (a)", "Read chapter 4"), result.todos());
+    }
+
+    @Test
+    @DisplayName("feed() should give the same result however the response is split")
+    void feed_ShouldHandleOneCharacterAtATime() throws InvalidLLMResponseException {
+        StreamingTaskListParser parser = new StreamingTaskListParser();
+        List<String> emitted = new ArrayList<>();
+
+        for (int i = 0; i < RESPONSE.length(); i++) {
+            emitted.addAll(parser.feed(RESPONSE.substring(i, i + 1)));
+        }
+
+        assertEquals(List.of("Exercise 1: prove A ⊆ B", "Exercise 2, part (a)", "Read chapter 4"), emitted);
+        assertEquals(emitted, parser.finish().todos());
+    }
+
+    @Test
+    @DisplayName("finish() should fail when the stream ends before the JSON is complete")
+    void finish_ShouldFailOnTruncatedResponse() throws InvalidLLMResponseException {
+        StreamingTaskListParser parser = new StreamingTaskListParser();
+        assertEquals(List.of("One"), parser.feed("{\"title\":\"T\",\"todos\":[\"One\",\"Tw"));
+
+        InvalidLLMResponseException exception = assertThrows(InvalidLLMResponseException.class, parser::finish);
+        assertEquals("Streamed response ended before the JSON was complete.", exception.getMessage());
+        assertThrows(InvalidLLMResponseException.class, () -> new StreamingTaskListParser().finish());
+    }
+
+    @Test
+    @DisplayName("feed() should fail with InvalidLLMResponseException on malformed JSON")
+    void feed_ShouldFailOnMalformedJson() {
+        StreamingTaskListParser parser = new StreamingTaskListParser();
+
+        assertThrows(InvalidLLMResponseException.class, () -> parser.feed("{\"title\": oops}"));
+    }
+}
@@ -1,18 +1,40 @@
 // src/test/java/com/taskpilot/service/TaskRouterServiceTest.java
 package com.taskpilot.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskpilot.chunking.ContentDefinedChunkSplitter;
+import com.taskpilot.chunking.TokenAwareChunkSplitter;
+import com.taskpilot.config.ChunkRetryConfig;
+import com.taskpilot.config.ChunkingConfig;
+import com.taskpilot.config.LLMConcurrencyConfig;
+import com.taskpilot.config.LLMRoutingConfig;
+import com.taskpilot.config.LLMSummaryConfig;
 import com.taskpilot.dto.task.ExtractedTaskListDTO;
 import com.taskpilot.exception.InvalidLLMResponseException;
+import com.taskpilot.parser.TextSegment;
 import com.taskpilot.prompt.PromptFactory;
+import com.taskpilot.repository.ChunkResultRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
 
 import java.util.Arrays;
 import java.util.List;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,7 +47,12 @@ class TaskRouterServiceTest {
 
     private PromptFactory promptFactory;
     private TaskRouterService taskRouterService;
+    private SimpleMeterRegistry meterRegistry;
+    private ChunkResultCache chunkResultCache;
 
+    private static final LLMSummaryConfig SUMMARY_CONFIG = new LLMSummaryConfig(4000, 150);
+    private static final LLMRoutingConfig ROUTING_CONFIG = new LLMRoutingConfig(Map.of("gemini", 1), 0.2, 0.5, 10, 5, 30000, 60000);
+    private static final ChunkRetryConfig RETRY_CONFIG = new ChunkRetryConfig(3, 1, 5, ChunkRetryConfig.FailurePolicy.PARTIAL, 0.5);
     private static final ExtractedTaskListDTO MOCK_RESPONSE = new ExtractedTaskListDTO(
             "Test Title",
             "Test Description",
@@ -36,7 +63,15 @@ class TaskRouterServiceTest {
     void setUp() {
         // Use real PromptFactory since fields are final
         promptFactory = new PromptFactory();
-        taskRouterService = new TaskRouterService(llmService, promptFactory);
+        meterRegistry = new SimpleMeterRegistry();
+        ChunkingConfig chunkingConfig = new ChunkingConfig(4, 1000, Map.of("gemini", 12500));
+        LLMCallExecutor llmCallExecutor = new LLMCallExecutor(Executors.newVirtualThreadPerTaskExecutor(),
+                new LLMConcurrencyConfig(16, Map.of(), 4), meterRegistry);
+        chunkResultCache = new ChunkResultCache(mock(ChunkResultRepository.class), new ObjectMapper(), meterRegistry,
+                true, 1_000_000, false, 30);
+        taskRouterService = new TaskRouterService(llmService, promptFactory, meterRegistry,
+                new TokenAwareChunkSplitter(chunkingConfig), chunkingConfig, ROUTING_CONFIG, llmCallExecutor, chunkResultCache, SUMMARY_CONFIG, new TodoDeduplicator(meterRegistry, true, 0.8),
+                new ExerciseExtractor(meterRegistry, true, 2, 1500, false), RETRY_CONFIG, "test-model");
     }
 
     @Test
@@ -143,6 +178,86 @@ class TaskRouterServiceTest {
         verify(llmService).executePrompt(expectedPrompt, ExtractedTaskListDTO.class);
     }
 
+    @Test
+    @DisplayName("processDocument() should extract an exercise sheet locally without calling the LLM")
+    void processDocument_ShouldExtractExerciseSheetLocally() throws InvalidLLMResponseException {
+        // ARRANGE
+        String sheet = "Calculus Sheet 3\nExercise 3.1 Find the derivative of f(x) = x^2 * sin(x).\nExercise 3.2 Calculate the integral of ln(x) dx from 1 to e.";
+
+        // ACT
+        ExtractedTaskListDTO result = taskRouterService.processDocument(sheet);
+
+        // ASSERT
+        assertEquals("Calculus Sheet 3", result.title());
+        assertEquals(List.of("Exercise 3.1: Find the derivative of f(x) = x^2 * sin(x)",
+                "Exercise 3.2: Calculate the integral of ln(x) dx from 1 to e"), result.todos());
+        verifyNoInteractions(llmService);
+    }
+
+    @Test
+    @DisplayName("processDocument() should fall back to the exercise prompt when the local result looks malformed")
+    void processDocument_ShouldUseExercisePrompt_WhenLocalResultIsMalformed() throws InvalidLLMResponseException {
+        // ARRANGE: the second exercise is empty
+        String sheet = "Exercise 1 Prove the lemma.\nExercise 2\n";
+        String expectedPrompt = String.format(promptFactory.exercisePatternPromptTemplate, sheet);
+        when(llmService.executePrompt(expectedPrompt, ExtractedTaskListDTO.class)).thenReturn(MOCK_RESPONSE);
+
+        // ACT
+        ExtractedTaskListDTO result = taskRouterService.processDocument(sheet);
+
+        // ASSERT
+        assertSame(MOCK_RESPONSE, result);
+    }
+
+    @Test
+    @DisplayName("processDocument() should only ask the LLM for the title and description of a local exercise sheet when configured to")
+    void processDocument_ShouldDescribeExerciseSheetWithLlm_WhenConfigured() throws InvalidLLMResponseException {
+        // ARRANGE
+        TaskRouterService router = routerWithExerciseDescriptions();
+        String sheet = "Exercise 1 Differentiate x^2.\nExercise 2 Integrate 2x.";
+        when(llmService.executePrompt(contains("Leave 'todos' as an empty array"), eq(ExtractedTaskListDTO.class)))
+                .thenReturn(new ExtractedTaskListDTO("Calculus Exercises", "Differentiation and integration", List.of()));
+
+        // ACT
+        ExtractedTaskListDTO result = router.processDocument(sheet);
+
+        // ASSERT: the prompt holds the exercises, not the document, and the todos stay local
+        assertEquals("Calculus Exercises", result.title());
+        assertEquals("Differentiation and integration", result.description());
+        assertEquals(List.of("Exercise 1: Differentiate x^2", "Exercise 2: Integrate 2x"), result.todos());
+        verify(llmService, never()).executePrompt(contains(promptFactory.exercisePatternPromptTemplate.substring(0, 40)), any());
+    }
+
+    @Test
+    @DisplayName("processDocumentReactive() should keep the local title and description when the LLM cannot describe the sheet")
+    void processDocumentReactive_ShouldKeepLocalDescription_WhenLlmFails() {
+        // ARRANGE
+        TaskRouterService router = routerWithExerciseDescriptions();
+        when(llmService.executePromptReactive(anyString(), eq(ExtractedTaskListDTO.class)))
+                .thenReturn(Mono.error(new InvalidLLMResponseException("LLM error")));
+
+        // ACT & ASSERT
+        StepVerifier.create(router.processDocumentReactive("Sheet 1\nExercise 1 Differentiate x^2.\nExercise 2 Integrate 2x."))
+                .assertNext(result -> {
+                    assertEquals("Sheet 1", result.title());
+                    assertEquals(2, result.todos().size());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("streamDocument() should stream a local exercise sheet as one chunk")
+    void streamDocument_ShouldStreamLocalExerciseSheet() {
+        // ACT & ASSERT
+        StepVerifier.create(taskRouterService.streamDocument("Exercise 1 Differentiate x^2.\nExercise 2 Integrate 2x."))
+                .expectNext(new ExtractionEvent.TodoExtracted(0, "Exercise 1: Differentiate x^2"))
+                .expectNext(new ExtractionEvent.TodoExtracted(0, "Exercise 2: Integrate 2x"))
+                .assertNext(event -> assertInstanceOf(ExtractionEvent.ChunkCompleted.class, event))
+                .assertNext(event -> assertEquals(2, ((ExtractionEvent.DocumentCompleted) event).result().todos().size()))
+                .verifyComplete();
+        verifyNoInteractions(llmService);
+    }
+
     @Test
     @DisplayName("processDocument() should propagate InvalidLLMResponseException from LLMService")
     void processDocument_ShouldPropagateException_WhenLLMServiceThrows() throws InvalidLLMResponseException {
@@ -160,7 +275,108 @@ class TaskRouterServiceTest {
         );
 
         assertSame(expectedException, exception);
-        verify(llmService).executePrompt(expectedPrompt, ExtractedTaskListDTO.class);
+        // The chunk is retried before the exception is given up on
+        verify(llmService, times(3)).executePrompt(expectedPrompt, ExtractedTaskListDTO.class);
+        assertEquals(2, meterRegistry.get("taskpilot.extraction.chunk.retries").counter().count());
+        assertEquals(1, meterRegistry.get("taskpilot.extraction.chunk.failures").counter().count());
+    }
+
+    @Test
+    @DisplayName("processDocument() should retry a chunk whose LLM call failed")
+    void processDocument_ShouldRetryFailedChunk() throws InvalidLLMResponseException {
+        // ARRANGE
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class)))
+                .thenThrow(new InvalidLLMResponseException("LLM error"))
+                .thenReturn(MOCK_RESPONSE);
+
+        // ACT
+        ExtractedTaskListDTO result = taskRouterService.processDocument("Sample document text");
+
+        // ASSERT
+        assertSame(MOCK_RESPONSE, result);
+        assertFalse(result.partial());
+        verify(llmService, times(2)).executePrompt(anyString(), eq(ExtractedTaskListDTO.class));
+        assertEquals(1, meterRegistry.get("taskpilot.extraction.chunk.retries").counter().count());
+    }
+
+    @Test
+    @DisplayName("processDocument() should return the todos of the chunks that succeeded, marked partial, when a chunk keeps failing")
+    void processDocument_ShouldReturnPartialResult_WhenChunkKeepsFailing() throws InvalidLLMResponseException {
+        // ARRANGE
+        String first = "A".repeat(40000) + "\n\n";
+        String second = "B".repeat(40000) + "\n\n";
+        String third = "C".repeat(40000);
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenAnswer(invocation -> {
+            String prompt = invocation.getArgument(0);
+            if (prompt.contains("BBBB")) {
+                throw new InvalidLLMResponseException("LLM error");
+            }
+            return prompt.contains("AAAA")
+                    ? new ExtractedTaskListDTO("Title 1", "Desc 1", List.of("Task 1"))
+                    : new ExtractedTaskListDTO("Title 3", "Desc 3", List.of("Task 3"));
+        });
+        when(llmService.executePrompt(contains("Summarise"), eq(String.class))).thenReturn("Final Description");
+
+        // ACT
+        ExtractedTaskListDTO result = taskRouterService.processDocument(first + second + third);
+
+        // ASSERT
+        assertEquals(new ExtractedTaskListDTO("Title 1", "Final Description", List.of("Task 1", "Task 3"), true), result);
+        verify(llmService, times(3)).executePrompt(contains("BBBB"), eq(ExtractedTaskListDTO.class));
+        assertEquals(1, meterRegistry.get("taskpilot.extraction.chunk.failures").counter().count());
+        assertEquals(1, meterRegistry.get("taskpilot.extraction.partial").counter().count());
+    }
+
+    @Test
+    @DisplayName("processDocument() should fail when too few chunks succeed, and only resend the failed chunks next time")
+    void processDocument_ShouldFail_WhenTooFewChunksSucceed() throws InvalidLLMResponseException {
+        // ARRANGE: two of the three chunks fail until the provider recovers
+        String first = "A".repeat(40000) + "\n\n";
+        String second = "B".repeat(40000) + "\n\n";
+        String third = "C".repeat(40000);
+        AtomicBoolean recovered = new AtomicBoolean();
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenAnswer(invocation -> {
+            if (!recovered.get() && !invocation.<String>getArgument(0).contains("AAAA")) {
+                throw new RuntimeException("Provider unavailable");
+            }
+            return MOCK_RESPONSE;
+        });
+
+        // ACT & ASSERT
+        InvalidLLMResponseException exception = assertThrows(InvalidLLMResponseException.class,
+                () -> taskRouterService.processDocument(first + second + third));
+        assertTrue(exception.getMessage().startsWith("2 of 3 chunks"));
+
+        recovered.set(true);
+        ExtractedTaskListDTO result = taskRouterService.processDocument(first + second + third);
+
+        assertFalse(result.partial());
+        verify(llmService, times(1)).executePrompt(contains("AAAA"), eq(ExtractedTaskListDTO.class));
+        verify(llmService, times(4)).executePrompt(contains("BBBB"), eq(ExtractedTaskListDTO.class));
+    }
+
+    @Test
+    @DisplayName("processDocument() should fail on any failed chunk when the failure policy is FAIL")
+    void processDocument_ShouldFail_WhenPolicyIsFail() throws InvalidLLMResponseException {
+        // ARRANGE
+        ChunkingConfig chunkingConfig = new ChunkingConfig(4, 1000, Map.of("gemini", 12500));
+        LLMCallExecutor llmCallExecutor = new LLMCallExecutor(Executors.newVirtualThreadPerTaskExecutor(),
+                new LLMConcurrencyConfig(16, Map.of(), 4), meterRegistry);
+        TaskRouterService router = new TaskRouterService(llmService, promptFactory, meterRegistry, new TokenAwareChunkSplitter(chunkingConfig),
+                chunkingConfig, ROUTING_CONFIG, llmCallExecutor, chunkResultCache, SUMMARY_CONFIG, new TodoDeduplicator(meterRegistry, true, 0.8),
+                new ExerciseExtractor(meterRegistry, true, 2, 1500, false),
+                new ChunkRetryConfig(2, 1, 5, ChunkRetryConfig.FailurePolicy.FAIL, 0.5), "test-model");
+        String document = "A".repeat(40000) + "\n\n" + "B".repeat(40000);
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenAnswer(invocation -> {
+            if (invocation.<String>getArgument(0).contains("BBBB")) {
+                throw new InvalidLLMResponseException("LLM error");
+            }
+            return MOCK_RESPONSE;
+        });
+
+        // ACT & ASSERT
+        assertThrows(InvalidLLMResponseException.class, () -> router.processDocument(document));
+        verify(llmService, times(2)).executePrompt(contains("BBBB"), eq(ExtractedTaskListDTO.class));
     }
 
     @Test
@@ -198,12 +414,13 @@ class TaskRouterServiceTest {
     @DisplayName("processDocument() should chunk large document and combine results")
     void processDocument_ShouldChunkLargeDocumentAndCombineResults() throws InvalidLLMResponseException {
         // ARRANGE
-        String largeDocument = "Paragraph 1\n\nParagraph 2\n\n" + "Paragraph 3".repeat(5000);
+        String largeDocument = "Paragraph 1\n\nParagraph 2\n\n" + "Paragraph 3".repeat(4545);
         ExtractedTaskListDTO response1 = new ExtractedTaskListDTO("Title 1", "Desc 1", List.of("Task 1"));
         ExtractedTaskListDTO response2 = new ExtractedTaskListDTO("Title 2", "Desc 2", List.of("Task 2"));
 
+        // Chunks are sent concurrently, so each answer is picked by the chunk it is for rather than by call order
         when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class)))
-                .thenReturn(response1, response2);
+                .thenAnswer(invocation -> invocation.<String>getArgument(0).contains("Paragraph 1") ? response1 : response2);
         when(llmService.executePrompt(contains("Summarise"), eq(String.class))).thenReturn("Final Description");
 
         // ACT
@@ -218,6 +435,79 @@ class TaskRouterServiceTest {
         verify(llmService, times(3)).executePrompt(anyString(), any());
     }
 
+    @Test
+    @DisplayName("processDocument() should split a paragraph larger than the token budget instead of sending it whole")
+    void processDocument_ShouldSplitOversizedParagraph() throws InvalidLLMResponseException {
+        // ARRANGE
+        // Sentences are numbered so that no two chunks are identical and none is answered from the chunk cache
+        String sentence = " is part of one long paragraph. ";
+        StringBuilder largeDocument = new StringBuilder();
+        for (int i = 0; i < 2500; i++) {
+            largeDocument.append(String.format("This sentence %04d", i)).append(sentence);
+        }
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenReturn(MOCK_RESPONSE);
+        when(llmService.executePrompt(contains("Summarise"), eq(String.class))).thenReturn("Final Description");
+
+        // ACT
+        taskRouterService.processDocument(largeDocument.toString());
+
+        // ASSERT: 125,000 characters fit in three chunks of at most 50,000, each ending on a sentence
+        verify(llmService, times(3)).executePrompt(argThat(prompt -> prompt.contains(sentence)), eq(ExtractedTaskListDTO.class));
+        int maxPromptLength = 50000 + promptFactory.generalTaskPromptTemplate.length();
+        verify(llmService, never()).executePrompt(argThat(prompt -> prompt.length() > maxPromptLength), eq(ExtractedTaskListDTO.class));
+    }
+
+    @Test
+    @DisplayName("processDocument() should size chunks for the smallest budget among the providers calls are routed to")
+    void processDocument_ShouldUseSmallestBudgetOfRoutedProviders() throws InvalidLLMResponseException {
+        // ARRANGE
+        ChunkingConfig chunkingConfig = new ChunkingConfig(4, 1000, Map.of("gemini", 12500, "huggingface", 4000));
+        LLMCallExecutor llmCallExecutor = new LLMCallExecutor(Executors.newVirtualThreadPerTaskExecutor(),
+                new LLMConcurrencyConfig(16, Map.of(), 4), meterRegistry);
+        TaskRouterService router = new TaskRouterService(llmService, promptFactory, meterRegistry, new TokenAwareChunkSplitter(chunkingConfig),
+                chunkingConfig, new LLMRoutingConfig(Map.of("gemini", 80, "huggingface", 20), 0.2, 0.5, 10, 5, 30000, 60000),
+                llmCallExecutor, chunkResultCache, SUMMARY_CONFIG, new TodoDeduplicator(meterRegistry, true, 0.8),
+                new ExerciseExtractor(meterRegistry, true, 2, 1500, false), RETRY_CONFIG, "test-model");
+        String sentence = " is part of one long paragraph. ";
+        StringBuilder largeDocument = new StringBuilder();
+        for (int i = 0; i < 2500; i++) {
+            largeDocument.append(String.format("This sentence %04d", i)).append(sentence);
+        }
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenReturn(MOCK_RESPONSE);
+        when(llmService.executePrompt(contains("Summarise"), eq(String.class))).thenReturn("Final Description");
+
+        // ACT
+        router.processDocument(largeDocument.toString());
+
+        // ASSERT: 125,000 characters need eight chunks of at most 16,000
+        verify(llmService, times(8)).executePrompt(argThat(prompt -> prompt.contains(sentence)), eq(ExtractedTaskListDTO.class));
+        int maxPromptLength = 16000 + promptFactory.generalTaskPromptTemplate.length();
+        verify(llmService, never()).executePrompt(argThat(prompt -> prompt.length() > maxPromptLength), eq(ExtractedTaskListDTO.class));
+    }
+
+    @Test
+    @DisplayName("processDocument() should not reuse a chunk result cached while calls went to other providers")
+    void processDocument_ShouldKeyCacheByRoutedProviders() throws InvalidLLMResponseException {
+        // ARRANGE
+        String document = "This is a short document.";
+        ChunkingConfig chunkingConfig = new ChunkingConfig(4, 1000, Map.of("gemini", 12500, "huggingface", 4000));
+        LLMCallExecutor llmCallExecutor = new LLMCallExecutor(Executors.newVirtualThreadPerTaskExecutor(),
+                new LLMConcurrencyConfig(16, Map.of(), 4), meterRegistry);
+        TaskRouterService rerouted = new TaskRouterService(llmService, promptFactory, meterRegistry, new TokenAwareChunkSplitter(chunkingConfig),
+                chunkingConfig, new LLMRoutingConfig(Map.of("gemini", 80, "huggingface", 20), 0.2, 0.5, 10, 5, 30000, 60000),
+                llmCallExecutor, chunkResultCache, SUMMARY_CONFIG, new TodoDeduplicator(meterRegistry, true, 0.8),
+                new ExerciseExtractor(meterRegistry, true, 2, 1500, false), RETRY_CONFIG, "test-model");
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenReturn(MOCK_RESPONSE);
+
+        // ACT
+        taskRouterService.processDocument(document);
+        taskRouterService.processDocument(document);
+        rerouted.processDocument(document);
+
+        // ASSERT: the second call is a hit, the rerouted one isn't
+        verify(llmService, times(2)).executePrompt(anyString(), eq(ExtractedTaskListDTO.class));
+    }
+
     @Test
     @DisplayName("processDocument() should handle a single chunk")
     void processDocument_ShouldHandleSingleChunk() throws InvalidLLMResponseException {
@@ -232,4 +522,508 @@ class TaskRouterServiceTest {
         assertSame(MOCK_RESPONSE, result);
         verify(llmService, times(1)).executePrompt(anyString(), eq(ExtractedTaskListDTO.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("processDocumentReactive() should send a small document as a single call")
+    void processDocumentReactive_ShouldProcessSmallDocument() {
+        // ARRANGE
+        String document = "Complete Exercise 1.";
+        String expectedPrompt = String.format(promptFactory.exercisePatternPromptTemplate, document);
+        when(llmService.executePromptReactive(expectedPrompt, ExtractedTaskListDTO.class)).thenReturn(Mono.just(MOCK_RESPONSE));
+
+        // ACT & ASSERT
+        StepVerifier.create(taskRouterService.processDocumentReactive(document))
+                .expectNext(MOCK_RESPONSE)
+                .verifyComplete();
+        StepVerifier.create(taskRouterService.processDocumentReactive(null)).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("processDocumentReactive() should combine chunk results in document order even when they finish out of order")
+    void processDocumentReactive_ShouldCombineChunksInOrder() throws InvalidLLMResponseException {
+        // ARRANGE: the first chunk is the slowest to come back
+        String first = "A".repeat(40000) + "\n\n";
+        String second = "B".repeat(40000) + "\n\n";
+        String third = "C".repeat(40000);
+        when(llmService.executePromptReactive(contains("AAAA"), eq(ExtractedTaskListDTO.class))).thenReturn(
+                Mono.just(new ExtractedTaskListDTO("Title 1", "Desc 1", List.of("Task 1"))).delayElement(Duration.ofMillis(150)));
+        when(llmService.executePromptReactive(contains("BBBB"), eq(ExtractedTaskListDTO.class))).thenReturn(
+                Mono.just(new ExtractedTaskListDTO("Title 2", "Desc 2", List.of("Task 2"))).delayElement(Duration.ofMillis(50)));
+        when(llmService.executePromptReactive(contains("CCCC"), eq(ExtractedTaskListDTO.class))).thenReturn(
+                Mono.just(new ExtractedTaskListDTO("Title 3", "Desc 3", List.of("Task 3"))));
+        when(llmService.executePromptReactive(contains("Summarise"), eq(String.class)))
+                .thenReturn(Mono.error(new InvalidLLMResponseException("LLM error")));
+
+        // ACT & ASSERT: a failed summary falls back to the first description
+        StepVerifier.create(taskRouterService.processDocumentReactive(first + second + third))
+                .assertNext(result -> {
+                    assertEquals("Title 1", result.title());
+                    assertEquals("Desc 1", result.description());
+                    assertEquals(List.of("Task 1", "Task 2", "Task 3"), result.todos());
+                })
+                .verifyComplete();
+        verify(llmService, never()).executePrompt(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("processDocumentReactive() should retry failed chunks and return a partial result when one keeps failing")
+    void processDocumentReactive_ShouldReturnPartialResult_WhenChunkKeepsFailing() {
+        // ARRANGE: the first chunk fails once, the second every time
+        String first = "A".repeat(40000) + "\n\n";
+        String second = "B".repeat(40000) + "\n\n";
+        String third = "C".repeat(40000);
+        when(llmService.executePromptReactive(contains("AAAA"), eq(ExtractedTaskListDTO.class))).thenReturn(
+                Mono.error(new InvalidLLMResponseException("LLM error")),
+                Mono.just(new ExtractedTaskListDTO("Title 1", "Desc 1", List.of("Task 1"))));
+        when(llmService.executePromptReactive(contains("BBBB"), eq(ExtractedTaskListDTO.class)))
+                .thenReturn(Mono.error(new InvalidLLMResponseException("LLM error")));
+        when(llmService.executePromptReactive(contains("CCCC"), eq(ExtractedTaskListDTO.class))).thenReturn(
+                Mono.just(new ExtractedTaskListDTO("Title 3", "Desc 3", List.of("Task 3"))));
+        when(llmService.executePromptReactive(contains("Summarise"), eq(String.class))).thenReturn(Mono.just("Final Description"));
+
+        // ACT & ASSERT
+        StepVerifier.create(taskRouterService.processDocumentReactive(first + second + third))
+                .assertNext(result -> assertEquals(
+                        new ExtractedTaskListDTO("Title 1", "Final Description", List.of("Task 1", "Task 3"), true), result))
+                .verifyComplete();
+        verify(llmService, times(2)).executePromptReactive(contains("AAAA"), eq(ExtractedTaskListDTO.class));
+        assertEquals(3, meterRegistry.get("taskpilot.extraction.chunk.retries").counter().count());
+        assertEquals(1, meterRegistry.get("taskpilot.extraction.chunk.failures").counter().count());
+    }
+
+    @Test
+    @DisplayName("streamDocument() should emit a todo as soon as it has been streamed, before the response finishes")
+    void streamDocument_ShouldEmitTodosBeforeResponseCompletes() {
+        // ARRANGE
+        String document = "Read the notes.";
+        Sinks.Many<String> tokens = Sinks.many().unicast().onBackpressureBuffer();
+        when(llmService.streamPrompt(String.format(promptFactory.generalTaskPromptTemplate, document))).thenReturn(tokens.asFlux());
+        ExtractedTaskListDTO expected = new ExtractedTaskListDTO("Notes", "Reading", List.of("Read the notes", "Summarise them"));
+
+        // ACT & ASSERT
+        StepVerifier.create(taskRouterService.streamDocument(document))
+                .then(() -> tokens.tryEmitNext("```json\n{\"title\":\"Notes\",\"description\":\"Reading\",\"todos\":[\"Read the"))
+                .then(() -> tokens.tryEmitNext(" notes\",\"Summ"))
+                .expectNext(new ExtractionEvent.TodoExtracted(0, "Read the notes"))
+                .then(() -> tokens.tryEmitNext("arise them\"]}\n```"))
+                .expectNext(new ExtractionEvent.TodoExtracted(0, "Summarise them"))
+                .then(tokens::tryEmitComplete)
+                .expectNext(new ExtractionEvent.ChunkCompleted(0, expected))
+                .expectNext(new ExtractionEvent.DocumentCompleted(expected))
+                .verifyComplete();
+        assertEquals(1, meterRegistry.get("taskpilot.extraction.first.todo").timer().count());
+    }
+
+    @Test
+    @DisplayName("streamDocument() should stream every chunk and finish with the combined result in document order")
+    void streamDocument_ShouldCombineChunksInOrder() {
+        // ARRANGE
+        String first = "A".repeat(40000) + "\n\n";
+        String second = "B".repeat(40000);
+        when(llmService.streamPrompt(contains("AAAA"))).thenReturn(
+                Flux.just("{\"title\":\"Title 1\",\"description\":\"Desc 1\",", "\"todos\":[\"Task 1\"]}").delayElements(Duration.ofMillis(50)));
+        when(llmService.streamPrompt(contains("BBBB"))).thenReturn(
+                Flux.just("{\"title\":\"Title 2\",\"description\":\"Desc 2\",\"todos\":[\"Task 2\"]}"));
+        when(llmService.executePromptReactive(contains("Summarise"), eq(String.class))).thenReturn(Mono.just("Final Description"));
+
+        // ACT
+        List<ExtractionEvent> events = taskRouterService.streamDocument(first + second).collectList().block(Duration.ofSeconds(5));
+
+        // ASSERT
+        assertNotNull(events);
+        assertEquals(5, events.size());
+        assertTrue(events.contains(new ExtractionEvent.TodoExtracted(0, "Task 1")));
+        assertTrue(events.contains(new ExtractionEvent.TodoExtracted(1, "Task 2")));
+        assertEquals(new ExtractionEvent.DocumentCompleted(new ExtractedTaskListDTO("Title 1", "Final Description", List.of("Task 1", "Task 2"))),
+                events.getLast());
+    }
+
+    @Test
+    @DisplayName("streamDocument() should fail with InvalidLLMResponseException when a chunk's stream ends early")
+    void streamDocument_ShouldFailOnTruncatedStream() {
+        when(llmService.streamPrompt(anyString())).thenReturn(Flux.just("{\"title\":\"T\",\"todos\":[\"Task 1\""));
+
+        StepVerifier.create(taskRouterService.streamDocument("Some text"))
+                .expectNext(new ExtractionEvent.TodoExtracted(0, "Task 1"))
+                .expectError(InvalidLLMResponseException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("streamDocument() should retry a chunk that failed before streaming a todo")
+    void streamDocument_ShouldRetryChunkThatFailedBeforeFirstTodo() {
+        // ARRANGE
+        when(llmService.streamPrompt(anyString())).thenReturn(
+                Flux.error(new RuntimeException("Provider unavailable")),
+                Flux.just("{\"title\":\"T\",\"description\":\"D\",\"todos\":[\"Task 1\"]}"));
+        ExtractedTaskListDTO expected = new ExtractedTaskListDTO("T", "D", List.of("Task 1"));
+
+        // ACT & ASSERT
+        StepVerifier.create(taskRouterService.streamDocument("Some text"))
+                .expectNext(new ExtractionEvent.TodoExtracted(0, "Task 1"))
+                .expectNext(new ExtractionEvent.ChunkCompleted(0, expected))
+                .expectNext(new ExtractionEvent.DocumentCompleted(expected))
+                .verifyComplete();
+        verify(llmService, times(2)).streamPrompt(anyString());
+    }
+
+    @Test
+    @DisplayName("streamDocument() should report a chunk that keeps failing and finish with a partial result from the others")
+    void streamDocument_ShouldFinishWithPartialResult_WhenChunkKeepsFailing() {
+        // ARRANGE: the second chunk is cut off after one todo, so it can't be retried without repeating it
+        String first = "A".repeat(40000) + "\n\n";
+        String second = "B".repeat(40000);
+        when(llmService.streamPrompt(contains("AAAA"))).thenReturn(
+                Flux.just("{\"title\":\"Title 1\",\"description\":\"Desc 1\",\"todos\":[\"Task 1\"]}"));
+        when(llmService.streamPrompt(contains("BBBB"))).thenReturn(Flux.just("{\"title\":\"Title 2\",\"todos\":[\"Task 2\""));
+
+        // ACT
+        List<ExtractionEvent> events = taskRouterService.streamDocument(first + second).collectList().block(Duration.ofSeconds(5));
+
+        // ASSERT
+        assertNotNull(events);
+        assertTrue(events.stream().anyMatch(event -> event instanceof ExtractionEvent.ChunkFailed failed && failed.chunk() == 1));
+        assertEquals(new ExtractionEvent.DocumentCompleted(new ExtractedTaskListDTO("Title 1", "Desc 1", List.of("Task 1"), true)),
+                events.getLast());
+        verify(llmService, times(1)).streamPrompt(contains("BBBB"));
+    }
+
+    @Test
+    @DisplayName("openPipeline() should process a small document in a single call once completed")
+    void pipeline_ShouldProcessSmallDocumentOnComplete() throws InvalidLLMResponseException {
+        // ARRANGE
+        String document = "Page one. Page two.";
+        String expectedPrompt = String.format(promptFactory.generalTaskPromptTemplate, document);
+        when(llmService.executePrompt(expectedPrompt, ExtractedTaskListDTO.class)).thenReturn(MOCK_RESPONSE);
+
+        // ACT
+        ExtractionPipeline pipeline = taskRouterService.openPipeline();
+        pipeline.accept("Page one. ");
+        pipeline.accept("Page two.");
+        verifyNoInteractions(llmService);
+        ExtractedTaskListDTO result = pipeline.complete();
+
+        // ASSERT
+        assertSame(MOCK_RESPONSE, result);
+        assertEquals(1, meterRegistry.get("taskpilot.extraction.total").timer().count());
+    }
+
+    @Test
+    @DisplayName("openPipeline() should dispatch full chunks before the document has finished arriving")
+    void pipeline_ShouldDispatchChunksWhileTextIsStillArriving() throws InvalidLLMResponseException {
+        // ARRANGE
+        ExtractedTaskListDTO response1 = new ExtractedTaskListDTO("Title 1", "Desc 1", List.of("Task 1"));
+        ExtractedTaskListDTO response2 = new ExtractedTaskListDTO("Title 2", "Desc 2", List.of("Task 2"));
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenReturn(response1, response2);
+        when(llmService.executePrompt(contains("Summarise"), eq(String.class))).thenReturn("Final Description");
+
+        // ACT
+        ExtractionPipeline pipeline = taskRouterService.openPipeline();
+        pipeline.accept("A".repeat(30000) + "\n\n");
+        pipeline.accept("B".repeat(30000) + "\n\n");
+
+        // The first chunk is complete, so it reaches the LLM before the pipeline is completed
+        verify(llmService, timeout(1000)).executePrompt(anyString(), eq(ExtractedTaskListDTO.class));
+
+        pipeline.accept("C".repeat(100));
+        ExtractedTaskListDTO result = pipeline.complete();
+
+        // ASSERT
+        assertEquals("Title 1", result.title());
+        assertEquals("Final Description", result.description());
+        assertEquals(List.of("Task 1", "Task 2"), result.todos());
+        verify(llmService, times(2)).executePrompt(anyString(), eq(ExtractedTaskListDTO.class));
+    }
+
+    @Test
+    @DisplayName("openPipeline() should cut chunks at segment ends when there are no paragraph breaks")
+    void pipeline_ShouldCutChunksAtSegmentEnds() throws InvalidLLMResponseException {
+        // ARRANGE
+        String first = "A".repeat(20000) + "\n";
+        String second = "B".repeat(20000) + "\n";
+        String third = "C".repeat(20000) + "\n";
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenReturn(MOCK_RESPONSE);
+        when(llmService.executePrompt(contains("Summarise"), eq(String.class))).thenReturn("Final Description");
+
+        // ACT
+        ExtractionPipeline pipeline = taskRouterService.openPipeline();
+        pipeline.accept(TextSegment.ofSection(0, first));
+        pipeline.accept(TextSegment.ofSection(1, second));
+        pipeline.accept(TextSegment.ofSection(2, third));
+        pipeline.complete();
+
+        // ASSERT
+        verify(llmService).executePrompt(contains(first + second), eq(ExtractedTaskListDTO.class));
+        verify(llmService).executePrompt(argThat(prompt -> prompt.contains(third) && !prompt.contains("AAAA")), eq(ExtractedTaskListDTO.class));
+    }
+
+    @Test
+    @DisplayName("openPipeline() should not cut chunks at segment ends that aren't page or line boundaries")
+    void pipeline_ShouldIgnoreArbitrarySegmentEnds() throws InvalidLLMResponseException {
+        // ARRANGE: plain text read in blocks, none of them ending a line
+        String words = "Prove the statement by induction ".repeat(1000);
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenReturn(MOCK_RESPONSE);
+        when(llmService.executePrompt(contains("Summarise"), eq(String.class))).thenReturn("Final Description");
+
+        // ACT
+        ExtractionPipeline pipeline = taskRouterService.openPipeline();
+        for (int i = 0; i < 3; i++) {
+            pipeline.accept(TextSegment.ofSection(i, words));
+        }
+
+        // ASSERT: nothing was cut at the block ends while parsing
+        verifyNoInteractions(llmService);
+        pipeline.complete();
+        verify(llmService, atLeastOnce()).executePrompt(anyString(), eq(ExtractedTaskListDTO.class));
+    }
+
+    @Test
+    @DisplayName("openPipeline() should hold back an exercise sheet larger than a chunk and extract it locally once completed")
+    void pipeline_ShouldHoldExerciseSheetForLocalExtraction() throws InvalidLLMResponseException {
+        // ARRANGE: forty exercises make a sheet larger than several chunks
+        ExtractionPipeline pipeline = taskRouterService.openPipeline();
+
+        // ACT
+        pipeline.accept("Problem Sheet 3\n\n");
+        for (int i = 1; i <= 40; i++) {
+            pipeline.accept("Exercise " + i + ". " + "Prove the statement. ".repeat(60) + "\n\n");
+        }
+        verifyNoInteractions(llmService);
+        ExtractedTaskListDTO result = pipeline.complete();
+
+        // ASSERT
+        assertEquals("Problem Sheet 3", result.title());
+        assertEquals(40, result.todos().size());
+        assertTrue(result.todos().getFirst().startsWith("Exercise 1: Prove the statement."));
+        verifyNoInteractions(llmService);
+    }
+
+    @Test
+    @DisplayName("openPipeline() should dispatch chunks while parsing when the first chunk isn't the start of a clean exercise sheet")
+    void pipeline_ShouldNotHoldDocumentThatMentionsAnExercise() throws InvalidLLMResponseException {
+        // ARRANGE
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenReturn(MOCK_RESPONSE);
+        when(llmService.executePrompt(contains("Summarise"), eq(String.class))).thenReturn("Final Description");
+        ExtractionPipeline pipeline = taskRouterService.openPipeline();
+
+        // ACT
+        pipeline.accept("Exercise 1. Read the chapter on sorting.\n\n");
+        for (int i = 0; i < 40; i++) {
+            pipeline.accept("The notes carry on about merge sort and quick sort. ".repeat(60) + "\n\n");
+        }
+
+        // ASSERT
+        verify(llmService, timeout(5_000).atLeastOnce()).executePrompt(anyString(), eq(ExtractedTaskListDTO.class));
+        pipeline.complete();
+    }
+
+    @Test
+    @DisplayName("openPipeline() should release held text as soon as it stops looking like a clean exercise sheet")
+    void pipeline_ShouldReleaseHeldTextOnceExerciseSheetIsRuledOut() throws InvalidLLMResponseException {
+        // ARRANGE
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenReturn(MOCK_RESPONSE);
+        when(llmService.executePrompt(contains("Summarise"), eq(String.class))).thenReturn("Final Description");
+        ExtractionPipeline pipeline = taskRouterService.openPipeline();
+
+        // ACT: a clean start larger than a chunk, then pages of theory after the last exercise
+        pipeline.accept("Problem Sheet 3\n\n");
+        for (int i = 1; i <= 40; i++) {
+            pipeline.accept("Exercise " + i + ". " + "Prove the statement. ".repeat(60) + "\n\n");
+        }
+        verifyNoInteractions(llmService);
+        for (int i = 0; i < 40; i++) {
+            pipeline.accept("The theory behind the proofs goes on at length. ".repeat(60) + "\n\n");
+        }
+
+        // ASSERT
+        verify(llmService, timeout(5_000).atLeastOnce()).executePrompt(anyString(), eq(ExtractedTaskListDTO.class));
+        pipeline.complete();
+    }
+
+    @Test
+    @DisplayName("recordPipelineTimings() should leave out the time to the first LLM call when none was made")
+    void recordPipelineTimings_ShouldSkipFirstCall_WhenNoLlmCallWasMade() {
+        // ACT
+        taskRouterService.recordPipelineTimings(-1, TimeUnit.MILLISECONDS.toNanos(40), 2);
+        taskRouterService.recordPipelineTimings(TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(50), 2);
+
+        // ASSERT
+        assertEquals(2, meterRegistry.get("taskpilot.extraction.total").timer().count());
+        assertEquals(1, meterRegistry.get("taskpilot.extraction.first.llm.call").timer().count());
+        assertEquals(10, meterRegistry.get("taskpilot.extraction.first.llm.call").timer().totalTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("openPipeline() should not send the chunks still waiting for a permit once it is cancelled")
+    void pipeline_ShouldStopQueuedChunks_WhenCancelled() throws Exception {
+        // ARRANGE: every call blocks, so the request's four permits fill up and later chunks queue behind them
+        CountDownLatch release = new CountDownLatch(1);
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenAnswer(invocation -> {
+            release.await();
+            return MOCK_RESPONSE;
+        });
+        ExtractionPipeline pipeline = taskRouterService.openPipeline();
+        for (char letter = 'A'; letter <= 'H'; letter++) {
+            pipeline.accept(String.valueOf(letter).repeat(30000) + "\n\n");
+        }
+        verify(llmService, timeout(1000).times(4)).executePrompt(anyString(), eq(ExtractedTaskListDTO.class));
+
+        // ACT: parsing failed, so the document is given up on
+        pipeline.cancel();
+        release.countDown();
+
+        // ASSERT: only the calls already in flight were made, and nothing was retried
+        verify(llmService, after(300).times(4)).executePrompt(anyString(), eq(ExtractedTaskListDTO.class));
+    }
+
+    @Test
+    @DisplayName("openPipeline() should report no text when nothing was accepted")
+    void pipeline_ShouldReportNoTextWhenEmpty() {
+        ExtractionPipeline pipeline = taskRouterService.openPipeline();
+        pipeline.accept("");
+
+        assertFalse(pipeline.hasText());
+        verifyNoInteractions(llmService);
+    }
+
+    @Test
+    @DisplayName("processDocument() should answer a chunk it has already extracted from the chunk cache")
+    void processDocument_ShouldReuseCachedChunkResult() throws InvalidLLMResponseException {
+        // ARRANGE
+        String document = "Read chapter 4.";
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenReturn(MOCK_RESPONSE);
+
+        // ACT
+        ExtractedTaskListDTO first = taskRouterService.processDocument(document);
+        ExtractedTaskListDTO second = taskRouterService.processDocument(document);
+
+        // ASSERT
+        assertSame(MOCK_RESPONSE, first);
+        assertSame(MOCK_RESPONSE, second);
+        verify(llmService, times(1)).executePrompt(anyString(), eq(ExtractedTaskListDTO.class));
+        assertEquals(1, meterRegistry.get("taskpilot.llm.chunk.cache").tag("result", "hit").tag("tier", "memory").counter().count());
+    }
+
+    @Test
+    @DisplayName("processDocument() with content-defined chunks should only resend the chunks around an edit")
+    void processDocument_ShouldOnlyResendEditedChunks_WithContentDefinedChunks() throws InvalidLLMResponseException {
+        // ARRANGE
+        ChunkingConfig chunkingConfig = new ChunkingConfig(4, 1000, Map.of("gemini", 2500));
+        LLMCallExecutor llmCallExecutor = new LLMCallExecutor(Executors.newVirtualThreadPerTaskExecutor(),
+                new LLMConcurrencyConfig(16, Map.of(), 4), meterRegistry);
+        TaskRouterService router = new TaskRouterService(llmService, promptFactory, meterRegistry,
+                new ContentDefinedChunkSplitter(chunkingConfig), chunkingConfig, ROUTING_CONFIG, llmCallExecutor, chunkResultCache, SUMMARY_CONFIG, new TodoDeduplicator(meterRegistry, true, 0.8),
+                new ExerciseExtractor(meterRegistry, true, 2, 1500, false), RETRY_CONFIG, "test-model");
+        StringBuilder original = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            original.append("Item ").append(i).append(" needs review before the deadline. ");
+        }
+        String edited = original.toString().replace("Item 1000 needs review", "Item 1000 was rewritten and needs review");
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenReturn(MOCK_RESPONSE);
+        when(llmService.executePrompt(contains("Summarise"), eq(String.class))).thenReturn("Final Description");
+        int chunkCount = router.splitText(original.toString()).size();
+        router.processDocument(original.toString());
+        clearInvocations(llmService);
+
+        // ACT
+        router.processDocument(edited);
+
+        // ASSERT: the edit can move at most the cut after it, so no more than two chunks change
+        assertTrue(chunkCount > 10);
+        verify(llmService, atMost(2)).executePrompt(argThat(prompt -> !prompt.contains("Summarise")), eq(ExtractedTaskListDTO.class));
+    }
+
+    @Test
+    @DisplayName("streamDocument() should replay a cached chunk's todos without streaming from the LLM")
+    void streamDocument_ShouldReplayCachedChunk() throws InvalidLLMResponseException {
+        // ARRANGE
+        String document = "Read the notes.";
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenReturn(MOCK_RESPONSE);
+        taskRouterService.processDocument(document);
+
+        // ACT & ASSERT
+        StepVerifier.create(taskRouterService.streamDocument(document))
+                .expectNext(new ExtractionEvent.TodoExtracted(0, "Task 1"))
+                .expectNext(new ExtractionEvent.TodoExtracted(0, "Task 2"))
+                .expectNext(new ExtractionEvent.ChunkCompleted(0, MOCK_RESPONSE))
+                .expectNext(new ExtractionEvent.DocumentCompleted(MOCK_RESPONSE))
+                .verifyComplete();
+        verify(llmService, never()).streamPrompt(anyString());
+    }
+
+    @Test
+    @DisplayName("openPipeline() with content-defined chunks should send the chunks splitting the whole document gives")
+    void pipeline_ShouldDispatchSameChunksAsWholeDocument_WithContentDefinedChunks() throws InvalidLLMResponseException {
+        // ARRANGE
+        ChunkingConfig chunkingConfig = new ChunkingConfig(4, 1000, Map.of("gemini", 2500));
+        LLMCallExecutor llmCallExecutor = new LLMCallExecutor(Executors.newVirtualThreadPerTaskExecutor(),
+                new LLMConcurrencyConfig(16, Map.of(), 4), meterRegistry);
+        TaskRouterService router = new TaskRouterService(llmService, promptFactory, meterRegistry,
+                new ContentDefinedChunkSplitter(chunkingConfig), chunkingConfig, ROUTING_CONFIG, llmCallExecutor, chunkResultCache, SUMMARY_CONFIG, new TodoDeduplicator(meterRegistry, true, 0.8),
+                new ExerciseExtractor(meterRegistry, true, 2, 1500, false), RETRY_CONFIG, "test-model");
+        StringBuilder document = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            document.append("Item ").append(i).append(" needs review before the deadline. ");
+        }
+        List<String> expectedChunks = router.splitText(document.toString());
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenReturn(MOCK_RESPONSE);
+        when(llmService.executePrompt(contains("Summarise"), eq(String.class))).thenReturn("Final Description");
+
+        // ACT
+        ExtractionPipeline pipeline = router.openPipeline();
+        for (int start = 0; start < document.length(); start += 3000) {
+            pipeline.accept(document.substring(start, Math.min(document.length(), start + 3000)));
+        }
+        pipeline.complete();
+
+        // ASSERT
+        assertTrue(expectedChunks.size() > 3);
+        for (String chunk : expectedChunks) {
+            verify(llmService).executePrompt(String.format(promptFactory.generalTaskPromptTemplate, chunk), ExtractedTaskListDTO.class);
+        }
+        verify(llmService, times(expectedChunks.size())).executePrompt(anyString(), eq(ExtractedTaskListDTO.class));
+    }
+
+    @Test
+    @DisplayName("processDocument() should summarise many chunk descriptions in groups rather than in one prompt")
+    void processDocument_ShouldSummariseDescriptionsInGroups() throws InvalidLLMResponseException {
+        // ARRANGE: four descriptions fit the summary budget
+        ChunkingConfig chunkingConfig = new ChunkingConfig(4, 1000, Map.of("gemini", 2500));
+        LLMCallExecutor llmCallExecutor = new LLMCallExecutor(Executors.newVirtualThreadPerTaskExecutor(),
+                new LLMConcurrencyConfig(16, Map.of(), 4), meterRegistry);
+        TaskRouterService router = new TaskRouterService(llmService, promptFactory, meterRegistry,
+                new ContentDefinedChunkSplitter(chunkingConfig), chunkingConfig, ROUTING_CONFIG, llmCallExecutor, chunkResultCache,
+                new LLMSummaryConfig(600, 150), new TodoDeduplicator(meterRegistry, true, 0.8),
+                new ExerciseExtractor(meterRegistry, true, 2, 1500, false), RETRY_CONFIG, "test-model");
+        StringBuilder document = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            document.append("Item ").append(i).append(" needs review before the deadline. ");
+        }
+        when(llmService.executePrompt(anyString(), eq(ExtractedTaskListDTO.class))).thenReturn(MOCK_RESPONSE);
+        when(llmService.executePrompt(contains("Summarise"), eq(String.class))).thenReturn("Group summary");
+        int chunkCount = router.splitText(document.toString()).size();
+
+        // ACT
+        ExtractedTaskListDTO result = router.processDocument(document.toString());
+
+        // ASSERT
+        ArgumentCaptor<String> summaryPrompts = ArgumentCaptor.forClass(String.class);
+        verify(llmService, atLeast(3)).executePrompt(summaryPrompts.capture(), eq(String.class));
+        assertTrue(chunkCount > 10);
+        assertEquals("Group summary", result.description());
+        // Every chunk gave the same todos, so only one copy of each is kept
+        assertEquals(MOCK_RESPONSE.todos(), result.todos());
+        for (String prompt : summaryPrompts.getAllValues()) {
+            assertTrue(prompt.split("\n").length - 1 <= 4, "Summary prompt should hold at most four descriptions: " + prompt);
+        }
+    }
+
+    private TaskRouterService routerWithExerciseDescriptions() {
+        ChunkingConfig chunkingConfig = new ChunkingConfig(4, 1000, Map.of("gemini", 12500));
+        LLMCallExecutor llmCallExecutor = new LLMCallExecutor(Executors.newVirtualThreadPerTaskExecutor(),
+                new LLMConcurrencyConfig(16, Map.of(), 4), meterRegistry);
+        return new TaskRouterService(llmService, promptFactory, meterRegistry, new TokenAwareChunkSplitter(chunkingConfig), chunkingConfig, ROUTING_CONFIG,
+                llmCallExecutor, chunkResultCache, SUMMARY_CONFIG, new TodoDeduplicator(meterRegistry, true, 0.8),
+                new ExerciseExtractor(meterRegistry, true, 2, 1500, true), RETRY_CONFIG, "test-model");
+    }
+}
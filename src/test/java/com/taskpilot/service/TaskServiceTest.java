@@ -125,6 +125,21 @@ class TaskServiceTest {
         assertEquals(testUser, savedTaskList.getUser());
         assertEquals(1, savedTaskList.getTodos().size());
         assertEquals("Task A", savedTaskList.getTodos().getFirst().getContent());
+        assertFalse(savedTaskList.isPartial());
+    }
+
+    @Test
+    @DisplayName("createTask(ExtractedTaskListDTO) should save and return a partial result as partial")
+    void createTaskFromExtractedDTO_shouldKeepPartialFlag() {
+        ExtractedTaskListDTO dto = new ExtractedTaskListDTO("Extracted Title", "Extracted Desc", List.of("Task A"), true);
+        when(taskListRepository.save(any(TaskList.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TaskListDTO resultDTO = taskService.createTaskList(dto, testUser);
+
+        ArgumentCaptor<TaskList> taskCaptor = ArgumentCaptor.forClass(TaskList.class);
+        verify(taskListRepository).save(taskCaptor.capture());
+        assertTrue(taskCaptor.getValue().isPartial());
+        assertTrue(resultDTO.partial());
     }
 
     @Test
@@ -0,0 +1,118 @@
+package com.taskpilot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TodoDeduplicatorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TodoDeduplicator deduplicator = new TodoDeduplicator(meterRegistry, true, 0.8);
+
+    @Test
+    @DisplayName("deduplicate() should drop a todo that repeats an earlier one up to case, punctuation and spacing")
+    void deduplicate_dropsRepeatedTodo() {
+        // ARRANGE
+        List<String> todos = List.of(
+                "Read chapter three of the textbook.",
+                "Write up the lab report",
+                "read  Chapter three of the textbook");
+
+        // ACT
+        List<String> result = deduplicator.deduplicate(todos);
+
+        // ASSERT
+        assertEquals(List.of("Read chapter three of the textbook.", "Write up the lab report"), result);
+        assertEquals(1.0, meterRegistry.counter("taskpilot.tasks.todos.deduplicated").count());
+    }
+
+    @Test
+    @DisplayName("deduplicate() should drop a todo that nearly repeats an earlier one")
+    void deduplicate_dropsNearDuplicate() {
+        // ARRANGE
+        List<String> todos = List.of(
+                "Review the lecture notes on thermodynamics and entropy",
+                "Review the lecture notes on thermodynamics and entropy again");
+
+        // ACT
+        List<String> result = deduplicator.deduplicate(todos);
+
+        // ASSERT
+        assertEquals(List.of("Review the lecture notes on thermodynamics and entropy"), result);
+    }
+
+    @Test
+    @DisplayName("deduplicate() should keep todos that differ only in the numbers they mention")
+    void deduplicate_keepsTodosWithDifferentNumbers() {
+        // ARRANGE
+        List<String> todos = List.of(
+                "Complete exercise 1.2 on page 4",
+                "Complete exercise 1.3 on page 4",
+                "Complete exercise 1.2 on page 4");
+
+        // ACT
+        List<String> result = deduplicator.deduplicate(todos);
+
+        // ASSERT
+        assertEquals(List.of("Complete exercise 1.2 on page 4", "Complete exercise 1.3 on page 4"), result);
+    }
+
+    @Test
+    @DisplayName("deduplicate() should keep dissimilar todos in their original order")
+    void deduplicate_keepsDistinctTodosInOrder() {
+        List<String> todos = List.of("Buy a lab coat", "Email the tutor", "Revise for the quiz", "Go");
+
+        assertEquals(todos, deduplicator.deduplicate(todos));
+    }
+
+    @Test
+    @DisplayName("deduplicate() should return the todos unchanged when disabled")
+    void deduplicate_returnsInput_whenDisabled() {
+        TodoDeduplicator disabled = new TodoDeduplicator(meterRegistry, false, 0.8);
+        List<String> todos = List.of("Read chapter three", "Read chapter three");
+
+        assertSame(todos, disabled.deduplicate(todos));
+    }
+
+    @Test
+    @DisplayName("deduplicate() should drop every repeat and keep every distinct todo among 10K synthetic todos")
+    void deduplicate_handlesTenThousandTodos() {
+        // ARRANGE: 9,000 distinct todos, then 1,000 repeats of earlier ones with different case and punctuation
+        SplittableRandom random = new SplittableRandom(42);
+        List<String> todos = new ArrayList<>();
+        for (int i = 0; i < 9_000; i++) {
+            todos.add(randomTodo(random));
+        }
+        for (int i = 0; i < 1_000; i++) {
+            todos.add(todos.get(random.nextInt(9_000)).toUpperCase(Locale.ROOT) + "!");
+        }
+
+        // ACT
+        List<String> result = deduplicator.deduplicate(todos);
+
+        // ASSERT: full recall of the repeats, and no distinct todo mistaken for one
+        assertEquals(todos.subList(0, 9_000), result);
+    }
+
+    private static String randomTodo(SplittableRandom random) {
+        StringBuilder todo = new StringBuilder();
+        int words = 5 + random.nextInt(6);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                todo.append(' ');
+            }
+            int letters = 3 + random.nextInt(6);
+            for (int l = 0; l < letters; l++) {
+                todo.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return todo.toString();
+    }
+}